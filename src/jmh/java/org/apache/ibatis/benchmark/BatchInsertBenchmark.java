@@ -0,0 +1,76 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rows inserted per second through the {@link org.apache.ibatis.executor.BatchExecutor}, in batches of
+ * {@value #BATCH_SIZE} rows that are rolled back so that the table does not grow.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BatchInsertBenchmark {
+
+  private static final int BATCH_SIZE = 1000;
+  private static final int FIRST_ID = 1_000_000;
+
+  private SqlSessionFactory sqlSessionFactory;
+  private Post[] posts;
+
+  @Setup
+  public void setUp() throws Exception {
+    sqlSessionFactory = BenchmarkDatabase.create("POOLED", LocalCacheScope.SESSION);
+    posts = new Post[BATCH_SIZE];
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      posts[i] = new Post(FIRST_ID + i, 1 + i % BenchmarkDatabase.AUTHORS, "Subject " + i, "Body " + i);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void batchInsert() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      BlogMapper mapper = sqlSession.getMapper(BlogMapper.class);
+      for (Post post : posts) {
+        mapper.insertPost(post);
+      }
+      sqlSession.flushStatements();
+      sqlSession.rollback(true);
+    }
+  }
+
+}
@@ -0,0 +1,92 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+
+/**
+ * In-memory HSQLDB fixture shared by the benchmarks: a blog schema with authors and their posts.
+ */
+public final class BenchmarkDatabase {
+
+  public static final int AUTHORS = 100;
+  public static final int POSTS_PER_AUTHOR = 5;
+
+  private static final AtomicInteger DATABASE_SEQUENCE = new AtomicInteger();
+
+  private BenchmarkDatabase() {
+    // Prevent Instantiation
+  }
+
+  public static SqlSessionFactory create(String dataSourceType, LocalCacheScope localCacheScope) throws IOException, SQLException {
+    Properties properties = new Properties();
+    properties.setProperty("dataSourceType", dataSourceType);
+    properties.setProperty("localCacheScope", localCacheScope.name());
+    // a database per fixture, so that forks and parameter sets never share data
+    properties.setProperty("database", "benchmark" + DATABASE_SEQUENCE.incrementAndGet());
+    SqlSessionFactory sqlSessionFactory;
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/benchmark/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader, properties);
+    }
+    try (SqlSession session = sqlSessionFactory.openSession();
+        Reader script = Resources.getResourceAsReader("org/apache/ibatis/benchmark/CreateDB.sql")) {
+      Connection connection = session.getConnection();
+      ScriptRunner runner = new ScriptRunner(connection);
+      runner.setLogWriter(null);
+      runner.runScript(script);
+      populate(connection);
+      connection.commit();
+    }
+    return sqlSessionFactory;
+  }
+
+  private static void populate(Connection connection) throws SQLException {
+    try (PreparedStatement authors = connection.prepareStatement("insert into author (id, username, email) values (?, ?, ?)");
+        PreparedStatement posts = connection.prepareStatement("insert into post (id, author_id, subject, body) values (?, ?, ?, ?)")) {
+      int postId = 0;
+      for (int authorId = 1; authorId <= AUTHORS; authorId++) {
+        authors.setInt(1, authorId);
+        authors.setString(2, "author" + authorId);
+        authors.setString(3, "author" + authorId + "@example.com");
+        authors.addBatch();
+        for (int i = 0; i < POSTS_PER_AUTHOR; i++) {
+          postId++;
+          posts.setInt(1, postId);
+          posts.setInt(2, authorId);
+          posts.setString(3, "Subject " + postId);
+          posts.setString(4, "Body of post " + postId + " written by author " + authorId);
+          posts.addBatch();
+        }
+      }
+      authors.executeBatch();
+      posts.executeBatch();
+    }
+  }
+
+}
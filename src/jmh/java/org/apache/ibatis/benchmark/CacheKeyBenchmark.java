@@ -0,0 +1,130 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link CacheKey} with the 3.5.5 implementation ({@link LegacyCacheKey}) on the two hot paths: building
+ * the key of a query and looking it up in the local cache, and combining nested result map row keys.
+ * <p>
+ * Run with <code>-prof gc</code> to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CacheKeyBenchmark {
+
+  private static final String STATEMENT_ID = "org.apache.ibatis.benchmark.BlogMapper.selectAuthorsByCriteria";
+  private static final String SQL = "select id, username, email from author where username like ? and id in (?, ?, ?)";
+
+  @Param({ "2", "16" })
+  private int parameterCount;
+
+  private Object[] parameters;
+  private Map<CacheKey, Object> localCache;
+  private Map<LegacyCacheKey, Object> legacyLocalCache;
+  private CacheKey rowKey;
+  private CacheKey parentRowKey;
+  private LegacyCacheKey legacyRowKey;
+  private LegacyCacheKey legacyParentRowKey;
+
+  @Setup
+  public void setUp() {
+    parameters = new Object[parameterCount];
+    for (int i = 0; i < parameterCount; i++) {
+      parameters[i] = i % 2 == 0 ? (Object) i : "value" + i;
+    }
+    localCache = new HashMap<>();
+    localCache.put(queryKey(), Boolean.TRUE);
+    legacyLocalCache = new HashMap<>();
+    legacyLocalCache.put(legacyQueryKey(), Boolean.TRUE);
+    rowKey = new CacheKey(new Object[] { "authorResult", "id", 1 });
+    parentRowKey = new CacheKey(new Object[] { "blogResult", "id", 1 });
+    legacyRowKey = new LegacyCacheKey(new Object[] { "authorResult", "id", 1 });
+    legacyParentRowKey = new LegacyCacheKey(new Object[] { "blogResult", "id", 1 });
+  }
+
+  @Benchmark
+  public Object localCacheLookup() {
+    return localCache.get(queryKey());
+  }
+
+  @Benchmark
+  public Object legacyLocalCacheLookup() {
+    return legacyLocalCache.get(legacyQueryKey());
+  }
+
+  @Benchmark
+  public CacheKey combineRowKeys() throws CloneNotSupportedException {
+    CacheKey combinedKey = rowKey.clone();
+    combinedKey.update(parentRowKey);
+    return combinedKey;
+  }
+
+  @Benchmark
+  public LegacyCacheKey legacyCombineRowKeys() throws CloneNotSupportedException {
+    LegacyCacheKey combinedKey = legacyRowKey.clone();
+    combinedKey.update(legacyParentRowKey);
+    return combinedKey;
+  }
+
+  // same components as BaseExecutor.createCacheKey()
+  private CacheKey queryKey() {
+    CacheKey cacheKey = new CacheKey(parameters.length + 5);
+    cacheKey.update(STATEMENT_ID);
+    cacheKey.update(0);
+    cacheKey.update(Integer.MAX_VALUE);
+    cacheKey.update(SQL);
+    for (Object parameter : parameters) {
+      cacheKey.update(parameter);
+    }
+    cacheKey.update("benchmark");
+    return cacheKey;
+  }
+
+  private LegacyCacheKey legacyQueryKey() {
+    LegacyCacheKey cacheKey = new LegacyCacheKey();
+    cacheKey.update(STATEMENT_ID);
+    cacheKey.update(0);
+    cacheKey.update(Integer.MAX_VALUE);
+    cacheKey.update(SQL);
+    for (Object parameter : parameters) {
+      cacheKey.update(parameter);
+    }
+    cacheKey.update("benchmark");
+    return cacheKey;
+  }
+
+}
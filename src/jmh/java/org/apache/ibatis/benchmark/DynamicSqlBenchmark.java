@@ -0,0 +1,71 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of generating the SQL of a statement with <code>&lt;where&gt;</code>, <code>&lt;if&gt;</code> and
+ * <code>&lt;foreach&gt;</code>, without executing it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DynamicSqlBenchmark {
+
+  @Param({ "1", "10", "100" })
+  private int idCount;
+
+  private MappedStatement mappedStatement;
+  private AuthorCriteria criteria;
+
+  @Setup
+  public void setUp() throws Exception {
+    mappedStatement = BenchmarkDatabase.create("UNPOOLED", LocalCacheScope.SESSION).getConfiguration()
+        .getMappedStatement("org.apache.ibatis.benchmark.BlogMapper.selectAuthorsByCriteria");
+    List<Integer> ids = new ArrayList<>();
+    for (int i = 1; i <= idCount; i++) {
+      ids.add(i);
+    }
+    criteria = new AuthorCriteria("author%", null, ids);
+  }
+
+  @Benchmark
+  public BoundSql ifAndForeach() {
+    return mappedStatement.getBoundSql(criteria);
+  }
+
+}
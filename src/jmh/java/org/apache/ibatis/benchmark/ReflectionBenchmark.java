@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.invoker.InvokerType;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Property access through {@link MetaObject} and the {@link Reflector} invokers, as done per column by the result
+ * set handler and per parameter by the parameter handler, with each {@link InvokerType}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ReflectionBenchmark {
+
+  @Param({ "REFLECTION", "METHOD_HANDLE", "LAMBDA" })
+  public InvokerType invokerType;
+
+  private final DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  private Author author;
+  private Reflector reflector;
+
+  @Setup
+  public void setUp() {
+    author = new Author();
+    author.setUsername("author1");
+    reflectorFactory.setInvokerType(invokerType);
+    reflector = reflectorFactory.findForClass(Author.class);
+  }
+
+  @Benchmark
+  public Object metaObjectGetValue() {
+    return newMetaObject().getValue("username");
+  }
+
+  @Benchmark
+  public Author metaObjectSetValue() {
+    newMetaObject().setValue("username", "author2");
+    return author;
+  }
+
+  @Benchmark
+  public Object invokerGetValue() throws Exception {
+    return reflector.getGetInvoker("username").invoke(author, null);
+  }
+
+  @Benchmark
+  public Author invokerSetValue() throws Exception {
+    reflector.getSetInvoker("username").invoke(author, new Object[] { "author2" });
+    return author;
+  }
+
+  private MetaObject newMetaObject() {
+    return MetaObject.forObject(author, new DefaultObjectFactory(), new DefaultObjectWrapperFactory(), reflectorFactory);
+  }
+
+}
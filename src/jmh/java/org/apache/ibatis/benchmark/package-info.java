@@ -0,0 +1,24 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+/**
+ * JMH benchmarks of the core execution pipeline.
+ * <p>
+ * They are compiled and run by the <code>benchmarks</code> profile only: <code>./mvnw -Pbenchmarks verify</code>.
+ * Use <code>-Djmh.includes=&lt;regexp&gt;</code> to select benchmarks; the results are written to
+ * <code>target/jmh-result.json</code>. Warmup, measurement and fork counts are fixed on each benchmark class so that
+ * runs on the same machine are comparable. See <code>src/jmh/README.md</code> for how to record a baseline.
+ */
+package org.apache.ibatis.benchmark;
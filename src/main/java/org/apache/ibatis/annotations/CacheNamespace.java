@@ -71,6 +71,30 @@ public @interface CacheNamespace {
    */
   long flushInterval() default 0;
 
+  /**
+   * Returns the time after which each entry expires once written.
+   *
+   * @return the time to live in milliseconds, or 0 to never expire
+   * @since 3.5.6
+   */
+  long timeToLive() default 0;
+
+  /**
+   * Returns the time after which each entry expires once last read.
+   *
+   * @return the time to idle in milliseconds, or 0 to never expire
+   * @since 3.5.6
+   */
+  long timeToIdle() default 0;
+
+  /**
+   * Returns how long before the end of its time to live an entry that is read is reloaded.
+   *
+   * @return the refresh ahead time in milliseconds, or 0 to not reload entries before they expire
+   * @since 3.5.6
+   */
+  long refreshAhead() default 0;
+
   /**
    * Return the cache size.
    *
@@ -138,6 +138,26 @@ public @interface Options {
    */
   String resultSets() default "";
 
+  /**
+   * Returns the tags (usually table names) used to invalidate the 2nd cache entries by table.
+   * <p>
+   * If you specify multiple tag, please separate using comma(','). When empty, the tables are found in the sql.
+   * </p>
+   *
+   * @return tags that separate with comma(',')
+   * @since 3.5.6
+   * @see org.apache.ibatis.session.Configuration#isTableAwareCacheInvalidation()
+   */
+  String cacheTags() default "";
+
+  /**
+   * Returns whether the results are kept in the local cache of the session once the query that executed them ends.
+   *
+   * @return {@code true} if kept; {@code false} if only kept while the query runs
+   * @since 3.5.6
+   */
+  boolean useLocalCache() default true;
+
   /**
    * @return A database id that correspond this options
    * @since 3.5.5
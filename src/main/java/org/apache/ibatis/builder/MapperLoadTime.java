@@ -0,0 +1,72 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+/**
+ * The time it took to load a mapper XML, split into reading the document and building the statements from it.
+ *
+ * @since 3.5.6
+ */
+public class MapperLoadTime {
+
+  private final String resource;
+  private final long parseNanos;
+  private final long buildNanos;
+
+  public MapperLoadTime(String resource, long parseNanos, long buildNanos) {
+    this.resource = resource;
+    this.parseNanos = parseNanos;
+    this.buildNanos = buildNanos;
+  }
+
+  /**
+   * Gets the resource or url of the mapper XML.
+   *
+   * @return the resource
+   */
+  public String getResource() {
+    return resource;
+  }
+
+  /**
+   * Gets the time spent reading, parsing and validating the document. When mappers are parsed in parallel this time
+   * overlaps with the other mappers.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getParseNanos() {
+    return parseNanos;
+  }
+
+  /**
+   * Gets the time spent building the result maps, caches and statements of the mapper into the configuration.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getBuildNanos() {
+    return buildNanos;
+  }
+
+  public long getTotalNanos() {
+    return parseNanos + buildNanos;
+  }
+
+  @Override
+  public String toString() {
+    return resource + " (parse " + parseNanos / 1000000 + " ms, build " + buildNanos / 1000000 + " ms)";
+  }
+
+}
@@ -186,8 +186,12 @@ public class MapperAnnotationBuilder {
     if (cacheDomain != null) {
       Integer size = cacheDomain.size() == 0 ? null : cacheDomain.size();
       Long flushInterval = cacheDomain.flushInterval() == 0 ? null : cacheDomain.flushInterval();
+      Long timeToLive = cacheDomain.timeToLive() == 0 ? null : cacheDomain.timeToLive();
+      Long timeToIdle = cacheDomain.timeToIdle() == 0 ? null : cacheDomain.timeToIdle();
+      Long refreshAhead = cacheDomain.refreshAhead() == 0 ? null : cacheDomain.refreshAhead();
       Properties props = convertToProperties(cacheDomain.properties());
-      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), props);
+      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, timeToLive, timeToIdle,
+          refreshAhead, cacheDomain.readWrite(), cacheDomain.blocking(), props);
     }
   }
 
@@ -378,7 +382,9 @@ public class MapperAnnotationBuilder {
           statementAnnotation.getDatabaseId(),
           languageDriver,
           // ResultSets
-          options != null ? nullOrEmpty(options.resultSets()) : null);
+          options != null ? nullOrEmpty(options.resultSets()) : null,
+          options != null ? nullOrEmpty(options.cacheTags()) : null,
+          options == null || options.useLocalCache());
     });
   }
 
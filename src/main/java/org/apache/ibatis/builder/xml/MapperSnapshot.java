@@ -0,0 +1,383 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.xml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.parsing.StaxDocumentLoader;
+import org.apache.ibatis.parsing.XPathParser;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.Text;
+
+/**
+ * A binary snapshot of parsed and validated mapper XML documents.
+ * <p>
+ * Each document is stored along with a checksum of the XML it was parsed from. When the checksum of a mapper XML still
+ * matches, its document is rebuilt from the snapshot, which skips the XML parser and the DTD validation. Otherwise the
+ * XML is parsed as usual and the snapshot is updated, so it can be written again with {@link #store(Path)}.
+ * <p>
+ * Only the documents are captured: the result maps, caches and statements are still built from them on every start,
+ * as they hold type handlers, object factories and other instances that depend on the configuration.
+ * <p>
+ * The header of the file records the format of the snapshot, the version of MyBatis that wrote it and whether its
+ * documents were validated against the mapper DTD. A snapshot whose header does not match is discarded as a whole.
+ *
+ * @since 3.5.6
+ */
+public class MapperSnapshot {
+
+  private static final int MAGIC = 0x4D424453;
+  private static final int VERSION = 2;
+  private static final String MYBATIS_VERSION = mybatisVersion();
+
+  private static final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+
+  private final boolean streaming;
+  private final Map<String, Entry> entries;
+  private final Map<String, Entry> usedEntries = new ConcurrentHashMap<>();
+  private volatile boolean modified;
+
+  private MapperSnapshot(boolean streaming, Map<String, Entry> entries) {
+    this.streaming = streaming;
+    this.entries = entries;
+  }
+
+  /**
+   * Creates an empty snapshot whose mapper XML files are parsed and validated with the DOM parser.
+   *
+   * @return the snapshot
+   */
+  public static MapperSnapshot empty() {
+    return empty(false);
+  }
+
+  /**
+   * Creates an empty snapshot.
+   *
+   * @param streaming
+   *          <code>true</code> to parse the mapper XML files without validation, as
+   *          {@link org.apache.ibatis.session.Configuration#isStreamingMapperParsing()} does
+   * @return the snapshot
+   */
+  public static MapperSnapshot empty(boolean streaming) {
+    return new MapperSnapshot(streaming, new ConcurrentHashMap<>());
+  }
+
+  /**
+   * Loads a snapshot previously written with {@link #store(Path)}, whose mapper XML files are parsed and validated with
+   * the DOM parser.
+   *
+   * @param file
+   *          the snapshot file
+   * @return the snapshot, or an empty snapshot if the file does not exist or cannot be read
+   */
+  public static MapperSnapshot load(Path file) {
+    return load(file, false);
+  }
+
+  /**
+   * Loads a snapshot previously written with {@link #store(Path)}.
+   *
+   * @param file
+   *          the snapshot file
+   * @param streaming
+   *          <code>true</code> to parse the mapper XML files without validation, as
+   *          {@link org.apache.ibatis.session.Configuration#isStreamingMapperParsing()} does
+   * @return the snapshot, or an empty snapshot if the file does not exist, cannot be read, or was written by another
+   *         version of MyBatis or with another parsing mode
+   */
+  public static MapperSnapshot load(Path file, boolean streaming) {
+    if (!Files.isRegularFile(file)) {
+      return empty(streaming);
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || !MYBATIS_VERSION.equals(readString(in))
+          || in.readBoolean() != streaming) {
+        return empty(streaming);
+      }
+      int size = in.readInt();
+      Map<String, Entry> entries = new ConcurrentHashMap<>();
+      for (int i = 0; i < size; i++) {
+        String location = readString(in);
+        entries.put(location, new Entry(readBytes(in), readBytes(in)));
+      }
+      return new MapperSnapshot(streaming, entries);
+    } catch (IOException | RuntimeException e) {
+      // a truncated or corrupted snapshot is discarded, the mappers are parsed again
+      return empty(streaming);
+    }
+  }
+
+  /**
+   * Parses a mapper XML, or rebuilds its document from this snapshot if the XML has not changed.
+   *
+   * @param location
+   *          the resource or url of the mapper XML
+   * @param inputStream
+   *          the mapper XML
+   * @param variables
+   *          the configuration variables
+   * @return the parser of the mapper document
+   * @throws IOException
+   *           if the mapper XML cannot be read
+   */
+  public XPathParser parse(String location, InputStream inputStream, Properties variables) throws IOException {
+    byte[] xml = readFully(inputStream);
+    byte[] checksum = checksum(xml);
+    Entry entry = entries.get(location);
+    if (entry != null && Arrays.equals(entry.checksum, checksum)) {
+      Document document;
+      try {
+        document = entry.toDocument();
+      } catch (IOException | RuntimeException e) {
+        document = null;
+      }
+      if (document != null) {
+        usedEntries.put(location, entry);
+        return newParser(document, variables);
+      }
+    }
+    XPathParser parser = streaming
+        ? new XPathParser(StaxDocumentLoader.load(new ByteArrayInputStream(xml)), false, variables, null)
+        : new XPathParser(new ByteArrayInputStream(xml), true, variables, new XMLMapperEntityResolver());
+    usedEntries.put(location, new Entry(checksum, encode(parser.evalNode("/*").getNode())));
+    modified = true;
+    return parser;
+  }
+
+  private XPathParser newParser(Document document, Properties variables) {
+    return streaming ? new XPathParser(document, false, variables, null)
+        : new XPathParser(document, true, variables, new XMLMapperEntityResolver());
+  }
+
+  /**
+   * Returns whether this snapshot differs from the mapper XML files parsed through it, either because some of them were
+   * not in the snapshot or had changed, or because some of the documents in the snapshot were not used.
+   *
+   * @return <code>true</code> if the snapshot should be stored again
+   */
+  public boolean isModified() {
+    return modified || usedEntries.size() != entries.size();
+  }
+
+  /**
+   * Writes the documents of the mapper XML files parsed through this snapshot. The file is replaced atomically when the
+   * file system supports it.
+   *
+   * @param file
+   *          the snapshot file
+   * @throws IOException
+   *           if the snapshot cannot be written
+   */
+  public void store(Path file) throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, MYBATIS_VERSION);
+        out.writeBoolean(streaming);
+        out.writeInt(usedEntries.size());
+        for (Map.Entry<String, Entry> entry : usedEntries.entrySet()) {
+          writeString(out, entry.getKey());
+          writeBytes(out, entry.getValue().checksum);
+          writeBytes(out, entry.getValue().document);
+        }
+      }
+      try {
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  private static byte[] encode(Node root) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      writeNode(out, root);
+    } catch (IOException e) {
+      throw new BuilderException("Error writing the mapper snapshot. Cause: " + e, e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeNode(DataOutputStream out, Node node) throws IOException {
+    short type = node.getNodeType();
+    out.writeByte(type);
+    if (type == Node.ELEMENT_NODE) {
+      writeString(out, node.getNodeName());
+      NamedNodeMap attributes = node.getAttributes();
+      out.writeInt(attributes.getLength());
+      for (int i = 0; i < attributes.getLength(); i++) {
+        Node attribute = attributes.item(i);
+        writeString(out, attribute.getNodeName());
+        writeString(out, attribute.getNodeValue());
+      }
+      NodeList children = node.getChildNodes();
+      int count = 0;
+      for (int i = 0; i < children.getLength(); i++) {
+        if (isStored(children.item(i))) {
+          count++;
+        }
+      }
+      out.writeInt(count);
+      for (int i = 0; i < children.getLength(); i++) {
+        Node child = children.item(i);
+        if (isStored(child)) {
+          writeNode(out, child);
+        }
+      }
+    } else {
+      writeString(out, node.getNodeValue());
+    }
+  }
+
+  private static boolean isStored(Node node) {
+    switch (node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+      case Node.CDATA_SECTION_NODE:
+        return true;
+      case Node.TEXT_NODE:
+        // the whitespace between the elements of an element-only content model is never read
+        return !((Text) node).isElementContentWhitespace();
+      default:
+        return false;
+    }
+  }
+
+  private static Node readNode(DataInputStream in, Document document) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case Node.ELEMENT_NODE:
+        Element element = document.createElement(readString(in));
+        int attributes = in.readInt();
+        for (int i = 0; i < attributes; i++) {
+          element.setAttribute(readString(in), readString(in));
+        }
+        int children = in.readInt();
+        for (int i = 0; i < children; i++) {
+          element.appendChild(readNode(in, document));
+        }
+        return element;
+      case Node.TEXT_NODE:
+        return document.createTextNode(readString(in));
+      case Node.CDATA_SECTION_NODE:
+        return document.createCDATASection(readString(in));
+      default:
+        throw new IOException("Unexpected node type " + type + " in the mapper snapshot.");
+    }
+  }
+
+  private static String mybatisVersion() {
+    String version = MapperSnapshot.class.getPackage().getImplementationVersion();
+    // without a manifest (e.g. classes run from an IDE) the version cannot be told apart
+    return version == null ? "unknown" : version;
+  }
+
+  private static byte[] checksum(byte[] xml) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(xml);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported by this JVM.", e);
+    }
+  }
+
+  private static byte[] readFully(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = inputStream.read(buffer)) != -1) {
+      bytes.write(buffer, 0, read);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return new String(readBytes(in), StandardCharsets.UTF_8);
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+    out.writeInt(value.length);
+    out.write(value);
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    byte[] value = new byte[in.readInt()];
+    in.readFully(value);
+    return value;
+  }
+
+  private static final class Entry {
+
+    private final byte[] checksum;
+    private final byte[] document;
+
+    private Entry(byte[] checksum, byte[] document) {
+      this.checksum = checksum;
+      this.document = document;
+    }
+
+    private Document toDocument() throws IOException {
+      Document result;
+      try {
+        synchronized (documentBuilderFactory) {
+          result = documentBuilderFactory.newDocumentBuilder().newDocument();
+        }
+      } catch (ParserConfigurationException e) {
+        throw new BuilderException("Error creating document instance.  Cause: " + e, e);
+      }
+      try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(document))) {
+        result.appendChild(readNode(in, result));
+      }
+      return result;
+    }
+  }
+
+}
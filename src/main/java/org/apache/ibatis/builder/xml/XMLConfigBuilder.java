@@ -15,22 +15,34 @@
  */
 package org.apache.ibatis.builder.xml;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.MapperLoadTime;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.DatabaseIdProvider;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.parsing.StaxDocumentLoader;
 import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.parsing.XPathParser;
 import org.apache.ibatis.plugin.Interceptor;
@@ -38,6 +50,7 @@ import org.apache.ibatis.reflection.DefaultReflectorFactory;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.InvokerType;
 import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
@@ -53,6 +66,8 @@ import org.apache.ibatis.type.JdbcType;
  */
 public class XMLConfigBuilder extends BaseBuilder {
 
+  private static final Log log = LogFactory.getLog(XMLConfigBuilder.class);
+
   private boolean parsed;
   private final XPathParser parser;
   private String environment;
@@ -270,6 +285,20 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setConfigurationFactory(resolveClass(props.getProperty("configurationFactory")));
     configuration.setShrinkWhitespacesInSql(booleanValueOf(props.getProperty("shrinkWhitespacesInSql"), false));
     configuration.setDefaultSqlProviderType(resolveClass(props.getProperty("defaultSqlProviderType")));
+    configuration.setCompiledRowMappingEnabled(booleanValueOf(props.getProperty("compiledRowMappingEnabled"), false));
+    configuration.setBatchFlushRows(integerValueOf(props.getProperty("batchFlushRows"), null));
+    configuration.setBatchFlushBytes(integerValueOf(props.getProperty("batchFlushBytes"), null));
+    configuration.setBatchFlushPipelineDepth(integerValueOf(props.getProperty("batchFlushPipelineDepth"), null));
+    configuration.setBatchFlushPipelineThreadSafe(booleanValueOf(props.getProperty("batchFlushPipelineThreadSafe"), null));
+    configuration.setNestedSelectBatchSize(integerValueOf(props.getProperty("nestedSelectBatchSize"), 100));
+    configuration.setRetainBatchParameters(booleanValueOf(props.getProperty("retainBatchParameters"), true));
+    configuration.setTableAwareCacheInvalidation(booleanValueOf(props.getProperty("tableAwareCacheInvalidation"), false));
+    configuration.setLocalCacheSize(integerValueOf(props.getProperty("localCacheSize"), null));
+    configuration.setLocalCacheMaxBytes(integerValueOf(props.getProperty("localCacheMaxBytes"), null));
+    configuration.setInvokerType(InvokerType.valueOf(props.getProperty("invokerType", "REFLECTION")));
+    configuration.setParallelMapperParsing(booleanValueOf(props.getProperty("parallelMapperParsing"), false));
+    configuration.setMapperSnapshotFile(props.getProperty("mapperSnapshotFile"));
+    configuration.setStreamingMapperParsing(booleanValueOf(props.getProperty("streamingMapperParsing"), false));
   }
 
   private void environmentsElement(XNode context) throws Exception {
@@ -362,33 +391,125 @@ public class XMLConfigBuilder extends BaseBuilder {
 
   private void mapperElement(XNode parent) throws Exception {
     if (parent != null) {
-      for (XNode child : parent.getChildren()) {
-        if ("package".equals(child.getName())) {
-          String mapperPackage = child.getStringAttribute("name");
-          configuration.addMappers(mapperPackage);
-        } else {
-          String resource = child.getStringAttribute("resource");
-          String url = child.getStringAttribute("url");
-          String mapperClass = child.getStringAttribute("class");
-          if (resource != null && url == null && mapperClass == null) {
-            ErrorContext.instance().resource(resource);
-            InputStream inputStream = Resources.getResourceAsStream(resource);
-            XMLMapperBuilder mapperParser = new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments());
-            mapperParser.parse();
-          } else if (resource == null && url != null && mapperClass == null) {
-            ErrorContext.instance().resource(url);
-            InputStream inputStream = Resources.getUrlAsStream(url);
-            XMLMapperBuilder mapperParser = new XMLMapperBuilder(inputStream, configuration, url, configuration.getSqlFragments());
-            mapperParser.parse();
-          } else if (resource == null && url == null && mapperClass != null) {
-            Class<?> mapperInterface = Resources.classForName(mapperClass);
-            configuration.addMapper(mapperInterface);
+      List<XNode> children = parent.getChildren();
+      String snapshotFile = configuration.getMapperSnapshotFile();
+      MapperSnapshot snapshot = snapshotFile == null ? null : MapperSnapshot.load(Paths.get(snapshotFile),
+          configuration.isStreamingMapperParsing());
+      Map<XNode, ForkJoinTask<MapperDocument>> documents = configuration.isParallelMapperParsing()
+          ? parseMapperDocuments(children, snapshot) : Collections.emptyMap();
+      try {
+        for (XNode child : children) {
+          if ("package".equals(child.getName())) {
+            String mapperPackage = child.getStringAttribute("name");
+            configuration.addMappers(mapperPackage);
           } else {
-            throw new BuilderException("A mapper element may only specify a url, resource or class, but not more than one.");
+            String resource = child.getStringAttribute("resource");
+            String url = child.getStringAttribute("url");
+            String mapperClass = child.getStringAttribute("class");
+            if (resource != null && url == null && mapperClass == null) {
+              ErrorContext.instance().resource(resource);
+              buildMapper(resource, false, snapshot, documents.get(child));
+            } else if (resource == null && url != null && mapperClass == null) {
+              ErrorContext.instance().resource(url);
+              buildMapper(url, true, snapshot, documents.get(child));
+            } else if (resource == null && url == null && mapperClass != null) {
+              Class<?> mapperInterface = Resources.classForName(mapperClass);
+              configuration.addMapper(mapperInterface);
+            } else {
+              throw new BuilderException("A mapper element may only specify a url, resource or class, but not more than one.");
+            }
           }
         }
+      } finally {
+        documents.values().forEach(task -> task.cancel(false));
+      }
+      if (snapshot != null && snapshot.isModified()) {
+        storeMapperSnapshot(snapshot, snapshotFile);
+      }
+    }
+  }
+
+  private void storeMapperSnapshot(MapperSnapshot snapshot, String snapshotFile) {
+    try {
+      snapshot.store(Paths.get(snapshotFile));
+    } catch (IOException | RuntimeException e) {
+      // like a corrupted snapshot, an unwritable one only means that the mappers are parsed again on next start
+      log.warn("Could not store the mapper snapshot " + snapshotFile + ".  Cause: " + e);
+    }
+  }
+
+  private Map<XNode, ForkJoinTask<MapperDocument>> parseMapperDocuments(List<XNode> children, MapperSnapshot snapshot) {
+    Map<XNode, ForkJoinTask<MapperDocument>> documents = new IdentityHashMap<>();
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    for (XNode child : children) {
+      if (!"package".equals(child.getName()) && child.getStringAttribute("class") == null) {
+        String resource = child.getStringAttribute("resource");
+        String url = child.getStringAttribute("url");
+        if (resource != null && url == null) {
+          documents.put(child, forkMapperDocument(resource, false, snapshot, classLoader));
+        } else if (resource == null && url != null) {
+          documents.put(child, forkMapperDocument(url, true, snapshot, classLoader));
+        }
       }
     }
+    return documents;
+  }
+
+  private ForkJoinTask<MapperDocument> forkMapperDocument(String location, boolean url, MapperSnapshot snapshot,
+      ClassLoader classLoader) {
+    return ForkJoinPool.commonPool().submit(() -> {
+      // resources are looked up through the context class loader, which differs on the pool threads
+      Thread thread = Thread.currentThread();
+      ClassLoader previous = thread.getContextClassLoader();
+      thread.setContextClassLoader(classLoader);
+      try {
+        return parseMapperDocument(location, url, snapshot);
+      } finally {
+        thread.setContextClassLoader(previous);
+      }
+    });
+  }
+
+  private MapperDocument parseMapperDocument(String location, boolean url, MapperSnapshot snapshot) throws IOException {
+    long start = System.nanoTime();
+    try (InputStream inputStream = url ? Resources.getUrlAsStream(location) : Resources.getResourceAsStream(location)) {
+      XPathParser parser;
+      if (snapshot != null) {
+        parser = snapshot.parse(location, inputStream, configuration.getVariables());
+      } else if (configuration.isStreamingMapperParsing()) {
+        parser = new XPathParser(StaxDocumentLoader.load(inputStream), false, configuration.getVariables(), null);
+      } else {
+        parser = new XPathParser(inputStream, true, configuration.getVariables(), new XMLMapperEntityResolver());
+      }
+      return new MapperDocument(parser, System.nanoTime() - start);
+    }
+  }
+
+  private void buildMapper(String location, boolean url, MapperSnapshot snapshot, ForkJoinTask<MapperDocument> task)
+      throws Exception {
+    MapperDocument document = task == null ? parseMapperDocument(location, url, snapshot) : joinMapperDocument(task);
+    long start = System.nanoTime();
+    XMLMapperBuilder mapperParser = new XMLMapperBuilder(document.parser, configuration, location, configuration.getSqlFragments());
+    mapperParser.parse();
+    configuration.addMapperLoadTime(new MapperLoadTime(location, document.parseNanos, System.nanoTime() - start));
+  }
+
+  private MapperDocument joinMapperDocument(ForkJoinTask<MapperDocument> task) throws Exception {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BuilderException("Interrupted while parsing the mapper XML.", e);
+    } catch (ExecutionException e) {
+      // report the failure of this mapper as if it had been parsed here, regardless of the order the tasks ended
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new BuilderException("Error parsing the mapper XML. Cause: " + cause, cause);
+    }
   }
 
   private boolean isSpecifiedEnvironment(String id) {
@@ -402,4 +523,15 @@ public class XMLConfigBuilder extends BaseBuilder {
     return false;
   }
 
+  private static class MapperDocument {
+
+    private final XPathParser parser;
+    private final long parseNanos;
+
+    private MapperDocument(XPathParser parser, long parseNanos) {
+      this.parser = parser;
+      this.parseNanos = parseNanos;
+    }
+  }
+
 }
@@ -16,8 +16,7 @@
 package org.apache.ibatis.cache;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.StringJoiner;
 
 import org.apache.ibatis.reflection.ArrayUtil;
@@ -27,7 +26,7 @@ import org.apache.ibatis.reflection.ArrayUtil;
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1146682552656046210L;
+  private static final long serialVersionUID = -1811574291587433236L;
 
   public static final CacheKey NULL_CACHE_KEY = new CacheKey() {
 
@@ -44,44 +43,75 @@ public class CacheKey implements Cloneable, Serializable {
 
   private static final int DEFAULT_MULTIPLIER = 37;
   private static final int DEFAULT_HASHCODE = 17;
+  private static final int DEFAULT_CAPACITY = 8;
+  private static final Object[] EMPTY_UPDATE_LIST = {};
+
+  // 64-bit mixing constants (golden ratio and the murmur3 finalizer), a much stronger filter than hashcode/checksum
+  private static final long LONG_HASH_SEED = 0x9E3779B97F4A7C15L;
+  private static final long LONG_HASH_MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
 
   private final int multiplier;
   private int hashcode;
   private long checksum;
+  private long longHashcode;
   private int count;
   // 8/21/2017 - Sonarlint flags this as needing to be marked transient. While true if content is not serializable, this
   // is not always true and thus should not be marked transient.
-  private List<Object> updateList;
+  // Only the first 'count' elements are in use, the array is grown on demand.
+  private Object[] updateList;
 
   public CacheKey() {
     this.hashcode = DEFAULT_HASHCODE;
     this.multiplier = DEFAULT_MULTIPLIER;
+    this.longHashcode = LONG_HASH_SEED;
     this.count = 0;
-    this.updateList = new ArrayList<>();
+    this.updateList = EMPTY_UPDATE_LIST;
   }
 
-  public CacheKey(Object[] objects) {
+  /**
+   * Instantiates a new cache key with room for the given number of updates, so that no resizing happens while it is
+   * built.
+   *
+   * @param expectedUpdateCount
+   *          the expected update count
+   * @since 3.5.6
+   */
+  public CacheKey(int expectedUpdateCount) {
     this();
+    if (expectedUpdateCount > 0) {
+      this.updateList = new Object[expectedUpdateCount];
+    }
+  }
+
+  public CacheKey(Object[] objects) {
+    this(objects.length);
     updateAll(objects);
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   public void update(Object object) {
     int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
 
+    if (count == updateList.length) {
+      updateList = Arrays.copyOf(updateList, Math.max(DEFAULT_CAPACITY, count << 1));
+    }
+    updateList[count] = object;
+
     count++;
     checksum += baseHashCode;
+    longHashcode = Long.rotateLeft((longHashcode ^ baseHashCode) * LONG_HASH_MULTIPLIER, 31);
     baseHashCode *= count;
 
     hashcode = multiplier * hashcode + baseHashCode;
-
-    updateList.add(object);
   }
 
   public void updateAll(Object[] objects) {
+    if (updateList.length - count < objects.length) {
+      updateList = Arrays.copyOf(updateList, count + objects.length);
+    }
     for (Object o : objects) {
       update(o);
     }
@@ -107,10 +137,13 @@ public class CacheKey implements Cloneable, Serializable {
     if (count != cacheKey.count) {
       return false;
     }
+    if (longHashcode != cacheKey.longHashcode) {
+      return false;
+    }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
+    for (int i = 0; i < count; i++) {
+      Object thisObject = updateList[i];
+      Object thatObject = cacheKey.updateList[i];
       if (!ArrayUtil.equals(thisObject, thatObject)) {
         return false;
       }
@@ -128,14 +161,16 @@ public class CacheKey implements Cloneable, Serializable {
     StringJoiner returnValue = new StringJoiner(":");
     returnValue.add(String.valueOf(hashcode));
     returnValue.add(String.valueOf(checksum));
-    updateList.stream().map(ArrayUtil::toString).forEach(returnValue::add);
+    for (int i = 0; i < count; i++) {
+      returnValue.add(ArrayUtil.toString(updateList[i]));
+    }
     return returnValue.toString();
   }
 
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    clonedCacheKey.updateList = Arrays.copyOf(updateList, count);
     return clonedCacheKey;
   }
 
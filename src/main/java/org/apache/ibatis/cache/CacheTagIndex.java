@@ -0,0 +1,160 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of the tags of the entries of a second level cache, so that a write only invalidates the entries
+ * whose tags it shares instead of clearing the whole cache.
+ * <p>
+ * Entries are tagged by the {@link org.apache.ibatis.cache.decorators.TransactionalCache} when they are committed
+ * and untagged by the {@link org.apache.ibatis.cache.decorators.TaggedCache} when they leave the cache for any
+ * reason. Invalidated entries are removed through the cache this index is bound to, so that they go through the
+ * same decorators (and locks) as any other removal. Entries with unknown tags are invalidated by every write.
+ *
+ * @since 3.5.6
+ */
+public class CacheTagIndex {
+
+  private final Map<Object, Set<String>> tagsByKey = new HashMap<>();
+  private final Map<String, Set<Object>> keysByTag = new HashMap<>();
+  private final Set<Object> untaggedKeys = new HashSet<>();
+  private Cache cache;
+
+  /**
+   * Binds this index to the cache its invalidated entries are removed from.
+   *
+   * @param cache
+   *          the cache
+   */
+  public void bind(Cache cache) {
+    this.cache = cache;
+  }
+
+  public boolean isBound() {
+    return cache != null;
+  }
+
+  public synchronized void tag(Object key, Set<String> tags) {
+    untag(key);
+    tagsByKey.put(key, tags);
+    if (tags.isEmpty()) {
+      untaggedKeys.add(key);
+    }
+    for (String tag : tags) {
+      keysByTag.computeIfAbsent(tag, k -> new HashSet<>()).add(key);
+    }
+  }
+
+  public synchronized void tagIfAbsent(Object key) {
+    if (!tagsByKey.containsKey(key)) {
+      tagsByKey.put(key, Collections.emptySet());
+      untaggedKeys.add(key);
+    }
+  }
+
+  public synchronized void untag(Object key) {
+    Set<String> tags = tagsByKey.remove(key);
+    if (tags == null) {
+      return;
+    }
+    if (tags.isEmpty()) {
+      untaggedKeys.remove(key);
+    }
+    for (String tag : tags) {
+      Set<Object> keys = keysByTag.get(tag);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          keysByTag.remove(tag);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the tags of a cached entry.
+   *
+   * @param key
+   *          the key
+   * @return the tags, or {@code null} if the entry is not tracked
+   */
+  public synchronized Set<String> getTags(Object key) {
+    return tagsByKey.get(key);
+  }
+
+  /**
+   * Returns whether a write to the given tags makes the entry stale. Entries with unknown tags are always stale.
+   *
+   * @param key
+   *          the key
+   * @param tags
+   *          the written tags
+   * @return {@code true} if the entry must not be used anymore
+   */
+  public boolean isInvalidatedBy(Object key, Collection<String> tags) {
+    return intersects(getTags(key), tags);
+  }
+
+  /**
+   * Removes from the bound cache the entries whose tags intersect the given ones, along with the untagged entries.
+   *
+   * @param tags
+   *          the written tags
+   */
+  public void invalidate(Collection<String> tags) {
+    Set<Object> keys = new HashSet<>();
+    synchronized (this) {
+      keys.addAll(untaggedKeys);
+      for (String tag : tags) {
+        keys.addAll(keysByTag.getOrDefault(tag, Collections.emptySet()));
+      }
+    }
+    for (Object key : keys) {
+      cache.removeObject(key);
+      untag(key);
+    }
+  }
+
+  public synchronized int size() {
+    return tagsByKey.size();
+  }
+
+  public synchronized void clear() {
+    tagsByKey.clear();
+    keysByTag.clear();
+    untaggedKeys.clear();
+  }
+
+  public static boolean intersects(Set<String> entryTags, Collection<String> tags) {
+    if (entryTags == null || entryTags.isEmpty()) {
+      return true;
+    }
+    for (String tag : tags) {
+      if (entryTags.contains(tag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,120 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Derives the invalidation tags of a statement, that is, the names of the tables its SQL reads or writes.
+ * <p>
+ * The extraction is a lexical scan for the table names that follow FROM, JOIN, INTO, UPDATE and USING, so
+ * a table name is seen whether it is read or written. Schema qualifiers and quotes are dropped and names are
+ * lower cased so that {@code "PUBLIC"."USERS"} and {@code users} produce the same tag. It may find a few names
+ * that are not tables, which only makes invalidation more eager. An empty result means the tables are unknown.
+ *
+ * @since 3.5.6
+ */
+public final class CacheTags {
+
+  private static final String NAME = "(?:\"[^\"]+\"|`[^`]+`|\\[[^\\]]+\\]|[\\w$#]+)(?:\\s*\\.\\s*(?:\"[^\"]+\"|`[^`]+`|\\[[^\\]]+\\]|[\\w$#]+))*";
+  private static final String ALIAS = "(?:\\s+(?:as\\s+)?[\\w$#]+)?";
+  private static final Pattern TABLE_LIST = Pattern.compile(
+      "\\b(?:from|join|into|update|using)\\s+(" + NAME + ALIAS + "(?:\\s*,\\s*" + NAME + ALIAS + ")*)",
+      Pattern.CASE_INSENSITIVE);
+  private static final Pattern TABLE_NAME = Pattern.compile("^" + NAME);
+  private static final Pattern QUALIFIER = Pattern.compile("\\s*\\.\\s*");
+
+  private static final int MAX_CACHED_STATEMENTS = 1024;
+  private static final Map<String, Set<String>> tagsBySql = new ConcurrentHashMap<>();
+
+  private CacheTags() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * Returns the tables referenced by the given SQL.
+   *
+   * @param sql
+   *          the sql
+   * @return the normalized table names, empty if none could be found
+   */
+  public static Set<String> fromSql(String sql) {
+    if (sql == null) {
+      return Collections.emptySet();
+    }
+    Set<String> tags = tagsBySql.get(sql);
+    if (tags == null) {
+      tags = parse(sql);
+      if (tagsBySql.size() >= MAX_CACHED_STATEMENTS) {
+        // dynamic sql may produce an unbounded number of statements
+        tagsBySql.clear();
+      }
+      tagsBySql.put(sql, tags);
+    }
+    return tags;
+  }
+
+  /**
+   * Parses a comma separated list of declared tags.
+   *
+   * @param tags
+   *          the tags, may be {@code null}
+   * @return the normalized tags, empty if none were declared
+   */
+  public static Set<String> fromString(String tags) {
+    if (tags == null || tags.trim().isEmpty()) {
+      return Collections.emptySet();
+    }
+    Set<String> result = new LinkedHashSet<>();
+    for (String tag : tags.split(",")) {
+      if (!tag.trim().isEmpty()) {
+        result.add(normalize(tag));
+      }
+    }
+    return Collections.unmodifiableSet(result);
+  }
+
+  private static Set<String> parse(String sql) {
+    Set<String> tables = new LinkedHashSet<>();
+    Matcher matcher = TABLE_LIST.matcher(sql);
+    while (matcher.find()) {
+      for (String table : matcher.group(1).split(",")) {
+        Matcher name = TABLE_NAME.matcher(table.trim());
+        if (name.find()) {
+          tables.add(normalize(name.group()));
+        }
+      }
+    }
+    return tables.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(tables);
+  }
+
+  private static String normalize(String name) {
+    String[] parts = QUALIFIER.split(name.trim());
+    String table = parts[parts.length - 1];
+    if (table.length() > 1 && (table.charAt(0) == '"' || table.charAt(0) == '`' || table.charAt(0) == '[')) {
+      table = table.substring(1, table.length() - 1);
+    }
+    return table.trim().toLowerCase(Locale.ENGLISH);
+  }
+
+}
@@ -0,0 +1,203 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates the memory used by cached objects by walking their fields.
+ * <p>
+ * Only a sample of the elements of collections, maps and arrays is walked, and the fields of JDK and MyBatis
+ * classes are not followed, so the estimate is cheap but approximate. It assumes a 64-bit JVM with compressed
+ * references.
+ *
+ * @since 3.5.6
+ */
+public final class SizeEstimator {
+
+  private static final int OBJECT_HEADER = 16;
+  private static final int REFERENCE = 4;
+  private static final int COLLECTION_OVERHEAD = 40;
+  private static final int NODE = 32;
+  private static final int SAMPLE_SIZE = 8;
+  private static final int MAX_DEPTH = 8;
+
+  private static final Map<Class<?>, Layout> layouts = new ConcurrentHashMap<>();
+
+  private SizeEstimator() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * Estimates the size of an object and of the objects it refers to.
+   *
+   * @param value
+   *          the object, may be {@code null}
+   * @return the estimated size in bytes
+   */
+  public static long estimate(Object value) {
+    return estimate(value, new IdentityHashMap<>(), 0);
+  }
+
+  private static long estimate(Object value, Map<Object, Object> visited, int depth) {
+    if (value == null || visited.put(value, value) != null) {
+      return 0;
+    }
+    if (value instanceof CharSequence) {
+      // the object, its array and one byte per character for compact strings
+      return align(OBJECT_HEADER + 8) + align(OBJECT_HEADER + ((CharSequence) value).length());
+    }
+    Class<?> type = value.getClass();
+    if (type.isArray()) {
+      return estimateArray(value, type.getComponentType(), visited, depth);
+    }
+    if (value instanceof Collection) {
+      Collection<?> collection = (Collection<?>) value;
+      int node = value instanceof RandomAccess ? REFERENCE : NODE;
+      return COLLECTION_OVERHEAD + (long) node * collection.size()
+          + estimateSample(collection.iterator(), collection.size(), visited, depth);
+    }
+    if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      List<Object> entries = new ArrayList<>(SAMPLE_SIZE * 2);
+      Iterator<? extends Map.Entry<?, ?>> iterator = map.entrySet().iterator();
+      for (int i = 0; i < SAMPLE_SIZE && iterator.hasNext(); i++) {
+        Map.Entry<?, ?> entry = iterator.next();
+        entries.add(entry.getKey());
+        entries.add(entry.getValue());
+      }
+      return COLLECTION_OVERHEAD + (long) NODE * map.size()
+          + estimateSample(entries.iterator(), map.size() * 2, visited, depth);
+    }
+    Layout layout = layouts.computeIfAbsent(type, Layout::new);
+    long size = layout.shallowSize;
+    if (depth < MAX_DEPTH) {
+      for (Field field : layout.references) {
+        try {
+          size += estimate(field.get(value), visited, depth + 1);
+        } catch (IllegalAccessException e) {
+          // counted as a reference only
+        }
+      }
+    }
+    return size;
+  }
+
+  private static long estimateArray(Object array, Class<?> componentType, Map<Object, Object> visited, int depth) {
+    int length = Array.getLength(array);
+    if (componentType.isPrimitive()) {
+      return align(OBJECT_HEADER + (long) primitiveSize(componentType) * length);
+    }
+    Iterator<Object> iterator = new Iterator<Object>() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return index < length;
+      }
+
+      @Override
+      public Object next() {
+        return Array.get(array, index++);
+      }
+    };
+    return align(OBJECT_HEADER + (long) REFERENCE * length) + estimateSample(iterator, length, visited, depth);
+  }
+
+  private static long estimateSample(Iterator<?> iterator, int size, Map<Object, Object> visited, int depth) {
+    if (depth >= MAX_DEPTH) {
+      return 0;
+    }
+    long sampleSize = 0;
+    int sampled = 0;
+    while (sampled < SAMPLE_SIZE && iterator.hasNext()) {
+      sampleSize += estimate(iterator.next(), visited, depth + 1);
+      sampled++;
+    }
+    return sampled == 0 ? 0 : sampleSize * size / sampled;
+  }
+
+  private static int primitiveSize(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    } else {
+      return 1;
+    }
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+  private static boolean isOpaque(Class<?> type) {
+    String name = type.getName();
+    return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.")
+        || name.startsWith("sun.") || name.startsWith("com.sun.") || name.startsWith("org.apache.ibatis.");
+  }
+
+  private static final class Layout {
+
+    private final long shallowSize;
+    private final List<Field> references = new ArrayList<>();
+
+    private Layout(Class<?> type) {
+      // the fields of JDK and MyBatis classes, such as the handlers of lazy loading proxies, are not followed
+      boolean opaque = isOpaque(type);
+      long size = OBJECT_HEADER;
+      for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+        boolean follow = !opaque && !isOpaque(c);
+        for (Field field : c.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          if (field.getType().isPrimitive()) {
+            size += primitiveSize(field.getType());
+            continue;
+          }
+          size += REFERENCE;
+          if (follow && canAccess(field)) {
+            references.add(field);
+          }
+        }
+      }
+      this.shallowSize = align(size);
+    }
+
+    private static boolean canAccess(Field field) {
+      try {
+        field.setAccessible(true);
+        return true;
+      } catch (RuntimeException e) {
+        return false;
+      }
+    }
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2019 the original author or authors.
+ *    Copyright 2009-2020 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@ package org.apache.ibatis.cache;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.ibatis.cache.decorators.TransactionalCache;
 
@@ -26,6 +27,7 @@ import org.apache.ibatis.cache.decorators.TransactionalCache;
 public class TransactionalCacheManager {
 
   private final Map<Cache, TransactionalCache> transactionalCaches = new HashMap<>();
+  private boolean sessionWritten;
 
   public void clear(Cache cache) {
     getTransactionalCache(cache).clear();
@@ -39,20 +41,49 @@ public class TransactionalCacheManager {
     getTransactionalCache(cache).putObject(key, value);
   }
 
+  public void putObject(Cache cache, CacheKey key, Object value, CacheTagIndex tagIndex, Set<String> tags) {
+    getTransactionalCache(cache).putObject(key, value, tagIndex, tags);
+  }
+
+  public void invalidate(Cache cache, CacheTagIndex tagIndex, Set<String> tags) {
+    getTransactionalCache(cache).invalidate(tagIndex, tags);
+  }
+
+  /**
+   * Records that the session wrote to the database, so that none of its caches hands the entries it loads to other
+   * sessions before it commits or rolls back.
+   *
+   * @since 3.5.6
+   */
+  public void markSessionWritten() {
+    sessionWritten = true;
+    for (TransactionalCache txCache : transactionalCaches.values()) {
+      txCache.markSessionWritten();
+    }
+  }
+
   public void commit() {
+    sessionWritten = false;
     for (TransactionalCache txCache : transactionalCaches.values()) {
       txCache.commit();
     }
   }
 
   public void rollback() {
+    sessionWritten = false;
     for (TransactionalCache txCache : transactionalCaches.values()) {
       txCache.rollback();
     }
   }
 
   private TransactionalCache getTransactionalCache(Cache cache) {
-    return transactionalCaches.computeIfAbsent(cache, TransactionalCache::new);
+    return transactionalCaches.computeIfAbsent(cache, key -> {
+      TransactionalCache txCache = new TransactionalCache(key);
+      if (sessionWritten) {
+        txCache.markSessionWritten();
+      }
+      return txCache;
+    });
   }
 
 }
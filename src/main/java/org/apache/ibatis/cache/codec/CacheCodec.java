@@ -0,0 +1,52 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.codec;
+
+import java.io.Serializable;
+
+/**
+ * Encodes the values of a cache that stores copies of them, such as the
+ * {@link org.apache.ibatis.cache.decorators.SerializedCache} or the {@link org.apache.ibatis.cache.impl.OffHeapCache}.
+ * <p>
+ * Implementations must be thread safe and have a public no-arg constructor.
+ *
+ * @since 3.5.6
+ */
+public interface CacheCodec {
+
+  /**
+   * Encodes a value.
+   *
+   * @param value
+   *          the value, may be {@code null}
+   * @return the encoded value
+   * @throws org.apache.ibatis.cache.CacheException
+   *           if the value cannot be encoded
+   */
+  byte[] encode(Serializable value);
+
+  /**
+   * Decodes a value encoded by this codec.
+   *
+   * @param bytes
+   *          the encoded value
+   * @return a new copy of the value
+   * @throws org.apache.ibatis.cache.CacheException
+   *           if the value cannot be decoded
+   */
+  Serializable decode(byte[] bytes);
+
+}
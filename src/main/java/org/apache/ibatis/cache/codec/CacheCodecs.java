@@ -0,0 +1,53 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.codec;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Resolves the codec named by the <code>codec</code> property of a cache.
+ *
+ * @since 3.5.6
+ */
+public final class CacheCodecs {
+
+  private CacheCodecs() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * Creates a codec.
+   *
+   * @param name
+   *          <code>java</code>, <code>compact</code> or the fully qualified name of a {@link CacheCodec}
+   *          implementation; <code>null</code> for the default
+   * @return a new codec
+   */
+  public static CacheCodec newCodec(String name) {
+    if (name == null || "java".equalsIgnoreCase(name)) {
+      return new JavaSerializationCodec();
+    } else if ("compact".equalsIgnoreCase(name)) {
+      return new CompactSerializationCodec();
+    }
+    try {
+      return (CacheCodec) Resources.classForName(name).getDeclaredConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache codec '" + name + "'.  Cause: " + e, e);
+    }
+  }
+
+}
@@ -0,0 +1,131 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Java serialization that writes each class descriptor only once per codec.
+ * <p>
+ * A serialized object carries the full descriptor (class name, serial version and field names and types) of each
+ * of its classes, which is usually most of the bytes of a small result object. This codec keeps the descriptors
+ * in memory and writes a number in their place, so the encoded values are much smaller and faster to read. The
+ * numbers are only meaningful to the codec instance that wrote them, so its values must not outlive it.
+ *
+ * @since 3.5.6
+ */
+public class CompactSerializationCodec implements CacheCodec {
+
+  private final Map<ObjectStreamClass, Integer> descriptorIds = new ConcurrentHashMap<>();
+  private final List<ObjectStreamClass> descriptors = new CopyOnWriteArrayList<>();
+
+  @Override
+  public byte[] encode(Serializable value) {
+    try (ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+        ObjectOutputStream oos = new CompactObjectOutputStream(bos)) {
+      oos.writeObject(value);
+      oos.flush();
+      return bos.toByteArray();
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public Serializable decode(byte[] bytes) {
+    try (ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
+        ObjectInputStream ois = new CompactObjectInputStream(bis)) {
+      return (Serializable) ois.readObject();
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * Gets the number of class descriptors known to this codec.
+   *
+   * @return the number of class descriptors
+   */
+  public int getDescriptorCount() {
+    return descriptors.size();
+  }
+
+  private int getDescriptorId(ObjectStreamClass desc) {
+    Integer id = descriptorIds.get(desc);
+    if (id == null) {
+      synchronized (descriptors) {
+        id = descriptorIds.get(desc);
+        if (id == null) {
+          id = descriptors.size();
+          descriptors.add(desc);
+          descriptorIds.put(desc, id);
+        }
+      }
+    }
+    return id;
+  }
+
+  private class CompactObjectOutputStream extends ObjectOutputStream {
+
+    CompactObjectOutputStream(OutputStream out) throws IOException {
+      super(out);
+    }
+
+    @Override
+    protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+      writeInt(getDescriptorId(desc));
+    }
+
+  }
+
+  private class CompactObjectInputStream extends ObjectInputStream {
+
+    CompactObjectInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+      int id = readInt();
+      if (id < 0 || id >= descriptors.size()) {
+        throw new CacheException("Unknown class descriptor " + id + ", the value was not encoded by this codec.");
+      }
+      return descriptors.get(id);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws ClassNotFoundException {
+      return Resources.classForName(desc.getName());
+    }
+
+  }
+
+}
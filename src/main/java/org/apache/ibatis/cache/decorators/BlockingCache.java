@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2019 the original author or authors.
+ *    Copyright 2009-2020 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,13 +15,16 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.codec.CacheCodec;
 
 /**
  * Simple blocking decorator
@@ -29,6 +32,11 @@ import org.apache.ibatis.cache.CacheException;
  * Simple and inefficient version of EhCache's BlockingCache decorator.
  * It sets a lock over a cache key when the element is not found in cache.
  * This way, other threads will wait until this element is filled instead of hitting the database.
+ * The lock is removed once it is released, so keys that are missed only once do not accumulate.
+ * <p>
+ * By default the waiting threads read the element from the cache once it is filled, that is when the session that
+ * missed it commits. In single flight mode, the element is instead handed to them as soon as it is loaded, before
+ * the loading session commits, so a slow transaction does not keep them waiting.
  *
  * @author Eduardo Macarron
  *
@@ -36,12 +44,14 @@ import org.apache.ibatis.cache.CacheException;
 public class BlockingCache implements Cache {
 
   private long timeout;
+  private boolean singleFlight;
+  private CacheCodec codec;
   private final Cache delegate;
-  private final ConcurrentHashMap<Object, ReentrantLock> locks;
+  private final ConcurrentHashMap<Object, Flight> flights;
 
   public BlockingCache(Cache delegate) {
     this.delegate = delegate;
-    this.locks = new ConcurrentHashMap<>();
+    this.flights = new ConcurrentHashMap<>();
   }
 
   @Override
@@ -59,16 +69,28 @@ public class BlockingCache implements Cache {
     try {
       delegate.putObject(key, value);
     } finally {
-      releaseLock(key);
+      releaseLock(key, null);
     }
   }
 
   @Override
   public Object getObject(Object key) {
-    acquireLock(key);
     Object value = delegate.getObject(key);
-    if (value != null) {
-      releaseLock(key);
+    while (value == null) {
+      Flight flight = new Flight();
+      Flight inFlight = flights.putIfAbsent(key, flight);
+      if (inFlight == null || inFlight.isOwnedByCurrentThread()) {
+        // this thread loads the element, unless it was filled in the meantime
+        value = delegate.getObject(key);
+        if (value != null) {
+          releaseLock(key, null);
+        }
+        return value;
+      }
+      value = copy(await(key, inFlight));
+      if (value == null) {
+        value = delegate.getObject(key);
+      }
     }
     return value;
   }
@@ -76,7 +98,7 @@ public class BlockingCache implements Cache {
   @Override
   public Object removeObject(Object key) {
     // despite of its name, this method is called only to release locks
-    releaseLock(key);
+    releaseLock(key, null);
     return null;
   }
 
@@ -85,30 +107,62 @@ public class BlockingCache implements Cache {
     delegate.clear();
   }
 
-  private ReentrantLock getLockForKey(Object key) {
-    return locks.computeIfAbsent(key, k -> new ReentrantLock());
+  /**
+   * Hands a loaded element to the threads waiting for it and releases its lock, if single flight is enabled and the
+   * current thread holds the lock. The element is put into the cache later, by {@link #putObject(Object, Object)}.
+   *
+   * @param key
+   *          the key
+   * @param value
+   *          the loaded element
+   * @since 3.5.6
+   */
+  public void publish(Object key, Object value) {
+    if (singleFlight) {
+      releaseLock(key, encode(value));
+    }
   }
 
-  private void acquireLock(Object key) {
-    Lock lock = getLockForKey(key);
-    if (timeout > 0) {
-      try {
-        boolean acquired = lock.tryLock(timeout, TimeUnit.MILLISECONDS);
-        if (!acquired) {
-          throw new CacheException("Couldn't get a lock in " + timeout + " for the key " +  key + " at the cache " + delegate.getId());
-        }
-      } catch (InterruptedException e) {
-        throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
+  private Object await(Object key, Flight flight) {
+    try {
+      if (timeout > 0) {
+        return flight.result.get(timeout, TimeUnit.MILLISECONDS);
       }
-    } else {
-      lock.lock();
+      return flight.result.get();
+    } catch (TimeoutException e) {
+      throw new CacheException("Couldn't get a lock in " + timeout + " for the key " +  key + " at the cache " + delegate.getId());
+    } catch (InterruptedException e) {
+      throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
+    } catch (ExecutionException e) {
+      // never completed exceptionally
+      return null;
+    }
+  }
+
+  private Object encode(Object value) {
+    if (codec == null || value == null) {
+      return value;
+    }
+    try {
+      return value instanceof Serializable ? codec.encode((Serializable) value) : null;
+    } catch (CacheException e) {
+      // the waiting threads will read it from the cache instead
+      return null;
+    }
+  }
+
+  private Object copy(Object result) {
+    if (codec != null && result != null) {
+      return codec.decode((byte[]) result);
     }
+    return result;
   }
 
-  private void releaseLock(Object key) {
-    ReentrantLock lock = locks.get(key);
-    if (lock.isHeldByCurrentThread()) {
-      lock.unlock();
+  private void releaseLock(Object key, Object result) {
+    Flight flight = flights.get(key);
+    if (flight != null && flight.isOwnedByCurrentThread()) {
+      flights.remove(key, flight);
+      flight.result.complete(result);
     }
   }
 
@@ -119,4 +173,60 @@ public class BlockingCache implements Cache {
   public void setTimeout(long timeout) {
     this.timeout = timeout;
   }
+
+  /**
+   * Returns whether loaded elements are handed to the waiting threads before they are put into the cache.
+   *
+   * @return {@code true} if single flight is enabled
+   * @since 3.5.6
+   */
+  public boolean isSingleFlight() {
+    return singleFlight;
+  }
+
+  /**
+   * Sets whether loaded elements are handed to the waiting threads before they are put into the cache.
+   * <p>
+   * An element is not handed out once the session that loaded it has executed an insert, update or delete, in any
+   * namespace, until it commits or rolls back. Writes that do not go through the session, such as JDBC calls on its
+   * connection or selects and procedures that modify data, are not detected: with them the waiting threads may get
+   * data that is not committed yet, and that is discarded if the session rolls back.
+   *
+   * @param singleFlight
+   *          {@code true} to enable single flight, {@code false} (the default) to wait for the element to be put
+   * @since 3.5.6
+   */
+  public void setSingleFlight(boolean singleFlight) {
+    this.singleFlight = singleFlight;
+  }
+
+  /**
+   * Sets the codec used to hand each waiting thread its own copy of a loaded element, for read-write caches.
+   *
+   * @param codec
+   *          the codec, or {@code null} (the default) to share the loaded element
+   * @since 3.5.6
+   */
+  public void setCodec(CacheCodec codec) {
+    this.codec = codec;
+  }
+
+  /**
+   * Returns the number of keys that are currently locked.
+   *
+   * @return the number of locked keys
+   * @since 3.5.6
+   */
+  public int getLockCount() {
+    return flights.size();
+  }
+
+  private static final class Flight {
+    private final Thread owner = Thread.currentThread();
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    private boolean isOwnedByCurrentThread() {
+      return owner == Thread.currentThread();
+    }
+  }
 }
@@ -0,0 +1,194 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.Cache;
+
+/**
+ * Expires each entry on its own, a fixed time after it was written (time to live) or last read (time to idle).
+ * <p>
+ * Expired entries are removed when they are read, and the entries that expired first are reclaimed on every
+ * access, so the work is spread over the callers instead of clearing the whole cache at once like
+ * {@link ScheduledCache}. With refresh ahead, the first read of an entry that is about to expire is reported as a
+ * miss so that the caller reloads it, while the other callers keep getting the cached value until it is replaced.
+ * <p>
+ * The entries that the delegate already holds, such as the ones a persistent cache reloads on start, are
+ * considered written when they are first read. The entries evicted by the delegate are forgotten, so this
+ * decorator tracks no more keys than the size of the delegate.
+ *
+ * @since 3.5.6
+ */
+public class ExpiringCache implements Cache {
+
+  private final Cache delegate;
+  private Map<Object, Entry> entries = new LinkedHashMap<>();
+  private long timeToLive;
+  private long timeToIdle;
+  private long refreshAhead;
+
+  public ExpiringCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Sets the time after which an entry expires once written.
+   *
+   * @param timeToLive
+   *          the time in milliseconds, or 0 to never expire
+   */
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  /**
+   * Sets the time after which an entry expires once last read or written.
+   *
+   * @param timeToIdle
+   *          the time in milliseconds, or 0 to never expire
+   */
+  public void setTimeToIdle(long timeToIdle) {
+    this.timeToIdle = timeToIdle;
+    // ordered by last access when idle entries expire, by last write otherwise
+    Map<Object, Entry> orderedEntries = new LinkedHashMap<>(16, .75F, timeToIdle > 0);
+    orderedEntries.putAll(entries);
+    this.entries = orderedEntries;
+  }
+
+  /**
+   * Sets how long before the end of its time to live an entry is reloaded.
+   *
+   * @param refreshAhead
+   *          the time in milliseconds, or 0 to not reload entries before they expire
+   */
+  public void setRefreshAhead(long refreshAhead) {
+    this.refreshAhead = refreshAhead;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    reclaimExpiredEntries(System.currentTimeMillis());
+    reclaimEvictedEntries();
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    final long now = System.currentTimeMillis();
+    reclaimExpiredEntries(now);
+    delegate.putObject(key, value);
+    // move the key to the end of the write order
+    entries.remove(key);
+    entries.put(key, new Entry(now));
+    reclaimEvictedEntries();
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    final long now = System.currentTimeMillis();
+    reclaimExpiredEntries(now);
+    final Entry entry = entries.get(key);
+    if (entry == null) {
+      final Object value = delegate.getObject(key);
+      if (value != null) {
+        // put before this decorator existed, such as an entry reloaded by a persistent cache
+        entries.put(key, new Entry(now));
+      }
+      return value;
+    }
+    if (isExpired(entry, now)) {
+      removeObject(key);
+      return null;
+    }
+    entry.accessTime = now;
+    if (isRefreshDue(entry, now)) {
+      entry.refreshing = true;
+      return null;
+    }
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    entries.remove(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    entries.clear();
+    delegate.clear();
+  }
+
+  private boolean isExpired(Entry entry, long now) {
+    return (timeToLive > 0 && now - entry.writeTime >= timeToLive)
+        || (timeToIdle > 0 && now - entry.accessTime >= timeToIdle);
+  }
+
+  private boolean isRefreshDue(Entry entry, long now) {
+    return refreshAhead > 0 && timeToLive > 0 && !entry.refreshing
+        && now - entry.writeTime >= timeToLive - refreshAhead;
+  }
+
+  private void reclaimExpiredEntries(long now) {
+    Iterator<Map.Entry<Object, Entry>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Object, Entry> eldest = iterator.next();
+      if (!isExpired(eldest.getValue(), now)) {
+        break;
+      }
+      iterator.remove();
+      delegate.removeObject(eldest.getKey());
+    }
+  }
+
+  /**
+   * Keeps no more entries than the delegate holds. A delegate that evicts by itself drops keys without telling this
+   * decorator, so as many of the eldest entries are dropped, from the delegate too in case it evicted other keys,
+   * which would otherwise be found again without their write time. Bounded caches evict their eldest entries
+   * anyway, so this seldom evicts more; eviction decorators should rather wrap this decorator, whose entries they
+   * then remove.
+   */
+  private void reclaimEvictedEntries() {
+    int evicted = entries.size() - delegate.getSize();
+    final Iterator<Object> eldest = entries.keySet().iterator();
+    while (evicted-- > 0 && eldest.hasNext()) {
+      final Object key = eldest.next();
+      eldest.remove();
+      delegate.removeObject(key);
+    }
+  }
+
+  private static class Entry {
+    private final long writeTime;
+    private long accessTime;
+    private boolean refreshing;
+
+    Entry(long now) {
+      this.writeTime = now;
+      this.accessTime = now;
+    }
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2019 the original author or authors.
+ *    Copyright 2009-2020 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,19 +17,22 @@ package org.apache.ibatis.cache.decorators;
 
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.stats.EvictionCounter;
 
 /**
  * FIFO (first in, first out) cache decorator.
  *
  * @author Clinton Begin
  */
-public class FifoCache implements Cache {
+public class FifoCache implements Cache, EvictionCounter {
 
   private final Cache delegate;
   private final Deque<Object> keyList;
   private int size;
+  private final LongAdder evictions = new LongAdder();
 
   public FifoCache(Cache delegate) {
     this.delegate = delegate;
@@ -78,7 +81,13 @@ public class FifoCache implements Cache {
     if (keyList.size() > size) {
       Object oldestKey = keyList.removeFirst();
       delegate.removeObject(oldestKey);
+      evictions.increment();
     }
   }
 
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
 }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2019 the original author or authors.
+ *    Copyright 2009-2020 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 package org.apache.ibatis.cache.decorators;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.stats.CacheStatistics;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -26,12 +27,30 @@ public class LoggingCache implements Cache {
 
   private final Log log;
   private final Cache delegate;
+  private final CacheStatistics statistics;
   protected int requests = 0;
   protected int hits = 0;
 
   public LoggingCache(Cache delegate) {
+    this(delegate, null);
+  }
+
+  /**
+   * Creates a cache that also records its hits, misses and puts in the given statistics.
+   *
+   * @param delegate
+   *          the cache
+   * @param statistics
+   *          the statistics, or {@code null}
+   * @since 3.5.6
+   */
+  public LoggingCache(Cache delegate, CacheStatistics statistics) {
     this.delegate = delegate;
+    this.statistics = statistics;
     this.log = LogFactory.getLog(getId());
+    if (statistics != null) {
+      statistics.setCache(delegate);
+    }
   }
 
   @Override
@@ -47,6 +66,9 @@ public class LoggingCache implements Cache {
   @Override
   public void putObject(Object key, Object object) {
     delegate.putObject(key, object);
+    if (statistics != null) {
+      statistics.recordPut(key, object);
+    }
   }
 
   @Override
@@ -56,6 +78,13 @@ public class LoggingCache implements Cache {
     if (value != null) {
       hits++;
     }
+    if (statistics != null) {
+      if (value != null) {
+        statistics.recordHit(key);
+      } else {
+        statistics.recordMiss(key);
+      }
+    }
     if (log.isDebugEnabled()) {
       log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
     }
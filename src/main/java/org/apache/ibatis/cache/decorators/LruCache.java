@@ -17,19 +17,22 @@ package org.apache.ibatis.cache.decorators;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.stats.EvictionCounter;
 
 /**
  * Lru (least recently used) cache decorator.
  *
  * @author Clinton Begin
  */
-public class LruCache implements Cache {
+public class LruCache implements Cache, EvictionCounter {
 
   private final Cache delegate;
   private Map<Object, Object> keyMap;
   private Object eldestKey;
+  private final LongAdder evictions = new LongAdder();
 
   public LruCache(Cache delegate) {
     this.delegate = delegate;
@@ -89,7 +92,13 @@ public class LruCache implements Cache {
     if (eldestKey != null) {
       delegate.removeObject(eldestKey);
       eldestKey = null;
+      evictions.increment();
     }
   }
 
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
 }
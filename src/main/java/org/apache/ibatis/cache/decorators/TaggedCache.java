@@ -0,0 +1,77 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheTagIndex;
+
+/**
+ * Untags the entries that leave the cache, so that the {@link CacheTagIndex} only tracks live entries.
+ * <p>
+ * It must wrap the base cache directly, below the eviction and expiry decorators, to see every removal. Entries
+ * that reach the cache without tags are tracked as untagged so that they are never left stale.
+ *
+ * @since 3.5.6
+ */
+public class TaggedCache implements Cache {
+
+  private final Cache delegate;
+  private final CacheTagIndex tagIndex;
+
+  public TaggedCache(Cache delegate, CacheTagIndex tagIndex) {
+    this.delegate = delegate;
+    this.tagIndex = tagIndex;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    // an entry put without tags, or untagged by a concurrent clear, is invalidated by every write
+    tagIndex.tagIfAbsent(key);
+    delegate.putObject(key, value);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    tagIndex.untag(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    tagIndex.clear();
+    delegate.clear();
+  }
+
+  public CacheTagIndex getTagIndex() {
+    return tagIndex;
+  }
+
+}
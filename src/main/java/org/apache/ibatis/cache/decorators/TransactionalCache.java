@@ -15,12 +15,15 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheTagIndex;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -31,6 +34,8 @@ import org.apache.ibatis.logging.LogFactory;
  * Entries are sent to the cache when commit is called or discarded if the Session is rolled back.
  * Blocking cache support has been added. Therefore any get() that returns a cache miss
  * will be followed by a put() so any lock associated with the key can be released.
+ * When the cache is invalidated by tags, a write only discards the entries that share one of its tags.
+ * A single flight blocking cache also gets the put entries right away, to hand them to the threads waiting for them.
  *
  * @author Clinton Begin
  * @author Eduardo Macarron
@@ -41,14 +46,20 @@ public class TransactionalCache implements Cache {
 
   private final Cache delegate;
   private boolean clearOnCommit;
+  private boolean sessionWritten;
   private final Map<Object, Object> entriesToAddOnCommit;
   private final Set<Object> entriesMissedInCache;
+  private CacheTagIndex tagIndex;
+  private final Map<Object, Set<String>> tagsToAddOnCommit;
+  private final Set<String> tagsToInvalidateOnCommit;
 
   public TransactionalCache(Cache delegate) {
     this.delegate = delegate;
     this.clearOnCommit = false;
     this.entriesToAddOnCommit = new HashMap<>();
     this.entriesMissedInCache = new HashSet<>();
+    this.tagsToAddOnCommit = new HashMap<>();
+    this.tagsToInvalidateOnCommit = new HashSet<>();
   }
 
   @Override
@@ -71,6 +82,8 @@ public class TransactionalCache implements Cache {
     // issue #146
     if (clearOnCommit) {
       return null;
+    } else if (!tagsToInvalidateOnCommit.isEmpty() && tagIndex.isInvalidatedBy(key, tagsToInvalidateOnCommit)) {
+      return null;
     } else {
       return object;
     }
@@ -79,6 +92,28 @@ public class TransactionalCache implements Cache {
   @Override
   public void putObject(Object key, Object object) {
     entriesToAddOnCommit.put(key, object);
+    tagsToAddOnCommit.remove(key);
+    publish(key, object);
+  }
+
+  /**
+   * Adds an entry that depends on the given tags.
+   *
+   * @param key
+   *          the key
+   * @param object
+   *          the value
+   * @param tagIndex
+   *          the tag index of the cache
+   * @param tags
+   *          the tags of the entry, empty if unknown
+   * @since 3.5.6
+   */
+  public void putObject(Object key, Object object, CacheTagIndex tagIndex, Set<String> tags) {
+    this.tagIndex = tagIndex;
+    entriesToAddOnCommit.put(key, object);
+    tagsToAddOnCommit.put(key, tags);
+    publish(key, object);
   }
 
   @Override
@@ -90,11 +125,58 @@ public class TransactionalCache implements Cache {
   public void clear() {
     clearOnCommit = true;
     entriesToAddOnCommit.clear();
+    tagsToAddOnCommit.clear();
+    tagsToInvalidateOnCommit.clear();
+  }
+
+  /**
+   * Discards, on commit, the entries that share one of the given tags.
+   *
+   * @param tagIndex
+   *          the tag index of the cache
+   * @param tags
+   *          the written tags
+   * @since 3.5.6
+   */
+  public void invalidate(CacheTagIndex tagIndex, Set<String> tags) {
+    if (clearOnCommit) {
+      return;
+    }
+    this.tagIndex = tagIndex;
+    tagsToInvalidateOnCommit.addAll(tags);
+    // the pending entries may have been read before this write
+    Iterator<Object> keys = entriesToAddOnCommit.keySet().iterator();
+    while (keys.hasNext()) {
+      Object key = keys.next();
+      if (CacheTagIndex.intersects(tagsToAddOnCommit.get(key), tags)) {
+        keys.remove();
+        tagsToAddOnCommit.remove(key);
+      }
+    }
+  }
+
+  /**
+   * Records that the session wrote to the database, through any namespace. Until it commits or rolls back, its
+   * entries are no longer handed to the threads waiting for them, since they may contain its uncommitted changes.
+   *
+   * @since 3.5.6
+   */
+  public void markSessionWritten() {
+    sessionWritten = true;
+  }
+
+  private void publish(Object key, Object object) {
+    // not after a write, since the reads of this session may then see its uncommitted changes
+    if (delegate instanceof BlockingCache && !sessionWritten && !clearOnCommit && tagsToInvalidateOnCommit.isEmpty()) {
+      ((BlockingCache) delegate).publish(key, object);
+    }
   }
 
   public void commit() {
     if (clearOnCommit) {
       delegate.clear();
+    } else if (!tagsToInvalidateOnCommit.isEmpty()) {
+      tagIndex.invalidate(tagsToInvalidateOnCommit);
     }
     flushPendingEntries();
     reset();
@@ -107,12 +189,18 @@ public class TransactionalCache implements Cache {
 
   private void reset() {
     clearOnCommit = false;
+    sessionWritten = false;
     entriesToAddOnCommit.clear();
     entriesMissedInCache.clear();
+    tagsToAddOnCommit.clear();
+    tagsToInvalidateOnCommit.clear();
   }
 
   private void flushPendingEntries() {
     for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
+      if (tagIndex != null) {
+        tagIndex.tag(entry.getKey(), tagsToAddOnCommit.getOrDefault(entry.getKey(), Collections.emptySet()));
+      }
       delegate.putObject(entry.getKey(), entry.getValue());
     }
     for (Object entry : entriesMissedInCache) {
@@ -0,0 +1,344 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.stats.EvictionCounter;
+
+/**
+ * A thread safe cache backed by a {@link ConcurrentHashMap}, meant to be used without the
+ * {@link org.apache.ibatis.cache.decorators.SynchronizedCache} and eviction decorators.
+ * <p>
+ * Reads never lock and only record the access time of the entry. When the cache grows past its size or weight
+ * limit, one thread evicts the expired entries and then the least recently used ones, a few more than needed so
+ * that the scan is amortized over the next puts. Entries may also expire a fixed time after they were written or
+ * last read.
+ *
+ * @since 3.5.6
+ */
+public class ConcurrentCache implements Cache, EvictionCounter {
+
+  private static final int DEFAULT_SIZE = 1024;
+
+  private final String id;
+  private final Map<Object, Entry> cache = new ConcurrentHashMap<>();
+  private final AtomicLong weight = new AtomicLong();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder puts = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder expirations = new LongAdder();
+
+  private int size = DEFAULT_SIZE;
+  private long maxWeight;
+  private long expireAfterWriteNanos;
+  private long expireAfterAccessNanos;
+  private long refreshAheadNanos;
+
+  public ConcurrentCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Sets the maximum number of entries.
+   *
+   * @param size
+   *          the size, 1024 by default
+   */
+  public void setSize(int size) {
+    this.size = size;
+  }
+
+  /**
+   * Sets the maximum total weight of the entries. The weight of a collection or array is its length, the weight of
+   * any other value is 1, so for query results this bounds the number of cached rows.
+   *
+   * @param maxWeight
+   *          the maximum weight, or 0 (the default) for no limit
+   */
+  public void setMaxWeight(long maxWeight) {
+    this.maxWeight = maxWeight;
+  }
+
+  /**
+   * Sets the time after which an entry expires once written.
+   *
+   * @param expireAfterWrite
+   *          the time in milliseconds, or 0 (the default) to never expire
+   */
+  public void setExpireAfterWrite(long expireAfterWrite) {
+    this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(expireAfterWrite);
+  }
+
+  /**
+   * Sets the time after which an entry expires once last read or written.
+   *
+   * @param expireAfterAccess
+   *          the time in milliseconds, or 0 (the default) to never expire
+   */
+  public void setExpireAfterAccess(long expireAfterAccess) {
+    this.expireAfterAccessNanos = TimeUnit.MILLISECONDS.toNanos(expireAfterAccess);
+  }
+
+  /**
+   * Sets how long before it expires after write an entry is reloaded. The first read in that window is reported as
+   * a miss so that the caller reloads the entry, while the other callers keep getting the cached value.
+   *
+   * @param refreshAhead
+   *          the time in milliseconds, or 0 (the default) to not reload entries before they expire
+   */
+  public void setRefreshAhead(long refreshAhead) {
+    this.refreshAheadNanos = TimeUnit.MILLISECONDS.toNanos(refreshAhead);
+  }
+
+  @Override
+  public int getSize() {
+    return cache.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    final long now = System.nanoTime();
+    final Entry entry = new Entry(value, weigh(value), now);
+    final Entry previous = cache.put(key, entry);
+    weight.addAndGet(previous == null ? entry.weight : entry.weight - previous.weight);
+    puts.increment();
+    if (isOverLimit()) {
+      evict(now);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    final Entry entry = cache.get(key);
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    final long now = System.nanoTime();
+    if (isExpired(entry, now)) {
+      if (remove(key, entry)) {
+        expirations.increment();
+      }
+      misses.increment();
+      return null;
+    }
+    entry.accessTime = now;
+    if (isRefreshDue(entry, now)) {
+      // racing readers may both reload, which only costs an extra query
+      entry.refreshing = true;
+      misses.increment();
+      return null;
+    }
+    if (entry.value == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return entry.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    final Entry entry = cache.remove(key);
+    if (entry == null) {
+      return null;
+    }
+    weight.addAndGet(-entry.weight);
+    return entry.value;
+  }
+
+  @Override
+  public void clear() {
+    for (Object key : cache.keySet()) {
+      removeObject(key);
+    }
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getPutCount() {
+    return puts.sum();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  public long getExpirationCount() {
+    return expirations.sum();
+  }
+
+  /**
+   * Gets the total weight of the entries.
+   *
+   * @return the weight
+   * @see #setMaxWeight(long)
+   */
+  public long getWeight() {
+    return weight.get();
+  }
+
+  protected int weigh(Object value) {
+    if (value instanceof Collection) {
+      return Math.max(1, ((Collection<?>) value).size());
+    } else if (value != null && value.getClass().isArray()) {
+      return Math.max(1, Array.getLength(value));
+    }
+    return 1;
+  }
+
+  private boolean isOverLimit() {
+    return cache.size() > size || (maxWeight > 0 && weight.get() > maxWeight);
+  }
+
+  private boolean isExpired(Entry entry, long now) {
+    return (expireAfterWriteNanos > 0 && now - entry.writeTime >= expireAfterWriteNanos)
+        || (expireAfterAccessNanos > 0 && now - entry.accessTime >= expireAfterAccessNanos);
+  }
+
+  private boolean isRefreshDue(Entry entry, long now) {
+    return refreshAheadNanos > 0 && expireAfterWriteNanos > 0 && !entry.refreshing
+        && now - entry.writeTime >= expireAfterWriteNanos - refreshAheadNanos;
+  }
+
+  private boolean remove(Object key, Entry entry) {
+    if (cache.remove(key, entry)) {
+      weight.addAndGet(-entry.weight);
+      return true;
+    }
+    return false;
+  }
+
+  private void evict(long now) {
+    // another thread is already evicting, which will bring the cache back under its limits
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      final List<Candidate> candidates = new ArrayList<>(cache.size());
+      for (Map.Entry<Object, Entry> mapEntry : cache.entrySet()) {
+        if (isExpired(mapEntry.getValue(), now)) {
+          if (remove(mapEntry.getKey(), mapEntry.getValue())) {
+            expirations.increment();
+          }
+        } else {
+          candidates.add(new Candidate(mapEntry.getKey(), mapEntry.getValue()));
+        }
+      }
+      if (!isOverLimit()) {
+        return;
+      }
+      // sorted on a snapshot of the access times, which readers keep updating
+      candidates.sort(Comparator.comparingLong(candidate -> candidate.accessTime));
+      final long targetSize = size - slack(size);
+      final long targetWeight = maxWeight - slack(maxWeight);
+      for (Candidate candidate : candidates) {
+        if (cache.size() <= targetSize && (maxWeight <= 0 || weight.get() <= targetWeight)) {
+          break;
+        }
+        if (remove(candidate.key, candidate.entry)) {
+          evictions.increment();
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private static long slack(long limit) {
+    return limit / 16;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static final class Entry {
+    private final Object value;
+    private final int weight;
+    private final long writeTime;
+    private volatile long accessTime;
+    private volatile boolean refreshing;
+
+    Entry(Object value, int weight, long now) {
+      this.value = value;
+      this.weight = weight;
+      this.writeTime = now;
+      this.accessTime = now;
+    }
+  }
+
+  private static final class Candidate {
+    private final Object key;
+    private final Entry entry;
+    private final long accessTime;
+
+    Candidate(Object key, Entry entry) {
+      this.key = key;
+      this.entry = entry;
+      this.accessTime = entry.accessTime;
+    }
+  }
+
+}
@@ -0,0 +1,302 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.codec.CacheCodec;
+import org.apache.ibatis.cache.codec.CacheCodecs;
+import org.apache.ibatis.cache.stats.EvictionCounter;
+
+/**
+ * A thread safe cache that keeps its values encoded outside of the java heap, in direct {@link ByteBuffer} slabs.
+ * <p>
+ * Only the keys and the location of each value stay on the heap, so the cache can hold many more entries than a
+ * {@link PerpetualCache} without growing the heap or the garbage collection work. Like a read-write cache, every hit
+ * returns a new copy of the value. Values are appended to the current slab; when all the slabs are full, the oldest
+ * one is emptied and reused, which evicts its entries at once. Values larger than a slab are not cached.
+ *
+ * @since 3.5.6
+ */
+public class OffHeapCache implements Cache, EvictionCounter {
+
+  private static final long DEFAULT_CAPACITY = 64L * 1024 * 1024;
+  private static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+  private final String id;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Object, Location> locations = new HashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  private CacheCodec codec = CacheCodecs.newCodec(null);
+  private long capacity = DEFAULT_CAPACITY;
+  private int slabSize = DEFAULT_SLAB_SIZE;
+
+  private ByteBuffer[] slabs;
+  private List<List<Object>> slabKeys;
+  private int currentSlab;
+  private int writeOffset;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Sets the total size of the slabs. They are allocated as they are needed.
+   *
+   * @param capacity
+   *          the capacity in bytes, 64 MB by default
+   */
+  public void setCapacity(long capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Sets the size of each slab, which is both the largest value that can be cached and the amount of memory
+   * reclaimed at once when the cache is full.
+   *
+   * @param slabSize
+   *          the slab size in bytes, 4 MB by default
+   */
+  public void setSlabSize(int slabSize) {
+    this.slabSize = slabSize;
+  }
+
+  /**
+   * Sets the codec of the values.
+   *
+   * @param codec
+   *          <code>java</code> (the default), <code>compact</code> or the class name of a {@link CacheCodec}
+   * @see CacheCodecs#newCodec(String)
+   */
+  public void setCodec(String codec) {
+    this.codec = CacheCodecs.newCodec(codec);
+  }
+
+  @Override
+  public int getSize() {
+    lock.readLock().lock();
+    try {
+      return locations.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value != null && !(value instanceof Serializable)) {
+      throw new CacheException("OffHeapCache failed to make a copy of a non-serializable object: " + value);
+    }
+    // encodes outside of the lock
+    final byte[] bytes = value == null ? null : codec.encode((Serializable) value);
+    lock.writeLock().lock();
+    try {
+      if (bytes == null || bytes.length > slabSize) {
+        locations.remove(key);
+        return;
+      }
+      if (slabs == null) {
+        slabs = new ByteBuffer[(int) Math.max(1, capacity / slabSize)];
+        slabKeys = new ArrayList<>(slabs.length);
+        for (int i = 0; i < slabs.length; i++) {
+          slabKeys.add(new ArrayList<>());
+        }
+      }
+      if (slabs[currentSlab] == null) {
+        slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+      } else if (writeOffset + bytes.length > slabSize) {
+        currentSlab = (currentSlab + 1) % slabs.length;
+        writeOffset = 0;
+        if (slabs[currentSlab] == null) {
+          slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+        } else {
+          evictSlab(currentSlab);
+        }
+      }
+      ByteBuffer slab = slabs[currentSlab].duplicate();
+      slab.position(writeOffset);
+      slab.put(bytes);
+      locations.put(key, new Location(currentSlab, writeOffset, bytes.length));
+      slabKeys.get(currentSlab).add(key);
+      writeOffset += bytes.length;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    final byte[] bytes = read(key);
+    if (bytes == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    // decodes outside of the lock
+    return codec.decode(bytes);
+  }
+
+  /**
+   * Removes an entry without reading it back. Its value is not decoded, so this always returns <code>null</code>,
+   * like {@link org.apache.ibatis.cache.decorators.BlockingCache#removeObject(Object)}.
+   */
+  @Override
+  public Object removeObject(Object key) {
+    lock.writeLock().lock();
+    try {
+      locations.remove(key);
+    } finally {
+      lock.writeLock().unlock();
+    }
+    return null;
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      locations.clear();
+      if (slabKeys != null) {
+        slabKeys.forEach(List::clear);
+      }
+      currentSlab = 0;
+      writeOffset = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * Gets the amount of off-heap memory allocated so far.
+   *
+   * @return the allocated bytes
+   */
+  public long getAllocatedBytes() {
+    lock.readLock().lock();
+    try {
+      long allocated = 0;
+      if (slabs != null) {
+        for (ByteBuffer slab : slabs) {
+          if (slab != null) {
+            allocated += slab.capacity();
+          }
+        }
+      }
+      return allocated;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private byte[] read(Object key) {
+    lock.readLock().lock();
+    try {
+      final Location location = locations.get(key);
+      if (location == null) {
+        return null;
+      }
+      final byte[] bytes = new byte[location.length];
+      final ByteBuffer slab = slabs[location.slab].duplicate();
+      slab.position(location.offset);
+      slab.get(bytes);
+      return bytes;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void evictSlab(int slab) {
+    final List<Object> keys = slabKeys.get(slab);
+    for (Object key : keys) {
+      final Location location = locations.get(key);
+      // the key may have been written again in another slab since
+      if (location != null && location.slab == slab) {
+        locations.remove(key);
+        evictions.increment();
+      }
+    }
+    keys.clear();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static final class Location {
+    private final int slab;
+    private final int offset;
+    private final int length;
+
+    private Location(int slab, int offset, int length) {
+      this.slab = slab;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+}
@@ -0,0 +1,536 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.codec.CacheCodec;
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
+import org.apache.ibatis.cache.stats.EvictionCounter;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A thread safe cache that keeps its entries in a memory mapped file, so that they survive a restart.
+ * <p>
+ * The file is an append-only log of the puts and removals, indexed in memory by key. When the cache is built, the
+ * log is replayed to rebuild the index, so the cache starts warm. When the log is full, the live entries are moved
+ * to its beginning, and the oldest ones are evicted if they still use more than three quarters of the file.
+ * Clearing the cache only starts a new generation of the log, so cleared entries are never reloaded.
+ * <p>
+ * Like any cache, it only receives the entries of committed sessions. The keys must be serializable and must be
+ * equal across restarts to be found again, which is the case of the {@link org.apache.ibatis.cache.CacheKey} of
+ * statements whose parameters are strings, numbers and dates. Entries are serialized, so each hit returns a new
+ * copy.
+ * <p>
+ * The file is locked while the cache uses it. When it is already locked, by another process or by the cache of
+ * another configuration of the same application, the cache uses a temporary file instead, so its entries are
+ * neither shared nor reloaded. {@link #close()} releases the file.
+ *
+ * @since 3.5.6
+ */
+public class PersistentCache implements Cache, InitializingObject, EvictionCounter {
+
+  private static final Log log = LogFactory.getLog(PersistentCache.class);
+
+  private static final int MAGIC = 0x4d424331;
+  private static final int FILE_HEADER_SIZE = 16;
+  private static final int RECORD_HEADER_SIZE = 8;
+  // epoch, write time, type, key length
+  private static final int BODY_HEADER_SIZE = 8 + 8 + 1 + 4;
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+  private static final int DEFAULT_FILE_SIZE = 64 * 1024 * 1024;
+
+  private final String id;
+  private final CacheCodec codec = new JavaSerializationCodec();
+  private final Map<Object, Location> index = new LinkedHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  private String directory = System.getProperty("java.io.tmpdir") + File.separator + "mybatis-cache";
+  private int fileSize = DEFAULT_FILE_SIZE;
+  private long expireAfterWrite;
+
+  private MappedByteBuffer buffer;
+  // keeps the channel open, the lock is released when it is closed
+  private FileLock fileLock;
+  private File temporaryFile;
+  private long epoch;
+  private int position;
+
+  public PersistentCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Sets the directory of the cache files. Each cache uses a file named after its id.
+   *
+   * @param directory
+   *          the directory, <code>mybatis-cache</code> in the temporary directory by default
+   */
+  public void setDirectory(String directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Sets the size of the cache file, which bounds the size of the cache.
+   *
+   * @param fileSize
+   *          the size in bytes, 64 MB by default
+   */
+  public void setFileSize(int fileSize) {
+    this.fileSize = fileSize;
+  }
+
+  /**
+   * Sets the time after which an entry expires once written. The write time is kept in the file, so entries that
+   * expired while the application was stopped are not reloaded.
+   *
+   * @param expireAfterWrite
+   *          the time in milliseconds, or 0 (the default) to never expire
+   */
+  public void setExpireAfterWrite(long expireAfterWrite) {
+    this.expireAfterWrite = expireAfterWrite;
+  }
+
+  /**
+   * Opens the cache file and reloads its entries.
+   */
+  @Override
+  public synchronized void initialize() {
+    if (buffer != null) {
+      return;
+    }
+    File dir = new File(directory);
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new CacheException("Could not create the cache directory " + dir);
+    }
+    String name = id.replaceAll("[^\\w.-]", "_");
+    File file = new File(dir, name + ".cache");
+    if (!open(file)) {
+      try {
+        temporaryFile = File.createTempFile(name + "-", ".cache", dir);
+      } catch (IOException e) {
+        throw new CacheException("Could not create a temporary cache file in " + dir + ".  Cause: " + e, e);
+      }
+      temporaryFile.deleteOnExit();
+      log.warn("The cache file " + file + " is locked by another cache, the entries of " + id + " are not persisted.");
+      if (!open(temporaryFile)) {
+        throw new CacheException("Could not lock the temporary cache file " + temporaryFile);
+      }
+    }
+    if (buffer.getInt(0) == MAGIC) {
+      epoch = buffer.getLong(8);
+      replay();
+    } else {
+      buffer.putInt(0, MAGIC);
+      startEpoch(1);
+    }
+  }
+
+  /**
+   * Maps the file if it can be locked.
+   */
+  private boolean open(File file) {
+    RandomAccessFile raf = null;
+    try {
+      raf = new RandomAccessFile(file, "rw");
+      FileChannel channel = raf.getChannel();
+      FileLock lock;
+      try {
+        lock = channel.tryLock();
+      } catch (OverlappingFileLockException e) {
+        // locked by another cache of this application
+        lock = null;
+      }
+      if (lock == null) {
+        raf.close();
+        return false;
+      }
+      if (raf.length() < fileSize) {
+        raf.setLength(fileSize);
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+      fileLock = lock;
+      return true;
+    } catch (IOException e) {
+      if (raf != null) {
+        try {
+          raf.close();
+        } catch (IOException ignored) {
+          // the open failure is reported
+        }
+      }
+      throw new CacheException("Could not open the cache file " + file + ".  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * Releases the cache file, so that another cache or process can use it. The cache opens it again on its next use.
+   */
+  public synchronized void close() {
+    if (buffer == null) {
+      return;
+    }
+    buffer.force();
+    buffer = null;
+    index.clear();
+    try {
+      fileLock.channel().close();
+    } catch (IOException e) {
+      log.warn("Could not close the cache file of " + id + ".  Cause: " + e);
+    }
+    fileLock = null;
+    if (temporaryFile != null) {
+      if (!temporaryFile.delete()) {
+        log.debug("Could not delete the temporary cache file " + temporaryFile);
+      }
+      temporaryFile = null;
+    }
+  }
+
+  @Override
+  public synchronized int getSize() {
+    initialize();
+    reclaimExpiredEntries(System.currentTimeMillis());
+    return index.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value == null) {
+      removeObject(key);
+      return;
+    }
+    if (!(value instanceof Serializable)) {
+      throw new CacheException("PersistentCache failed to make a copy of a non-serializable object: " + value);
+    }
+    byte[] keyBytes;
+    try {
+      keyBytes = key instanceof Serializable ? codec.encode((Serializable) key) : null;
+    } catch (CacheException e) {
+      keyBytes = null;
+    }
+    if (keyBytes == null) {
+      // cannot be persisted, so it is not cached
+      removeObject(key);
+      return;
+    }
+    final byte[] valueBytes = codec.encode((Serializable) value);
+    synchronized (this) {
+      initialize();
+      final Location previous = index.remove(key);
+      final Location location = append(PUT, keyBytes, valueBytes, System.currentTimeMillis());
+      if (location != null) {
+        index.put(key, location);
+      } else if (previous != null) {
+        // larger than the file, so the previous value must not be reloaded either
+        append(REMOVE, keyBytes, new byte[0], 0);
+      }
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    final byte[] bytes;
+    synchronized (this) {
+      initialize();
+      Location location = index.get(key);
+      if (location != null && isExpired(location, System.currentTimeMillis())) {
+        remove(key);
+        location = null;
+      }
+      if (location == null) {
+        misses.increment();
+        return null;
+      }
+      bytes = read(location.valueOffset(), location.valueLength());
+    }
+    final Object value;
+    try {
+      value = codec.decode(bytes);
+    } catch (CacheException e) {
+      // written by another version of its classes
+      removeObject(key);
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    final byte[] bytes;
+    synchronized (this) {
+      initialize();
+      Location location = remove(key);
+      if (location == null) {
+        return null;
+      }
+      bytes = read(location.valueOffset(), location.valueLength());
+    }
+    try {
+      return codec.decode(bytes);
+    } catch (CacheException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public synchronized void clear() {
+    initialize();
+    index.clear();
+    startEpoch(epoch + 1);
+  }
+
+  /**
+   * Writes the changes of the cache file to the disk. They are written by the operating system anyway, this only
+   * makes sure that they survive a crash of the system, for example before shutting down.
+   */
+  public synchronized void force() {
+    if (buffer != null) {
+      buffer.force();
+    }
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  private Location remove(Object key) {
+    Location location = index.remove(key);
+    if (location != null) {
+      append(REMOVE, read(location.offset + RECORD_HEADER_SIZE + BODY_HEADER_SIZE, location.keyLength), new byte[0], 0);
+    }
+    return location;
+  }
+
+  private boolean isExpired(Location location, long now) {
+    return expireAfterWrite > 0 && now - location.writeTime >= expireAfterWrite;
+  }
+
+  /**
+   * Drops the expired entries from the index. Their records expire on replay too, so they are left in the log
+   * until it is compacted.
+   */
+  private void reclaimExpiredEntries(long now) {
+    if (expireAfterWrite <= 0) {
+      return;
+    }
+    // the index is in write order
+    final Iterator<Location> oldest = index.values().iterator();
+    while (oldest.hasNext() && isExpired(oldest.next(), now)) {
+      oldest.remove();
+    }
+  }
+
+  private void startEpoch(long epoch) {
+    this.epoch = epoch;
+    buffer.putLong(8, epoch);
+    position = FILE_HEADER_SIZE;
+  }
+
+  private void replay() {
+    final long now = System.currentTimeMillis();
+    int offset = FILE_HEADER_SIZE;
+    while (offset + RECORD_HEADER_SIZE + BODY_HEADER_SIZE <= fileSize) {
+      final int length = buffer.getInt(offset);
+      if (length < BODY_HEADER_SIZE || length > fileSize - offset - RECORD_HEADER_SIZE) {
+        break;
+      }
+      final byte[] body = read(offset + RECORD_HEADER_SIZE, length);
+      // a record of an older generation or torn by a crash ends the log
+      final ByteBuffer header = ByteBuffer.wrap(body);
+      if (checksum(body, 0) != buffer.getInt(offset + 4) || header.getLong(0) != epoch) {
+        break;
+      }
+      final long writeTime = header.getLong(8);
+      final byte type = header.get(16);
+      final int keyLength = header.getInt(17);
+      try {
+        final byte[] keyBytes = new byte[keyLength];
+        System.arraycopy(body, BODY_HEADER_SIZE, keyBytes, 0, keyLength);
+        final Object key = codec.decode(keyBytes);
+        index.remove(key);
+        final Location location = new Location(offset, length, keyLength, writeTime);
+        if (type == PUT && !isExpired(location, now)) {
+          index.put(key, location);
+        }
+      } catch (CacheException e) {
+        // the class of the key is gone, skip it
+      }
+      offset += RECORD_HEADER_SIZE + length;
+    }
+    position = offset;
+  }
+
+  private Location append(byte type, byte[] keyBytes, byte[] valueBytes, long writeTime) {
+    final int length = BODY_HEADER_SIZE + keyBytes.length + valueBytes.length;
+    if (position + RECORD_HEADER_SIZE + length > fileSize) {
+      compact(RECORD_HEADER_SIZE + length);
+      if (position + RECORD_HEADER_SIZE + length > fileSize) {
+        // larger than the file
+        return null;
+      }
+    }
+    final byte[] record = new byte[RECORD_HEADER_SIZE + length];
+    final ByteBuffer writer = ByteBuffer.wrap(record);
+    writer.putInt(length).putInt(0).putLong(epoch).putLong(writeTime).put(type).putInt(keyBytes.length).put(keyBytes).put(valueBytes);
+    writer.putInt(4, checksum(record, RECORD_HEADER_SIZE));
+    write(position, record);
+    final Location location = new Location(position, length, keyBytes.length, writeTime);
+    position += record.length;
+    return location;
+  }
+
+  /**
+   * Moves the live entries to the beginning of the log, in a new generation so that a crash in the middle leaves
+   * an empty but consistent log, and evicts the oldest entries if needed to leave a quarter of the file free.
+   */
+  private void compact(int needed) {
+    reclaimExpiredEntries(System.currentTimeMillis());
+    final long maxLiveBytes = (fileSize - FILE_HEADER_SIZE) * 3L / 4 - needed;
+    long liveBytes = 0;
+    for (Location location : index.values()) {
+      liveBytes += RECORD_HEADER_SIZE + location.length;
+    }
+    final Iterator<Location> oldest = index.values().iterator();
+    while (liveBytes > maxLiveBytes && oldest.hasNext()) {
+      liveBytes -= RECORD_HEADER_SIZE + oldest.next().length;
+      oldest.remove();
+      evictions.increment();
+    }
+    final long newEpoch = epoch + 1;
+    final List<Map.Entry<Object, Location>> live = new ArrayList<>(index.entrySet());
+    live.sort(Comparator.comparingInt(entry -> entry.getValue().offset));
+    int offset = FILE_HEADER_SIZE;
+    for (Map.Entry<Object, Location> entry : live) {
+      final Location location = entry.getValue();
+      final byte[] record = read(location.offset, RECORD_HEADER_SIZE + location.length);
+      ByteBuffer.wrap(record).putLong(RECORD_HEADER_SIZE, newEpoch).putInt(4, checksum(record, RECORD_HEADER_SIZE));
+      // the records are moved in order and never forward, so no record is overwritten before it is moved
+      write(offset, record);
+      entry.setValue(new Location(offset, location.length, location.keyLength, location.writeTime));
+      offset += record.length;
+    }
+    startEpoch(newEpoch);
+    position = offset;
+  }
+
+  private byte[] read(int offset, int length) {
+    final byte[] bytes = new byte[length];
+    final ByteBuffer source = buffer.duplicate();
+    source.position(offset);
+    source.get(bytes);
+    return bytes;
+  }
+
+  private void write(int offset, byte[] bytes) {
+    final ByteBuffer target = buffer.duplicate();
+    target.position(offset);
+    target.put(bytes);
+  }
+
+  private static int checksum(byte[] bytes, int offset) {
+    final CRC32 crc = new CRC32();
+    crc.update(bytes, offset, bytes.length - offset);
+    return (int) crc.getValue();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static final class Location {
+    private final int offset;
+    private final int length;
+    private final int keyLength;
+    private final long writeTime;
+
+    private Location(int offset, int length, int keyLength, long writeTime) {
+      this.offset = offset;
+      this.length = length;
+      this.keyLength = keyLength;
+      this.writeTime = writeTime;
+    }
+
+    private int valueOffset() {
+      return offset + RECORD_HEADER_SIZE + BODY_HEADER_SIZE + keyLength;
+    }
+
+    private int valueLength() {
+      return length - BODY_HEADER_SIZE - keyLength;
+    }
+  }
+
+}
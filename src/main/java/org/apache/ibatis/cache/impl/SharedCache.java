@@ -0,0 +1,272 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.codec.CacheCodec;
+import org.apache.ibatis.cache.codec.CacheCodecs;
+import org.apache.ibatis.cache.shared.CacheInvalidationBus;
+import org.apache.ibatis.cache.shared.CacheInvalidationTransport;
+import org.apache.ibatis.cache.shared.SharedCacheRegion;
+import org.apache.ibatis.cache.shared.SharedCacheRegions;
+import org.apache.ibatis.cache.stats.EvictionCounter;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * A cache bound to a region shared by the configurations of the JVM, so that the configurations of several
+ * {@link org.apache.ibatis.session.SqlSessionFactory} instances share the entries of a namespace, and a write
+ * through any of them invalidates the others.
+ * <p>
+ * The entries are kept in a {@link ConcurrentCache} per namespace, created with the size and expiry of the first
+ * configuration to use the namespace. Clearing the cache publishes an invalidation on the bus of the region, which
+ * also carries it to other processes when the region has a {@link CacheInvalidationTransport}.
+ * <p>
+ * All the configurations bound to a namespace must store their values in the same form: either read-only, or
+ * serialized with the same codec, which is then shared by the namespace. Binding a namespace with another form
+ * fails.
+ *
+ * @since 3.5.6
+ * @see SharedCacheRegions
+ */
+public class SharedCache implements Cache, InitializingObject, EvictionCounter {
+
+  private static final int DEFAULT_SIZE = 1024;
+
+  private final String id;
+
+  private String region = "default";
+  private String transport;
+  private int size = DEFAULT_SIZE;
+  private long expireAfterWrite;
+  private long expireAfterAccess;
+  private long refreshAhead;
+  private boolean readWrite = true;
+  private String codec;
+
+  private SharedCacheRegion sharedRegion;
+  private volatile Cache delegate;
+
+  public SharedCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Sets the name of the region to bind to.
+   *
+   * @param region
+   *          the name of the region, <code>default</code> by default
+   */
+  public void setRegion(String region) {
+    this.region = region;
+  }
+
+  /**
+   * Sets the transport that carries the invalidations of the region to other processes. It is only used if the
+   * region has no transport yet.
+   *
+   * @param transport
+   *          the fully qualified name of a {@link CacheInvalidationTransport} implementation
+   */
+  public void setTransport(String transport) {
+    this.transport = transport;
+  }
+
+  /**
+   * Sets the maximum number of entries.
+   *
+   * @param size
+   *          the size, 1024 by default
+   */
+  public void setSize(int size) {
+    this.size = size;
+  }
+
+  public void setExpireAfterWrite(long expireAfterWrite) {
+    this.expireAfterWrite = expireAfterWrite;
+  }
+
+  public void setExpireAfterAccess(long expireAfterAccess) {
+    this.expireAfterAccess = expireAfterAccess;
+  }
+
+  public void setRefreshAhead(long refreshAhead) {
+    this.refreshAhead = refreshAhead;
+  }
+
+  /**
+   * Sets whether the values are stored serialized, so that each reader gets its own copy.
+   *
+   * @param readWrite
+   *          <code>true</code> by default
+   */
+  public void setReadWrite(boolean readWrite) {
+    this.readWrite = readWrite;
+  }
+
+  /**
+   * Sets the codec that serializes the values of a read/write cache.
+   *
+   * @param codec
+   *          the codec name, as accepted by {@link CacheCodecs#newCodec(String)}
+   */
+  public void setCodec(String codec) {
+    this.codec = codec;
+  }
+
+  /**
+   * Binds the cache to its region, and sets the transport of the region.
+   */
+  @Override
+  public void initialize() {
+    sharedRegion = SharedCacheRegions.getRegion(region);
+    final String valueForm = getValueForm();
+    final String boundForm = sharedRegion.bindValueForm(id, valueForm);
+    if (!boundForm.equals(valueForm)) {
+      throw new CacheException("The namespace '" + id + "' of the shared cache region '" + region + "' already stores "
+          + boundForm + " values, cannot bind it with " + valueForm + " values");
+    }
+    if (transport != null) {
+      CacheInvalidationBus bus = sharedRegion.getBus();
+      synchronized (bus) {
+        if (bus.getTransport() == null) {
+          bus.setTransport(newTransport(transport));
+        } else if (!bus.getTransport().getClass().getName().equals(transport)) {
+          throw new CacheException("The shared cache region '" + region + "' already uses the transport "
+              + bus.getTransport().getClass().getName() + ", cannot bind '" + id + "' with " + transport);
+        }
+      }
+    }
+  }
+
+  public SharedCacheRegion getSharedRegion() {
+    return sharedRegion;
+  }
+
+  /**
+   * Gets the codec that serializes the values of the namespace, shared by all the configurations bound to it.
+   *
+   * @return the codec
+   */
+  public CacheCodec getCodec() {
+    if (sharedRegion == null) {
+      throw new CacheException("Shared cache '" + id + "' is not initialized.");
+    }
+    return sharedRegion.getCodec(id, namespace -> CacheCodecs.newCodec(codec));
+  }
+
+  private String getValueForm() {
+    if (!readWrite) {
+      return "read-only";
+    }
+    return "read/write (codec " + (codec == null ? "java" : codec) + ")";
+  }
+
+  @Override
+  public int getSize() {
+    return delegate().getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate().putObject(key, value);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return delegate().getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return delegate().removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    if (sharedRegion == null) {
+      throw new CacheException("Shared cache '" + id + "' is not initialized.");
+    }
+    sharedRegion.invalidate(id);
+  }
+
+  @Override
+  public long getEvictionCount() {
+    Cache cache = delegate();
+    return cache instanceof EvictionCounter ? ((EvictionCounter) cache).getEvictionCount() : 0;
+  }
+
+  private Cache delegate() {
+    Cache cache = delegate;
+    if (cache == null) {
+      if (sharedRegion == null) {
+        throw new CacheException("Shared cache '" + id + "' is not initialized.");
+      }
+      // the size and expiry are only known once the cache is built
+      cache = sharedRegion.getCache(id, this::newDelegate);
+      delegate = cache;
+    }
+    return cache;
+  }
+
+  private Cache newDelegate(String namespace) {
+    ConcurrentCache cache = new ConcurrentCache(namespace);
+    cache.setSize(size);
+    cache.setExpireAfterWrite(expireAfterWrite);
+    cache.setExpireAfterAccess(expireAfterAccess);
+    cache.setRefreshAhead(refreshAhead);
+    return cache;
+  }
+
+  private static CacheInvalidationTransport newTransport(String name) {
+    try {
+      return (CacheInvalidationTransport) Resources.classForName(name).getDeclaredConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache invalidation transport '" + name + "'.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+}
@@ -0,0 +1,62 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.shared;
+
+import java.io.Serializable;
+
+/**
+ * The invalidation of the entries of a namespace in a shared cache region, published after a write to it.
+ *
+ * @since 3.5.6
+ */
+public class CacheInvalidation implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String region;
+  private final String namespace;
+  private final String origin;
+
+  public CacheInvalidation(String region, String namespace, String origin) {
+    this.region = region;
+    this.namespace = namespace;
+    this.origin = origin;
+  }
+
+  public String getRegion() {
+    return region;
+  }
+
+  public String getNamespace() {
+    return namespace;
+  }
+
+  /**
+   * Returns the id of the bus that published this invalidation, so that it does not process it twice when its
+   * transport echoes it back.
+   *
+   * @return the id of the bus
+   */
+  public String getOrigin() {
+    return origin;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheInvalidation [region=" + region + ", namespace=" + namespace + ", origin=" + origin + "]";
+  }
+
+}
@@ -0,0 +1,118 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.shared;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Delivers the invalidations of a shared cache region to its listeners, and through its transport, if any, to the
+ * same region in other processes.
+ * <p>
+ * Invalidations are delivered synchronously, so a write has invalidated the region of this process by the time its
+ * session commits. A transport that fails to send one is only logged, as the database is already committed.
+ *
+ * @since 3.5.6
+ */
+public class CacheInvalidationBus {
+
+  private static final Log log = LogFactory.getLog(CacheInvalidationBus.class);
+
+  private final String region;
+  private final String origin = UUID.randomUUID().toString();
+  private final List<CacheInvalidationListener> listeners = new CopyOnWriteArrayList<>();
+  private volatile CacheInvalidationTransport transport;
+
+  public CacheInvalidationBus(String region) {
+    this.region = region;
+  }
+
+  public String getRegion() {
+    return region;
+  }
+
+  public void addListener(CacheInvalidationListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(CacheInvalidationListener listener) {
+    listeners.remove(listener);
+  }
+
+  public CacheInvalidationTransport getTransport() {
+    return transport;
+  }
+
+  /**
+   * Sets the transport to other processes, closing the previous one.
+   *
+   * @param transport
+   *          the transport, or <code>null</code> to only invalidate this process
+   */
+  public synchronized void setTransport(CacheInvalidationTransport transport) {
+    CacheInvalidationTransport previous = this.transport;
+    this.transport = transport;
+    if (previous != null) {
+      previous.close();
+    }
+    if (transport != null) {
+      transport.open(region, this::receive);
+    }
+  }
+
+  /**
+   * Invalidates the entries of a namespace in this process and, through the transport, in the others.
+   *
+   * @param namespace
+   *          the namespace
+   */
+  public void publish(String namespace) {
+    CacheInvalidation invalidation = new CacheInvalidation(region, namespace, origin);
+    deliver(invalidation);
+    CacheInvalidationTransport current = transport;
+    if (current != null) {
+      try {
+        current.send(invalidation);
+      } catch (RuntimeException e) {
+        log.warn("Could not send " + invalidation + ", the other processes may keep stale entries.  Cause: " + e);
+      }
+    }
+  }
+
+  /**
+   * Closes the transport, if any.
+   */
+  public void close() {
+    setTransport(null);
+  }
+
+  private void receive(CacheInvalidation invalidation) {
+    if (region.equals(invalidation.getRegion()) && !origin.equals(invalidation.getOrigin())) {
+      deliver(invalidation);
+    }
+  }
+
+  private void deliver(CacheInvalidation invalidation) {
+    for (CacheInvalidationListener listener : listeners) {
+      listener.onInvalidation(invalidation);
+    }
+  }
+
+}
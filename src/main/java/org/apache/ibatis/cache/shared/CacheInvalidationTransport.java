@@ -0,0 +1,51 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.shared;
+
+/**
+ * Carries the invalidations of a shared cache region to the same region in other processes, for example over a
+ * message broker. Implementations must have a public no-arg constructor to be named by the <code>transport</code>
+ * property of a shared cache.
+ *
+ * @since 3.5.6
+ * @see LocalCacheInvalidationTransport
+ */
+public interface CacheInvalidationTransport {
+
+  /**
+   * Starts receiving the invalidations sent by the other processes.
+   *
+   * @param region
+   *          the name of the region
+   * @param receiver
+   *          the listener to deliver the received invalidations to
+   */
+  void open(String region, CacheInvalidationListener receiver);
+
+  /**
+   * Sends an invalidation to the other processes. The transport may deliver it back to its own receiver.
+   *
+   * @param invalidation
+   *          the invalidation
+   */
+  void send(CacheInvalidation invalidation);
+
+  /**
+   * Stops receiving invalidations and releases the resources of the transport.
+   */
+  void close();
+
+}
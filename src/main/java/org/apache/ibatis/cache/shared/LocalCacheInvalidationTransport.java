@@ -0,0 +1,74 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.shared;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An in-process stand-in for a transport between processes, which delivers the invalidations sent by each transport
+ * to the other transports of the same channel. It lets standalone {@link SharedCacheRegion} instances play the part
+ * of the regions of other processes, in tests or in a single process deployment.
+ *
+ * @since 3.5.6
+ */
+public class LocalCacheInvalidationTransport implements CacheInvalidationTransport {
+
+  private static final Map<String, List<LocalCacheInvalidationTransport>> channels = new ConcurrentHashMap<>();
+
+  private final String channel;
+  private volatile CacheInvalidationListener receiver;
+
+  public LocalCacheInvalidationTransport() {
+    this("default");
+  }
+
+  public LocalCacheInvalidationTransport(String channel) {
+    this.channel = channel;
+  }
+
+  @Override
+  public void open(String region, CacheInvalidationListener receiver) {
+    this.receiver = receiver;
+    channels.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(this);
+  }
+
+  @Override
+  public void send(CacheInvalidation invalidation) {
+    List<LocalCacheInvalidationTransport> members = channels.get(channel);
+    if (members == null) {
+      return;
+    }
+    for (LocalCacheInvalidationTransport member : members) {
+      CacheInvalidationListener memberReceiver = member.receiver;
+      if (member != this && memberReceiver != null) {
+        memberReceiver.onInvalidation(invalidation);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    List<LocalCacheInvalidationTransport> members = channels.get(channel);
+    if (members != null) {
+      members.remove(this);
+    }
+    receiver = null;
+  }
+
+}
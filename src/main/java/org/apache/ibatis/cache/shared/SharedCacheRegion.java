@@ -0,0 +1,113 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.shared;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.codec.CacheCodec;
+
+/**
+ * A cache region that several configurations bind their namespaces to, so that they share a single cache per
+ * namespace. The cache of a namespace is cleared through the {@link CacheInvalidationBus} of the region, so a write
+ * through any configuration invalidates it for all of them, and for the other processes the bus has a transport to.
+ *
+ * @since 3.5.6
+ * @see SharedCacheRegions
+ */
+public class SharedCacheRegion {
+
+  private final String name;
+  private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+  private final Map<String, String> valueForms = new ConcurrentHashMap<>();
+  private final Map<String, CacheCodec> codecs = new ConcurrentHashMap<>();
+  private final CacheInvalidationBus bus;
+
+  public SharedCacheRegion(String name) {
+    this.name = name;
+    this.bus = new CacheInvalidationBus(name);
+    this.bus.addListener(invalidation -> {
+      Cache cache = caches.get(invalidation.getNamespace());
+      if (cache != null) {
+        cache.clear();
+      }
+    });
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public CacheInvalidationBus getBus() {
+    return bus;
+  }
+
+  /**
+   * Gets the cache of a namespace, creating it if it is the first configuration to bind the namespace.
+   *
+   * @param namespace
+   *          the namespace
+   * @param factory
+   *          creates the cache of the namespace
+   * @return the cache
+   */
+  public Cache getCache(String namespace, Function<String, ? extends Cache> factory) {
+    return caches.computeIfAbsent(namespace, factory);
+  }
+
+  /**
+   * Records the form of the values stored in the cache of a namespace, unless a configuration already bound the
+   * namespace.
+   *
+   * @param namespace
+   *          the namespace
+   * @param valueForm
+   *          a description of the stored values, such as whether they are serialized and with which codec
+   * @return the form recorded by the first configuration to bind the namespace
+   */
+  public String bindValueForm(String namespace, String valueForm) {
+    String boundForm = valueForms.putIfAbsent(namespace, valueForm);
+    return boundForm == null ? valueForm : boundForm;
+  }
+
+  /**
+   * Gets the codec that serializes the values of a namespace, creating it if it is the first configuration to ask
+   * for it. All the configurations share it, so that a codec numbering its class descriptors decodes the values
+   * encoded by the others.
+   *
+   * @param namespace
+   *          the namespace
+   * @param factory
+   *          creates the codec of the namespace
+   * @return the codec
+   */
+  public CacheCodec getCodec(String namespace, Function<String, ? extends CacheCodec> factory) {
+    return codecs.computeIfAbsent(namespace, factory);
+  }
+
+  /**
+   * Clears the cache of a namespace in all the configurations bound to it.
+   *
+   * @param namespace
+   *          the namespace
+   */
+  public void invalidate(String namespace) {
+    bus.publish(namespace);
+  }
+
+}
@@ -0,0 +1,58 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.shared;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The shared cache regions of the JVM, by name.
+ *
+ * @since 3.5.6
+ */
+public final class SharedCacheRegions {
+
+  private static final Map<String, SharedCacheRegion> regions = new ConcurrentHashMap<>();
+
+  private SharedCacheRegions() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * Gets a region, creating it on first use.
+   *
+   * @param name
+   *          the name of the region
+   * @return the region
+   */
+  public static SharedCacheRegion getRegion(String name) {
+    return regions.computeIfAbsent(name, SharedCacheRegion::new);
+  }
+
+  /**
+   * Removes a region and closes the transport of its bus. The configurations already bound to it keep using it.
+   *
+   * @param name
+   *          the name of the region
+   */
+  public static void removeRegion(String name) {
+    SharedCacheRegion region = regions.remove(name);
+    if (region != null) {
+      region.getBus().close();
+    }
+  }
+
+}
@@ -0,0 +1,247 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.stats;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.SizeEstimator;
+
+/**
+ * The statistics of a second level cache, recorded by its {@link org.apache.ibatis.cache.decorators.LoggingCache}
+ * and by the {@link org.apache.ibatis.executor.CachingExecutor}.
+ * <p>
+ * The counters are striped and nothing is synchronized, so the statistics can stay enabled in production. To keep the
+ * cost of a hit constant, the hot keys are sampled, and so is the size of the put values that the estimated size
+ * of the cache is extrapolated from.
+ *
+ * @since 3.5.6
+ * @see org.apache.ibatis.session.Configuration#getCacheStatistics(String)
+ */
+public class CacheStatistics {
+
+  private static final int HIT_SAMPLING = 8;
+  private static final int SIZE_SAMPLING = 16;
+  private static final int TRACKED_KEYS = 256;
+
+  private final String id;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder puts = new LongAdder();
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder loadTime = new LongAdder();
+  private final LongAdder sampledValues = new LongAdder();
+  private final LongAdder sampledBytes = new LongAdder();
+  private final TopKeys hotKeys = new TopKeys(TRACKED_KEYS, false);
+  private final TopKeys expensiveMisses = new TopKeys(TRACKED_KEYS, true);
+  private final List<EvictionCounter> evictionCounters = new CopyOnWriteArrayList<>();
+  private volatile Cache cache;
+
+  public CacheStatistics(String id) {
+    this.id = id;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Sets the cache whose size is reported.
+   *
+   * @param cache
+   *          the cache
+   */
+  public void setCache(Cache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Adds a layer of the cache whose evictions are reported.
+   *
+   * @param evictionCounter
+   *          the layer
+   */
+  public void addEvictionCounter(EvictionCounter evictionCounter) {
+    evictionCounters.add(evictionCounter);
+  }
+
+  public void recordHit(Object key) {
+    hits.increment();
+    if (ThreadLocalRandom.current().nextInt(HIT_SAMPLING) == 0) {
+      hotKeys.record(key, HIT_SAMPLING, 0);
+    }
+  }
+
+  public void recordMiss(Object key) {
+    misses.increment();
+  }
+
+  public void recordPut(Object key, Object value) {
+    puts.increment();
+    if (value != null && (sampledValues.sum() < SIZE_SAMPLING || ThreadLocalRandom.current().nextInt(SIZE_SAMPLING) == 0)) {
+      sampledBytes.add(SizeEstimator.estimate(value));
+      sampledValues.increment();
+    }
+  }
+
+  /**
+   * Records the time spent loading a missed key from the database.
+   *
+   * @param key
+   *          the key
+   * @param nanos
+   *          the time in nanoseconds
+   */
+  public void recordLoad(Object key, long nanos) {
+    loads.increment();
+    loadTime.add(nanos);
+    expensiveMisses.record(key, 1, nanos);
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the ratio of hits among the lookups.
+   *
+   * @return the hit ratio, 0 if there was no lookup
+   */
+  public double getHitRatio() {
+    long hitCount = hits.sum();
+    long requestCount = hitCount + misses.sum();
+    return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+  }
+
+  public long getPutCount() {
+    return puts.sum();
+  }
+
+  /**
+   * Returns the number of entries evicted by the layers of the cache that count them, such as the LRU and FIFO
+   * decorators and the concurrent, off-heap and persistent caches.
+   *
+   * @return the number of evictions
+   */
+  public long getEvictionCount() {
+    long evictions = 0;
+    for (EvictionCounter evictionCounter : evictionCounters) {
+      evictions += evictionCounter.getEvictionCount();
+    }
+    return evictions;
+  }
+
+  /**
+   * Returns the number of times a missed key was loaded from the database.
+   *
+   * @return the number of loads
+   */
+  public long getLoadCount() {
+    return loads.sum();
+  }
+
+  /**
+   * Returns the total time spent loading missed keys from the database.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getTotalLoadTime() {
+    return loadTime.sum();
+  }
+
+  /**
+   * Returns the average time spent loading a missed key from the database.
+   *
+   * @return the time in nanoseconds, 0 if nothing was loaded
+   */
+  public long getAverageLoadTime() {
+    long loadCount = loads.sum();
+    return loadCount == 0 ? 0 : loadTime.sum() / loadCount;
+  }
+
+  /**
+   * Returns the number of entries of the cache.
+   *
+   * @return the number of entries, or -1 if the cache is unknown
+   */
+  public int getSize() {
+    Cache current = cache;
+    return current == null ? -1 : current.getSize();
+  }
+
+  /**
+   * Returns the estimated size of the entries of the cache, extrapolated from the size of a sample of the put values.
+   *
+   * @return the size in bytes
+   * @see SizeEstimator
+   */
+  public long getEstimatedBytes() {
+    long sampleCount = sampledValues.sum();
+    int size = getSize();
+    return sampleCount == 0 || size <= 0 ? 0 : sampledBytes.sum() / sampleCount * size;
+  }
+
+  /**
+   * Returns the keys with the most hits, from a sample of the hits.
+   *
+   * @param n
+   *          the maximum number of keys
+   * @return the keys, the most hit first
+   */
+  public List<KeyStatistics> getHotKeys(int n) {
+    return hotKeys.top(n);
+  }
+
+  /**
+   * Returns the missed keys that took the most time to load from the database.
+   *
+   * @param n
+   *          the maximum number of keys
+   * @return the keys, the most expensive first
+   */
+  public List<KeyStatistics> getExpensiveMisses(int n) {
+    return expensiveMisses.top(n);
+  }
+
+  /**
+   * Resets the statistics, except the evictions which are counted by the cache itself.
+   */
+  public void reset() {
+    hits.reset();
+    misses.reset();
+    puts.reset();
+    loads.reset();
+    loadTime.reset();
+    sampledValues.reset();
+    sampledBytes.reset();
+    hotKeys.clear();
+    expensiveMisses.clear();
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStatistics [id=" + id + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", puts="
+        + getPutCount() + ", evictions=" + getEvictionCount() + ", size=" + getSize() + "]";
+  }
+
+}
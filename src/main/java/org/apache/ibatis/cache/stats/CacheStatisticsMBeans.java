@@ -0,0 +1,178 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.stats;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Registers the statistics of the caches of a configuration as MBeans of the platform MBean server, named
+ * <code>org.apache.ibatis:type=CacheStatistics,configuration=&lt;name&gt;,id=&lt;cache id&gt;</code>.
+ *
+ * @since 3.5.6
+ */
+public final class CacheStatisticsMBeans {
+
+  private static final int TOP_KEYS = 10;
+
+  private CacheStatisticsMBeans() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * Registers the statistics of all the caches of a configuration, which must have been built.
+   *
+   * @param configuration
+   *          the configuration
+   * @param name
+   *          a name that tells this configuration apart from the others of the JVM
+   * @return the names of the registered MBeans
+   */
+  public static List<ObjectName> register(Configuration configuration, String name) {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    List<ObjectName> names = new ArrayList<>();
+    try {
+      for (CacheStatistics statistics : configuration.getCacheStatistics()) {
+        ObjectName objectName = objectName(name, statistics.getId());
+        server.registerMBean(new Adapter(statistics), objectName);
+        names.add(objectName);
+      }
+    } catch (JMException e) {
+      unregister(configuration, name);
+      throw new CacheException("Error registering the cache statistics MBeans.  Cause: " + e, e);
+    }
+    return names;
+  }
+
+  /**
+   * Unregisters the statistics registered by {@link #register(Configuration, String)}.
+   *
+   * @param configuration
+   *          the configuration
+   * @param name
+   *          the name it was registered with
+   */
+  public static void unregister(Configuration configuration, String name) {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    for (CacheStatistics statistics : configuration.getCacheStatistics()) {
+      try {
+        ObjectName objectName = objectName(name, statistics.getId());
+        if (server.isRegistered(objectName)) {
+          server.unregisterMBean(objectName);
+        }
+      } catch (JMException e) {
+        throw new CacheException("Error unregistering the cache statistics MBeans.  Cause: " + e, e);
+      }
+    }
+  }
+
+  private static ObjectName objectName(String name, String id) throws JMException {
+    return new ObjectName("org.apache.ibatis:type=CacheStatistics,configuration=" + ObjectName.quote(name)
+        + ",id=" + ObjectName.quote(id));
+  }
+
+  private static List<String> describe(List<KeyStatistics> keys) {
+    List<String> descriptions = new ArrayList<>(keys.size());
+    for (KeyStatistics key : keys) {
+      descriptions.add(key.toString());
+    }
+    return descriptions;
+  }
+
+  private static final class Adapter implements CacheStatisticsMXBean {
+
+    private final CacheStatistics statistics;
+
+    private Adapter(CacheStatistics statistics) {
+      this.statistics = statistics;
+    }
+
+    @Override
+    public String getId() {
+      return statistics.getId();
+    }
+
+    @Override
+    public long getHitCount() {
+      return statistics.getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+      return statistics.getMissCount();
+    }
+
+    @Override
+    public double getHitRatio() {
+      return statistics.getHitRatio();
+    }
+
+    @Override
+    public long getPutCount() {
+      return statistics.getPutCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+      return statistics.getEvictionCount();
+    }
+
+    @Override
+    public long getLoadCount() {
+      return statistics.getLoadCount();
+    }
+
+    @Override
+    public long getAverageLoadTimeMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(statistics.getAverageLoadTime());
+    }
+
+    @Override
+    public int getSize() {
+      return statistics.getSize();
+    }
+
+    @Override
+    public long getEstimatedBytes() {
+      return statistics.getEstimatedBytes();
+    }
+
+    @Override
+    public List<String> getHotKeys() {
+      return describe(statistics.getHotKeys(TOP_KEYS));
+    }
+
+    @Override
+    public List<String> getExpensiveMisses() {
+      return describe(statistics.getExpensiveMisses(TOP_KEYS));
+    }
+
+    @Override
+    public void reset() {
+      statistics.reset();
+    }
+  }
+
+}
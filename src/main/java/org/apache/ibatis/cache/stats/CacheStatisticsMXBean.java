@@ -0,0 +1,64 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.stats;
+
+import java.util.List;
+
+/**
+ * The JMX view of the {@link CacheStatistics} of a cache.
+ *
+ * @since 3.5.6
+ * @see CacheStatisticsMBeans
+ */
+public interface CacheStatisticsMXBean {
+
+  String getId();
+
+  long getHitCount();
+
+  long getMissCount();
+
+  double getHitRatio();
+
+  long getPutCount();
+
+  long getEvictionCount();
+
+  long getLoadCount();
+
+  long getAverageLoadTimeMillis();
+
+  int getSize();
+
+  long getEstimatedBytes();
+
+  /**
+   * Returns the ten keys with the most hits.
+   *
+   * @return the keys with their estimated number of hits
+   */
+  List<String> getHotKeys();
+
+  /**
+   * Returns the ten missed keys that took the most time to load.
+   *
+   * @return the keys with their number of loads and total load time
+   */
+  List<String> getExpensiveMisses();
+
+  void reset();
+
+}
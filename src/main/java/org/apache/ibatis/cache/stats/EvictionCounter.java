@@ -0,0 +1,33 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.stats;
+
+/**
+ * A cache, or cache decorator, that counts the entries it evicts. The {@link org.apache.ibatis.mapping.CacheBuilder}
+ * adds the evictions of the layers it builds to the {@link CacheStatistics} of the cache.
+ *
+ * @since 3.5.6
+ */
+public interface EvictionCounter {
+
+  /**
+   * Returns the number of entries evicted so far.
+   *
+   * @return the number of evictions
+   */
+  long getEvictionCount();
+
+}
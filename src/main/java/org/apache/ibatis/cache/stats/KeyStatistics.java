@@ -0,0 +1,64 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.stats;
+
+/**
+ * The statistics of a single cache key.
+ *
+ * @since 3.5.6
+ * @see CacheStatistics#getHotKeys(int)
+ * @see CacheStatistics#getExpensiveMisses(int)
+ */
+public class KeyStatistics {
+
+  private final Object key;
+  private final long count;
+  private final long totalTime;
+
+  public KeyStatistics(Object key, long count, long totalTime) {
+    this.key = key;
+    this.count = count;
+    this.totalTime = totalTime;
+  }
+
+  public Object getKey() {
+    return key;
+  }
+
+  /**
+   * Returns the number of hits, or of loads, of the key. Hits are sampled, so their number is an estimate.
+   *
+   * @return the count
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the total time spent loading the key from the database after a miss.
+   *
+   * @return the time in nanoseconds, 0 for hits
+   */
+  public long getTotalTime() {
+    return totalTime;
+  }
+
+  @Override
+  public String toString() {
+    return key + " [count=" + count + ", totalTime=" + totalTime + "ns]";
+  }
+
+}
@@ -0,0 +1,94 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the heaviest keys among a bounded number of keys. When a new key arrives and the bound is reached, the
+ * lighter half of the keys is dropped, so the result is an approximation that favors the keys seen recently.
+ */
+final class TopKeys {
+
+  private final int capacity;
+  private final boolean byTime;
+  private final Map<Object, Counter> counters = new ConcurrentHashMap<>();
+  private final AtomicBoolean pruning = new AtomicBoolean();
+
+  TopKeys(int capacity, boolean byTime) {
+    this.capacity = capacity;
+    this.byTime = byTime;
+  }
+
+  void record(Object key, long count, long time) {
+    Counter counter = counters.get(key);
+    if (counter == null) {
+      if (counters.size() >= capacity) {
+        prune();
+        if (counters.size() >= capacity) {
+          // another thread is pruning
+          return;
+        }
+      }
+      counter = counters.computeIfAbsent(key, k -> new Counter());
+    }
+    counter.count.add(count);
+    counter.time.add(time);
+  }
+
+  List<KeyStatistics> top(int n) {
+    List<KeyStatistics> snapshot = snapshot();
+    return new ArrayList<>(snapshot.subList(0, Math.min(n, snapshot.size())));
+  }
+
+  void clear() {
+    counters.clear();
+  }
+
+  private void prune() {
+    if (!pruning.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      List<KeyStatistics> snapshot = snapshot();
+      for (int i = capacity / 2; i < snapshot.size(); i++) {
+        counters.remove(snapshot.get(i).getKey());
+      }
+    } finally {
+      pruning.set(false);
+    }
+  }
+
+  private List<KeyStatistics> snapshot() {
+    List<KeyStatistics> snapshot = new ArrayList<>(counters.size());
+    counters.forEach((key, counter) -> snapshot.add(new KeyStatistics(key, counter.count.sum(), counter.time.sum())));
+    snapshot.sort(byTime ? Comparator.comparingLong(KeyStatistics::getTotalTime).reversed()
+        : Comparator.comparingLong(KeyStatistics::getCount).reversed());
+    return snapshot;
+  }
+
+  private static final class Counter {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder time = new LongAdder();
+  }
+
+}
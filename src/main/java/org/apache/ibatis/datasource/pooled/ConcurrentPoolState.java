@@ -0,0 +1,122 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The state of a {@link ConcurrentPooledDataSource}.
+ * <p>
+ * Connections are kept in non blocking collections and statistics in striped counters, so neither checking out
+ * nor returning a connection needs to lock the state. The statistics exposed are the ones of {@link PoolState}.
+ */
+public class ConcurrentPoolState extends PoolState {
+
+  /** Idle connections, the most recently returned first. */
+  protected final Deque<PooledConnection> idleConnectionQueue = new ConcurrentLinkedDeque<>();
+  /** Checked out connections, keyed by their real connection. */
+  protected final Map<Connection, PooledConnection> activeConnectionMap = new ConcurrentHashMap<>();
+  /** Fair queue handing returned connections directly to waiting threads. */
+  protected final SynchronousQueue<PooledConnection> handoffQueue = new SynchronousQueue<>(true);
+  protected final AtomicInteger idleConnectionCount = new AtomicInteger();
+  /** Real connections opened by the pool and not closed yet, whether idle, active or being handed over. */
+  protected final AtomicInteger totalConnectionCount = new AtomicInteger();
+  protected final AtomicInteger waitingThreadCount = new AtomicInteger();
+
+  protected final LongAdder requestCounter = new LongAdder();
+  protected final LongAdder accumulatedRequestTimeCounter = new LongAdder();
+  protected final LongAdder accumulatedCheckoutTimeCounter = new LongAdder();
+  protected final LongAdder claimedOverdueConnectionCounter = new LongAdder();
+  protected final LongAdder accumulatedCheckoutTimeOfOverdueConnectionsCounter = new LongAdder();
+  protected final LongAdder accumulatedWaitTimeCounter = new LongAdder();
+  protected final LongAdder hadToWaitCounter = new LongAdder();
+  protected final LongAdder badConnectionCounter = new LongAdder();
+
+  public ConcurrentPoolState(ConcurrentPooledDataSource dataSource) {
+    super(dataSource);
+  }
+
+  @Override
+  public long getRequestCount() {
+    return requestCounter.sum();
+  }
+
+  @Override
+  public long getAverageRequestTime() {
+    long requests = requestCounter.sum();
+    return requests == 0 ? 0 : accumulatedRequestTimeCounter.sum() / requests;
+  }
+
+  @Override
+  public long getAverageWaitTime() {
+    long waits = hadToWaitCounter.sum();
+    return waits == 0 ? 0 : accumulatedWaitTimeCounter.sum() / waits;
+  }
+
+  @Override
+  public long getHadToWaitCount() {
+    return hadToWaitCounter.sum();
+  }
+
+  @Override
+  public long getBadConnectionCount() {
+    return badConnectionCounter.sum();
+  }
+
+  @Override
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCounter.sum();
+  }
+
+  @Override
+  public long getAverageOverdueCheckoutTime() {
+    long claimed = claimedOverdueConnectionCounter.sum();
+    return claimed == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnectionsCounter.sum() / claimed;
+  }
+
+  @Override
+  public long getAverageCheckoutTime() {
+    long requests = requestCounter.sum();
+    return requests == 0 ? 0 : accumulatedCheckoutTimeCounter.sum() / requests;
+  }
+
+  @Override
+  public int getIdleConnectionCount() {
+    return idleConnectionCount.get();
+  }
+
+  @Override
+  public int getActiveConnectionCount() {
+    return activeConnectionMap.size();
+  }
+
+  /**
+   * Gets the number of threads currently waiting for a connection.
+   *
+   * @return the waiting thread count
+   */
+  public int getWaitingThreadCount() {
+    return waitingThreadCount.get();
+  }
+
+}
@@ -0,0 +1,393 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A {@link PooledDataSource} that does not serialize checkouts and returns on a single monitor.
+ * <p>
+ * Idle connections are kept in a lock-free LIFO deque and each thread first tries to reuse the connection it
+ * returned last. Connections returned while other threads are waiting are handed over directly through a fair
+ * queue, so waiters are served in arrival order. The configuration properties and the {@link PoolState}
+ * statistics are the same as the ones of {@link PooledDataSource}.
+ *
+ * @since 3.5.6
+ */
+public class ConcurrentPooledDataSource extends PooledDataSource {
+
+  private static final Log log = LogFactory.getLog(ConcurrentPooledDataSource.class);
+
+  /**
+   * How often a waiting thread checks for idle connections and free slots that were not handed over to it.
+   */
+  private static final long WAIT_RECHECK_INTERVAL = 10;
+
+  private final ConcurrentPoolState state = new ConcurrentPoolState(this);
+
+  // weakly referenced so that the pool is not kept alive by the threads that used it
+  private final ThreadLocal<WeakReference<PooledConnection>> lastReturnedConnection = new ThreadLocal<>();
+
+  public ConcurrentPooledDataSource() {
+    super();
+  }
+
+  public ConcurrentPooledDataSource(UnpooledDataSource dataSource) {
+    super(dataSource);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, String username, String password) {
+    super(driver, url, username, password);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, Properties driverProperties) {
+    super(driver, url, driverProperties);
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, String username, String password) {
+    super(driverClassLoader, driver, url, username, password);
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, Properties driverProperties) {
+    super(driverClassLoader, driver, url, driverProperties);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return popConnection(dataSource.getUsername(), dataSource.getPassword()).getProxyConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return popConnection(username, password).getProxyConnection();
+  }
+
+  @Override
+  public ConcurrentPoolState getPoolState() {
+    return state;
+  }
+
+  /**
+   * Closes all active and idle connections in the pool.
+   */
+  @Override
+  public void forceCloseAll() {
+    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    for (PooledConnection conn : state.activeConnectionMap.values()) {
+      if (removeActiveConnection(conn)) {
+        state.totalConnectionCount.decrementAndGet();
+        closeQuietly(conn);
+      }
+    }
+    PooledConnection conn;
+    while ((conn = state.idleConnectionQueue.pollFirst()) != null) {
+      if (conn.take()) {
+        state.idleConnectionCount.decrementAndGet();
+        state.totalConnectionCount.decrementAndGet();
+        closeQuietly(conn);
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("ConcurrentPooledDataSource forcefully closed/removed all connections.");
+    }
+  }
+
+  private void closeQuietly(PooledConnection conn) {
+    try {
+      conn.invalidate();
+
+      Connection realConn = conn.getRealConnection();
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  @Override
+  protected void pushConnection(PooledConnection conn) throws SQLException {
+    // a connection that is no longer active was claimed as overdue or closed by forceCloseAll
+    final boolean active = removeActiveConnection(conn);
+    if (active && conn.isValid()) {
+      state.accumulatedCheckoutTimeCounter.add(conn.getCheckoutTime());
+      if (!conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+      if (conn.getConnectionTypeCode() == expectedConnectionTypeCode
+          && (state.waitingThreadCount.get() > 0 || state.idleConnectionCount.get() < poolMaximumIdleConnections)) {
+        PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+        newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
+        newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+        conn.invalidate();
+        if (state.waitingThreadCount.get() > 0 && state.handoffQueue.offer(newConn)) {
+          if (log.isDebugEnabled()) {
+            log.debug("Handed over connection " + newConn.getRealHashCode() + " to a waiting thread.");
+          }
+        } else {
+          state.idleConnectionCount.incrementAndGet();
+          state.idleConnectionQueue.offerFirst(newConn);
+          lastReturnedConnection.set(new WeakReference<>(newConn));
+          if (log.isDebugEnabled()) {
+            log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
+          }
+        }
+      } else {
+        state.totalConnectionCount.decrementAndGet();
+        conn.getRealConnection().close();
+        if (log.isDebugEnabled()) {
+          log.debug("Closed connection " + conn.getRealHashCode() + ".");
+        }
+        conn.invalidate();
+      }
+    } else {
+      if (active) {
+        state.totalConnectionCount.decrementAndGet();
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnectionCounter.increment();
+    }
+  }
+
+  private PooledConnection popConnection(String username, String password) throws SQLException {
+    boolean countedWait = false;
+    PooledConnection conn = null;
+    long t = System.currentTimeMillis();
+    int localBadConnectionCount = 0;
+
+    while (conn == null) {
+      conn = pollIdleConnection();
+      if (conn == null) {
+        conn = createConnectionIfAllowed();
+      }
+      if (conn == null) {
+        conn = claimOverdueConnection();
+      }
+      if (conn == null) {
+        // Must wait
+        if (!countedWait) {
+          state.hadToWaitCounter.increment();
+          countedWait = true;
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+        }
+        long wt = System.currentTimeMillis();
+        try {
+          conn = waitForConnection();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        } finally {
+          state.accumulatedWaitTimeCounter.add(System.currentTimeMillis() - wt);
+        }
+      }
+      if (conn != null) {
+        // ping to server and check the connection is valid or not
+        if (conn.isValid()) {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+          conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          state.activeConnectionMap.put(conn.getRealConnection(), conn);
+          state.requestCounter.increment();
+          state.accumulatedRequestTimeCounter.add(System.currentTimeMillis() - t);
+        } else {
+          if (log.isDebugEnabled()) {
+            log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+          }
+          state.totalConnectionCount.decrementAndGet();
+          state.badConnectionCounter.increment();
+          localBadConnectionCount++;
+          conn = null;
+          if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+            if (log.isDebugEnabled()) {
+              log.debug("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+            }
+            throw new SQLException("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+          }
+        }
+      }
+    }
+
+    if (conn == null) {
+      if (log.isDebugEnabled()) {
+        log.debug("ConcurrentPooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+      }
+      throw new SQLException("ConcurrentPooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+    }
+
+    return conn;
+  }
+
+  private PooledConnection pollIdleConnection() {
+    PooledConnection conn = null;
+    final WeakReference<PooledConnection> lastReturned = lastReturnedConnection.get();
+    if (lastReturned != null) {
+      lastReturnedConnection.remove();
+      final PooledConnection candidate = lastReturned.get();
+      // the connection is validated once it is checked out, like the ones polled from the head of the queue
+      if (candidate != null && removeIdleConnection(candidate)) {
+        conn = candidate;
+      }
+    }
+    while (conn == null) {
+      final PooledConnection head = state.idleConnectionQueue.pollFirst();
+      if (head == null) {
+        return null;
+      }
+      if (head.take()) {
+        conn = head;
+      }
+    }
+    state.idleConnectionCount.decrementAndGet();
+    if (log.isDebugEnabled()) {
+      log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+    }
+    return conn;
+  }
+
+  private PooledConnection createConnectionIfAllowed() throws SQLException {
+    int total;
+    do {
+      total = state.totalConnectionCount.get();
+      if (total >= poolMaximumActiveConnections) {
+        return null;
+      }
+    } while (!state.totalConnectionCount.compareAndSet(total, total + 1));
+    final PooledConnection conn;
+    try {
+      conn = new PooledConnection(dataSource.getConnection(), this);
+    } catch (SQLException | RuntimeException e) {
+      state.totalConnectionCount.decrementAndGet();
+      throw e;
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Created connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
+  private PooledConnection claimOverdueConnection() {
+    PooledConnection oldestActiveConnection = null;
+    for (PooledConnection active : state.activeConnectionMap.values()) {
+      if (oldestActiveConnection == null || active.getCheckoutTimestamp() < oldestActiveConnection.getCheckoutTimestamp()) {
+        oldestActiveConnection = active;
+      }
+    }
+    if (oldestActiveConnection == null) {
+      return null;
+    }
+    long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+    if (longestCheckoutTime <= poolMaximumCheckoutTime || !removeActiveConnection(oldestActiveConnection)) {
+      return null;
+    }
+    // Can claim overdue connection
+    state.claimedOverdueConnectionCounter.increment();
+    state.accumulatedCheckoutTimeOfOverdueConnectionsCounter.add(longestCheckoutTime);
+    state.accumulatedCheckoutTimeCounter.add(longestCheckoutTime);
+    try {
+      if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
+        oldestActiveConnection.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      // the claimed connection is checked by isValid() before being handed out
+      log.debug("Bad connection. Could not roll back");
+    }
+    PooledConnection conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+    conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
+    conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+    oldestActiveConnection.invalidate();
+    if (log.isDebugEnabled()) {
+      log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
+  private PooledConnection waitForConnection() throws InterruptedException, SQLException {
+    state.waitingThreadCount.incrementAndGet();
+    try {
+      final long deadline = System.currentTimeMillis() + poolTimeToWait;
+      PooledConnection conn = null;
+      // like Object#wait(long), a non positive time to wait means waiting until a connection is available
+      long remaining = poolTimeToWait > 0 ? poolTimeToWait : WAIT_RECHECK_INTERVAL;
+      while (conn == null && remaining > 0) {
+        conn = state.handoffQueue.poll(Math.min(remaining, WAIT_RECHECK_INTERVAL), TimeUnit.MILLISECONDS);
+        if (conn == null) {
+          conn = pollIdleConnection();
+        }
+        if (conn == null) {
+          conn = createConnectionIfAllowed();
+        }
+        if (poolTimeToWait > 0) {
+          remaining = deadline - System.currentTimeMillis();
+        }
+      }
+      return conn;
+    } finally {
+      state.waitingThreadCount.decrementAndGet();
+    }
+  }
+
+  /**
+   * Removes a connection from the idle ones. The wrappers of the same real connection are equal, so the one a thread
+   * returned last may have been checked out and replaced by a new wrapper since: only that exact wrapper is removed.
+   */
+  private boolean removeIdleConnection(PooledConnection conn) {
+    for (Iterator<PooledConnection> it = state.idleConnectionQueue.iterator(); it.hasNext();) {
+      if (it.next() == conn) {
+        // the iterator does not exclude a thread polling the same connection, which may even have returned it since
+        if (!conn.take()) {
+          return false;
+        }
+        it.remove();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Removes a connection from the active ones, comparing identities because the wrappers of the same real connection
+   * are equal.
+   */
+  private boolean removeActiveConnection(PooledConnection conn) {
+    final boolean[] removed = new boolean[1];
+    state.activeConnectionMap.computeIfPresent(conn.getRealConnection(), (realConnection, activeConnection) -> {
+      if (activeConnection == conn) {
+        removed[0] = true;
+        return null;
+      }
+      return activeConnection;
+    });
+    return removed[0];
+  }
+
+}
@@ -20,6 +20,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.ibatis.reflection.ExceptionUtil;
 
@@ -40,6 +41,7 @@ class PooledConnection implements InvocationHandler {
   private long lastUsedTimestamp;
   private int connectionTypeCode;
   private boolean valid;
+  private final AtomicBoolean taken = new AtomicBoolean();
 
   /**
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in.
@@ -66,6 +68,16 @@ class PooledConnection implements InvocationHandler {
     valid = false;
   }
 
+  /**
+   * Takes this connection out of the idle connections of a pool. A connection is only idle once, so when two threads
+   * find it at the same time, only the first one to take it may check it out.
+   *
+   * @return <code>true</code> if the connection was not taken yet
+   */
+  boolean take() {
+    return taken.compareAndSet(false, true);
+  }
+
   /**
    * Method to see if the connection is usable.
    *
@@ -42,7 +42,7 @@ public class PooledDataSource implements DataSource {
 
   private final PoolState state = new PoolState(this);
 
-  private final UnpooledDataSource dataSource;
+  protected final UnpooledDataSource dataSource;
 
   // OPTIONAL CONFIGURATION FIELDS
   protected int poolMaximumActiveConnections = 10;
@@ -54,7 +54,7 @@ public class PooledDataSource implements DataSource {
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
 
-  private int expectedConnectionTypeCode;
+  protected volatile int expectedConnectionTypeCode;
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -368,7 +368,7 @@ public class PooledDataSource implements DataSource {
     return state;
   }
 
-  private int assembleConnectionTypeCode(String url, String username, String password) {
+  protected int assembleConnectionTypeCode(String url, String username, String password) {
     return ("" + url + username + password).hashCode();
   }
 
@@ -65,7 +65,10 @@ public abstract class BaseExecutor implements Executor {
   protected BaseExecutor(Configuration configuration, Transaction transaction) {
     this.transaction = transaction;
     this.deferredLoads = new ConcurrentLinkedQueue<>();
-    this.localCache = new PerpetualCache("LocalCache");
+    LocalCache boundedCache = new LocalCache("LocalCache");
+    boundedCache.setMaxEntries(valueOrZero(configuration.getLocalCacheSize()));
+    boundedCache.setMaxBytes(valueOrZero(configuration.getLocalCacheMaxBytes()));
+    this.localCache = boundedCache;
     this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
     this.closed = false;
     this.configuration = configuration;
@@ -149,7 +152,7 @@ public abstract class BaseExecutor implements Executor {
     List<E> list;
     try {
       queryStack++;
-      list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
+      list = resultHandler == null ? (List<E>) lookupLocalCache(key) : null;
       if (list != null) {
         handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
       } else {
@@ -167,6 +170,8 @@ public abstract class BaseExecutor implements Executor {
       if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
         // issue #482
         clearLocalCache();
+      } else if (localCache instanceof LocalCache) {
+        ((LocalCache) localCache).trim();
       }
     }
     return list;
@@ -196,12 +201,13 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    CacheKey cacheKey = new CacheKey();
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    // id, offset, limit, sql, parameters and environment
+    CacheKey cacheKey = new CacheKey(parameterMappings.size() + 5);
     cacheKey.update(ms.getId());
     cacheKey.update(rowBounds.getOffset());
     cacheKey.update(rowBounds.getLimit());
     cacheKey.update(boundSql.getSql());
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
     for (ParameterMapping parameterMapping : parameterMappings) {
@@ -259,6 +265,17 @@ public abstract class BaseExecutor implements Executor {
     }
   }
 
+  @Override
+  public LocalCacheStatistics getLocalCacheStatistics() {
+    if (closed) {
+      return null;
+    }
+    if (localCache instanceof LocalCache) {
+      return ((LocalCache) localCache).getStatistics();
+    }
+    return new LocalCacheStatistics(localCache.getSize(), -1, 0, 0, 0);
+  }
+
   @Override
   public void clearLocalCache() {
     if (!closed) {
@@ -326,13 +343,30 @@ public abstract class BaseExecutor implements Executor {
     } finally {
       localCache.removeObject(key);
     }
-    localCache.putObject(key, list);
+    if (!ms.isUseLocalCache() && localCache instanceof LocalCache) {
+      // still needed by the nested queries and deferred loads of the current query
+      ((LocalCache) localCache).putTransientObject(key, list);
+    } else {
+      localCache.putObject(key, list);
+    }
     if (ms.getStatementType() == StatementType.CALLABLE) {
       localOutputParameterCache.putObject(key, parameter);
     }
     return list;
   }
 
+  /**
+   * The local cache may have been replaced by a subclass with a plain {@link PerpetualCache}, which is neither
+   * bounded nor counts its hits.
+   */
+  private Object lookupLocalCache(CacheKey key) {
+    return localCache instanceof LocalCache ? ((LocalCache) localCache).lookup(key) : localCache.getObject(key);
+  }
+
+  private static int valueOrZero(Integer value) {
+    return value == null ? 0 : value;
+  }
+
   protected Connection getConnection(Log statementLog) throws SQLException {
     Connection connection = transaction.getConnection();
     if (statementLog.isDebugEnabled()) {
@@ -22,14 +22,21 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -40,31 +47,80 @@ import org.apache.ibatis.transaction.Transaction;
  */
 public class BatchExecutor extends BaseExecutor {
 
+  private static final Log log = LogFactory.getLog(BatchExecutor.class);
+
   public static final int BATCH_UPDATE_RETURN_VALUE = Integer.MIN_VALUE + 1002;
 
+  // rough size of a value that is neither a string nor a binary
+  private static final int ESTIMATED_VALUE_SIZE = 8;
+  // the size of one row in this many is measured, the others are assumed to be the same size
+  private static final int ROW_SIZE_SAMPLE_INTERVAL = 16;
+  // drivers whose connections can be used by the background flusher while the caller prepares the next statements
+  private static final String[] THREAD_SAFE_DRIVER_PREFIXES = {
+      "Oracle JDBC", "PostgreSQL", "MySQL Connector", "MariaDB Connector" };
+
   private final List<Statement> statementList = new ArrayList<>();
   private final List<BatchResult> batchResultList = new ArrayList<>();
+  // summaries of the automatic flushes, returned by the next call to flushStatements
+  private final List<BatchResult> flushedResults = new ArrayList<>();
+  private final BatchFlushStatistics flushStatistics = new BatchFlushStatistics();
   private String currentSql;
   private MappedStatement currentStatement;
+  private int pendingRows;
+  private long pendingBytes;
+  private long sampledRowSize;
+  private int rowsSinceSample;
+  private BatchPipeline pipeline;
+  private Boolean threadSafeDriver;
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
   }
 
+  /**
+   * Gets the timing statistics of the batches executed so far.
+   *
+   * @return the flush statistics
+   * @since 3.5.6
+   */
+  public BatchFlushStatistics getFlushStatistics() {
+    return flushStatistics;
+  }
+
+  @Override
+  public void close(boolean forceRollback) {
+    try {
+      super.close(forceRollback);
+    } finally {
+      if (pipeline != null) {
+        pipeline.stop();
+        pipeline = null;
+      }
+    }
+  }
+
   @Override
   public int doUpdate(MappedStatement ms, Object parameterObject) throws SQLException {
+    if (pipeline != null) {
+      pipeline.checkFailure();
+    }
     final Configuration configuration = ms.getConfiguration();
     final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
     final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
+    final boolean retainParameter = configuration.isRetainBatchParameters()
+        || !NoKeyGenerator.class.equals(ms.getKeyGenerator().getClass());
+    final boolean newStatement = !sql.equals(currentSql) || !ms.equals(currentStatement);
+    if (!newStatement) {
       int last = statementList.size() - 1;
       stmt = statementList.get(last);
       applyTransactionTimeout(stmt);
       handler.parameterize(stmt);// fix Issues 322
       BatchResult batchResult = batchResultList.get(last);
-      batchResult.addParameterObject(parameterObject);
+      if (retainParameter) {
+        batchResult.addParameterObject(parameterObject);
+      }
     } else {
       Connection connection = getConnection(ms.getStatementLog());
       stmt = handler.prepare(connection, transaction.getTimeout());
@@ -72,9 +128,23 @@ public class BatchExecutor extends BaseExecutor {
       currentSql = sql;
       currentStatement = ms;
       statementList.add(stmt);
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      BatchResult batchResult = new BatchResult(ms, sql);
+      if (retainParameter) {
+        batchResult.addParameterObject(parameterObject);
+      }
+      batchResultList.add(batchResult);
+      if (configuration.getBatchFlushBytes() != null) {
+        pendingBytes += sql.length();
+      }
     }
     handler.batch(stmt);
+    pendingRows++;
+    if (configuration.getBatchFlushBytes() != null) {
+      pendingBytes += nextRowSize(configuration, boundSql, parameterObject, newStatement);
+    }
+    if (isBatchFull(configuration)) {
+      flushPendingStatements(configuration);
+    }
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
@@ -111,54 +181,408 @@ public class BatchExecutor extends BaseExecutor {
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
-      List<BatchResult> results = new ArrayList<>();
+      // always wait for the background flusher, it is still using the connection
+      Throwable failure = awaitPipeline();
       if (isRollback) {
         return Collections.emptyList();
       }
-      for (int i = 0, n = statementList.size(); i < n; i++) {
-        Statement stmt = statementList.get(i);
-        applyTransactionTimeout(stmt);
-        BatchResult batchResult = batchResultList.get(i);
-        try {
-          batchResult.setUpdateCounts(stmt.executeBatch());
-          MappedStatement ms = batchResult.getMappedStatement();
-          List<Object> parameterObjects = batchResult.getParameterObjects();
-          KeyGenerator keyGenerator = ms.getKeyGenerator();
-          if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
-            Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
-            jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
-          } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
-            for (Object parameter : parameterObjects) {
-              keyGenerator.processAfter(this, ms, stmt, parameter);
-            }
+      if (failure != null) {
+        throwFailure(failure);
+      }
+      List<BatchResult> results = new ArrayList<>(flushedResults);
+      results.addAll(executeBatches(statementList, batchResultList, pendingRows, flushedResults));
+      return results;
+    } finally {
+      flushedResults.clear();
+      clearBatches();
+    }
+  }
+
+  private boolean isBatchFull(Configuration configuration) {
+    Integer flushRows = configuration.getBatchFlushRows();
+    Integer flushBytes = configuration.getBatchFlushBytes();
+    return (flushRows != null && pendingRows >= flushRows) || (flushBytes != null && pendingBytes >= flushBytes);
+  }
+
+  /**
+   * Executes the pending statements without returning their results. A summary of each executed batch is kept
+   * until the next call to {@link #flushStatements()}, see {@link #summarize(BatchResult)}.
+   */
+  private void flushPendingStatements(Configuration configuration) throws SQLException {
+    Integer pipelineDepth = configuration.getBatchFlushPipelineDepth();
+    if (pipelineDepth != null && canPipeline()) {
+      if (pipeline == null) {
+        pipeline = new BatchPipeline(pipelineDepth);
+      }
+      try {
+        pipeline.submit(new PendingBatch(new ArrayList<>(statementList), new ArrayList<>(batchResultList), pendingRows));
+      } finally {
+        // the statements now belong to the pipeline, which closes them
+        resetBatches();
+      }
+      return;
+    }
+    try {
+      Throwable failure = awaitPipeline();
+      if (failure != null) {
+        throwFailure(failure);
+      }
+      executeAutomaticFlush(statementList, batchResultList, pendingRows);
+    } finally {
+      clearBatches();
+    }
+  }
+
+  private void executeAutomaticFlush(List<Statement> statements, List<BatchResult> batchResults, int rows)
+      throws SQLException {
+    for (BatchResult batchResult : executeBatches(statements, batchResults, rows, flushedResults)) {
+      flushedResults.add(summarize(batchResult));
+    }
+  }
+
+  /**
+   * The results of the automatic flushes are kept until the next call to {@link #flushStatements()}, so only a
+   * summary of each one is kept to bound the memory used by large batches: it has no parameter objects, and a single
+   * update count that is the total of the batch, or {@link Statement#SUCCESS_NO_INFO} when the driver did not report
+   * the count of every row.
+   */
+  private static BatchResult summarize(BatchResult batchResult) {
+    BatchResult summary = new BatchResult(batchResult.getMappedStatement(), batchResult.getSql());
+    int total = 0;
+    for (int updateCount : batchResult.getUpdateCounts()) {
+      if (updateCount < 0) {
+        total = Statement.SUCCESS_NO_INFO;
+        break;
+      }
+      total += updateCount;
+    }
+    summary.setUpdateCounts(new int[] { total });
+    return summary;
+  }
+
+  /**
+   * Statements whose key generator runs queries through this executor cannot be executed by the background
+   * flusher, and neither can any statement when the driver is not known to support the concurrent use of a
+   * connection, unless the configuration says so.
+   */
+  private boolean canPipeline() throws SQLException {
+    for (BatchResult batchResult : batchResultList) {
+      Class<?> keyGeneratorType = batchResult.getMappedStatement().getKeyGenerator().getClass();
+      if (!NoKeyGenerator.class.equals(keyGeneratorType) && !Jdbc3KeyGenerator.class.equals(keyGeneratorType)) {
+        return false;
+      }
+    }
+    return isThreadSafeDriver();
+  }
+
+  private boolean isThreadSafeDriver() throws SQLException {
+    if (threadSafeDriver == null && configuration.getBatchFlushPipelineThreadSafe() != null) {
+      threadSafeDriver = configuration.getBatchFlushPipelineThreadSafe();
+    }
+    if (threadSafeDriver == null) {
+      String driverName = transaction.getConnection().getMetaData().getDriverName();
+      threadSafeDriver = Boolean.FALSE;
+      for (String prefix : THREAD_SAFE_DRIVER_PREFIXES) {
+        if (driverName != null && driverName.startsWith(prefix)) {
+          threadSafeDriver = Boolean.TRUE;
+          break;
+        }
+      }
+      if (!threadSafeDriver && log.isDebugEnabled()) {
+        log.debug("Flushing batches on the caller thread, the driver '" + driverName
+            + "' is not known to support the concurrent use of a connection");
+      }
+    }
+    return threadSafeDriver;
+  }
+
+  private Throwable awaitPipeline() {
+    return pipeline == null ? null : pipeline.awaitIdle();
+  }
+
+  private static void throwFailure(Throwable failure) throws SQLException {
+    if (failure instanceof SQLException) {
+      throw (SQLException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else {
+      throw new ExecutorException("Error flushing batch statements.  Cause: " + failure, failure);
+    }
+  }
+
+  /**
+   * Executes the batches and returns their results. The results of the batches executed before them are only
+   * used to report the successful batches when one of them fails.
+   */
+  private List<BatchResult> executeBatches(List<Statement> statements, List<BatchResult> batchResults, int rows,
+      List<BatchResult> previousResults) throws SQLException {
+    if (statements.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final List<BatchResult> results = new ArrayList<>(statements.size());
+    final long start = System.nanoTime();
+    for (int i = 0, n = statements.size(); i < n; i++) {
+      Statement stmt = statements.get(i);
+      applyTransactionTimeout(stmt);
+      BatchResult batchResult = batchResults.get(i);
+      try {
+        batchResult.setUpdateCounts(stmt.executeBatch());
+        MappedStatement ms = batchResult.getMappedStatement();
+        List<Object> parameterObjects = batchResult.getParameterObjects();
+        KeyGenerator keyGenerator = ms.getKeyGenerator();
+        if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+          Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
+          jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
+        } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
+          for (Object parameter : parameterObjects) {
+            keyGenerator.processAfter(this, ms, stmt, parameter);
+          }
+        }
+        // Close statement to close cursor #1109
+        closeStatement(stmt);
+      } catch (BatchUpdateException e) {
+        // a copy, the previous results are cleared when the batch is closed
+        List<BatchResult> successfulResults = new ArrayList<>(previousResults);
+        successfulResults.addAll(results);
+        int executed = successfulResults.size();
+        StringBuilder message = new StringBuilder();
+        message.append(batchResult.getMappedStatement().getId())
+            .append(" (batch index #")
+            .append(executed + 1)
+            .append(")")
+            .append(" failed.");
+        if (executed > 0) {
+          message.append(" ")
+              .append(executed)
+              .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+        }
+        throw new BatchExecutorException(message.toString(), e, successfulResults, batchResult);
+      }
+      results.add(batchResult);
+    }
+    final long elapsed = System.nanoTime() - start;
+    flushStatistics.record(statements.size(), rows, elapsed);
+    if (log.isDebugEnabled()) {
+      log.debug("Flushed " + statements.size() + " batch statement(s) with " + rows + " row(s) in "
+          + (elapsed / 1000000) + " ms");
+    }
+    return results;
+  }
+
+  private void clearBatches() {
+    for (Statement stmt : statementList) {
+      closeStatement(stmt);
+    }
+    resetBatches();
+  }
+
+  private void resetBatches() {
+    currentSql = null;
+    statementList.clear();
+    batchResultList.clear();
+    pendingRows = 0;
+    pendingBytes = 0;
+  }
+
+  /**
+   * Reading the parameter values again is as expensive as binding them, so only a sample of the rows is measured.
+   */
+  private long nextRowSize(Configuration configuration, BoundSql boundSql, Object parameterObject,
+      boolean newStatement) {
+    if (newStatement || ++rowsSinceSample >= ROW_SIZE_SAMPLE_INTERVAL) {
+      sampledRowSize = estimateRowSize(configuration, boundSql, parameterObject);
+      rowsSinceSample = 0;
+    }
+    return sampledRowSize;
+  }
+
+  private long estimateRowSize(Configuration configuration, BoundSql boundSql, Object parameterObject) {
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    if (parameterMappings == null || parameterMappings.isEmpty()) {
+      return 0;
+    }
+    long size = 0;
+    MetaObject metaObject = null;
+    for (ParameterMapping parameterMapping : parameterMappings) {
+      if (parameterMapping.getMode() == ParameterMode.OUT) {
+        continue;
+      }
+      String propertyName = parameterMapping.getProperty();
+      Object value;
+      if (boundSql.hasAdditionalParameter(propertyName)) {
+        value = boundSql.getAdditionalParameter(propertyName);
+      } else if (parameterObject == null) {
+        value = null;
+      } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+        value = parameterObject;
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(parameterObject);
+        }
+        value = metaObject.getValue(propertyName);
+      }
+      size += estimateValueSize(value);
+    }
+    return size;
+  }
+
+  private static int estimateValueSize(Object value) {
+    if (value == null) {
+      return 1;
+    } else if (value instanceof CharSequence) {
+      return ((CharSequence) value).length();
+    } else if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    } else {
+      return ESTIMATED_VALUE_SIZE;
+    }
+  }
+
+  private static final class PendingBatch {
+
+    private final List<Statement> statements;
+    private final List<BatchResult> batchResults;
+    private final int rows;
+
+    PendingBatch(List<Statement> statements, List<BatchResult> batchResults, int rows) {
+      this.statements = statements;
+      this.batchResults = batchResults;
+      this.rows = rows;
+    }
+
+  }
+
+  /**
+   * Executes the filled batches on a background thread so that the caller can bind the next rows while the
+   * database processes the previous ones. The caller blocks when <code>depth</code> batches are already waiting.
+   * The first failure stops the execution of the remaining batches and is rethrown to the caller on its next
+   * update or when it waits for the pipeline. The thread is reused until the executor is closed.
+   */
+  private final class BatchPipeline implements Runnable {
+
+    private final PendingBatch end = new PendingBatch(Collections.emptyList(), Collections.emptyList(), 0);
+    private final BlockingQueue<PendingBatch> queue;
+    private final Thread thread;
+    // the submitted batches that are not executed yet, guarded by this
+    private int outstanding;
+    private volatile Throwable failure;
+
+    BatchPipeline(int depth) {
+      this.queue = new ArrayBlockingQueue<>(depth);
+      this.thread = new Thread(this, "mybatis-batch-flusher");
+      this.thread.setDaemon(true);
+      this.thread.start();
+    }
+
+    void checkFailure() throws SQLException {
+      Throwable t = failure;
+      if (t != null) {
+        throwFailure(t);
+      }
+    }
+
+    void submit(PendingBatch batch) throws SQLException {
+      if (failure != null) {
+        closeStatements(batch);
+        throwFailure(failure);
+      }
+      synchronized (this) {
+        outstanding++;
+      }
+      try {
+        queue.put(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        executed(batch);
+        throw new ExecutorException("Interrupted while waiting for the batch flusher.", e);
+      }
+    }
+
+    /**
+     * Waits until the submitted batches are executed and returns the failure, if any, so that the pipeline can be
+     * used again.
+     */
+    Throwable awaitIdle() {
+      boolean interrupted = false;
+      synchronized (this) {
+        while (outstanding > 0) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            interrupted = true;
           }
-          // Close statement to close cursor #1109
-          closeStatement(stmt);
-        } catch (BatchUpdateException e) {
-          StringBuilder message = new StringBuilder();
-          message.append(batchResult.getMappedStatement().getId())
-              .append(" (batch index #")
-              .append(i + 1)
-              .append(")")
-              .append(" failed.");
-          if (i > 0) {
-            message.append(" ")
-                .append(i)
-                .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      Throwable result = failure;
+      failure = null;
+      return result;
+    }
+
+    void stop() {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          queue.put(end);
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      while (thread.isAlive()) {
+        try {
+          thread.join();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        PendingBatch batch;
+        try {
+          batch = queue.take();
+        } catch (InterruptedException e) {
+          // only stop() ends the thread, the caller may still be waiting for the queued batches
+          continue;
+        }
+        if (batch == end) {
+          return;
+        }
+        if (failure == null) {
+          try {
+            executeAutomaticFlush(batch.statements, batch.batchResults, batch.rows);
+          } catch (Throwable t) {
+            failure = t;
           }
-          throw new BatchExecutorException(message.toString(), e, results, batchResult);
         }
-        results.add(batchResult);
+        executed(batch);
       }
-      return results;
-    } finally {
-      for (Statement stmt : statementList) {
+    }
+
+    private void executed(PendingBatch batch) {
+      closeStatements(batch);
+      synchronized (this) {
+        outstanding--;
+        notifyAll();
+      }
+    }
+
+    private void closeStatements(PendingBatch batch) {
+      for (Statement stmt : batch.statements) {
         closeStatement(stmt);
       }
-      currentSql = null;
-      statementList.clear();
-      batchResultList.clear();
     }
+
   }
 
 }
@@ -0,0 +1,97 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * Timing statistics of the batches executed by a {@link BatchExecutor}.
+ * <p>
+ * A flush is one execution of all the statements pending in the executor, either requested through
+ * {@link Executor#flushStatements()} (or a commit) or triggered automatically when the pending batch reaches
+ * the configured row or byte limit.
+ *
+ * @since 3.5.6
+ * @see org.apache.ibatis.session.Configuration#setBatchFlushRows(Integer)
+ * @see org.apache.ibatis.session.Configuration#setBatchFlushBytes(Integer)
+ */
+public class BatchFlushStatistics {
+
+  private long flushCount;
+  private long statementCount;
+  private long rowCount;
+  private long totalTimeNanos;
+  private long maxTimeNanos;
+  private long lastTimeNanos;
+
+  synchronized void record(int statements, int rows, long timeNanos) {
+    flushCount++;
+    statementCount += statements;
+    rowCount += rows;
+    totalTimeNanos += timeNanos;
+    maxTimeNanos = Math.max(maxTimeNanos, timeNanos);
+    lastTimeNanos = timeNanos;
+  }
+
+  /**
+   * Gets the number of flushes that executed at least one statement.
+   *
+   * @return the flush count
+   */
+  public synchronized long getFlushCount() {
+    return flushCount;
+  }
+
+  /**
+   * Gets the number of JDBC batches executed.
+   *
+   * @return the statement count
+   */
+  public synchronized long getStatementCount() {
+    return statementCount;
+  }
+
+  /**
+   * Gets the number of rows (parameter sets) sent to the database.
+   *
+   * @return the row count
+   */
+  public synchronized long getRowCount() {
+    return rowCount;
+  }
+
+  public synchronized long getTotalTimeNanos() {
+    return totalTimeNanos;
+  }
+
+  public synchronized long getMaxTimeNanos() {
+    return maxTimeNanos;
+  }
+
+  public synchronized long getLastTimeNanos() {
+    return lastTimeNanos;
+  }
+
+  public synchronized long getAverageTimeNanos() {
+    return flushCount == 0 ? 0 : totalTimeNanos / flushCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "BatchFlushStatistics [flushCount=" + flushCount + ", statementCount=" + statementCount + ", rowCount="
+        + rowCount + ", totalTimeNanos=" + totalTimeNanos + ", maxTimeNanos=" + maxTimeNanos + ", lastTimeNanos="
+        + lastTimeNanos + "]";
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2020 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -51,9 +51,15 @@ public class BatchResult {
     return sql;
   }
 
+  /**
+   * Gets the first parameter object.
+   *
+   * @return the first parameter object, or <code>null</code> if the parameter objects were not retained
+   * @deprecated use {@link #getParameterObjects()}
+   */
   @Deprecated
   public Object getParameterObject() {
-    return parameterObjects.get(0);
+    return parameterObjects.isEmpty() ? null : parameterObjects.get(0);
   }
 
   public List<Object> getParameterObjects() {
@@ -16,11 +16,17 @@
 package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheTagIndex;
+import org.apache.ibatis.cache.CacheTags;
 import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cache.stats.CacheStatistics;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -72,7 +78,9 @@ public class CachingExecutor implements Executor {
 
   @Override
   public int update(MappedStatement ms, Object parameterObject) throws SQLException {
-    flushCacheIfRequired(ms);
+    // whatever the namespace and flushCache, the session may now read its own uncommitted changes
+    tcm.markSessionWritten();
+    invalidateCacheIfRequired(ms, parameterObject);
     return delegate.update(ms, parameterObject);
   }
 
@@ -100,8 +108,18 @@ public class CachingExecutor implements Executor {
         @SuppressWarnings("unchecked")
         List<E> list = (List<E>) tcm.getObject(cache, key);
         if (list == null) {
+          long start = System.nanoTime();
           list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-          tcm.putObject(cache, key, list); // issue #578 and #116
+          CacheStatistics statistics = ms.getConfiguration().getCacheStatistics(cache.getId());
+          if (statistics != null) {
+            statistics.recordLoad(key, System.nanoTime() - start);
+          }
+          CacheTagIndex tagIndex = ms.getConfiguration().getCacheTagIndex(cache.getId());
+          if (tagIndex != null) {
+            tcm.putObject(cache, key, list, tagIndex, getQueryCacheTags(ms, parameterObject, boundSql));
+          } else {
+            tcm.putObject(cache, key, list); // issue #578 and #116
+          }
         }
         return list;
       }
@@ -161,6 +179,11 @@ public class CachingExecutor implements Executor {
     delegate.clearLocalCache();
   }
 
+  @Override
+  public LocalCacheStatistics getLocalCacheStatistics() {
+    return delegate.getLocalCacheStatistics();
+  }
+
   private void flushCacheIfRequired(MappedStatement ms) {
     Cache cache = ms.getCache();
     if (cache != null && ms.isFlushCacheRequired()) {
@@ -168,6 +191,48 @@ public class CachingExecutor implements Executor {
     }
   }
 
+  private void invalidateCacheIfRequired(MappedStatement ms, Object parameterObject) {
+    Cache cache = ms.getCache();
+    if (cache != null && ms.isFlushCacheRequired()) {
+      CacheTagIndex tagIndex = ms.getConfiguration().getCacheTagIndex(cache.getId());
+      Set<String> tags = tagIndex != null ? getCacheTags(ms, parameterObject, null) : Collections.emptySet();
+      if (tags.isEmpty()) {
+        tcm.clear(cache);
+      } else {
+        tcm.invalidate(cache, tagIndex, tags);
+      }
+    }
+  }
+
+  /**
+   * The results of the nested selects are cached in the list of the statement, so the list depends on their
+   * tables too.
+   */
+  private Set<String> getQueryCacheTags(MappedStatement ms, Object parameterObject, BoundSql boundSql) {
+    Set<String> tags = getCacheTags(ms, parameterObject, boundSql);
+    Set<String> nestedQueryTags = ms.getNestedQueryCacheTags();
+    if (tags.isEmpty() || nestedQueryTags == null) {
+      return Collections.emptySet();
+    }
+    if (nestedQueryTags.isEmpty()) {
+      return tags;
+    }
+    Set<String> allTags = new LinkedHashSet<>(tags);
+    allTags.addAll(nestedQueryTags);
+    return allTags;
+  }
+
+  private Set<String> getCacheTags(MappedStatement ms, Object parameterObject, BoundSql boundSql) {
+    if (!ms.getCacheTags().isEmpty()) {
+      return ms.getCacheTags();
+    }
+    if (ms.getStatementType() == StatementType.CALLABLE) {
+      // the tables a procedure reads or writes cannot be known
+      return Collections.emptySet();
+    }
+    return CacheTags.fromSql((boundSql != null ? boundSql : ms.getBoundSql(parameterObject)).getSql());
+  }
+
   @Override
   public void setExecutorWrapper(Executor executor) {
     throw new UnsupportedOperationException("This method should not be called");
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2020 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -54,6 +54,16 @@ public interface Executor {
 
   void clearLocalCache();
 
+  /**
+   * Returns the statistics of the local (first level) cache.
+   *
+   * @return the statistics, or {@code null} if they are not available
+   * @since 3.5.6
+   */
+  default LocalCacheStatistics getLocalCacheStatistics() {
+    return null;
+  }
+
   void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType);
 
   Transaction getTransaction();
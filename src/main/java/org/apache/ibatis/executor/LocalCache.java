@@ -0,0 +1,180 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.cache.SizeEstimator;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+
+/**
+ * The local (first level) cache of an executor.
+ * <p>
+ * It is unbounded by default. When a size or a byte limit is set, the least recently used entries are evicted by
+ * {@link #trim()}, which the executor calls once its outermost query ends and never during a query, so the
+ * placeholders of running queries and the entries that nested queries and deferred loads depend on stay available
+ * until they are resolved. Likewise, the entries of statements that do not use the local cache are only removed then.
+ * <p>
+ * It extends {@link PerpetualCache}, the former type of the local cache, so that executors extending
+ * {@link BaseExecutor} keep working. It keeps its entries in its own access ordered map.
+ *
+ * @since 3.5.6
+ */
+public class LocalCache extends PerpetualCache {
+
+  private final Map<Object, Object> cache = new LinkedHashMap<>(16, .75F, true);
+  private final Map<Object, Long> sizes = new HashMap<>();
+  private final Set<Object> transientKeys = new HashSet<>();
+  private int maxEntries;
+  private long maxBytes;
+  private long bytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public LocalCache(String id) {
+    super(id);
+  }
+
+  @Override
+  public int getSize() {
+    return cache.size();
+  }
+
+  /**
+   * Sets the number of entries above which the least recently used ones are evicted.
+   *
+   * @param maxEntries
+   *          the maximum number of entries, or 0 (the default) for no limit
+   */
+  public void setMaxEntries(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * Sets the estimated size in bytes above which the least recently used entries are evicted. The size of the
+   * entries is only estimated when it is set.
+   *
+   * @param maxBytes
+   *          the maximum estimated size, or 0 (the default) for no limit
+   * @see SizeEstimator
+   */
+  public void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    cache.put(key, value);
+    transientKeys.remove(key);
+    if (maxBytes > 0) {
+      Long previous = sizes.put(key, SizeEstimator.estimate(value));
+      bytes += sizes.get(key) - (previous == null ? 0 : previous);
+    }
+  }
+
+  /**
+   * Adds an entry that is removed by the next {@link #trim()}.
+   *
+   * @param key
+   *          the key
+   * @param value
+   *          the value
+   */
+  public void putTransientObject(Object key, Object value) {
+    cache.put(key, value);
+    transientKeys.add(key);
+    if (maxBytes > 0) {
+      Long previous = sizes.remove(key);
+      bytes -= previous == null ? 0 : previous;
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return cache.get(key);
+  }
+
+  /**
+   * Gets the result of a query, and counts it as a hit or a miss.
+   *
+   * @param key
+   *          the key of the query
+   * @return the cached value, or {@code null} if it is not cached
+   */
+  public Object lookup(Object key) {
+    Object value = cache.get(key);
+    if (value == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    transientKeys.remove(key);
+    Long size = sizes.remove(key);
+    if (size != null) {
+      bytes -= size;
+    }
+    return cache.remove(key);
+  }
+
+  @Override
+  public void clear() {
+    cache.clear();
+    sizes.clear();
+    transientKeys.clear();
+    bytes = 0;
+  }
+
+  /**
+   * Removes the transient entries and evicts the least recently used entries above the limits.
+   */
+  public void trim() {
+    for (Object key : transientKeys) {
+      cache.remove(key);
+    }
+    transientKeys.clear();
+    Iterator<Object> keys = cache.keySet().iterator();
+    while (keys.hasNext() && (maxEntries > 0 && cache.size() > maxEntries || maxBytes > 0 && bytes > maxBytes)) {
+      Object key = keys.next();
+      keys.remove();
+      Long size = sizes.remove(key);
+      if (size != null) {
+        bytes -= size;
+      }
+      evictions++;
+    }
+  }
+
+  /**
+   * Returns a snapshot of the statistics of this cache.
+   *
+   * @return the statistics
+   */
+  public LocalCacheStatistics getStatistics() {
+    return new LocalCacheStatistics(cache.size(), maxBytes > 0 ? bytes : -1, hits, misses, evictions);
+  }
+
+}
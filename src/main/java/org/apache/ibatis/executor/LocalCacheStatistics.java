@@ -0,0 +1,93 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * A snapshot of the statistics of the local (first level) cache of a session.
+ *
+ * @since 3.5.6
+ * @see org.apache.ibatis.session.SqlSession#getLocalCacheStatistics()
+ */
+public class LocalCacheStatistics {
+
+  private final int size;
+  private final long estimatedBytes;
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+
+  public LocalCacheStatistics(int size, long estimatedBytes, long hitCount, long missCount, long evictionCount) {
+    this.size = size;
+    this.estimatedBytes = estimatedBytes;
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+  }
+
+  /**
+   * Returns the number of cached entries.
+   *
+   * @return the number of entries
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the estimated size of the cached entries.
+   *
+   * @return the size in bytes, or -1 if it is not estimated because the <code>localCacheMaxBytes</code> setting is
+   *         not set
+   */
+  public long getEstimatedBytes() {
+    return estimatedBytes;
+  }
+
+  /**
+   * Returns the number of queries that were answered by the cache.
+   *
+   * @return the number of hits
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the number of queries that were not answered by the cache.
+   *
+   * @return the number of misses
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns the number of entries evicted because of the <code>localCacheSize</code> or <code>localCacheMaxBytes</code>
+   * settings.
+   *
+   * @return the number of evictions
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  @Override
+  public String toString() {
+    return "LocalCacheStatistics [size=" + size + ", estimatedBytes=" + estimatedBytes + ", hitCount=" + hitCount
+        + ", missCount=" + missCount + ", evictionCount=" + evictionCount + "]";
+  }
+
+}
@@ -0,0 +1,229 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ResultExtractor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Loads the nested select of a result mapping for many parent rows at once.
+ * <p>
+ * The keys of the parent rows are collected while the result set is handled, then the <code>batchSelect</code>
+ * statement is executed once per chunk of {@link Configuration#getNestedSelectBatchSize()} keys, with the keys
+ * available as the <code>keys</code> parameter. Each returned object is assigned to the parents whose key equals
+ * the value of its <code>batchKey</code> property.
+ *
+ * @since 3.5.6
+ */
+public class NestedQueryBatch {
+
+  public static final String KEYS_PARAMETER = "keys";
+
+  private final Configuration configuration;
+  private final Executor executor;
+  private final MappedStatement batchQuery;
+  private final String batchKey;
+  private final int batchSize;
+  private final ResultExtractor resultExtractor;
+  private final long creatorThreadId;
+
+  // normalized key -> key as read from the parent row
+  private final Map<Object, Object> pendingKeys = new LinkedHashMap<>();
+  private final Map<Object, List<Object>> loadedResults = new HashMap<>();
+  private final List<PendingLoad> pendingLoads = new ArrayList<>();
+
+  public NestedQueryBatch(Configuration configuration, Executor executor, ResultMapping resultMapping) {
+    this.configuration = configuration;
+    this.executor = executor;
+    this.batchQuery = configuration.getMappedStatement(resultMapping.getBatchQueryId());
+    this.batchKey = resultMapping.getBatchKey();
+    this.batchSize = Math.max(1, configuration.getNestedSelectBatchSize());
+    this.resultExtractor = new ResultExtractor(configuration, configuration.getObjectFactory());
+    this.creatorThreadId = Thread.currentThread().getId();
+  }
+
+  /**
+   * Registers the key of a parent row whose value will be loaded on demand.
+   *
+   * @param key
+   *          the key
+   */
+  public synchronized void addKey(Object key) {
+    Object normalizedKey = normalizeKey(key);
+    if (!loadedResults.containsKey(normalizedKey)) {
+      pendingKeys.putIfAbsent(normalizedKey, key);
+    }
+  }
+
+  /**
+   * Registers a parent row whose property will be set by {@link #loadPending()}.
+   *
+   * @param metaResultObject
+   *          the parent row
+   * @param property
+   *          the property to set
+   * @param key
+   *          the key
+   * @param targetType
+   *          the type of the property
+   */
+  public synchronized void addPendingLoad(MetaObject metaResultObject, String property, Object key, Class<?> targetType) {
+    addKey(key);
+    pendingLoads.add(new PendingLoad(metaResultObject, property, key, targetType));
+  }
+
+  /**
+   * Loads the value of one key, along with the values of the other keys that are still pending.
+   *
+   * @param key
+   *          the key
+   * @param targetType
+   *          the type of the property
+   * @return the value
+   * @throws SQLException
+   *           if the batch select fails
+   */
+  public synchronized Object load(Object key, Class<?> targetType) throws SQLException {
+    Object normalizedKey = normalizeKey(key);
+    if (!loadedResults.containsKey(normalizedKey)) {
+      pendingKeys.remove(normalizedKey);
+      List<Object> keys = new ArrayList<>(batchSize);
+      keys.add(key);
+      for (Object pendingKey : pendingKeys.values()) {
+        if (keys.size() >= batchSize) {
+          break;
+        }
+        keys.add(pendingKey);
+      }
+      for (int i = 1; i < keys.size(); i++) {
+        pendingKeys.remove(normalizeKey(keys.get(i)));
+      }
+      loadKeys(keys);
+    }
+    return resultExtractor.extractObjectFromList(loadedResults.get(normalizedKey), targetType);
+  }
+
+  /**
+   * Loads all the pending keys and sets the properties registered with
+   * {@link #addPendingLoad(MetaObject, String, Object, Class)}.
+   *
+   * @throws SQLException
+   *           if the batch select fails
+   */
+  public synchronized void loadPending() throws SQLException {
+    List<Object> keys = new ArrayList<>(pendingKeys.values());
+    pendingKeys.clear();
+    for (int start = 0; start < keys.size(); start += batchSize) {
+      loadKeys(keys.subList(start, Math.min(start + batchSize, keys.size())));
+    }
+    for (PendingLoad pendingLoad : pendingLoads) {
+      List<Object> results = loadedResults.get(normalizeKey(pendingLoad.key));
+      Object value = resultExtractor.extractObjectFromList(results, pendingLoad.targetType);
+      MetaObject metaResultObject = pendingLoad.metaResultObject;
+      if (value != null
+          || (configuration.isCallSettersOnNulls() && !metaResultObject.getSetterType(pendingLoad.property).isPrimitive())) {
+        metaResultObject.setValue(pendingLoad.property, value);
+      }
+    }
+    pendingLoads.clear();
+  }
+
+  public synchronized boolean hasPendingLoads() {
+    return !pendingLoads.isEmpty();
+  }
+
+  private void loadKeys(List<Object> keys) throws SQLException {
+    ParamMap<Object> parameterObject = new ParamMap<>();
+    parameterObject.put(KEYS_PARAMETER, new ArrayList<>(keys));
+    for (Object key : keys) {
+      loadedResults.put(normalizeKey(key), new ArrayList<>());
+    }
+    for (Object result : selectList(parameterObject)) {
+      if (result == null) {
+        continue;
+      }
+      Object key = configuration.newMetaObject(result).getValue(batchKey);
+      List<Object> results = loadedResults.get(normalizeKey(key));
+      if (results != null) {
+        results.add(result);
+      }
+    }
+  }
+
+  private List<Object> selectList(Object parameterObject) throws SQLException {
+    Executor localExecutor = executor;
+    if (Thread.currentThread().getId() != this.creatorThreadId || localExecutor.isClosed()) {
+      localExecutor = ResultLoader.newExecutor(configuration);
+    }
+    try {
+      return localExecutor.query(batchQuery, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    } finally {
+      if (localExecutor != executor) {
+        localExecutor.close(false);
+      }
+    }
+  }
+
+  /**
+   * Keys read from the parent rows and from the child objects may have different numeric types, so numbers are
+   * compared by value.
+   */
+  private static Object normalizeKey(Object key) {
+    if (key instanceof BigDecimal) {
+      return ((BigDecimal) key).stripTrailingZeros();
+    } else if (key instanceof BigInteger) {
+      return new BigDecimal((BigInteger) key).stripTrailingZeros();
+    } else if (key instanceof Byte || key instanceof Short || key instanceof Integer || key instanceof Long) {
+      return BigDecimal.valueOf(((Number) key).longValue()).stripTrailingZeros();
+    } else if (key instanceof Float || key instanceof Double) {
+      double value = ((Number) key).doubleValue();
+      return Double.isNaN(value) || Double.isInfinite(value) ? key : new BigDecimal(key.toString()).stripTrailingZeros();
+    } else if (key instanceof Character) {
+      return key.toString();
+    }
+    return key;
+  }
+
+  private static class PendingLoad {
+    private final MetaObject metaResultObject;
+    private final String property;
+    private final Object key;
+    private final Class<?> targetType;
+
+    PendingLoad(MetaObject metaResultObject, String property, Object key, Class<?> targetType) {
+      this.metaResultObject = metaResultObject;
+      this.property = property;
+      this.key = key;
+      this.targetType = targetType;
+    }
+  }
+
+}
@@ -0,0 +1,144 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * A row mapper specialized for one simple result map and one result set column layout.
+ * <p>
+ * All the work done per row by the generic mapping path (column name lookups, type handler resolution,
+ * property name parsing and {@link org.apache.ibatis.reflection.MetaObject} creation) is resolved once
+ * when the mapper is built. Each row is then mapped by reading the columns by index and invoking the
+ * setters directly.
+ * <p>
+ * Instances are immutable and shared by all the executions of a {@link org.apache.ibatis.mapping.MappedStatement}.
+ *
+ * @see DefaultResultSetHandler
+ */
+public final class CompiledRowMapper {
+
+  /**
+   * Marker for a result map and column layout that can not be compiled and must use the generic mapping path.
+   */
+  static final CompiledRowMapper UNSUPPORTED = new Builder(null, null, false).build();
+
+  private final ObjectFactory objectFactory;
+  private final Class<?> resultType;
+  private final boolean returnInstanceForEmptyRow;
+  private final int[] columnIndexes;
+  private final TypeHandler<?>[] typeHandlers;
+  private final String[] properties;
+  private final Invoker[] setters;
+  private final boolean[] callSettersOnNulls;
+
+  private CompiledRowMapper(Builder builder) {
+    this.objectFactory = builder.objectFactory;
+    this.resultType = builder.resultType;
+    this.returnInstanceForEmptyRow = builder.returnInstanceForEmptyRow;
+    final int size = builder.columnIndexes.size();
+    this.columnIndexes = new int[size];
+    this.typeHandlers = new TypeHandler<?>[size];
+    this.properties = new String[size];
+    this.setters = new Invoker[size];
+    this.callSettersOnNulls = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      columnIndexes[i] = builder.columnIndexes.get(i);
+      typeHandlers[i] = builder.typeHandlers.get(i);
+      properties[i] = builder.properties.get(i);
+      setters[i] = builder.setters.get(i);
+      callSettersOnNulls[i] = builder.callSettersOnNulls.get(i);
+    }
+  }
+
+  /**
+   * Maps the current row of the result set.
+   *
+   * @param rs
+   *          the result set positioned on the row to map
+   * @return the mapped object, or <code>null</code> when all the columns are null and empty instances are not returned
+   * @throws SQLException
+   *           if a column can not be read
+   */
+  public Object mapRow(ResultSet rs) throws SQLException {
+    final Object rowValue = objectFactory.create(resultType);
+    boolean foundValues = false;
+    for (int i = 0; i < columnIndexes.length; i++) {
+      final Object value = typeHandlers[i].getResult(rs, columnIndexes[i]);
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || callSettersOnNulls[i]) {
+        // gcode issue #377, call setter on nulls (value is not 'found')
+        setValue(rowValue, i, value);
+      }
+    }
+    return foundValues || returnInstanceForEmptyRow ? rowValue : null;
+  }
+
+  private void setValue(Object rowValue, int i, Object value) {
+    try {
+      Object[] params = {value};
+      try {
+        setters[i].invoke(rowValue, params);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not set property '" + properties[i] + "' of '" + rowValue.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+    }
+  }
+
+  public static class Builder {
+    private final ObjectFactory objectFactory;
+    private final Class<?> resultType;
+    private final boolean returnInstanceForEmptyRow;
+    private final List<Integer> columnIndexes = new ArrayList<>();
+    private final List<TypeHandler<?>> typeHandlers = new ArrayList<>();
+    private final List<String> properties = new ArrayList<>();
+    private final List<Invoker> setters = new ArrayList<>();
+    private final List<Boolean> callSettersOnNulls = new ArrayList<>();
+
+    public Builder(ObjectFactory objectFactory, Class<?> resultType, boolean returnInstanceForEmptyRow) {
+      this.objectFactory = objectFactory;
+      this.resultType = resultType;
+      this.returnInstanceForEmptyRow = returnInstanceForEmptyRow;
+    }
+
+    public Builder column(int columnIndex, TypeHandler<?> typeHandler, String property, Invoker setter, boolean callSetterOnNull) {
+      columnIndexes.add(columnIndex);
+      typeHandlers.add(typeHandler);
+      properties.add(property);
+      setters.add(setter);
+      callSettersOnNulls.add(callSetterOnNull);
+      return this;
+    }
+
+    public CompiledRowMapper build() {
+      return new CompiledRowMapper(this);
+    }
+  }
+
+}
@@ -23,6 +23,7 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -36,6 +37,8 @@ import org.apache.ibatis.cursor.defaults.DefaultCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.loader.BatchResultLoader;
+import org.apache.ibatis.executor.loader.NestedQueryBatch;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -53,6 +56,8 @@ import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.property.PropertyPath;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
@@ -71,6 +76,7 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
 public class DefaultResultSetHandler implements ResultSetHandler {
 
   private static final Object DEFERRED = new Object();
+  private static final int MAX_COMPILED_ROW_MAPPERS = 64;
 
   private final Executor executor;
   private final Configuration configuration;
@@ -92,6 +98,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
   private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
 
+  // batched nested selects
+  private final Map<ResultMapping, NestedQueryBatch> nestedQueryBatches = new IdentityHashMap<>();
+  private boolean eagerBatchLoading;
+
   // Cached Automappings
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
@@ -105,13 +115,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private static class UnMappedColumnAutoMapping {
     private final String column;
-    private final String property;
+    private final PropertyPath property;
     private final TypeHandler<?> typeHandler;
     private final boolean primitive;
 
     public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
       this.column = column;
-      this.property = property;
+      this.property = PropertyPath.compile(property);
       this.typeHandler = typeHandler;
       this.primitive = primitive;
     }
@@ -151,6 +161,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
+    // rows of ref cursors are handled after the result sets, so their batched loads are still pending
+    loadNestedQueryBatches();
   }
 
   private void handleRefCursorOutputParameter(ResultSet rs, ParameterMapping parameterMapping, MetaObject metaParam) throws SQLException {
@@ -160,7 +172,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     try {
       final String resultMapId = parameterMapping.getResultMapId();
       final ResultMap resultMap = configuration.getResultMap(resultMapId);
-      final ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+      final ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration, mappedStatement.getResultSetShapes());
       if (this.resultHandler == null) {
         final DefaultResultHandler resultHandler = new DefaultResultHandler(objectFactory);
         handleRowValues(rsw, resultMap, resultHandler, new RowBounds(), null);
@@ -182,6 +194,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
 
     final List<Object> multipleResults = new ArrayList<>();
+    // eager batched loads are completed after the rows are handled, so rows must not reach a custom handler before
+    eagerBatchLoading = resultHandler == null;
 
     int resultSetCount = 0;
     ResultSetWrapper rsw = getFirstResultSet(stmt);
@@ -212,6 +226,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
     }
 
+    loadNestedQueryBatches();
     return collapseSingleResultList(multipleResults);
   }
 
@@ -247,7 +262,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    return rs != null ? new ResultSetWrapper(rs, configuration) : null;
+    return rs != null ? new ResultSetWrapper(rs, configuration, mappedStatement.getResultSetShapes()) : null;
   }
 
   private ResultSetWrapper getNextResultSet(Statement stmt) {
@@ -260,7 +275,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           if (rs == null) {
             return getNextResultSet(stmt);
           } else {
-            return new ResultSetWrapper(rs, configuration);
+            return new ResultSetWrapper(rs, configuration, mappedStatement.getResultSetShapes());
           }
         }
       }
@@ -349,9 +364,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
     ResultSet resultSet = rsw.getResultSet();
     skipRows(resultSet, rowBounds);
+    final CompiledRowMapper compiledRowMapper = getCompiledRowMapper(rsw, resultMap);
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
-      ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-      Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
+      final Object rowValue;
+      if (compiledRowMapper != null) {
+        rowValue = compiledRowMapper.mapRow(resultSet);
+      } else {
+        ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
+        rowValue = getRowValue(rsw, discriminatedResultMap, null);
+      }
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
     }
   }
@@ -563,13 +584,104 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
         if (value != null || (configuration.isCallSettersOnNulls() && !mapping.primitive)) {
           // gcode issue #377, call setter on nulls (value is not 'found')
-          metaObject.setValue(mapping.property, value);
+          mapping.property.setValue(metaObject, value);
         }
       }
     }
     return foundValues;
   }
 
+  //
+  // COMPILED ROW MAPPERS
+  //
+
+  private CompiledRowMapper getCompiledRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    if (!configuration.isCompiledRowMappingEnabled() || !isCompilable(rsw, resultMap)) {
+      return null;
+    }
+    final CacheKey layoutKey = new CacheKey();
+    layoutKey.update(resultMap.getId());
+    layoutKey.update(rsw.getShape().getKey());
+    final Map<CacheKey, CompiledRowMapper> compiledRowMappers = mappedStatement.getCompiledRowMappers();
+    CompiledRowMapper compiledRowMapper = compiledRowMappers.get(layoutKey);
+    if (compiledRowMapper == null) {
+      compiledRowMapper = compileRowMapper(rsw, resultMap);
+      // statements using ${} can return an unbounded number of layouts
+      if (compiledRowMappers.size() < MAX_COMPILED_ROW_MAPPERS) {
+        compiledRowMappers.putIfAbsent(layoutKey, compiledRowMapper);
+      }
+    }
+    return compiledRowMapper == CompiledRowMapper.UNSUPPORTED ? null : compiledRowMapper;
+  }
+
+  private boolean isCompilable(ResultSetWrapper rsw, ResultMap resultMap) {
+    final Class<?> resultType = resultMap.getType();
+    if (resultMap.getDiscriminator() != null || resultMap.hasNestedResultMaps() || resultMap.hasNestedQueries()
+        || !resultMap.getConstructorResultMappings().isEmpty()
+        || resultType.isInterface() || Map.class.isAssignableFrom(resultType) || objectFactory.isCollection(resultType)
+        || configuration.getObjectWrapperFactory().getClass() != DefaultObjectWrapperFactory.class
+        || hasTypeHandlerForResultObject(rsw, resultType)
+        || !MetaClass.forClass(resultType, reflectorFactory).hasDefaultConstructor()) {
+      return false;
+    }
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.isCompositeResult() || propertyMapping.getResultSet() != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private CompiledRowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    final MetaClass metaType = MetaClass.forClass(resultMap.getType(), reflectorFactory);
+    final boolean callSettersOnNulls = configuration.isCallSettersOnNulls();
+    final CompiledRowMapper.Builder builder = new CompiledRowMapper.Builder(objectFactory, resultMap.getType(),
+        configuration.isReturnInstanceForEmptyRow());
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      for (String columnName : rsw.getUnmappedColumnNames(resultMap, null)) {
+        final String property = metaType.findProperty(columnName, configuration.isMapUnderscoreToCamelCase());
+        if (property != null && !isSimpleProperty(property)) {
+          return CompiledRowMapper.UNSUPPORTED;
+        }
+        if (property != null && metaType.hasSetter(property)) {
+          if (resultMap.getMappedProperties().contains(property)) {
+            continue;
+          }
+          final Class<?> propertyType = metaType.getSetterType(property);
+          if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
+            builder.column(rsw.getColumnIndex(columnName), rsw.getTypeHandler(propertyType, columnName), property,
+                metaType.getSetInvoker(property), callSettersOnNulls && !propertyType.isPrimitive());
+          } else {
+            configuration.getAutoMappingUnknownColumnBehavior()
+                .doAction(mappedStatement, columnName, property, propertyType);
+          }
+        } else {
+          configuration.getAutoMappingUnknownColumnBehavior()
+              .doAction(mappedStatement, columnName, (property != null) ? property : columnName, null);
+        }
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, null);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      final String column = propertyMapping.getColumn();
+      final String property = propertyMapping.getProperty();
+      // issue #541 make property optional
+      if (column == null || property == null || !mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+        continue;
+      }
+      if (!isSimpleProperty(property) || !metaType.hasSetter(property)) {
+        return CompiledRowMapper.UNSUPPORTED;
+      }
+      builder.column(rsw.getColumnIndex(column), propertyMapping.getTypeHandler(), property,
+          metaType.getSetInvoker(property), callSettersOnNulls && !metaType.getSetterType(property).isPrimitive());
+    }
+    return builder.build();
+  }
+
+  private boolean isSimpleProperty(String property) {
+    return property.indexOf('.') == -1 && property.indexOf('[') == -1;
+  }
+
   // MULTIPLE RESULT SETS
 
   private void linkToParents(ResultSet rs, ResultMapping parentMapping, Object rowValue) throws SQLException {
@@ -782,6 +894,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final MappedStatement nestedQuery = configuration.getMappedStatement(nestedQueryId);
     final Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
     final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, nestedQueryParameterType, columnPrefix);
+    // the keys of a composite column cannot be matched against a single batchKey property
+    final boolean batched = propertyMapping.getBatchQueryId() != null && !propertyMapping.isCompositeResult();
     Object value = null;
     if (nestedQueryParameterObject != null) {
       final BoundSql nestedBoundSql = nestedQuery.getBoundSql(nestedQueryParameterObject);
@@ -790,6 +904,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       if (executor.isCached(nestedQuery, key)) {
         executor.deferLoad(nestedQuery, metaResultObject, property, key, targetType);
         value = DEFERRED;
+      } else if (batched && propertyMapping.isLazy()) {
+        final NestedQueryBatch batch = getNestedQueryBatch(propertyMapping);
+        lazyLoader.addLoader(property, metaResultObject,
+            new BatchResultLoader(configuration, executor, nestedQuery, nestedQueryParameterObject, targetType, key, nestedBoundSql, batch));
+        value = DEFERRED;
+      } else if (batched && eagerBatchLoading) {
+        getNestedQueryBatch(propertyMapping).addPendingLoad(metaResultObject, property, nestedQueryParameterObject, targetType);
+        value = DEFERRED;
       } else {
         final ResultLoader resultLoader = new ResultLoader(configuration, executor, nestedQuery, nestedQueryParameterObject, targetType, key, nestedBoundSql);
         if (propertyMapping.isLazy()) {
@@ -803,6 +925,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return value;
   }
 
+  private NestedQueryBatch getNestedQueryBatch(ResultMapping propertyMapping) {
+    return nestedQueryBatches.computeIfAbsent(propertyMapping, k -> new NestedQueryBatch(configuration, executor, k));
+  }
+
+  private void loadNestedQueryBatches() throws SQLException {
+    for (NestedQueryBatch batch : nestedQueryBatches.values()) {
+      if (batch.hasPendingLoads()) {
+        batch.loadPending();
+      }
+    }
+  }
+
   private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
     if (resultMapping.isCompositeResult()) {
       return prepareCompositeKeyParameter(rs, resultMapping, parameterType, columnPrefix);
@@ -1006,9 +1140,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-    final CacheKey cacheKey = new CacheKey();
-    cacheKey.update(resultMap.getId());
     List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
+    // result map id, then a column name and a value per mapping or column
+    final int keyColumnCount = resultMappings.isEmpty() ? rsw.getColumnNames().size() : resultMappings.size();
+    final CacheKey cacheKey = new CacheKey(1 + 2 * keyColumnCount);
+    cacheKey.update(resultMap.getId());
     if (resultMappings.isEmpty()) {
       if (Map.class.isAssignableFrom(resultMap.getType())) {
         createRowKeyForMap(rsw, cacheKey);
@@ -0,0 +1,291 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.ObjectTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.apache.ibatis.type.UnknownTypeHandler;
+
+/**
+ * The column layout of a result set along with everything resolved from it: column indexes, type handlers and
+ * the mapped/unmapped column partitions of each result map.
+ * <p>
+ * A shape only depends on the result set metadata, so it is cached on the
+ * {@link org.apache.ibatis.mapping.MappedStatement} and shared by all the {@link ResultSetWrapper}s
+ * created for result sets with the same column labels and types. A statement that returns the same labels with
+ * different types, which a <code>${}</code> substitution or an untyped result can do, gets a shape of its own.
+ * Instances are thread safe.
+ *
+ * @see ResultSetWrapper
+ */
+public final class ResultSetShape {
+
+  private final TypeHandlerRegistry typeHandlerRegistry;
+  private final CacheKey key;
+  private final List<String> columnNames;
+  private final List<String> classNames;
+  private final List<JdbcType> jdbcTypes;
+  private final Map<String, Integer> columnIndexes = new ConcurrentHashMap<>();
+  private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new ConcurrentHashMap<>();
+  private final Map<String, List<String>> mappedColumnNamesMap = new ConcurrentHashMap<>();
+  private final Map<String, List<String>> unMappedColumnNamesMap = new ConcurrentHashMap<>();
+
+  ResultSetShape(CacheKey key, List<String> columnNames, List<String> classNames, List<JdbcType> jdbcTypes,
+      TypeHandlerRegistry typeHandlerRegistry) {
+    this.key = key;
+    this.columnNames = Collections.unmodifiableList(columnNames);
+    this.classNames = Collections.unmodifiableList(classNames);
+    this.jdbcTypes = Collections.unmodifiableList(jdbcTypes);
+    this.typeHandlerRegistry = typeHandlerRegistry;
+  }
+
+  /**
+   * Reads the column labels of a result set.
+   *
+   * @param metaData
+   *          the result set metadata
+   * @param useColumnLabel
+   *          whether columns are identified by label or by name
+   * @return the column labels
+   * @throws SQLException
+   *           if the metadata can not be read
+   */
+  static List<String> readColumnNames(ResultSetMetaData metaData, boolean useColumnLabel) throws SQLException {
+    final int columnCount = metaData.getColumnCount();
+    final List<String> columnNames = new ArrayList<>(columnCount);
+    for (int i = 1; i <= columnCount; i++) {
+      columnNames.add(useColumnLabel ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
+    }
+    return columnNames;
+  }
+
+  /**
+   * Reads the JDBC types of the columns of a result set.
+   *
+   * @param metaData
+   *          the result set metadata
+   * @param columnCount
+   *          the number of columns
+   * @return the column types
+   * @throws SQLException
+   *           if the metadata can not be read
+   */
+  static List<JdbcType> readJdbcTypes(ResultSetMetaData metaData, int columnCount) throws SQLException {
+    final List<JdbcType> jdbcTypes = new ArrayList<>(columnCount);
+    for (int i = 1; i <= columnCount; i++) {
+      jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
+    }
+    return jdbcTypes;
+  }
+
+  /**
+   * Reads the Java class names of the columns of a result set.
+   *
+   * @param metaData
+   *          the result set metadata
+   * @param columnCount
+   *          the number of columns
+   * @return the column class names
+   * @throws SQLException
+   *           if the metadata can not be read
+   */
+  static List<String> readClassNames(ResultSetMetaData metaData, int columnCount) throws SQLException {
+    final List<String> classNames = new ArrayList<>(columnCount);
+    for (int i = 1; i <= columnCount; i++) {
+      classNames.add(metaData.getColumnClassName(i));
+    }
+    return classNames;
+  }
+
+  /**
+   * Builds the key of the shape of a result set: its column count, labels and types.
+   *
+   * @param columnNames
+   *          the column labels
+   * @param classNames
+   *          the column class names
+   * @param jdbcTypes
+   *          the column JDBC types
+   * @return the shape key
+   */
+  static CacheKey keyOf(List<String> columnNames, List<String> classNames, List<JdbcType> jdbcTypes) {
+    final CacheKey key = new CacheKey();
+    key.update(columnNames.size());
+    for (int i = 0; i < columnNames.size(); i++) {
+      key.update(columnNames.get(i));
+      key.update(jdbcTypes.get(i));
+      key.update(classNames.get(i));
+    }
+    return key;
+  }
+
+  /**
+   * Gets the key identifying this shape: the number, the labels and the types of the columns.
+   *
+   * @return the shape key
+   */
+  public CacheKey getKey() {
+    return key;
+  }
+
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  public List<String> getClassNames() {
+    return classNames;
+  }
+
+  public List<JdbcType> getJdbcTypes() {
+    return jdbcTypes;
+  }
+
+  public JdbcType getJdbcType(String columnName) {
+    final int columnIndex = getColumnIndex(columnName);
+    return columnIndex == -1 ? null : jdbcTypes.get(columnIndex - 1);
+  }
+
+  public int getColumnIndex(String columnName) {
+    if (columnName == null) {
+      return -1;
+    }
+    Integer columnIndex = columnIndexes.get(columnName);
+    if (columnIndex == null) {
+      columnIndex = -1;
+      for (int i = 0; i < columnNames.size(); i++) {
+        if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+          columnIndex = i + 1;
+          break;
+        }
+      }
+      columnIndexes.put(columnName, columnIndex);
+    }
+    return columnIndex;
+  }
+
+  public TypeHandler<?> getTypeHandler(Class<?> propertyType, String columnName) {
+    TypeHandler<?> handler = null;
+    Map<Class<?>, TypeHandler<?>> columnHandlers = typeHandlerMap.get(columnName);
+    if (columnHandlers == null) {
+      columnHandlers = new ConcurrentHashMap<>();
+      typeHandlerMap.put(columnName, columnHandlers);
+    } else {
+      handler = columnHandlers.get(propertyType);
+    }
+    if (handler == null) {
+      JdbcType jdbcType = getJdbcType(columnName);
+      handler = typeHandlerRegistry.getTypeHandler(propertyType, jdbcType);
+      // Replicate logic of UnknownTypeHandler#resolveTypeHandler
+      // See issue #59 comment 10
+      if (handler == null || handler instanceof UnknownTypeHandler) {
+        final int index = columnNames.indexOf(columnName);
+        final Class<?> javaType = resolveClass(classNames.get(index));
+        if (javaType != null && jdbcType != null) {
+          handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
+        } else if (javaType != null) {
+          handler = typeHandlerRegistry.getTypeHandler(javaType);
+        } else if (jdbcType != null) {
+          handler = typeHandlerRegistry.getTypeHandler(jdbcType);
+        }
+      }
+      if (handler == null || handler instanceof UnknownTypeHandler) {
+        handler = new ObjectTypeHandler();
+      }
+      columnHandlers.put(propertyType, handler);
+    }
+    return handler;
+  }
+
+  private Class<?> resolveClass(String className) {
+    try {
+      // #699 className could be null
+      if (className != null) {
+        return Resources.classForName(className);
+      }
+    } catch (ClassNotFoundException e) {
+      // ignore
+    }
+    return null;
+  }
+
+  private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) {
+    List<String> mappedColumnNames = new ArrayList<>();
+    List<String> unmappedColumnNames = new ArrayList<>();
+    final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
+    final Set<String> mappedColumns = prependPrefixes(resultMap.getMappedColumns(), upperColumnPrefix);
+    for (String columnName : columnNames) {
+      final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
+      if (mappedColumns.contains(upperColumnName)) {
+        mappedColumnNames.add(upperColumnName);
+      } else {
+        unmappedColumnNames.add(columnName);
+      }
+    }
+    // the partitions are published before being read by other threads, so they must not change afterwards
+    mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), Collections.unmodifiableList(mappedColumnNames));
+    unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), Collections.unmodifiableList(unmappedColumnNames));
+  }
+
+  public List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) {
+    List<String> mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    if (mappedColumnNames == null) {
+      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
+      mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    }
+    return mappedColumnNames;
+  }
+
+  public List<String> getUnmappedColumnNames(ResultMap resultMap, String columnPrefix) {
+    List<String> unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    if (unMappedColumnNames == null) {
+      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
+      unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    }
+    return unMappedColumnNames;
+  }
+
+  private String getMapKey(ResultMap resultMap, String columnPrefix) {
+    return resultMap.getId() + ":" + columnPrefix;
+  }
+
+  private Set<String> prependPrefixes(Set<String> columnNames, String prefix) {
+    if (columnNames == null || columnNames.isEmpty() || prefix == null || prefix.length() == 0) {
+      return columnNames;
+    }
+    final Set<String> prefixed = new HashSet<>();
+    for (String columnName : columnNames) {
+      prefixed.add(prefix + columnName);
+    }
+    return prefixed;
+  }
+
+}
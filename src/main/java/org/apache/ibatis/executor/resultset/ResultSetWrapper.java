@@ -18,48 +18,61 @@ package org.apache.ibatis.executor.resultset;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 
-import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
-import org.apache.ibatis.type.ObjectTypeHandler;
 import org.apache.ibatis.type.TypeHandler;
-import org.apache.ibatis.type.TypeHandlerRegistry;
-import org.apache.ibatis.type.UnknownTypeHandler;
 
 /**
  * @author Iwao AVE!
  */
 public class ResultSetWrapper {
 
+  // statements using ${} can return an unbounded number of layouts
+  private static final int MAX_CACHED_SHAPES = 64;
+
   private final ResultSet resultSet;
-  private final TypeHandlerRegistry typeHandlerRegistry;
-  private final List<String> columnNames = new ArrayList<>();
-  private final List<String> classNames = new ArrayList<>();
-  private final List<JdbcType> jdbcTypes = new ArrayList<>();
-  private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<>();
-  private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>();
-  private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
+  private final ResultSetShape shape;
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
+    this(rs, configuration, null);
+  }
+
+  /**
+   * Instantiates a new result set wrapper that reuses the shapes already resolved for the same column layout.
+   *
+   * @param rs
+   *          the result set
+   * @param configuration
+   *          the configuration
+   * @param shapeCache
+   *          the shapes resolved so far, usually the ones of the statement that returned the result set; may be <code>null</code>
+   * @throws SQLException
+   *           if the result set metadata can not be read
+   * @since 3.5.6
+   */
+  public ResultSetWrapper(ResultSet rs, Configuration configuration, Map<CacheKey, ResultSetShape> shapeCache) throws SQLException {
     super();
-    this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.resultSet = rs;
     final ResultSetMetaData metaData = rs.getMetaData();
-    final int columnCount = metaData.getColumnCount();
-    for (int i = 1; i <= columnCount; i++) {
-      columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
-      jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
-      classNames.add(metaData.getColumnClassName(i));
+    final List<String> columnNames = ResultSetShape.readColumnNames(metaData, configuration.isUseColumnLabel());
+    final List<String> classNames = ResultSetShape.readClassNames(metaData, columnNames.size());
+    final List<JdbcType> jdbcTypes = ResultSetShape.readJdbcTypes(metaData, columnNames.size());
+    final CacheKey key = ResultSetShape.keyOf(columnNames, classNames, jdbcTypes);
+    final ResultSetShape cachedShape = shapeCache == null ? null : shapeCache.get(key);
+    if (cachedShape != null) {
+      this.shape = cachedShape;
+    } else {
+      final ResultSetShape readShape = new ResultSetShape(key, columnNames, classNames, jdbcTypes,
+          configuration.getTypeHandlerRegistry());
+      if (shapeCache != null && shapeCache.size() < MAX_CACHED_SHAPES) {
+        shapeCache.putIfAbsent(key, readShape);
+      }
+      this.shape = readShape;
     }
   }
 
@@ -67,25 +80,41 @@ public class ResultSetWrapper {
     return resultSet;
   }
 
+  /**
+   * Gets the column layout of the result set.
+   *
+   * @return the shape
+   * @since 3.5.6
+   */
+  public ResultSetShape getShape() {
+    return shape;
+  }
+
   public List<String> getColumnNames() {
-    return this.columnNames;
+    return shape.getColumnNames();
   }
 
   public List<String> getClassNames() {
-    return Collections.unmodifiableList(classNames);
+    return shape.getClassNames();
   }
 
   public List<JdbcType> getJdbcTypes() {
-    return jdbcTypes;
+    return shape.getJdbcTypes();
   }
 
   public JdbcType getJdbcType(String columnName) {
-    for (int i = 0; i < columnNames.size(); i++) {
-      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
-        return jdbcTypes.get(i);
-      }
-    }
-    return null;
+    return shape.getJdbcType(columnName);
+  }
+
+  /**
+   * Gets the JDBC index of a column, matching the label case insensitively like the JDBC drivers do.
+   *
+   * @param columnName
+   *          the column name
+   * @return the 1-based column index, or -1 if the result set has no such column
+   */
+  public int getColumnIndex(String columnName) {
+    return shape.getColumnIndex(columnName);
   }
 
   /**
@@ -100,98 +129,15 @@ public class ResultSetWrapper {
    * @return the type handler
    */
   public TypeHandler<?> getTypeHandler(Class<?> propertyType, String columnName) {
-    TypeHandler<?> handler = null;
-    Map<Class<?>, TypeHandler<?>> columnHandlers = typeHandlerMap.get(columnName);
-    if (columnHandlers == null) {
-      columnHandlers = new HashMap<>();
-      typeHandlerMap.put(columnName, columnHandlers);
-    } else {
-      handler = columnHandlers.get(propertyType);
-    }
-    if (handler == null) {
-      JdbcType jdbcType = getJdbcType(columnName);
-      handler = typeHandlerRegistry.getTypeHandler(propertyType, jdbcType);
-      // Replicate logic of UnknownTypeHandler#resolveTypeHandler
-      // See issue #59 comment 10
-      if (handler == null || handler instanceof UnknownTypeHandler) {
-        final int index = columnNames.indexOf(columnName);
-        final Class<?> javaType = resolveClass(classNames.get(index));
-        if (javaType != null && jdbcType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
-        } else if (javaType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(javaType);
-        } else if (jdbcType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(jdbcType);
-        }
-      }
-      if (handler == null || handler instanceof UnknownTypeHandler) {
-        handler = new ObjectTypeHandler();
-      }
-      columnHandlers.put(propertyType, handler);
-    }
-    return handler;
-  }
-
-  private Class<?> resolveClass(String className) {
-    try {
-      // #699 className could be null
-      if (className != null) {
-        return Resources.classForName(className);
-      }
-    } catch (ClassNotFoundException e) {
-      // ignore
-    }
-    return null;
-  }
-
-  private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> mappedColumnNames = new ArrayList<>();
-    List<String> unmappedColumnNames = new ArrayList<>();
-    final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
-    final Set<String> mappedColumns = prependPrefixes(resultMap.getMappedColumns(), upperColumnPrefix);
-    for (String columnName : columnNames) {
-      final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
-      if (mappedColumns.contains(upperColumnName)) {
-        mappedColumnNames.add(upperColumnName);
-      } else {
-        unmappedColumnNames.add(columnName);
-      }
-    }
-    mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), mappedColumnNames);
-    unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), unmappedColumnNames);
+    return shape.getTypeHandler(propertyType, columnName);
   }
 
   public List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    if (mappedColumnNames == null) {
-      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    }
-    return mappedColumnNames;
+    return shape.getMappedColumnNames(resultMap, columnPrefix);
   }
 
   public List<String> getUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    if (unMappedColumnNames == null) {
-      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    }
-    return unMappedColumnNames;
-  }
-
-  private String getMapKey(ResultMap resultMap, String columnPrefix) {
-    return resultMap.getId() + ":" + columnPrefix;
-  }
-
-  private Set<String> prependPrefixes(Set<String> columnNames, String prefix) {
-    if (columnNames == null || columnNames.isEmpty() || prefix == null || prefix.length() == 0) {
-      return columnNames;
-    }
-    final Set<String> prefixed = new HashSet<>();
-    for (String columnName : columnNames) {
-      prefixed.add(prefix + columnName);
-    }
-    return prefixed;
+    return shape.getUnmappedColumnNames(resultMap, columnPrefix);
   }
 
 }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2019 the original author or authors.
+ *    Copyright 2009-2020 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -24,13 +24,23 @@ import java.util.Properties;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheTagIndex;
+import org.apache.ibatis.cache.codec.CacheCodecs;
 import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TaggedCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.impl.PersistentCache;
+import org.apache.ibatis.cache.impl.SharedCache;
+import org.apache.ibatis.cache.stats.CacheStatistics;
+import org.apache.ibatis.cache.stats.EvictionCounter;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
@@ -43,9 +53,14 @@ public class CacheBuilder {
   private final List<Class<? extends Cache>> decorators;
   private Integer size;
   private Long clearInterval;
+  private Long timeToLive;
+  private Long timeToIdle;
+  private Long refreshAhead;
   private boolean readWrite;
   private Properties properties;
   private boolean blocking;
+  private CacheTagIndex tagIndex;
+  private CacheStatistics statistics;
 
   public CacheBuilder(String id) {
     this.id = id;
@@ -74,6 +89,21 @@ public class CacheBuilder {
     return this;
   }
 
+  public CacheBuilder timeToLive(Long timeToLive) {
+    this.timeToLive = timeToLive;
+    return this;
+  }
+
+  public CacheBuilder timeToIdle(Long timeToIdle) {
+    this.timeToIdle = timeToIdle;
+    return this;
+  }
+
+  public CacheBuilder refreshAhead(Long refreshAhead) {
+    this.refreshAhead = refreshAhead;
+    return this;
+  }
+
   public CacheBuilder readWrite(boolean readWrite) {
     this.readWrite = readWrite;
     return this;
@@ -84,6 +114,33 @@ public class CacheBuilder {
     return this;
   }
 
+  /**
+   * Tracks the tags of the cached entries in the given index. It is only supported by the default cache
+   * implementation and ignored by the others, in which case the index is left unbound.
+   *
+   * @param tagIndex
+   *          the tag index
+   * @return this builder
+   * @since 3.5.6
+   */
+  public CacheBuilder tagIndex(CacheTagIndex tagIndex) {
+    this.tagIndex = tagIndex;
+    return this;
+  }
+
+  /**
+   * Records the hits, misses, puts and evictions of the cache in the given statistics.
+   *
+   * @param statistics
+   *          the statistics
+   * @return this builder
+   * @since 3.5.6
+   */
+  public CacheBuilder statistics(CacheStatistics statistics) {
+    this.statistics = statistics;
+    return this;
+  }
+
   public CacheBuilder properties(Properties properties) {
     this.properties = properties;
     return this;
@@ -92,16 +149,40 @@ public class CacheBuilder {
   public Cache build() {
     setDefaultImplementations();
     Cache cache = newBaseCacheInstance(implementation, id);
+    if (cache instanceof SharedCache) {
+      // the region checks that all the configurations store the values of the namespace in the same form
+      ((SharedCache) cache).setReadWrite(readWrite);
+    }
+    if (cache instanceof PersistentCache && timeToLive != null) {
+      // before the entries are reloaded on initialization, so that the expired ones are not
+      ((PersistentCache) cache).setExpireAfterWrite(timeToLive);
+    }
     setCacheProperties(cache);
+    countEvictions(cache);
     // issue #352, do not apply decorators to custom caches
     if (PerpetualCache.class.equals(cache.getClass())) {
+      if (tagIndex != null) {
+        // below the eviction decorators so that evicted entries are untagged
+        cache = new TaggedCache(cache, tagIndex);
+      }
+      if (timeToLive != null || timeToIdle != null) {
+        // below the eviction decorators too, so that evicted entries are forgotten
+        cache = newExpiringCache(cache);
+      }
       for (Class<? extends Cache> decorator : decorators) {
         cache = newCacheDecoratorInstance(decorator, cache);
         setCacheProperties(cache);
+        countEvictions(cache);
       }
-      cache = setStandardDecorators(cache);
+      cache = setStandardDecorators(cache, true, false);
+    } else if (ConcurrentCache.class.equals(cache.getClass()) || SharedCache.class.equals(cache.getClass())) {
+      // thread safe and evicts by itself, so neither eviction decorators nor synchronization are needed
+      cache = setStandardDecorators(cache, false, true);
+    } else if (OffHeapCache.class.equals(cache.getClass()) || PersistentCache.class.equals(cache.getClass())) {
+      // same as above, but the expiry decorator is not thread safe
+      cache = setStandardDecorators(cache, timeToLive != null || timeToIdle != null, true);
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
-      cache = new LoggingCache(cache);
+      cache = new LoggingCache(cache, statistics);
     }
     return cache;
   }
@@ -115,23 +196,45 @@ public class CacheBuilder {
     }
   }
 
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, boolean synchronize, boolean expire) {
+    // already returns a copy of its values
+    final boolean copiesValues = cache instanceof OffHeapCache || cache instanceof PersistentCache;
+    // the values of a shared cache are decoded by the other configurations bound to the namespace
+    final SharedCache sharedCache = cache instanceof SharedCache ? (SharedCache) cache : null;
     try {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
       if (size != null && metaCache.hasSetter("size")) {
         metaCache.setValue("size", size);
       }
+      if (expire && (timeToLive != null || timeToIdle != null)) {
+        cache = setExpiry(cache);
+      }
       if (clearInterval != null) {
         cache = new ScheduledCache(cache);
         ((ScheduledCache) cache).setClearInterval(clearInterval);
       }
-      if (readWrite) {
-        cache = new SerializedCache(cache);
+      if (readWrite && !copiesValues) {
+        cache = new SerializedCache(cache,
+            sharedCache != null ? sharedCache.getCodec() : CacheCodecs.newCodec(getProperty("codec")));
+      }
+      cache = new LoggingCache(cache, statistics);
+      if (synchronize) {
+        cache = new SynchronizedCache(cache);
+      }
+      if (tagIndex != null && synchronize) {
+        // invalidations go below BlockingCache, whose removeObject only releases locks
+        tagIndex.bind(cache);
       }
-      cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
       if (blocking) {
-        cache = new BlockingCache(cache);
+        BlockingCache blockingCache = new BlockingCache(cache);
+        if (Boolean.parseBoolean(getProperty("singleFlight"))) {
+          blockingCache.setSingleFlight(true);
+          if (readWrite || copiesValues) {
+            // each waiting thread gets its own copy, as it would from the cache
+            blockingCache.setCodec(CacheCodecs.newCodec(getProperty("codec")));
+          }
+        }
+        cache = blockingCache;
       }
       return cache;
     } catch (Exception e) {
@@ -139,6 +242,58 @@ public class CacheBuilder {
     }
   }
 
+  private Cache setExpiry(Cache cache) {
+    if (cache instanceof ConcurrentCache) {
+      // expires its entries by itself
+      ConcurrentCache concurrentCache = (ConcurrentCache) cache;
+      if (timeToLive != null) {
+        concurrentCache.setExpireAfterWrite(timeToLive);
+      }
+      if (timeToIdle != null) {
+        concurrentCache.setExpireAfterAccess(timeToIdle);
+      }
+      if (refreshAhead != null) {
+        concurrentCache.setRefreshAhead(refreshAhead);
+      }
+      return cache;
+    }
+    if (cache instanceof SharedCache) {
+      // expires the entries of the region, whichever configuration reads them
+      SharedCache sharedCache = (SharedCache) cache;
+      sharedCache.setExpireAfterWrite(valueOrZero(timeToLive));
+      sharedCache.setExpireAfterAccess(valueOrZero(timeToIdle));
+      sharedCache.setRefreshAhead(valueOrZero(refreshAhead));
+      return cache;
+    }
+    if (cache instanceof PersistentCache && timeToIdle == null && refreshAhead == null) {
+      // keeps the write time of its entries across restarts, and its time to live is already set
+      return cache;
+    }
+    return newExpiringCache(cache);
+  }
+
+  private Cache newExpiringCache(Cache cache) {
+    ExpiringCache expiringCache = new ExpiringCache(cache);
+    expiringCache.setTimeToLive(valueOrZero(timeToLive));
+    expiringCache.setTimeToIdle(valueOrZero(timeToIdle));
+    expiringCache.setRefreshAhead(valueOrZero(refreshAhead));
+    return expiringCache;
+  }
+
+  private void countEvictions(Cache cache) {
+    if (statistics != null && cache instanceof EvictionCounter) {
+      statistics.addEvictionCounter((EvictionCounter) cache);
+    }
+  }
+
+  private String getProperty(String name) {
+    return properties == null ? null : properties.getProperty(name);
+  }
+
+  private static long valueOrZero(Long value) {
+    return value == null ? 0 : value;
+  }
+
   private void setCacheProperties(Cache cache) {
     if (properties != null) {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
@@ -17,15 +17,27 @@ package org.apache.ibatis.mapping;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.CacheTags;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper;
+import org.apache.ibatis.executor.resultset.ResultSetShape;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.scripting.defaults.ParameterBinder;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -33,6 +45,8 @@ import org.apache.ibatis.session.Configuration;
  */
 public final class MappedStatement {
 
+  private static final Set<String> UNRESOLVED_TAGS = Collections.unmodifiableSet(new HashSet<>());
+
   private String resource;
   private Configuration configuration;
   private String id;
@@ -46,6 +60,7 @@ public final class MappedStatement {
   private List<ResultMap> resultMaps;
   private boolean flushCacheRequired;
   private boolean useCache;
+  private boolean useLocalCache = true;
   private boolean resultOrdered;
   private SqlCommandType sqlCommandType;
   private KeyGenerator keyGenerator;
@@ -56,6 +71,12 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private Set<String> cacheTags = Collections.emptySet();
+  // the tags of the nested selects, UNRESOLVED_TAGS until first used and null if they cannot be known
+  private volatile Set<String> nestedQueryCacheTags = UNRESOLVED_TAGS;
+  private final Map<CacheKey, ResultSetShape> resultSetShapes = new ConcurrentHashMap<>();
+  private final Map<CacheKey, CompiledRowMapper> compiledRowMappers = new ConcurrentHashMap<>();
+  private final Map<Class<?>, ParameterBinder> parameterBinders = new ConcurrentHashMap<>();
 
   MappedStatement() {
     // constructor disabled
@@ -139,6 +160,20 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * Sets whether the results of this statement are kept in the local cache of the session once the query that
+     * executed it ends.
+     *
+     * @param useLocalCache
+     *          <code>false</code> to only keep them while the query runs
+     * @return the builder
+     * @since 3.5.6
+     */
+    public Builder useLocalCache(boolean useLocalCache) {
+      mappedStatement.useLocalCache = useLocalCache;
+      return this;
+    }
+
     public Builder resultOrdered(boolean resultOrdered) {
       mappedStatement.resultOrdered = resultOrdered;
       return this;
@@ -174,6 +209,20 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * Declares the tags (usually table names) of this statement, in place of the tables found in its sql. The
+     * results a select caches depend on them and an insert, update or delete invalidates the entries sharing one.
+     *
+     * @param cacheTags
+     *          the comma separated tags
+     * @return the builder
+     * @since 3.5.6
+     */
+    public Builder cacheTags(String cacheTags) {
+      mappedStatement.cacheTags = CacheTags.fromString(cacheTags);
+      return this;
+    }
+
     /**
      * Resul sets.
      *
@@ -262,6 +311,16 @@ public final class MappedStatement {
     return useCache;
   }
 
+  /**
+   * Returns whether the results of this statement are kept in the local cache of the session.
+   *
+   * @return <code>true</code> by default
+   * @since 3.5.6
+   */
+  public boolean isUseLocalCache() {
+    return useLocalCache;
+  }
+
   public boolean isResultOrdered() {
     return resultOrdered;
   }
@@ -290,6 +349,102 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * Gets the declared cache tags of this statement.
+   *
+   * @return the cache tags, empty if the tables of the statement are to be found in its sql
+   * @since 3.5.6
+   */
+  public Set<String> getCacheTags() {
+    return cacheTags;
+  }
+
+  /**
+   * Gets the cache tags of the nested selects of the result maps of this statement, and of their own nested
+   * selects. Their results are cached along with the results of this statement, so a write to one of these tags
+   * makes them stale too.
+   *
+   * @return the cache tags, or <code>null</code> if the tables of a nested select cannot be known
+   * @since 3.5.6
+   */
+  public Set<String> getNestedQueryCacheTags() {
+    Set<String> tags = nestedQueryCacheTags;
+    if (tags == UNRESOLVED_TAGS) {
+      // resolved on first use, once all the statements the result maps refer to are built
+      tags = resolveNestedQueryCacheTags();
+      nestedQueryCacheTags = tags;
+    }
+    return tags;
+  }
+
+  private Set<String> resolveNestedQueryCacheTags() {
+    Set<String> tags = new LinkedHashSet<>();
+    Set<String> visitedResultMaps = new HashSet<>();
+    Set<String> visitedStatements = new HashSet<>();
+    visitedStatements.add(id);
+    for (ResultMap resultMap : resultMaps) {
+      if (!addNestedQueryCacheTags(resultMap, tags, visitedResultMaps, visitedStatements)) {
+        return null;
+      }
+    }
+    return tags.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(tags);
+  }
+
+  private boolean addNestedQueryCacheTags(ResultMap resultMap, Set<String> tags, Set<String> visitedResultMaps,
+      Set<String> visitedStatements) {
+    if (!visitedResultMaps.add(resultMap.getId())) {
+      return true;
+    }
+    for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+      if (!addNestedQueryCacheTags(resultMapping.getNestedQueryId(), tags, visitedResultMaps, visitedStatements)
+          || !addNestedQueryCacheTags(resultMapping.getBatchQueryId(), tags, visitedResultMaps, visitedStatements)) {
+        return false;
+      }
+      String nestedResultMapId = resultMapping.getNestedResultMapId();
+      if (nestedResultMapId != null && (!configuration.hasResultMap(nestedResultMapId)
+          || !addNestedQueryCacheTags(configuration.getResultMap(nestedResultMapId), tags, visitedResultMaps, visitedStatements))) {
+        return false;
+      }
+    }
+    Discriminator discriminator = resultMap.getDiscriminator();
+    if (discriminator != null) {
+      for (String caseResultMapId : discriminator.getDiscriminatorMap().values()) {
+        if (!configuration.hasResultMap(caseResultMapId)
+            || !addNestedQueryCacheTags(configuration.getResultMap(caseResultMapId), tags, visitedResultMaps, visitedStatements)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private boolean addNestedQueryCacheTags(String statementId, Set<String> tags, Set<String> visitedResultMaps,
+      Set<String> visitedStatements) {
+    if (statementId == null || !visitedStatements.add(statementId)) {
+      return true;
+    }
+    if (!configuration.hasStatement(statementId, false)) {
+      return false;
+    }
+    MappedStatement nestedQuery = configuration.getMappedStatement(statementId, false);
+    Set<String> nestedTags = nestedQuery.getCacheTags();
+    if (nestedTags.isEmpty() && nestedQuery.getStatementType() != StatementType.CALLABLE
+        && (nestedQuery.getSqlSource() instanceof RawSqlSource || nestedQuery.getSqlSource() instanceof StaticSqlSource)) {
+      // the sql of a static statement does not depend on the parameter
+      nestedTags = CacheTags.fromSql(nestedQuery.getBoundSql(null).getSql());
+    }
+    if (nestedTags.isEmpty()) {
+      return false;
+    }
+    tags.addAll(nestedTags);
+    for (ResultMap resultMap : nestedQuery.getResultMaps()) {
+      if (!addNestedQueryCacheTags(resultMap, tags, visitedResultMaps, visitedStatements)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Gets the resul sets.
    *
@@ -301,6 +456,38 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * Gets the shapes of the result sets returned by this statement, keyed by their column layout.
+   * They let every execution reuse the column indexes, type handlers and mapped columns resolved by the previous ones.
+   *
+   * @return the result set shapes
+   * @see ResultSetShape#getKey()
+   */
+  public Map<CacheKey, ResultSetShape> getResultSetShapes() {
+    return resultSetShapes;
+  }
+
+  /**
+   * Gets the row mappers compiled for the result set layouts returned by this statement.
+   * Keys identify a result map and a column layout.
+   *
+   * @return the compiled row mappers
+   * @see org.apache.ibatis.session.Configuration#isCompiledRowMappingEnabled()
+   */
+  public Map<CacheKey, CompiledRowMapper> getCompiledRowMappers() {
+    return compiledRowMappers;
+  }
+
+  /**
+   * Gets the parameter binders of this statement, keyed by the class of the parameter objects they read.
+   *
+   * @return the parameter binders
+   * @since 3.5.6
+   */
+  public Map<Class<?>, ParameterBinder> getParameterBinders() {
+    return parameterBinders;
+  }
+
   public BoundSql getBoundSql(Object parameterObject) {
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
@@ -44,6 +44,8 @@ public class ResultMapping {
   private List<ResultMapping> composites;
   private String resultSet;
   private String foreignColumn;
+  private String batchQueryId;
+  private String batchKey;
   private boolean lazy;
 
   ResultMapping() {
@@ -102,6 +104,16 @@ public class ResultMapping {
       return this;
     }
 
+    public Builder batchQueryId(String batchQueryId) {
+      resultMapping.batchQueryId = batchQueryId;
+      return this;
+    }
+
+    public Builder batchKey(String batchKey) {
+      resultMapping.batchKey = batchKey;
+      return this;
+    }
+
     public Builder notNullColumns(Set<String> notNullColumns) {
       resultMapping.notNullColumns = notNullColumns;
       return this;
@@ -167,6 +179,14 @@ public class ResultMapping {
           throw new IllegalStateException("There should be the same number of columns and foreignColumns in property " + resultMapping.property);
         }
       }
+      if (resultMapping.batchQueryId != null) {
+        if (resultMapping.nestedQueryId == null) {
+          throw new IllegalStateException("Cannot define batchSelect without select in property " + resultMapping.property);
+        }
+        if (resultMapping.batchKey == null) {
+          throw new IllegalStateException("Mapping is missing batchKey attribute for property " + resultMapping.property);
+        }
+      }
     }
 
     private void resolveTypeHandler() {
@@ -243,6 +263,14 @@ public class ResultMapping {
     this.foreignColumn = foreignColumn;
   }
 
+  public String getBatchQueryId() {
+    return batchQueryId;
+  }
+
+  public String getBatchKey() {
+    return batchKey;
+  }
+
   public boolean isLazy() {
     return lazy;
   }
@@ -297,6 +325,8 @@ public class ResultMapping {
     sb.append(", composites=").append(composites);
     sb.append(", resultSet='").append(resultSet).append('\'');
     sb.append(", foreignColumn='").append(foreignColumn).append('\'');
+    sb.append(", batchQueryId='").append(batchQueryId).append('\'');
+    sb.append(", batchKey='").append(batchKey).append('\'');
     sb.append(", lazy=").append(lazy);
     sb.append('}');
     return sb.toString();
@@ -0,0 +1,127 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+import java.io.InputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+
+/**
+ * Loads an XML document in a single forward pass of a StAX reader.
+ * <p>
+ * The document is not validated and its DTD is skipped, so only the predefined entities are expanded. Comments and
+ * processing instructions are dropped, and text and CDATA sections are kept apart as the DOM parser of
+ * {@link XPathParser} does.
+ *
+ * @since 3.5.6
+ */
+public final class StaxDocumentLoader {
+
+  // the reader of the JDK reports CDATA sections as characters unless this is set
+  private static final String REPORT_CDATA_EVENT = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+  private static final XMLInputFactory inputFactory = newInputFactory();
+  private static final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+
+  private StaxDocumentLoader() {
+    // Prevent Instantiation of Static Class
+  }
+
+  public static Document load(InputStream inputStream) {
+    try {
+      Document document;
+      XMLStreamReader reader;
+      // the factories are not guaranteed to be thread safe, the documents are built without holding the lock
+      synchronized (StaxDocumentLoader.class) {
+        document = documentBuilderFactory.newDocumentBuilder().newDocument();
+        reader = inputFactory.createXMLStreamReader(inputStream);
+      }
+      try {
+        Node current = document;
+        while (reader.hasNext()) {
+          switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+              Element element = document.createElement(qualifiedName(reader.getPrefix(), reader.getLocalName()));
+              for (int i = 0; i < reader.getAttributeCount(); i++) {
+                element.setAttribute(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                    reader.getAttributeValue(i));
+              }
+              current.appendChild(element);
+              current = element;
+              break;
+            case XMLStreamConstants.END_ELEMENT:
+              current = current.getParentNode();
+              break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+              if (current != document) {
+                appendText(document, current, reader.getText(), Node.TEXT_NODE);
+              }
+              break;
+            case XMLStreamConstants.CDATA:
+              appendText(document, current, reader.getText(), Node.CDATA_SECTION_NODE);
+              break;
+            default:
+              break;
+          }
+        }
+      } finally {
+        reader.close();
+      }
+      return document;
+    } catch (Exception e) {
+      throw new BuilderException("Error creating document instance.  Cause: " + e, e);
+    }
+  }
+
+  private static void appendText(Document document, Node parent, String text, short type) {
+    // the reader may split a text in several events
+    Node last = parent.getLastChild();
+    if (last != null && last.getNodeType() == type) {
+      ((Text) last).appendData(text);
+    } else if (type == Node.CDATA_SECTION_NODE) {
+      parent.appendChild(document.createCDATASection(text));
+    } else {
+      parent.appendChild(document.createTextNode(text));
+    }
+  }
+
+  private static String qualifiedName(String prefix, String localName) {
+    return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+
+  private static XMLInputFactory newInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+    if (factory.isPropertySupported(REPORT_CDATA_EVENT)) {
+      factory.setProperty(REPORT_CDATA_EVENT, true);
+    }
+    return factory;
+  }
+
+}
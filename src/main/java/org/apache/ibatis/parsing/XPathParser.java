@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2019 the original author or authors.
+ *    Copyright 2009-2020 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 
@@ -200,6 +201,13 @@ public class XPathParser {
 
   public List<XNode> evalNodes(Object root, String expression) {
     List<XNode> xnodes = new ArrayList<>();
+    List<Node> elements = selectElements(root, expression);
+    if (elements != null) {
+      for (Node element : elements) {
+        xnodes.add(new XNode(this, element, variables));
+      }
+      return xnodes;
+    }
     NodeList nodes = (NodeList) evaluate(expression, root, XPathConstants.NODESET);
     for (int i = 0; i < nodes.getLength(); i++) {
       xnodes.add(new XNode(this, nodes.item(i), variables));
@@ -212,13 +220,98 @@ public class XPathParser {
   }
 
   public XNode evalNode(Object root, String expression) {
-    Node node = (Node) evaluate(expression, root, XPathConstants.NODE);
+    Node node;
+    List<Node> elements = selectElements(root, expression);
+    if (elements != null) {
+      node = elements.isEmpty() ? null : elements.get(0);
+    } else {
+      node = (Node) evaluate(expression, root, XPathConstants.NODE);
+    }
     if (node == null) {
       return null;
     }
     return new XNode(this, node, variables);
   }
 
+  /**
+   * Selects the elements of a path made only of element names, such as <code>/mapper/resultMap</code>,
+   * <code>selectKey</code> or <code>select|insert|update|delete</code>, by walking the children of the nodes. The XPath
+   * engine of the JDK builds a model of the whole document on each evaluation, which makes loading large mapper XML
+   * files quadratic.
+   *
+   * @return the elements in document order, or <code>null</code> if the expression needs to be evaluated by XPath
+   */
+  private static List<Node> selectElements(Object root, String expression) {
+    if (!(root instanceof Node)) {
+      return null;
+    }
+    Node context = (Node) root;
+    String path = expression;
+    if (path.startsWith("/")) {
+      context = context.getNodeType() == Node.DOCUMENT_NODE ? context : context.getOwnerDocument();
+      path = path.substring(1);
+    }
+    if (context == null) {
+      return null;
+    }
+    String[] names;
+    String[] steps;
+    if (path.indexOf('|') >= 0) {
+      // only alternatives of child elements, as in select|insert|update|delete
+      if (context != root || path.indexOf('/') >= 0) {
+        return null;
+      }
+      names = path.split("\\|", -1);
+      steps = new String[] { null };
+    } else {
+      steps = path.split("/", -1);
+      names = steps;
+    }
+    for (String name : names) {
+      if (!isElementName(name)) {
+        return null;
+      }
+    }
+    List<Node> nodes = Collections.singletonList(context);
+    for (String step : steps) {
+      List<Node> children = new ArrayList<>();
+      for (Node node : nodes) {
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+          if (child.getNodeType() == Node.ELEMENT_NODE && matches(child.getNodeName(), step, names)) {
+            children.add(child);
+          }
+        }
+      }
+      nodes = children;
+    }
+    return nodes;
+  }
+
+  private static boolean matches(String nodeName, String step, String[] names) {
+    if (step != null) {
+      return step.equals(nodeName);
+    }
+    for (String name : names) {
+      if (name.equals(nodeName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isElementName(String name) {
+    if (name.isEmpty() || !(Character.isLetter(name.charAt(0)) || name.charAt(0) == '_')) {
+      return false;
+    }
+    for (int i = 1; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (!(Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private Object evaluate(String expression, Object root, QName returnType) {
     try {
       return xpath.evaluate(expression, root, returnType);
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2019 the original author or authors.
+ *    Copyright 2009-2020 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -18,8 +18,11 @@ package org.apache.ibatis.reflection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.apache.ibatis.reflection.invoker.InvokerType;
+
 public class DefaultReflectorFactory implements ReflectorFactory {
   private boolean classCacheEnabled = true;
+  private InvokerType invokerType = InvokerType.REFLECTION;
   private final ConcurrentMap<Class<?>, Reflector> reflectorMap = new ConcurrentHashMap<>();
 
   public DefaultReflectorFactory() {
@@ -35,13 +38,31 @@ public class DefaultReflectorFactory implements ReflectorFactory {
     this.classCacheEnabled = classCacheEnabled;
   }
 
+  public InvokerType getInvokerType() {
+    return invokerType;
+  }
+
+  /**
+   * Sets how the reflectors access the properties. The reflectors already cached are discarded.
+   *
+   * @param invokerType
+   *          the invoker type, {@link InvokerType#REFLECTION} by default
+   * @since 3.5.6
+   */
+  public void setInvokerType(InvokerType invokerType) {
+    if (this.invokerType != invokerType) {
+      this.invokerType = invokerType;
+      reflectorMap.clear();
+    }
+  }
+
   @Override
   public Reflector findForClass(Class<?> type) {
     if (classCacheEnabled) {
       // synchronized (type) removed see issue #461
-      return reflectorMap.computeIfAbsent(type, Reflector::new);
+      return reflectorMap.computeIfAbsent(type, t -> new Reflector(t, invokerType));
     } else {
-      return new Reflector(type);
+      return new Reflector(type, invokerType);
     }
   }
 
@@ -0,0 +1,43 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+/**
+ * Specifies how the {@link org.apache.ibatis.reflection.Reflector} accesses properties.
+ *
+ * @since 3.5.6
+ */
+public enum InvokerType {
+
+  /**
+   * Through {@link java.lang.reflect.Method#invoke(Object, Object...)}, {@link java.lang.reflect.Field#get(Object)}
+   * and {@link java.lang.reflect.Field#set(Object, Object)} (default).
+   */
+  REFLECTION,
+
+  /**
+   * Through method handles, which avoid the argument array and access checks of each reflective call.
+   */
+  METHOD_HANDLE,
+
+  /**
+   * Through functional interfaces generated with {@link java.lang.invoke.LambdaMetafactory} for the getter and setter
+   * methods, which the JIT compiler can inline like a direct call, and through method handles for fields. Each
+   * accessor is a generated class, so it also uses more metaspace.
+   */
+  LAMBDA
+
+}
@@ -0,0 +1,176 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * Creates the invokers of an {@link InvokerType}. When the type cannot access a member, for example because its
+ * module is not open or a security manager forbids it, this falls back to a method handle and then to reflection,
+ * which fails on invocation as before.
+ *
+ * @since 3.5.6
+ */
+public final class Invokers {
+
+  private static final int ALLOWED_MODES = MethodHandles.Lookup.PRIVATE | MethodHandles.Lookup.PROTECTED
+      | MethodHandles.Lookup.PACKAGE | MethodHandles.Lookup.PUBLIC;
+  private static final Constructor<Lookup> lookupConstructor;
+  private static final Method privateLookupInMethod;
+
+  static {
+    Method privateLookupIn;
+    try {
+      privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+    } catch (NoSuchMethodException e) {
+      privateLookupIn = null;
+    }
+    privateLookupInMethod = privateLookupIn;
+
+    Constructor<Lookup> lookup = null;
+    if (privateLookupInMethod == null) {
+      // JDK 1.8
+      try {
+        lookup = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+        lookup.setAccessible(true);
+      } catch (Exception e) {
+        lookup = null;
+      }
+    }
+    lookupConstructor = lookup;
+  }
+
+  private Invokers() {
+    // Prevent Instantiation of Static Class
+  }
+
+  public static MethodInvoker newMethodInvoker(Method method, InvokerType invokerType) {
+    if (Modifier.isStatic(method.getModifiers())) {
+      // the handle would not take the target
+      return new MethodInvoker(method);
+    }
+    if (invokerType == InvokerType.LAMBDA) {
+      MethodInvoker invoker = newLambdaInvoker(method);
+      if (invoker != null) {
+        return invoker;
+      }
+    }
+    if (invokerType != InvokerType.REFLECTION) {
+      MethodHandle handle = unreflect(method);
+      if (handle != null) {
+        return new MethodHandleMethodInvoker(method, handle);
+      }
+    }
+    return new MethodInvoker(method);
+  }
+
+  public static GetFieldInvoker newGetFieldInvoker(Field field, InvokerType invokerType) {
+    if (invokerType != InvokerType.REFLECTION && !Modifier.isStatic(field.getModifiers()) && makeAccessible(field)) {
+      try {
+        return new MethodHandleGetFieldInvoker(field, MethodHandles.lookup().unreflectGetter(field));
+      } catch (IllegalAccessException e) {
+        // fall back to reflection
+      }
+    }
+    return new GetFieldInvoker(field);
+  }
+
+  public static SetFieldInvoker newSetFieldInvoker(Field field, InvokerType invokerType) {
+    if (invokerType != InvokerType.REFLECTION && !Modifier.isStatic(field.getModifiers()) && makeAccessible(field)) {
+      try {
+        return new MethodHandleSetFieldInvoker(field, MethodHandles.lookup().unreflectSetter(field));
+      } catch (IllegalAccessException e) {
+        // fall back to reflection, which can set final fields
+      }
+    }
+    return new SetFieldInvoker(field);
+  }
+
+  private static MethodHandle unreflect(Method method) {
+    if (!makeAccessible(method)) {
+      return null;
+    }
+    try {
+      return MethodHandles.lookup().unreflect(method);
+    } catch (IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  private static MethodInvoker newLambdaInvoker(Method method) {
+    try {
+      Lookup lookup = privateLookupIn(method.getDeclaringClass());
+      if (lookup == null) {
+        return null;
+      }
+      MethodHandle handle = lookup.unreflect(method);
+      if (method.getParameterTypes().length == 0) {
+        CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+            MethodType.methodType(Object.class, Object.class), handle, handle.type().wrap());
+        @SuppressWarnings("unchecked")
+        Function<Object, Object> getter = (Function<Object, Object>) site.getTarget().invoke();
+        return new LambdaGetterInvoker(method, getter);
+      } else {
+        CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+            MethodType.methodType(void.class, Object.class, Object.class), handle,
+            handle.type().wrap().changeReturnType(void.class));
+        @SuppressWarnings("unchecked")
+        BiConsumer<Object, Object> setter = (BiConsumer<Object, Object>) site.getTarget().invoke();
+        return new LambdaSetterInvoker(method, setter);
+      }
+    } catch (Throwable t) {
+      // the class loader or module of the declaring class does not allow it
+      return null;
+    }
+  }
+
+  private static Lookup privateLookupIn(Class<?> declaringClass) throws ReflectiveOperationException {
+    if (privateLookupInMethod != null) {
+      return (Lookup) privateLookupInMethod.invoke(null, declaringClass, MethodHandles.lookup());
+    } else if (lookupConstructor != null) {
+      return lookupConstructor.newInstance(declaringClass, ALLOWED_MODES);
+    }
+    return null;
+  }
+
+  private static boolean makeAccessible(AccessibleObject member) {
+    if (!Reflector.canControlMemberAccessible()) {
+      return false;
+    }
+    try {
+      member.setAccessible(true);
+      return true;
+    } catch (RuntimeException e) {
+      // InaccessibleObjectException since Java 9
+      return false;
+    }
+  }
+
+}
@@ -0,0 +1,46 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+
+/**
+ * Invokes a setter method through a generated {@link BiConsumer}.
+ *
+ * @since 3.5.6
+ */
+public class LambdaSetterInvoker extends MethodInvoker {
+
+  private final BiConsumer<Object, Object> setter;
+
+  public LambdaSetterInvoker(Method method, BiConsumer<Object, Object> setter) {
+    super(method);
+    this.setter = setter;
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws InvocationTargetException {
+    try {
+      setter.accept(target, args[0]);
+      return null;
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+  }
+
+}
@@ -0,0 +1,49 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Invokes a getter or setter method through a method handle.
+ *
+ * @since 3.5.6
+ */
+public class MethodHandleMethodInvoker extends MethodInvoker {
+
+  private final MethodHandle handle;
+  private final boolean setter;
+
+  public MethodHandleMethodInvoker(Method method, MethodHandle handle) {
+    super(method);
+    this.setter = method.getParameterTypes().length == 1;
+    this.handle = handle.asFixedArity().asType(setter ? MethodType.methodType(Object.class, Object.class, Object.class)
+        : MethodType.methodType(Object.class, Object.class));
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws InvocationTargetException {
+    try {
+      return setter ? handle.invokeExact(target, args[0]) : handle.invokeExact(target);
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+  }
+
+}
@@ -0,0 +1,49 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Writes a field through a method handle.
+ *
+ * @since 3.5.6
+ */
+public class MethodHandleSetFieldInvoker extends SetFieldInvoker {
+
+  private final MethodHandle setter;
+
+  public MethodHandleSetFieldInvoker(Field field, MethodHandle setter) {
+    super(field);
+    this.setter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) {
+    try {
+      setter.invokeExact(target, args[0]);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      // cannot happen, writing a field throws no checked exception
+      throw new IllegalStateException(t);
+    }
+    return null;
+  }
+
+}
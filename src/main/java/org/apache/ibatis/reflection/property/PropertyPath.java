@@ -0,0 +1,231 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.property;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+
+/**
+ * A property expression such as <code>order.customer.address[0].city</code>, tokenized once and cached, that reads
+ * and writes the property of a {@link MetaObject} as {@link MetaObject#getValue(String)} and
+ * {@link MetaObject#setValue(String, Object)} do.
+ * <p>
+ * The intermediate values that are plain beans are accessed directly through the invoker of their
+ * {@link org.apache.ibatis.reflection.Reflector}, which each segment of the path caches for the last class it saw,
+ * instead of through a new {@link MetaObject}. Maps, collections, indexed properties and objects with a custom
+ * {@link ObjectWrapper} still go through their wrapper.
+ *
+ * @since 3.5.6
+ */
+public final class PropertyPath {
+
+  private static final int MAX_CACHED_PATHS = 4096;
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+  private static final Map<String, PropertyPath> paths = new ConcurrentHashMap<>();
+
+  private final String expression;
+  private final Segment[] segments;
+
+  private PropertyPath(String expression) {
+    this.expression = expression;
+    List<Segment> list = new ArrayList<>();
+    String remaining = expression;
+    PropertyTokenizer prop = new PropertyTokenizer(remaining);
+    while (true) {
+      list.add(new Segment(remaining, prop));
+      if (!prop.hasNext()) {
+        break;
+      }
+      remaining = prop.getChildren();
+      prop = prop.next();
+    }
+    this.segments = list.toArray(new Segment[0]);
+  }
+
+  /**
+   * Returns the compiled path of an expression. The paths are cached up to a limit, past which they are compiled on
+   * every call.
+   *
+   * @param expression
+   *          the property expression
+   * @return the path
+   */
+  public static PropertyPath compile(String expression) {
+    PropertyPath path = paths.get(expression);
+    if (path == null) {
+      path = new PropertyPath(expression);
+      if (paths.size() < MAX_CACHED_PATHS) {
+        paths.putIfAbsent(expression, path);
+      }
+    }
+    return path;
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  public Object getValue(MetaObject metaObject) {
+    MetaObject current = metaObject;
+    Object bean = null;
+    for (int i = 0;; i++) {
+      Segment segment = segments[i];
+      Object value = current != null ? current.getObjectWrapper().get(segment.indexed)
+          : segment.getBeanProperty(bean, metaObject.getReflectorFactory());
+      if (value == null || i == segments.length - 1) {
+        return value;
+      }
+      if (isBean(value, segments[i + 1], metaObject)) {
+        current = null;
+        bean = value;
+      } else {
+        current = newMetaObject(value, metaObject);
+      }
+    }
+  }
+
+  public void setValue(MetaObject metaObject, Object value) {
+    MetaObject current = metaObject;
+    Object bean = null;
+    final int last = segments.length - 1;
+    for (int i = 0; i < last; i++) {
+      Segment segment = segments[i];
+      Object child = current != null ? current.getObjectWrapper().get(segment.indexed)
+          : segment.getBeanProperty(bean, metaObject.getReflectorFactory());
+      if (child == null) {
+        if (value == null) {
+          // don't instantiate child path if value is null
+          return;
+        }
+        if (current == null) {
+          current = newMetaObject(bean, metaObject);
+        }
+        current = current.getObjectWrapper().instantiatePropertyValue(segment.remaining, segment.prop,
+            metaObject.getObjectFactory());
+      } else if (isBean(child, segments[i + 1], metaObject)) {
+        current = null;
+        bean = child;
+      } else {
+        current = newMetaObject(child, metaObject);
+      }
+    }
+    if (current != null) {
+      current.getObjectWrapper().set(segments[last].indexed, value);
+    } else {
+      segments[last].setBeanProperty(bean, value, metaObject.getReflectorFactory());
+    }
+  }
+
+  private static boolean isBean(Object value, Segment next, MetaObject metaObject) {
+    // the same objects MetaObject wraps in a BeanWrapper
+    return next.indexed.getIndex() == null && !(value instanceof ObjectWrapper) && !(value instanceof Map)
+        && !(value instanceof Collection) && !metaObject.getObjectWrapperFactory().hasWrapperFor(value);
+  }
+
+  private static MetaObject newMetaObject(Object value, MetaObject metaObject) {
+    return MetaObject.forObject(value, metaObject.getObjectFactory(), metaObject.getObjectWrapperFactory(),
+        metaObject.getReflectorFactory());
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+  private static final class Segment {
+    // the path from this segment on, with the tokenizer MetaObject would use for it
+    private final String remaining;
+    private final PropertyTokenizer prop;
+    // this segment alone
+    private final PropertyTokenizer indexed;
+    private volatile Accessor getter;
+    private volatile Accessor setter;
+
+    private Segment(String remaining, PropertyTokenizer prop) {
+      this.remaining = remaining;
+      this.prop = prop;
+      this.indexed = prop.hasNext() ? new PropertyTokenizer(prop.getIndexedName()) : prop;
+    }
+
+    private Object getBeanProperty(Object bean, ReflectorFactory reflectorFactory) {
+      String name = indexed.getName();
+      try {
+        Accessor accessor = getter;
+        if (accessor == null || !accessor.matches(bean.getClass(), reflectorFactory)) {
+          accessor = new Accessor(bean.getClass(), reflectorFactory,
+              reflectorFactory.findForClass(bean.getClass()).getGetInvoker(name));
+          getter = accessor;
+        }
+        try {
+          return accessor.invoker.invoke(bean, NO_ARGUMENTS);
+        } catch (Throwable t) {
+          throw ExceptionUtil.unwrapThrowable(t);
+        }
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new ReflectionException("Could not get property '" + name + "' from " + bean.getClass() + ".  Cause: " + t.toString(), t);
+      }
+    }
+
+    private void setBeanProperty(Object bean, Object value, ReflectorFactory reflectorFactory) {
+      String name = indexed.getName();
+      try {
+        Accessor accessor = setter;
+        if (accessor == null || !accessor.matches(bean.getClass(), reflectorFactory)) {
+          accessor = new Accessor(bean.getClass(), reflectorFactory,
+              reflectorFactory.findForClass(bean.getClass()).getSetInvoker(name));
+          setter = accessor;
+        }
+        Object[] params = {value};
+        try {
+          accessor.invoker.invoke(bean, params);
+        } catch (Throwable t) {
+          throw ExceptionUtil.unwrapThrowable(t);
+        }
+      } catch (Throwable t) {
+        throw new ReflectionException("Could not set property '" + name + "' of '" + bean.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+      }
+    }
+  }
+
+  private static final class Accessor {
+    private final Class<?> type;
+    private final ReflectorFactory reflectorFactory;
+    private final Invoker invoker;
+
+    private Accessor(Class<?> type, ReflectorFactory reflectorFactory, Invoker invoker) {
+      this.type = type;
+      this.reflectorFactory = reflectorFactory;
+      this.invoker = invoker;
+    }
+
+    private boolean matches(Class<?> type, ReflectorFactory reflectorFactory) {
+      return this.type == type && this.reflectorFactory == reflectorFactory;
+    }
+  }
+
+}
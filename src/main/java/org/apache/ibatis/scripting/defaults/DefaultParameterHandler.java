@@ -18,6 +18,7 @@ package org.apache.ibatis.scripting.defaults;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -30,7 +31,6 @@ import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeException;
 import org.apache.ibatis.type.TypeHandler;
-import org.apache.ibatis.type.TypeHandlerRegistry;
 
 /**
  * @author Clinton Begin
@@ -38,8 +38,6 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
  */
 public class DefaultParameterHandler implements ParameterHandler {
 
-  private final TypeHandlerRegistry typeHandlerRegistry;
-
   private final MappedStatement mappedStatement;
   private final Object parameterObject;
   private final BoundSql boundSql;
@@ -48,7 +46,6 @@ public class DefaultParameterHandler implements ParameterHandler {
   public DefaultParameterHandler(MappedStatement mappedStatement, Object parameterObject, BoundSql boundSql) {
     this.mappedStatement = mappedStatement;
     this.configuration = mappedStatement.getConfiguration();
-    this.typeHandlerRegistry = mappedStatement.getConfiguration().getTypeHandlerRegistry();
     this.parameterObject = parameterObject;
     this.boundSql = boundSql;
   }
@@ -63,6 +60,8 @@ public class DefaultParameterHandler implements ParameterHandler {
     ErrorContext.instance().activity("setting parameters").object(mappedStatement.getParameterMap().getId());
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     if (parameterMappings != null) {
+      ParameterBinder parameterBinder = parameterObject == null ? null : getParameterBinder(parameterObject.getClass());
+      MetaObject metaObject = null;
       for (int i = 0; i < parameterMappings.size(); i++) {
         ParameterMapping parameterMapping = parameterMappings.get(i);
         if (parameterMapping.getMode() != ParameterMode.OUT) {
@@ -72,11 +71,16 @@ public class DefaultParameterHandler implements ParameterHandler {
             value = boundSql.getAdditionalParameter(propertyName);
           } else if (parameterObject == null) {
             value = null;
-          } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+          } else if (parameterBinder.isTypeHandled()) {
             value = parameterObject;
           } else {
-            MetaObject metaObject = configuration.newMetaObject(parameterObject);
-            value = metaObject.getValue(propertyName);
+            value = parameterBinder.getValue(parameterObject, propertyName);
+            if (value == ParameterBinder.UNRESOLVED) {
+              if (metaObject == null) {
+                metaObject = configuration.newMetaObject(parameterObject);
+              }
+              value = metaObject.getValue(propertyName);
+            }
           }
           TypeHandler typeHandler = parameterMapping.getTypeHandler();
           JdbcType jdbcType = parameterMapping.getJdbcType();
@@ -93,4 +97,14 @@ public class DefaultParameterHandler implements ParameterHandler {
     }
   }
 
+  private ParameterBinder getParameterBinder(Class<?> parameterType) {
+    Map<Class<?>, ParameterBinder> parameterBinders = mappedStatement.getParameterBinders();
+    ParameterBinder parameterBinder = parameterBinders.get(parameterType);
+    if (parameterBinder == null) {
+      parameterBinder = new ParameterBinder(configuration, parameterType);
+      parameterBinders.putIfAbsent(parameterType, parameterBinder);
+    }
+    return parameterBinder;
+  }
+
 }
@@ -0,0 +1,177 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.defaults;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Reads the parameter values of a statement from parameter objects of one class.
+ * <p>
+ * The getters of each property path are resolved once and reused for every parameter object of the class, instead of
+ * wrapping each parameter object in a {@link org.apache.ibatis.reflection.MetaObject}. The values are read exactly
+ * as a {@link org.apache.ibatis.reflection.MetaObject} reads them; the paths that need its dynamic resolution (indexed
+ * properties, nested properties of maps, custom object wrappers, ...) are left to it.
+ * <p>
+ * Instances are thread safe and shared by all the executions of a {@link org.apache.ibatis.mapping.MappedStatement}.
+ *
+ * @see DefaultParameterHandler
+ * @since 3.5.6
+ */
+public final class ParameterBinder {
+
+  /**
+   * Marker for a value that must be read with a {@link org.apache.ibatis.reflection.MetaObject}.
+   */
+  public static final Object UNRESOLVED = new Object();
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+  private static final PropertyReader UNSUPPORTED = new PropertyReader(null, null);
+
+  private final ReflectorFactory reflectorFactory;
+  private final Class<?> parameterType;
+  private final boolean typeHandled;
+  private final boolean map;
+  private final boolean supported;
+  private final Map<String, PropertyReader> propertyReaders = new ConcurrentHashMap<>();
+
+  public ParameterBinder(Configuration configuration, Class<?> parameterType) {
+    this.reflectorFactory = configuration.getReflectorFactory();
+    this.parameterType = parameterType;
+    this.typeHandled = configuration.getTypeHandlerRegistry().hasTypeHandler(parameterType);
+    this.map = Map.class.isAssignableFrom(parameterType);
+    this.supported = configuration.getObjectWrapperFactory().getClass() == DefaultObjectWrapperFactory.class
+        && !ObjectWrapper.class.isAssignableFrom(parameterType)
+        && !Collection.class.isAssignableFrom(parameterType) && !parameterType.isArray();
+  }
+
+  /**
+   * Returns whether a type handler is registered for the parameter class, i.e. whether the parameter object is itself
+   * the value of every parameter.
+   *
+   * @return true if the parameter class has a type handler
+   */
+  public boolean isTypeHandled() {
+    return typeHandled;
+  }
+
+  /**
+   * Gets the value of a property of a parameter object.
+   *
+   * @param parameterObject
+   *          the parameter object, an instance of the class of this binder
+   * @param property
+   *          the property path
+   * @return the value, or {@link #UNRESOLVED} if it must be read with a {@link org.apache.ibatis.reflection.MetaObject}
+   */
+  public Object getValue(Object parameterObject, String property) {
+    if (!supported || property == null) {
+      return UNRESOLVED;
+    }
+    if (map) {
+      // same as MapWrapper for a property that is neither nested nor indexed
+      return isSimpleProperty(property) ? ((Map<?, ?>) parameterObject).get(property) : UNRESOLVED;
+    }
+    PropertyReader propertyReader = propertyReaders.get(property);
+    if (propertyReader == null) {
+      propertyReader = createPropertyReader(property);
+      propertyReaders.putIfAbsent(property, propertyReader);
+    }
+    return propertyReader == UNSUPPORTED ? UNRESOLVED : propertyReader.read(parameterObject);
+  }
+
+  private static boolean isSimpleProperty(String property) {
+    return property.indexOf('.') < 0 && property.indexOf('[') < 0;
+  }
+
+  private PropertyReader createPropertyReader(String property) {
+    List<String> names = new ArrayList<>();
+    List<Invoker> getters = new ArrayList<>();
+    Class<?> type = parameterType;
+    PropertyTokenizer prop = new PropertyTokenizer(property);
+    while (true) {
+      if (prop.getIndex() != null || !isBeanType(type)) {
+        return UNSUPPORTED;
+      }
+      Reflector reflector = reflectorFactory.findForClass(type);
+      if (!reflector.hasGetter(prop.getName())) {
+        // MetaObject reports the missing getter
+        return UNSUPPORTED;
+      }
+      names.add(prop.getName());
+      getters.add(reflector.getGetInvoker(prop.getName()));
+      if (!prop.hasNext()) {
+        break;
+      }
+      type = reflector.getGetterType(prop.getName());
+      prop = prop.next();
+    }
+    return new PropertyReader(names.toArray(new String[0]), getters.toArray(new Invoker[0]));
+  }
+
+  private static boolean isBeanType(Class<?> type) {
+    // the getters of other types depend on the runtime class of the value
+    return type != Object.class && !type.isArray() && !Map.class.isAssignableFrom(type)
+        && !Collection.class.isAssignableFrom(type) && !ObjectWrapper.class.isAssignableFrom(type);
+  }
+
+  private static final class PropertyReader {
+    private final String[] names;
+    private final Invoker[] getters;
+
+    PropertyReader(String[] names, Invoker[] getters) {
+      this.names = names;
+      this.getters = getters;
+    }
+
+    Object read(Object parameterObject) {
+      Object value = parameterObject;
+      for (int i = 0; i < getters.length && value != null; i++) {
+        value = get(value, i);
+      }
+      return value;
+    }
+
+    // same as BeanWrapper
+    private Object get(Object object, int i) {
+      try {
+        try {
+          return getters[i].invoke(object, NO_ARGUMENTS);
+        } catch (Throwable t) {
+          throw ExceptionUtil.unwrapThrowable(t);
+        }
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new ReflectionException("Could not get property '" + names[i] + "' from " + object.getClass() + ".  Cause: " + t.toString(), t);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,286 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * An OGNL expression compiled to direct property accessors.
+ * <p>
+ * Only the forms found in nearly all the <code>test</code> and <code>collection</code> attributes are supported: a
+ * property path (<code>user.name</code>), optionally compared with <code>null</code> or an empty string by
+ * <code>==</code>, <code>!=</code>, <code>eq</code> or <code>neq</code>, and such conditions combined with
+ * <code>and</code>, <code>or</code>, <code>&amp;&amp;</code> or <code>||</code>. The properties are read the same way
+ * OGNL reads them from the bindings of a {@link DynamicContext}.
+ * <p>
+ * Whenever the outcome could differ from OGNL (a <code>null</code> intermediate property, a collection or array in the
+ * path, a value that OGNL would coerce, an accessor that fails, ...) the evaluation returns {@link #UNRESOLVED} and
+ * the caller falls back to OGNL, which then also reports the errors.
+ *
+ * @see ExpressionEvaluator
+ */
+final class CompiledExpression {
+
+  static final Object UNRESOLVED = new Object();
+
+  private static final Set<String> OGNL_KEYWORDS = new HashSet<>(Arrays.asList("and", "or", "not", "in", "null", "true",
+      "false", "eq", "neq", "lt", "lte", "gt", "gte", "bor", "xor", "band", "shl", "shr", "ushr", "instanceof", "new"));
+  // names that OGNL resolves on maps without calling get()
+  private static final Set<String> OGNL_MAP_PROPERTIES = new HashSet<>(Arrays.asList("size", "isEmpty", "keys", "keySet", "values"));
+
+  private static final DynamicContext.ContextAccessor CONTEXT_ACCESSOR = new DynamicContext.ContextAccessor();
+
+  // disjunction of conjunctions
+  private final Condition[][] conditions;
+
+  private CompiledExpression(Condition[][] conditions) {
+    this.conditions = conditions;
+  }
+
+  /**
+   * Compiles an expression.
+   *
+   * @param expression
+   *          the OGNL expression
+   * @return the compiled expression, or <code>null</code> if the expression can only be evaluated by OGNL
+   */
+  static CompiledExpression compile(String expression) {
+    if (expression == null) {
+      return null;
+    }
+    List<String> tokens = tokenize(expression);
+    if (tokens == null || tokens.isEmpty()) {
+      return null;
+    }
+    List<Condition[]> disjunction = new ArrayList<>();
+    List<Condition> conjunction = new ArrayList<>();
+    int i = 0;
+    while (true) {
+      String[] path = parsePath(tokens.get(i++));
+      if (path == null) {
+        return null;
+      }
+      Condition condition;
+      if (i < tokens.size() && isComparison(tokens.get(i))) {
+        if (i + 1 >= tokens.size()) {
+          return null;
+        }
+        boolean negated = "!=".equals(tokens.get(i)) || "neq".equals(tokens.get(i));
+        String operand = tokens.get(i + 1);
+        if ("null".equals(operand)) {
+          condition = new Condition(path, Condition.NULL, negated);
+        } else if ("''".equals(operand) || "\"\"".equals(operand)) {
+          condition = new Condition(path, Condition.EMPTY_STRING, negated);
+        } else {
+          return null;
+        }
+        i += 2;
+      } else {
+        condition = new Condition(path, Condition.TRUTH, false);
+      }
+      conjunction.add(condition);
+      if (i == tokens.size()) {
+        break;
+      }
+      String operator = tokens.get(i++);
+      if (i == tokens.size()) {
+        return null;
+      }
+      if ("or".equals(operator) || "||".equals(operator)) {
+        disjunction.add(conjunction.toArray(new Condition[0]));
+        conjunction.clear();
+      } else if (!"and".equals(operator) && !"&&".equals(operator)) {
+        return null;
+      }
+    }
+    disjunction.add(conjunction.toArray(new Condition[0]));
+    return new CompiledExpression(disjunction.toArray(new Condition[0][]));
+  }
+
+  /**
+   * Returns whether the expression is a single property path, i.e. can be used as a value.
+   *
+   * @return true if the expression is a property path
+   */
+  boolean isPath() {
+    return conditions.length == 1 && conditions[0].length == 1 && conditions[0][0].comparison == Condition.TRUTH;
+  }
+
+  /**
+   * Evaluates the expression as a condition.
+   *
+   * @param context
+   *          the dynamic context
+   * @return {@link Boolean#TRUE}, {@link Boolean#FALSE} or {@link #UNRESOLVED}
+   */
+  Object evaluateBoolean(DynamicContext context) {
+    final boolean standalone = isPath();
+    for (Condition[] conjunction : conditions) {
+      Object result = Boolean.TRUE;
+      for (Condition condition : conjunction) {
+        result = condition.evaluate(context, standalone);
+        if (result != Boolean.TRUE) {
+          break;
+        }
+      }
+      if (result != Boolean.FALSE) {
+        return result;
+      }
+    }
+    return Boolean.FALSE;
+  }
+
+  /**
+   * Evaluates a property path expression.
+   *
+   * @param context
+   *          the dynamic context
+   * @return the value of the property, or {@link #UNRESOLVED}
+   */
+  Object evaluateValue(DynamicContext context) {
+    return conditions[0][0].getValue(context);
+  }
+
+  private static boolean isComparison(String token) {
+    return "==".equals(token) || "!=".equals(token) || "eq".equals(token) || "neq".equals(token);
+  }
+
+  private static String[] parsePath(String token) {
+    if (!Character.isJavaIdentifierStart(token.charAt(0))) {
+      return null;
+    }
+    String[] path = token.split("\\.", -1);
+    for (String name : path) {
+      if (name.isEmpty() || OGNL_KEYWORDS.contains(name)) {
+        return null;
+      }
+    }
+    return path;
+  }
+
+  private static List<String> tokenize(String expression) {
+    List<String> tokens = new ArrayList<>();
+    int length = expression.length();
+    int i = 0;
+    while (i < length) {
+      char c = expression.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (Character.isJavaIdentifierStart(c)) {
+        int start = i;
+        while (i < length && (Character.isJavaIdentifierPart(expression.charAt(i)) || expression.charAt(i) == '.')) {
+          i++;
+        }
+        tokens.add(expression.substring(start, i));
+      } else if (i + 1 < length && isOperator(expression.substring(i, i + 2))) {
+        tokens.add(expression.substring(i, i + 2));
+        i += 2;
+      } else {
+        // literals, parentheses, method calls, indexes, variables, ...
+        return null;
+      }
+    }
+    return tokens;
+  }
+
+  private static boolean isOperator(String token) {
+    return "==".equals(token) || "!=".equals(token) || "&&".equals(token) || "||".equals(token)
+        || "''".equals(token) || "\"\"".equals(token);
+  }
+
+  private static final class Condition {
+    static final int TRUTH = 0;
+    static final int NULL = 1;
+    static final int EMPTY_STRING = 2;
+
+    private final String[] path;
+    private final int comparison;
+    private final boolean negated;
+
+    Condition(String[] path, int comparison, boolean negated) {
+      this.path = path;
+      this.comparison = comparison;
+      this.negated = negated;
+    }
+
+    Object evaluate(DynamicContext context, boolean standalone) {
+      Object value = getValue(context);
+      if (value == UNRESOLVED) {
+        return UNRESOLVED;
+      }
+      boolean result;
+      if (comparison == NULL) {
+        result = value == null;
+      } else if (comparison == EMPTY_STRING) {
+        if (value != null && !(value instanceof String)) {
+          // OGNL would convert the operands
+          return UNRESOLVED;
+        }
+        result = "".equals(value);
+      } else if (value == null || value instanceof Boolean) {
+        result = value != null && (Boolean) value;
+      } else if (standalone && !(value instanceof Number) && !(value instanceof Character)) {
+        result = true;
+      } else {
+        // OGNL converts the operands of 'and' and 'or' with its own rules (e.g. "true" is true, "yes" is false)
+        return UNRESOLVED;
+      }
+      return result != negated ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    Object getValue(DynamicContext context) {
+      try {
+        Object value = CONTEXT_ACCESSOR.getProperty(null, context.getBindings(), path[0]);
+        for (int i = 1; i < path.length; i++) {
+          value = getProperty(value, path[i], context.getReflectorFactory());
+          if (value == UNRESOLVED) {
+            break;
+          }
+        }
+        return value;
+      } catch (Exception e) {
+        return UNRESOLVED;
+      }
+    }
+
+    private static Object getProperty(Object target, String name, ReflectorFactory reflectorFactory) throws Exception {
+      if (target == null || target instanceof Class || target instanceof Collection || target instanceof Iterator
+          || target instanceof Enumeration || target.getClass().isArray()) {
+        return UNRESOLVED;
+      }
+      if (target instanceof Map) {
+        return OGNL_MAP_PROPERTIES.contains(name) ? UNRESOLVED : ((Map<?, ?>) target).get(name);
+      }
+      Reflector reflector = reflectorFactory.findForClass(target.getClass());
+      if (!reflector.hasGetter(name)) {
+        return UNRESOLVED;
+      }
+      return reflector.getGetInvoker(name).invoke(target, null);
+    }
+  }
+
+}
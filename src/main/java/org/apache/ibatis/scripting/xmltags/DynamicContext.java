@@ -24,6 +24,7 @@ import ognl.OgnlRuntime;
 import ognl.PropertyAccessor;
 
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -39,10 +40,12 @@ public class DynamicContext {
   }
 
   private final ContextMap bindings;
+  private final ReflectorFactory reflectorFactory;
   private final StringJoiner sqlBuilder = new StringJoiner(" ");
   private int uniqueNumber = 0;
 
   public DynamicContext(Configuration configuration, Object parameterObject) {
+    reflectorFactory = configuration.getReflectorFactory();
     if (parameterObject != null && !(parameterObject instanceof Map)) {
       MetaObject metaObject = configuration.newMetaObject(parameterObject);
       boolean existsTypeHandler = configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass());
@@ -58,6 +61,10 @@ public class DynamicContext {
     return bindings;
   }
 
+  ReflectorFactory getReflectorFactory() {
+    return reflectorFactory;
+  }
+
   public void bind(String name, Object value) {
     bindings.put(name, value);
   }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2019 the original author or authors.
+ *    Copyright 2009-2020 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,9 +15,19 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.builder.ParameterExpression;
 import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.GenericTokenParser;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -25,8 +35,16 @@ import org.apache.ibatis.session.Configuration;
  */
 public class DynamicSqlSource implements SqlSource {
 
+  // statements usually generate a handful of distinct SQL texts, but ${} substitutions can make them unbounded
+  private static final int MAX_CACHED_SQL_SOURCES = 256;
+
   private final Configuration configuration;
   private final SqlNode rootSqlNode;
+  // #{} properties of each generated SQL text, whose binding types are part of the parse cache key
+  private final Map<CacheKey, String[]> parameterProperties = new ConcurrentHashMap<>();
+  private final Map<CacheKey, SqlSource> parseCache = new ConcurrentHashMap<>();
+  private final LongAdder parseCacheHits = new LongAdder();
+  private final LongAdder parseCacheMisses = new LongAdder();
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
     this.configuration = configuration;
@@ -37,12 +55,97 @@ public class DynamicSqlSource implements SqlSource {
   public BoundSql getBoundSql(Object parameterObject) {
     DynamicContext context = new DynamicContext(configuration, parameterObject);
     rootSqlNode.apply(context);
-    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+    SqlSource sqlSource = getSqlSource(context.getSql(), parameterType, context.getBindings());
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     context.getBindings().forEach(boundSql::setAdditionalParameter);
     return boundSql;
   }
 
+  /**
+   * Gets the number of generated SQL texts whose parsing was found in the cache.
+   *
+   * @return the parse cache hit count
+   * @since 3.5.6
+   */
+  public long getParseCacheHitCount() {
+    return parseCacheHits.sum();
+  }
+
+  /**
+   * Gets the number of generated SQL texts that had to be parsed.
+   *
+   * @return the parse cache miss count
+   * @since 3.5.6
+   */
+  public long getParseCacheMissCount() {
+    return parseCacheMisses.sum();
+  }
+
+  private SqlSource getSqlSource(String sql, Class<?> parameterType, Map<String, Object> bindings) {
+    CacheKey sqlKey = new CacheKey(2);
+    sqlKey.update(sql);
+    sqlKey.update(parameterType);
+    String[] properties = parameterProperties.get(sqlKey);
+    if (properties != null) {
+      SqlSource sqlSource = parseCache.get(createParseKey(sql, parameterType, properties, bindings));
+      if (sqlSource != null) {
+        parseCacheHits.increment();
+        return sqlSource;
+      }
+    }
+    parseCacheMisses.increment();
+    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+    SqlSource sqlSource = sqlSourceParser.parse(sql, parameterType, bindings);
+    if (parseCache.size() < MAX_CACHED_SQL_SOURCES) {
+      if (properties == null) {
+        properties = parseParameterProperties(sql);
+        parameterProperties.putIfAbsent(sqlKey, properties);
+      }
+      parseCache.putIfAbsent(createParseKey(sql, parameterType, properties, bindings), sqlSource);
+    }
+    return sqlSource;
+  }
+
+  private static String[] parseParameterProperties(String sql) {
+    List<String> properties = new ArrayList<>();
+    GenericTokenParser parser = new GenericTokenParser("#{", "}", content -> {
+      properties.add(new ParameterExpression(content).get("property"));
+      return "?";
+    });
+    parser.parse(sql);
+    return properties.toArray(new String[0]);
+  }
+
+  /**
+   * The parameter mappings depend on the parameter type and, for the properties bound in the context (foreach items,
+   * bind variables, ...), on the types of the bound values, resolved the same way as {@link SqlSourceBuilder} does.
+   */
+  private CacheKey createParseKey(String sql, Class<?> parameterType, String[] properties, Map<String, Object> bindings) {
+    CacheKey parseKey = new CacheKey(2 + properties.length);
+    parseKey.update(sql);
+    parseKey.update(parameterType);
+    final boolean plainBindings = !configuration.getObjectWrapperFactory().hasWrapperFor(bindings);
+    MetaObject metaBindings = null;
+    for (String property : properties) {
+      Class<?> bindingType = null;
+      if (property != null && plainBindings && property.indexOf('.') < 0 && property.indexOf('[') < 0) {
+        // same as MapWrapper, without creating a MetaObject
+        if (bindings.containsKey(property)) {
+          Object value = bindings.get(property);
+          bindingType = value == null ? Object.class : value.getClass();
+        }
+      } else if (property != null) {
+        if (metaBindings == null) {
+          metaBindings = configuration.newMetaObject(bindings);
+        }
+        if (metaBindings.hasGetter(property)) {
+          bindingType = metaBindings.getGetterType(property);
+        }
+      }
+      parseKey.update(bindingType);
+    }
+    return parseKey;
+  }
+
 }
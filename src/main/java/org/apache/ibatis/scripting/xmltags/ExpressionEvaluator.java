@@ -29,7 +29,32 @@ import org.apache.ibatis.builder.BuilderException;
 public class ExpressionEvaluator {
 
   public boolean evaluateBoolean(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    return toBoolean(OgnlCache.getValue(expression, parameterObject));
+  }
+
+  /**
+   * Evaluates a condition with its compiled form when it can decide, with OGNL otherwise.
+   *
+   * @param expression
+   *          the OGNL expression
+   * @param compiledExpression
+   *          the compiled expression, may be <code>null</code>
+   * @param context
+   *          the dynamic context
+   * @return the condition value
+   * @since 3.5.6
+   */
+  boolean evaluateBoolean(String expression, CompiledExpression compiledExpression, DynamicContext context) {
+    if (compiledExpression != null) {
+      Object value = compiledExpression.evaluateBoolean(context);
+      if (value != CompiledExpression.UNRESOLVED) {
+        return (Boolean) value;
+      }
+    }
+    return evaluateBoolean(expression, context.getBindings());
+  }
+
+  private boolean toBoolean(Object value) {
     if (value instanceof Boolean) {
       return (Boolean) value;
     }
@@ -40,7 +65,32 @@ public class ExpressionEvaluator {
   }
 
   public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    return toIterable(expression, OgnlCache.getValue(expression, parameterObject));
+  }
+
+  /**
+   * Evaluates a collection with its compiled form when it can decide, with OGNL otherwise.
+   *
+   * @param expression
+   *          the OGNL expression
+   * @param compiledExpression
+   *          the compiled expression, may be <code>null</code>
+   * @param context
+   *          the dynamic context
+   * @return the iterable
+   * @since 3.5.6
+   */
+  Iterable<?> evaluateIterable(String expression, CompiledExpression compiledExpression, DynamicContext context) {
+    if (compiledExpression != null && compiledExpression.isPath()) {
+      Object value = compiledExpression.evaluateValue(context);
+      if (value != CompiledExpression.UNRESOLVED) {
+        return toIterable(expression, value);
+      }
+    }
+    return evaluateIterable(expression, context.getBindings());
+  }
+
+  private Iterable<?> toIterable(String expression, Object value) {
     if (value == null) {
       throw new BuilderException("The expression '" + expression + "' evaluated to a null value.");
     }
@@ -28,6 +28,7 @@ public class ForEachSqlNode implements SqlNode {
 
   private final ExpressionEvaluator evaluator;
   private final String collectionExpression;
+  private final CompiledExpression compiledCollectionExpression;
   private final SqlNode contents;
   private final String open;
   private final String close;
@@ -39,6 +40,7 @@ public class ForEachSqlNode implements SqlNode {
   public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator) {
     this.evaluator = new ExpressionEvaluator();
     this.collectionExpression = collectionExpression;
+    this.compiledCollectionExpression = CompiledExpression.compile(collectionExpression);
     this.contents = contents;
     this.open = open;
     this.close = close;
@@ -50,8 +52,7 @@ public class ForEachSqlNode implements SqlNode {
 
   @Override
   public boolean apply(DynamicContext context) {
-    Map<String, Object> bindings = context.getBindings();
-    final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
+    final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, compiledCollectionExpression, context);
     if (!iterable.iterator().hasNext()) {
       return true;
     }
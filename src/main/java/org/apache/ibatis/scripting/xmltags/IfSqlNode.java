@@ -21,17 +21,19 @@ package org.apache.ibatis.scripting.xmltags;
 public class IfSqlNode implements SqlNode {
   private final ExpressionEvaluator evaluator;
   private final String test;
+  private final CompiledExpression compiledTest;
   private final SqlNode contents;
 
   public IfSqlNode(SqlNode contents, String test) {
     this.test = test;
+    this.compiledTest = CompiledExpression.compile(test);
     this.contents = contents;
     this.evaluator = new ExpressionEvaluator();
   }
 
   @Override
   public boolean apply(DynamicContext context) {
-    if (evaluator.evaluateBoolean(test, context.getBindings())) {
+    if (evaluator.evaluateBoolean(test, compiledTest, context)) {
       contents.apply(context);
       return true;
     }
@@ -17,9 +17,11 @@ package org.apache.ibatis.session;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -30,16 +32,24 @@ import java.util.function.BiFunction;
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
 import org.apache.ibatis.builder.IncompleteElementException;
+import org.apache.ibatis.builder.MapperLoadTime;
 import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheTagIndex;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.impl.PersistentCache;
+import org.apache.ibatis.cache.impl.SharedCache;
+import org.apache.ibatis.cache.stats.CacheStatistics;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
@@ -81,6 +91,7 @@ import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.InvokerType;
 import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
@@ -114,6 +125,9 @@ public class Configuration {
   protected boolean useActualParamName = true;
   protected boolean returnInstanceForEmptyRow;
   protected boolean shrinkWhitespacesInSql;
+  protected boolean compiledRowMappingEnabled;
+  protected boolean retainBatchParameters = true;
+  protected boolean tableAwareCacheInvalidation;
 
   protected String logPrefix;
   protected Class<? extends Log> logImpl;
@@ -124,6 +138,17 @@ public class Configuration {
   protected Set<String> lazyLoadTriggerMethods = new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString"));
   protected Integer defaultStatementTimeout;
   protected Integer defaultFetchSize;
+  protected Integer batchFlushRows;
+  protected Integer batchFlushBytes;
+  protected Integer batchFlushPipelineDepth;
+  protected Boolean batchFlushPipelineThreadSafe;
+  protected int nestedSelectBatchSize = 100;
+  protected Integer localCacheSize;
+  protected Integer localCacheMaxBytes;
+  protected InvokerType invokerType = InvokerType.REFLECTION;
+  protected boolean parallelMapperParsing;
+  protected String mapperSnapshotFile;
+  protected boolean streamingMapperParsing;
   protected ResultSetType defaultResultSetType;
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
   protected AutoMappingBehavior autoMappingBehavior = AutoMappingBehavior.PARTIAL;
@@ -156,11 +181,14 @@ public class Configuration {
       .conflictMessageProducer((savedValue, targetValue) ->
           ". please check " + savedValue.getResource() + " and " + targetValue.getResource());
   protected final Map<String, Cache> caches = new StrictMap<>("Caches collection");
+  protected final Map<String, CacheTagIndex> cacheTagIndexes = new HashMap<>();
+  protected final Map<String, CacheStatistics> cacheStatistics = new HashMap<>();
   protected final Map<String, ResultMap> resultMaps = new StrictMap<>("Result Maps collection");
   protected final Map<String, ParameterMap> parameterMaps = new StrictMap<>("Parameter Maps collection");
   protected final Map<String, KeyGenerator> keyGenerators = new StrictMap<>("Key Generators collection");
 
   protected final Set<String> loadedResources = new HashSet<>();
+  protected final Map<String, MapperLoadTime> mapperLoadTimes = new LinkedHashMap<>();
   protected final Map<String, XNode> sqlFragments = new StrictMap<>("XML fragments parsed from previous mappers");
 
   protected final Collection<XMLStatementBuilder> incompleteStatements = new LinkedList<>();
@@ -186,9 +214,14 @@ public class Configuration {
 
     typeAliasRegistry.registerAlias("JNDI", JndiDataSourceFactory.class);
     typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_POOLED", ConcurrentPooledDataSourceFactory.class);
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT", ConcurrentCache.class);
+    typeAliasRegistry.registerAlias("OFFHEAP", OffHeapCache.class);
+    typeAliasRegistry.registerAlias("PERSISTENT", PersistentCache.class);
+    typeAliasRegistry.registerAlias("SHARED", SharedCache.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
@@ -297,6 +330,357 @@ public class Configuration {
     this.shrinkWhitespacesInSql = shrinkWhitespacesInSql;
   }
 
+  /**
+   * Gets whether simple result maps are mapped by row mappers compiled per result set layout.
+   *
+   * @return <code>true</code> if compiled row mapping is enabled
+   * @since 3.5.6
+   */
+  public boolean isCompiledRowMappingEnabled() {
+    return compiledRowMappingEnabled;
+  }
+
+  /**
+   * Sets whether simple result maps are mapped by row mappers compiled per result set layout.
+   * <p>
+   * Result maps that use discriminators, nested result maps, nested selects, multiple result sets,
+   * constructor mappings or nested properties are always mapped by the generic path.
+   *
+   * @param compiledRowMappingEnabled
+   *          <code>true</code> to enable compiled row mapping
+   * @since 3.5.6
+   */
+  public void setCompiledRowMappingEnabled(boolean compiledRowMappingEnabled) {
+    this.compiledRowMappingEnabled = compiledRowMappingEnabled;
+  }
+
+  /**
+   * Gets the number of rows after which the batch executor flushes its pending statements.
+   *
+   * @return the row limit, or <code>null</code> if the pending statements are only flushed on demand
+   * @since 3.5.6
+   */
+  public Integer getBatchFlushRows() {
+    return batchFlushRows;
+  }
+
+  /**
+   * Sets the number of rows after which the batch executor flushes its pending statements.
+   * <p>
+   * The next call to <code>flushStatements()</code> returns only a summary of each automatic flush: it has no
+   * parameter objects and a single update count that is the total of the batch. The complete results are only
+   * returned for the statements that were still pending.
+   *
+   * @param batchFlushRows
+   *          the row limit, or <code>null</code> to flush only on demand
+   * @since 3.5.6
+   */
+  public void setBatchFlushRows(Integer batchFlushRows) {
+    this.batchFlushRows = batchFlushRows;
+  }
+
+  /**
+   * Gets the estimated size in bytes after which the batch executor flushes its pending statements.
+   *
+   * @return the byte limit, or <code>null</code> if the size of the pending statements is not tracked
+   * @since 3.5.6
+   */
+  public Integer getBatchFlushBytes() {
+    return batchFlushBytes;
+  }
+
+  /**
+   * Sets the estimated size in bytes after which the batch executor flushes its pending statements.
+   * <p>
+   * The size of a row is estimated from the length of the parameter values of a sample of the rows, so this is an
+   * approximation of what the driver buffers and sends, not an exact figure. The results of the automatic flushes
+   * are summarized as described in {@link #setBatchFlushRows(Integer)}.
+   *
+   * @param batchFlushBytes
+   *          the byte limit, or <code>null</code> to not track the size of the pending statements
+   * @since 3.5.6
+   */
+  public void setBatchFlushBytes(Integer batchFlushBytes) {
+    this.batchFlushBytes = batchFlushBytes;
+  }
+
+  /**
+   * Gets the number of automatically flushed batches that may wait for the background flusher of the batch executor.
+   *
+   * @return the pipeline depth, or <code>null</code> if the batches are executed on the caller thread
+   * @since 3.5.6
+   */
+  public Integer getBatchFlushPipelineDepth() {
+    return batchFlushPipelineDepth;
+  }
+
+  /**
+   * Sets the number of automatically flushed batches that may wait for the background flusher of the batch executor.
+   * <p>
+   * When set, the batches flushed because of {@link #setBatchFlushRows(Integer)} or
+   * {@link #setBatchFlushBytes(Integer)} are executed on a background thread while the caller binds the next rows,
+   * and the caller blocks once this many batches are waiting. Failures are rethrown on the next update or flush.
+   * Batches of statements using a <code>selectKey</code> are always executed on the caller thread.
+   * <p>
+   * The background thread uses the connection of the session while the caller prepares the next statements, so
+   * by default this is only done with drivers whose connections are known to support concurrent use: the Oracle,
+   * PostgreSQL, MySQL and MariaDB drivers. With other drivers the batches are executed on the caller thread, unless
+   * {@link #setBatchFlushPipelineThreadSafe(Boolean)} says otherwise.
+   *
+   * @param batchFlushPipelineDepth
+   *          the pipeline depth, or <code>null</code> to execute the batches on the caller thread
+   * @since 3.5.6
+   */
+  public void setBatchFlushPipelineDepth(Integer batchFlushPipelineDepth) {
+    this.batchFlushPipelineDepth = batchFlushPipelineDepth;
+  }
+
+  /**
+   * Gets whether the connections support the concurrent use needed by the background flusher of the batch executor.
+   *
+   * @return <code>true</code> or <code>false</code> if set, <code>null</code> to detect it from the driver name
+   * @since 3.5.6
+   */
+  public Boolean getBatchFlushPipelineThreadSafe() {
+    return batchFlushPipelineThreadSafe;
+  }
+
+  /**
+   * Sets whether the connections support the concurrent use needed by the background flusher of the batch executor,
+   * overriding the detection from the driver name described in {@link #setBatchFlushPipelineDepth(Integer)}.
+   *
+   * @param batchFlushPipelineThreadSafe
+   *          <code>true</code> to use the background flusher with any driver, <code>false</code> to never use it, or
+   *          <code>null</code> (the default) to only use it with the drivers known to support it
+   * @since 3.5.6
+   */
+  public void setBatchFlushPipelineThreadSafe(Boolean batchFlushPipelineThreadSafe) {
+    this.batchFlushPipelineThreadSafe = batchFlushPipelineThreadSafe;
+  }
+
+  /**
+   * Gets the maximum number of keys passed to the <code>batchSelect</code> of an association or collection at once.
+   *
+   * @return the batch size
+   * @since 3.5.6
+   */
+  public int getNestedSelectBatchSize() {
+    return nestedSelectBatchSize;
+  }
+
+  /**
+   * Sets the maximum number of keys passed to the <code>batchSelect</code> of an association or collection at once.
+   *
+   * @param nestedSelectBatchSize
+   *          the batch size
+   * @since 3.5.6
+   * @see org.apache.ibatis.executor.loader.NestedQueryBatch
+   */
+  public void setNestedSelectBatchSize(int nestedSelectBatchSize) {
+    this.nestedSelectBatchSize = nestedSelectBatchSize;
+  }
+
+  /**
+   * Gets whether the batch executor keeps the parameter objects of statements that do not generate keys.
+   *
+   * @return <code>true</code> if the parameter objects are kept in the {@link org.apache.ibatis.executor.BatchResult}s
+   * @since 3.5.6
+   */
+  public boolean isRetainBatchParameters() {
+    return retainBatchParameters;
+  }
+
+  /**
+   * Sets whether the batch executor keeps the parameter objects of statements that do not generate keys.
+   * <p>
+   * Statements with a key generator always keep their parameter objects because the generated keys are
+   * assigned to them when the batch is executed.
+   *
+   * @param retainBatchParameters
+   *          <code>false</code> to leave {@link org.apache.ibatis.executor.BatchResult#getParameterObjects()} empty
+   * @since 3.5.6
+   */
+  public void setRetainBatchParameters(boolean retainBatchParameters) {
+    this.retainBatchParameters = retainBatchParameters;
+  }
+
+  /**
+   * Gets whether writes only invalidate the second level cache entries that depend on the tables they write.
+   *
+   * @return <code>true</code> if the cache entries are invalidated by table
+   * @since 3.5.6
+   */
+  public boolean isTableAwareCacheInvalidation() {
+    return tableAwareCacheInvalidation;
+  }
+
+  /**
+   * Sets whether writes only invalidate the second level cache entries that depend on the tables they write.
+   * <p>
+   * The tables are found in the sql of each statement, or declared with its <code>cacheTags</code>. A write whose
+   * tables are unknown still clears the whole cache. It must be set before the mappers are loaded.
+   *
+   * @param tableAwareCacheInvalidation
+   *          <code>true</code> to invalidate the cache entries by table
+   * @since 3.5.6
+   * @see org.apache.ibatis.cache.CacheTagIndex
+   */
+  public void setTableAwareCacheInvalidation(boolean tableAwareCacheInvalidation) {
+    this.tableAwareCacheInvalidation = tableAwareCacheInvalidation;
+  }
+
+  /**
+   * Gets the number of entries above which the local cache of a session evicts the least recently used ones.
+   *
+   * @return the entry limit, or <code>null</code> if the local cache is not limited in entries
+   * @since 3.5.6
+   */
+  public Integer getLocalCacheSize() {
+    return localCacheSize;
+  }
+
+  /**
+   * Sets the number of entries above which the local cache of a session evicts the least recently used ones.
+   * <p>
+   * The entries are evicted when the outermost query of the session ends, so a single query may still cache more.
+   *
+   * @param localCacheSize
+   *          the entry limit, or <code>null</code> to not limit the local cache in entries
+   * @since 3.5.6
+   */
+  public void setLocalCacheSize(Integer localCacheSize) {
+    this.localCacheSize = localCacheSize;
+  }
+
+  /**
+   * Gets the estimated size in bytes above which the local cache of a session evicts the least recently used entries.
+   *
+   * @return the byte limit, or <code>null</code> if the size of the local cache is not tracked
+   * @since 3.5.6
+   */
+  public Integer getLocalCacheMaxBytes() {
+    return localCacheMaxBytes;
+  }
+
+  /**
+   * Sets the estimated size in bytes above which the local cache of a session evicts the least recently used entries.
+   * <p>
+   * The size of a result is estimated by walking a sample of its objects, so this is an approximation of the memory
+   * it uses, not an exact figure.
+   *
+   * @param localCacheMaxBytes
+   *          the byte limit, or <code>null</code> to not track the size of the local cache
+   * @since 3.5.6
+   * @see org.apache.ibatis.cache.SizeEstimator
+   */
+  public void setLocalCacheMaxBytes(Integer localCacheMaxBytes) {
+    this.localCacheMaxBytes = localCacheMaxBytes;
+  }
+
+  /**
+   * Gets how the reflectors access the properties of the mapped objects.
+   *
+   * @return the invoker type
+   * @since 3.5.6
+   */
+  public InvokerType getInvokerType() {
+    return invokerType;
+  }
+
+  /**
+   * Sets how the reflectors access the properties of the mapped objects. It only applies to the
+   * {@link DefaultReflectorFactory}, custom reflector factories are left as they are.
+   *
+   * @param invokerType
+   *          the invoker type, {@link InvokerType#REFLECTION} by default
+   * @since 3.5.6
+   */
+  public void setInvokerType(InvokerType invokerType) {
+    this.invokerType = invokerType;
+    if (reflectorFactory instanceof DefaultReflectorFactory) {
+      ((DefaultReflectorFactory) reflectorFactory).setInvokerType(invokerType);
+    }
+  }
+
+  /**
+   * Gets whether the mapper XML files declared in the configuration are parsed in parallel.
+   *
+   * @return <code>true</code> if mapper XML files are parsed in parallel
+   * @since 3.5.6
+   */
+  public boolean isParallelMapperParsing() {
+    return parallelMapperParsing;
+  }
+
+  /**
+   * Sets whether the mapper XML files declared in the configuration are parsed in parallel.
+   * <p>
+   * When enabled, the documents are read, parsed and validated on the common fork-join pool, and then built into this
+   * configuration one by one in the order they are declared, so duplicate ids are reported the same way as when they
+   * are parsed sequentially.
+   *
+   * @param parallelMapperParsing
+   *          <code>true</code> to parse mapper XML files in parallel, <code>false</code> by default
+   * @since 3.5.6
+   */
+  public void setParallelMapperParsing(boolean parallelMapperParsing) {
+    this.parallelMapperParsing = parallelMapperParsing;
+  }
+
+  /**
+   * Gets the file where the parsed mapper XML documents are stored between starts.
+   *
+   * @return the snapshot file, or <code>null</code> if mapper XML files are always parsed
+   * @since 3.5.6
+   */
+  public String getMapperSnapshotFile() {
+    return mapperSnapshotFile;
+  }
+
+  /**
+   * Sets the file where the parsed mapper XML documents are stored between starts.
+   * <p>
+   * The mapper XML files that did not change since the snapshot was written are not parsed and validated again. The
+   * others are parsed as usual, and the file is rewritten once all the mappers are loaded.
+   * <p>
+   * The snapshot holds the parsed documents, not the resolved configuration: the result maps, caches and statements are
+   * still built from the documents on every start. A snapshot written by another version of MyBatis, or with another
+   * value of {@link #isStreamingMapperParsing()}, is discarded and written again.
+   *
+   * @param mapperSnapshotFile
+   *          the snapshot file, or <code>null</code> to always parse mapper XML files
+   * @since 3.5.6
+   * @see org.apache.ibatis.builder.xml.MapperSnapshot
+   */
+  public void setMapperSnapshotFile(String mapperSnapshotFile) {
+    this.mapperSnapshotFile = mapperSnapshotFile;
+  }
+
+  /**
+   * Gets whether the mapper XML files declared in the configuration are read with a StAX reader.
+   *
+   * @return <code>true</code> if mapper XML files are read with a StAX reader
+   * @since 3.5.6
+   */
+  public boolean isStreamingMapperParsing() {
+    return streamingMapperParsing;
+  }
+
+  /**
+   * Sets whether the mapper XML files declared in the configuration are read with a StAX reader.
+   * <p>
+   * The documents are built in a single forward pass and are not validated against the mapper DTD, which makes large
+   * mapper XML files load faster.
+   *
+   * @param streamingMapperParsing
+   *          <code>true</code> to read mapper XML files with a StAX reader, <code>false</code> by default
+   * @since 3.5.6
+   * @see org.apache.ibatis.parsing.StaxDocumentLoader
+   */
+  public void setStreamingMapperParsing(boolean streamingMapperParsing) {
+    this.streamingMapperParsing = streamingMapperParsing;
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -345,6 +729,27 @@ public class Configuration {
     return loadedResources.contains(resource);
   }
 
+  /**
+   * Records how long a mapper XML took to load.
+   *
+   * @param loadTime
+   *          the load time
+   * @since 3.5.6
+   */
+  public void addMapperLoadTime(MapperLoadTime loadTime) {
+    mapperLoadTimes.put(loadTime.getResource(), loadTime);
+  }
+
+  /**
+   * Gets how long each mapper XML declared in the configuration took to load, in the order they were loaded.
+   *
+   * @return the load times
+   * @since 3.5.6
+   */
+  public Collection<MapperLoadTime> getMapperLoadTimes() {
+    return Collections.unmodifiableCollection(mapperLoadTimes.values());
+  }
+
   public Environment getEnvironment() {
     return environment;
   }
@@ -722,6 +1127,64 @@ public class Configuration {
     return caches.containsKey(id);
   }
 
+  /**
+   * Registers the index of the tags of the entries of a cache.
+   *
+   * @param id
+   *          the cache id
+   * @param tagIndex
+   *          the tag index
+   * @since 3.5.6
+   */
+  public void addCacheTagIndex(String id, CacheTagIndex tagIndex) {
+    cacheTagIndexes.put(id, tagIndex);
+  }
+
+  /**
+   * Gets the index of the tags of the entries of a cache.
+   *
+   * @param id
+   *          the cache id
+   * @return the tag index, or <code>null</code> if the cache is not invalidated by tags
+   * @since 3.5.6
+   */
+  public CacheTagIndex getCacheTagIndex(String id) {
+    return cacheTagIndexes.get(id);
+  }
+
+  /**
+   * Registers the statistics of a cache.
+   *
+   * @param statistics
+   *          the cache statistics
+   * @since 3.5.6
+   */
+  public void addCacheStatistics(CacheStatistics statistics) {
+    cacheStatistics.put(statistics.getId(), statistics);
+  }
+
+  /**
+   * Gets the statistics of a cache.
+   *
+   * @param id
+   *          the cache id
+   * @return the cache statistics, or <code>null</code> if the cache was not built from a mapper
+   * @since 3.5.6
+   */
+  public CacheStatistics getCacheStatistics(String id) {
+    return cacheStatistics.get(id);
+  }
+
+  /**
+   * Gets the statistics of all the caches built from mappers.
+   *
+   * @return the cache statistics
+   * @since 3.5.6
+   */
+  public Collection<CacheStatistics> getCacheStatistics() {
+    return cacheStatistics.values();
+  }
+
   public void addResultMap(ResultMap rm) {
     resultMaps.put(rm.getId(), rm);
     checkLocallyForDiscriminatedNestedResultMaps(rm);
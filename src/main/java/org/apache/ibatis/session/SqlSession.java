@@ -22,6 +22,7 @@ import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.LocalCacheStatistics;
 
 /**
  * The primary Java interface for working with MyBatis.
@@ -252,6 +253,9 @@ public interface SqlSession extends Closeable {
 
   /**
    * Flushes batch statements.
+   * <p>
+   * When the batch executor flushes automatically (see <code>batchFlushRows</code>), the list starts with only a
+   * summary of each batch executed since the previous call.
    * @return BatchResult list of updated records
    * @since 3.0.6
    */
@@ -268,6 +272,16 @@ public interface SqlSession extends Closeable {
    */
   void clearCache();
 
+  /**
+   * Retrieves the statistics of the local session cache.
+   *
+   * @return the statistics, or {@code null} if they are not available
+   * @since 3.5.6
+   */
+  default LocalCacheStatistics getLocalCacheStatistics() {
+    return null;
+  }
+
   /**
    * Retrieves current configuration.
    * @return Configuration
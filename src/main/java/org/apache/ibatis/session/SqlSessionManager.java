@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2019 the original author or authors.
+ *    Copyright 2009-2020 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -27,6 +27,7 @@ import java.util.Properties;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.LocalCacheStatistics;
 import org.apache.ibatis.reflection.ExceptionUtil;
 
 /**
@@ -279,6 +280,15 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     sqlSession.clearCache();
   }
 
+  @Override
+  public LocalCacheStatistics getLocalCacheStatistics() {
+    final SqlSession sqlSession = localSqlSession.get();
+    if (sqlSession == null) {
+      throw new SqlSessionException("Error:  Cannot get the cache statistics.  No managed session is started.");
+    }
+    return sqlSession.getLocalCacheStatistics();
+  }
+
   @Override
   public void commit() {
     final SqlSession sqlSession = localSqlSession.get();
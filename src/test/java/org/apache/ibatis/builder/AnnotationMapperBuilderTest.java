@@ -17,10 +17,12 @@ package org.apache.ibatis.builder;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import org.apache.ibatis.annotations.CacheNamespace;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.builder.annotation.MapperAnnotationBuilder;
+import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultSetType;
@@ -94,6 +96,29 @@ class AnnotationMapperBuilderTest {
     assertThat(mappedStatement.getResultSetType()).isEqualTo(ResultSetType.DEFAULT);
   }
 
+  @Test
+  void withExpiringCacheNamespace() throws Exception {
+    Configuration configuration = new Configuration();
+    MapperAnnotationBuilder builder = new MapperAnnotationBuilder(configuration, ExpiringCacheMapper.class);
+    builder.parse();
+
+    Cache cache = configuration.getCache(ExpiringCacheMapper.class.getName());
+    cache.putObject(0, "zero");
+    cache.putObject(1, "one");
+    Thread.sleep(110);
+    // refreshed ahead of its time to live
+    assertThat(cache.getObject(0)).isNull();
+    assertThat(cache.getObject(0)).isEqualTo("zero");
+    Thread.sleep(110);
+    // idle for longer than its time to idle
+    assertThat(cache.getObject(1)).isNull();
+    assertThat(cache.getObject(0)).isEqualTo("zero");
+  }
+
+  @CacheNamespace(size = 2, timeToLive = 1000, timeToIdle = 150, refreshAhead = 900)
+  interface ExpiringCacheMapper {
+  }
+
   interface Mapper {
 
     @Insert("insert into test (name) values(#{name})")
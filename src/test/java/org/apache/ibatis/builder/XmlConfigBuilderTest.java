@@ -26,6 +26,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.InputStream;
 import java.io.StringReader;
 import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -50,6 +53,8 @@ import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.logging.slf4j.Slf4jImpl;
 import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.invoker.InvokerType;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.session.AutoMappingBehavior;
@@ -65,6 +70,7 @@ import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class XmlConfigBuilderTest {
 
@@ -102,6 +108,20 @@ class XmlConfigBuilderTest {
       assertThat(config.getTypeHandlerRegistry().getTypeHandler(RoundingMode.class)).isInstanceOf(EnumTypeHandler.class);
       assertThat(config.isShrinkWhitespacesInSql()).isFalse();
       assertThat(config.getDefaultSqlProviderType()).isNull();
+      assertThat(config.isCompiledRowMappingEnabled()).isFalse();
+      assertThat(config.getBatchFlushRows()).isNull();
+      assertThat(config.getBatchFlushBytes()).isNull();
+      assertThat(config.getBatchFlushPipelineDepth()).isNull();
+      assertThat(config.getBatchFlushPipelineThreadSafe()).isNull();
+      assertThat(config.getNestedSelectBatchSize()).isEqualTo(100);
+      assertThat(config.isRetainBatchParameters()).isTrue();
+      assertThat(config.isTableAwareCacheInvalidation()).isFalse();
+      assertThat(config.getLocalCacheSize()).isNull();
+      assertThat(config.getLocalCacheMaxBytes()).isNull();
+      assertThat(config.getInvokerType()).isEqualTo(InvokerType.REFLECTION);
+      assertThat(config.isParallelMapperParsing()).isFalse();
+      assertThat(config.getMapperSnapshotFile()).isNull();
+      assertThat(config.isStreamingMapperParsing()).isFalse();
     }
   }
 
@@ -198,6 +218,25 @@ class XmlConfigBuilderTest {
       assertThat(config.getConfigurationFactory().getName()).isEqualTo(String.class.getName());
       assertThat(config.isShrinkWhitespacesInSql()).isTrue();
       assertThat(config.getDefaultSqlProviderType().getName()).isEqualTo(MySqlProvider.class.getName());
+      assertThat(config.isCompiledRowMappingEnabled()).isTrue();
+      assertThat(config.getBatchFlushRows()).isEqualTo(1000);
+      assertThat(config.getBatchFlushBytes()).isEqualTo(1048576);
+      assertThat(config.getBatchFlushPipelineDepth()).isEqualTo(2);
+      assertThat(config.getBatchFlushPipelineThreadSafe()).isTrue();
+      assertThat(config.getNestedSelectBatchSize()).isEqualTo(50);
+      assertThat(config.isRetainBatchParameters()).isFalse();
+      assertThat(config.isTableAwareCacheInvalidation()).isTrue();
+      assertThat(config.getLocalCacheSize()).isEqualTo(500);
+      assertThat(config.getLocalCacheMaxBytes()).isEqualTo(67108864);
+      assertThat(config.getInvokerType()).isEqualTo(InvokerType.LAMBDA);
+      assertThat(((DefaultReflectorFactory) config.getReflectorFactory()).getInvokerType())
+          .isEqualTo(InvokerType.LAMBDA);
+      assertThat(config.isParallelMapperParsing()).isTrue();
+      assertThat(config.getMapperSnapshotFile()).isEqualTo("target/mapper-snapshot.bin");
+      assertThat(Paths.get("target/mapper-snapshot.bin")).exists();
+      assertThat(config.isStreamingMapperParsing()).isTrue();
+      assertThat(config.getMapperLoadTimes()).extracting(MapperLoadTime::getResource).containsExactly(
+          "org/apache/ibatis/builder/BlogMapper.xml", "file:./src/test/java/org/apache/ibatis/builder/NestedBlogMapper.xml");
 
       assertThat(config.getTypeAliasRegistry().getTypeAliases().get("blogauthor")).isEqualTo(Author.class);
       assertThat(config.getTypeAliasRegistry().getTypeAliases().get("blog")).isEqualTo(Blog.class);
@@ -306,6 +345,65 @@ class XmlConfigBuilderTest {
       .hasMessageContaining("The properties element cannot specify both a URL and a resource based property file reference.  Please specify one or the other.");
   }
 
+  @Test
+  void parallelMapperParsingReportsConflictsInDeclarationOrder() {
+    final String MAPPER_CONFIG = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<!DOCTYPE configuration PUBLIC \"-//mybatis.org//DTD Config 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-config.dtd\">\n"
+            + "<configuration>\n"
+            + "  <settings>\n"
+            + "    <setting name=\"parallelMapperParsing\" value=\"true\"/>\n"
+            + "  </settings>\n"
+            + "  <mappers>\n"
+            + "    <mapper resource=\"org/apache/ibatis/builder/BlogMapper.xml\"/>\n"
+            + "    <mapper url=\"file:./src/test/java/org/apache/ibatis/builder/BlogMapper.xml\"/>\n"
+            + "  </mappers>\n"
+            + "</configuration>\n";
+
+    XMLConfigBuilder builder = new XMLConfigBuilder(new StringReader(MAPPER_CONFIG));
+    when(builder::parse);
+    then(caughtException()).isInstanceOf(BuilderException.class)
+      .hasMessageContaining("please check org/apache/ibatis/builder/BlogMapper.xml and file:./src/test/java/org/apache/ibatis/builder/BlogMapper.xml");
+  }
+
+  @Test
+  void parallelMapperParsingReportsMissingMapper() {
+    final String MAPPER_CONFIG = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<!DOCTYPE configuration PUBLIC \"-//mybatis.org//DTD Config 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-config.dtd\">\n"
+            + "<configuration>\n"
+            + "  <settings>\n"
+            + "    <setting name=\"parallelMapperParsing\" value=\"true\"/>\n"
+            + "  </settings>\n"
+            + "  <mappers>\n"
+            + "    <mapper resource=\"org/apache/ibatis/builder/BlogMapper.xml\"/>\n"
+            + "    <mapper resource=\"a/b/c/FooMapper.xml\"/>\n"
+            + "  </mappers>\n"
+            + "</configuration>\n";
+
+    XMLConfigBuilder builder = new XMLConfigBuilder(new StringReader(MAPPER_CONFIG));
+    when(builder::parse);
+    then(caughtException()).isInstanceOf(BuilderException.class)
+      .hasMessageContaining("Could not find resource a/b/c/FooMapper.xml");
+  }
+
+  @Test
+  void shouldBuildWhenTheMapperSnapshotCannotBeStored(@TempDir Path directory) throws Exception {
+    Path notADirectory = Files.createFile(directory.resolve("not-a-directory"));
+    final String MAPPER_CONFIG = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<!DOCTYPE configuration PUBLIC \"-//mybatis.org//DTD Config 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-config.dtd\">\n"
+            + "<configuration>\n"
+            + "  <settings>\n"
+            + "    <setting name=\"mapperSnapshotFile\" value=\"" + notADirectory.resolve("mapper-snapshot.bin") + "\"/>\n"
+            + "  </settings>\n"
+            + "  <mappers>\n"
+            + "    <mapper resource=\"org/apache/ibatis/builder/CachedAuthorMapper.xml\"/>\n"
+            + "  </mappers>\n"
+            + "</configuration>\n";
+
+    Configuration config = new XMLConfigBuilder(new StringReader(MAPPER_CONFIG)).parse();
+    assertTrue(config.hasStatement("org.apache.ibatis.builder.CachedAuthorMapper.selectAllAuthors"));
+    assertTrue(Files.isRegularFile(notADirectory));
+  }
+
   static class MySqlProvider {
     @SuppressWarnings("unused")
     public static String provideSql() {
@@ -20,9 +20,11 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.BDDAssertions.then;
 
 import java.io.InputStream;
+import java.io.StringReader;
 import java.util.regex.Pattern;
 
 import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultSetType;
@@ -204,6 +206,30 @@ class XmlMapperBuilderTest {
 //    builder2.parse();
 //  }
 
+  @Test
+  void shouldExpireTheEntriesOfTheCacheElement() throws Exception {
+    Configuration configuration = new Configuration();
+    String mapper = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+        + "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">\n"
+        + "<mapper namespace=\"expiring\">\n"
+        + "  <cache size=\"2\" timeToLive=\"1000\" timeToIdle=\"150\" refreshAhead=\"900\"/>\n"
+        + "</mapper>\n";
+    XMLMapperBuilder builder = new XMLMapperBuilder(new StringReader(mapper), configuration, "expiring.xml", configuration.getSqlFragments());
+    builder.parse();
+
+    Cache cache = configuration.getCache("expiring");
+    cache.putObject(0, "zero");
+    cache.putObject(1, "one");
+    Thread.sleep(110);
+    // refreshed ahead of its time to live
+    assertThat(cache.getObject(0)).isNull();
+    assertThat(cache.getObject(0)).isEqualTo("zero");
+    Thread.sleep(110);
+    // idle for longer than its time to idle
+    assertThat(cache.getObject(1)).isNull();
+    assertThat(cache.getObject(0)).isEqualTo("zero");
+  }
+
    @Test
    void erorrResultMapLocation() throws Exception {
      Configuration configuration = new Configuration();
@@ -0,0 +1,177 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.parsing.XPathParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Node;
+
+class MapperSnapshotTest {
+
+  private static final String MAPPER = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+      + "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">\n"
+      + "<mapper namespace=\"org.apache.ibatis.builder.xml.SnapshotMapper\">\n"
+      + "  <!-- comments are not kept -->\n"
+      + "  <sql id=\"columns\">id, name</sql>\n"
+      + "  <select id=\"select\" resultType=\"map\">\n"
+      + "    select <include refid=\"columns\"/> from users\n"
+      + "    <where><if test=\"id != null\"><![CDATA[id < #{id}]]></if></where>\n"
+      + "  </select>\n"
+      + "</mapper>\n";
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void shouldRebuildUnchangedDocumentsFromTheSnapshot() throws IOException {
+    Path file = directory.resolve("mappers.snapshot");
+    MapperSnapshot snapshot = MapperSnapshot.load(file);
+    XPathParser parsed = snapshot.parse("SnapshotMapper.xml", stream(MAPPER), new Properties());
+    assertTrue(snapshot.isModified());
+    snapshot.store(file);
+
+    MapperSnapshot reloaded = MapperSnapshot.load(file);
+    XPathParser rebuilt = reloaded.parse("SnapshotMapper.xml", stream(MAPPER), new Properties());
+    assertFalse(reloaded.isModified());
+    assertEquals(parsed.evalNode("/mapper").toString(), rebuilt.evalNode("/mapper").toString());
+    assertEquals(parsed.evalNode("/mapper").getNode().getTextContent(), rebuilt.evalNode("/mapper").getNode().getTextContent());
+
+    XNode where = rebuilt.evalNode("/mapper/select/where/if");
+    List<XNode> children = where.getChildren();
+    assertEquals(0, children.size());
+    assertEquals(Node.CDATA_SECTION_NODE, where.getNode().getFirstChild().getNodeType());
+    assertEquals("id < #{id}", where.getStringBody());
+  }
+
+  @Test
+  void shouldParseChangedDocumentsAgain() throws IOException {
+    Path file = directory.resolve("mappers.snapshot");
+    MapperSnapshot snapshot = MapperSnapshot.load(file);
+    snapshot.parse("SnapshotMapper.xml", stream(MAPPER), new Properties());
+    snapshot.store(file);
+
+    MapperSnapshot reloaded = MapperSnapshot.load(file);
+    XPathParser parser = reloaded.parse("SnapshotMapper.xml", stream(MAPPER.replace("from users", "from people")),
+        new Properties());
+    assertTrue(reloaded.isModified());
+    assertTrue(parser.evalNode("/mapper/select").getNode().getTextContent().contains("from people"));
+  }
+
+  @Test
+  void shouldBeModifiedWhenDocumentsAreNoLongerUsed() throws IOException {
+    Path file = directory.resolve("mappers.snapshot");
+    MapperSnapshot snapshot = MapperSnapshot.load(file);
+    snapshot.parse("SnapshotMapper.xml", stream(MAPPER), new Properties());
+    snapshot.parse("OtherMapper.xml", stream(MAPPER), new Properties());
+    snapshot.store(file);
+
+    MapperSnapshot reloaded = MapperSnapshot.load(file);
+    reloaded.parse("SnapshotMapper.xml", stream(MAPPER), new Properties());
+    assertTrue(reloaded.isModified());
+  }
+
+  @Test
+  void shouldIgnoreCorruptedSnapshots() throws IOException {
+    Path file = directory.resolve("mappers.snapshot");
+    Files.write(file, new byte[] { 'M', 'B', 'D', 'S', 0, 0, 0, 1, 0x7f });
+
+    MapperSnapshot snapshot = MapperSnapshot.load(file);
+    XPathParser parser = snapshot.parse("SnapshotMapper.xml", stream(MAPPER), new Properties());
+    assertTrue(snapshot.isModified());
+    assertEquals("org.apache.ibatis.builder.xml.SnapshotMapper", parser.evalNode("/mapper").getStringAttribute("namespace"));
+  }
+
+  @Test
+  void shouldStillValidateChangedDocuments() {
+    MapperSnapshot snapshot = MapperSnapshot.empty();
+    assertThrows(RuntimeException.class, () -> snapshot.parse("SnapshotMapper.xml",
+        stream(MAPPER.replace("<sql id=\"columns\">", "<sql>")), new Properties()));
+  }
+
+  @Test
+  void shouldDiscardSnapshotsWrittenWithAnotherParsingMode() throws IOException {
+    Path file = directory.resolve("mappers.snapshot");
+    MapperSnapshot snapshot = MapperSnapshot.load(file, false);
+    snapshot.parse("SnapshotMapper.xml", stream(MAPPER), new Properties());
+    snapshot.store(file);
+
+    MapperSnapshot streaming = MapperSnapshot.load(file, true);
+    streaming.parse("SnapshotMapper.xml", stream(MAPPER), new Properties());
+    assertTrue(streaming.isModified());
+    streaming.store(file);
+
+    MapperSnapshot reloaded = MapperSnapshot.load(file, true);
+    XPathParser rebuilt = reloaded.parse("SnapshotMapper.xml", stream(MAPPER), new Properties());
+    assertFalse(reloaded.isModified());
+    assertEquals("id < #{id}", rebuilt.evalNode("/mapper/select/where/if").getStringBody());
+  }
+
+  @Test
+  void shouldDiscardSnapshotsWrittenByAnotherVersion() throws IOException {
+    Path file = directory.resolve("mappers.snapshot");
+    MapperSnapshot snapshot = MapperSnapshot.load(file);
+    snapshot.parse("SnapshotMapper.xml", stream(MAPPER), new Properties());
+    snapshot.store(file);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(file));
+        DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(in.readInt());
+      out.writeInt(in.readInt());
+      in.readFully(new byte[in.readInt()]);
+      byte[] version = "3.0.0".getBytes(StandardCharsets.UTF_8);
+      out.writeInt(version.length);
+      out.write(version);
+      int read;
+      while ((read = in.read()) != -1) {
+        out.write(read);
+      }
+    }
+    Files.write(file, bytes.toByteArray());
+
+    MapperSnapshot reloaded = MapperSnapshot.load(file);
+    reloaded.parse("SnapshotMapper.xml", stream(MAPPER), new Properties());
+    assertTrue(reloaded.isModified());
+  }
+
+  @Test
+  void shouldNotValidateChangedDocumentsWhenStreaming() throws IOException {
+    MapperSnapshot snapshot = MapperSnapshot.empty(true);
+    XPathParser parser = snapshot.parse("SnapshotMapper.xml", stream(MAPPER.replace("<sql id=\"columns\">", "<sql>")),
+        new Properties());
+    assertNull(parser.evalNode("/mapper/sql").getStringAttribute("id"));
+  }
+
+  private static ByteArrayInputStream stream(String xml) {
+    return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
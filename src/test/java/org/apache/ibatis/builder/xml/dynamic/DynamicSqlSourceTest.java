@@ -16,12 +16,15 @@
 package org.apache.ibatis.builder.xml.dynamic;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.io.IOException;
 import java.io.Reader;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -376,6 +379,24 @@ class DynamicSqlSourceTest extends BaseDataTest {
     assertEquals("__frch_u_0", boundSql.getParameterMappings().get(3).getProperty());
   }
 
+  @Test
+  void shouldReuseParsedSqlForSameSqlAndBindingTypes() throws Exception {
+    DynamicSqlSource source = createDynamicSqlSource(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID in"),
+        new ForEachSqlNode(new Configuration(), mixedContents(new TextSqlNode("#{item}")), "list", "index", "item", "(", ")", ","));
+    BoundSql first = source.getBoundSql(Collections.singletonMap("list", Arrays.asList(1, 2)));
+    BoundSql second = source.getBoundSql(Collections.singletonMap("list", Arrays.asList(3, 4)));
+    assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals(Integer.class, second.getParameterMappings().get(0).getJavaType());
+    BoundSql third = source.getBoundSql(Collections.singletonMap("list", Arrays.asList("a", "b")));
+    assertNotSame(first.getParameterMappings(), third.getParameterMappings());
+    assertEquals(String.class, third.getParameterMappings().get(0).getJavaType());
+    BoundSql fourth = source.getBoundSql(Collections.singletonMap("list", Arrays.asList(5, 6, 7)));
+    assertEquals("SELECT * FROM BLOG WHERE ID in (  ? , ? , ? )", fourth.getSql());
+    assertEquals(1, source.getParseCacheHitCount());
+    assertEquals(3, source.getParseCacheMissCount());
+  }
+
   private DynamicSqlSource createDynamicSqlSource(SqlNode... contents) throws IOException, SQLException {
     createBlogDataSource();
     final String resource = "org/apache/ibatis/builder/MapperConfig.xml";
@@ -0,0 +1,164 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class BlockingCacheTest {
+
+  @Test
+  void shouldRemoveReleasedLocks() {
+    BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("default")));
+    for (int i = 0; i < 1000; i++) {
+      assertNull(cache.getObject(i));
+      if (i % 2 == 0) {
+        cache.putObject(i, i);
+      } else {
+        cache.removeObject(i);
+      }
+    }
+    assertEquals(0, cache.getLockCount());
+    assertEquals(500, cache.getSize());
+  }
+
+  @Test
+  void shouldNotWaitForALockOfTheSameThread() {
+    BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("default")));
+    assertNull(cache.getObject(1));
+    assertNull(cache.getObject(1));
+    assertEquals(1, cache.getLockCount());
+    cache.putObject(1, 1);
+    assertEquals(0, cache.getLockCount());
+  }
+
+  @Test
+  void shouldWaitForTheCommitByDefault() throws Exception {
+    BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("default")));
+    TransactionalCache loader = new TransactionalCache(cache);
+    assertNull(loader.getObject(1));
+    CompletableFuture<Object> waiter = CompletableFuture.supplyAsync(() -> new TransactionalCache(cache).getObject(1));
+    loader.putObject(1, list("a"));
+    assertNotDone(waiter);
+    loader.commit();
+    assertEquals(list("a"), waiter.get(1, TimeUnit.SECONDS));
+    assertEquals(0, cache.getLockCount());
+  }
+
+  @Test
+  void shouldHandTheLoadedValueToWaitersBeforeTheCommit() throws Exception {
+    BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("default")));
+    cache.setSingleFlight(true);
+    TransactionalCache loader = new TransactionalCache(cache);
+    assertNull(loader.getObject(1));
+    CompletableFuture<Object> waiter = CompletableFuture.supplyAsync(() -> new TransactionalCache(cache).getObject(1));
+    assertNotDone(waiter);
+    List<String> value = list("a");
+    loader.putObject(1, value);
+    assertSame(value, waiter.get(1, TimeUnit.SECONDS));
+    assertEquals(0, cache.getLockCount());
+    assertEquals(0, cache.getSize());
+    loader.commit();
+    assertEquals(value, cache.getObject(1));
+  }
+
+  @Test
+  void shouldHandACopyToEachWaiter() throws Exception {
+    BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("default")));
+    cache.setSingleFlight(true);
+    cache.setCodec(new JavaSerializationCodec());
+    TransactionalCache loader = new TransactionalCache(cache);
+    assertNull(loader.getObject(1));
+    CompletableFuture<Object> waiter1 = CompletableFuture.supplyAsync(() -> new TransactionalCache(cache).getObject(1));
+    CompletableFuture<Object> waiter2 = CompletableFuture.supplyAsync(() -> new TransactionalCache(cache).getObject(1));
+    assertNotDone(waiter1);
+    assertNotDone(waiter2);
+    List<String> value = list("a");
+    loader.putObject(1, value);
+    Object value1 = waiter1.get(1, TimeUnit.SECONDS);
+    Object value2 = waiter2.get(1, TimeUnit.SECONDS);
+    assertEquals(value, value1);
+    assertEquals(value, value2);
+    assertNotSame(value, value1);
+    assertNotSame(value1, value2);
+  }
+
+  @Test
+  void shouldNotHandOutValuesLoadedAfterAWrite() throws Exception {
+    BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("default")));
+    cache.setSingleFlight(true);
+    TransactionalCache loader = new TransactionalCache(cache);
+    loader.clear();
+    assertNull(loader.getObject(1));
+    CompletableFuture<Object> waiter = CompletableFuture.supplyAsync(() -> new TransactionalCache(cache).getObject(1));
+    loader.putObject(1, list("uncommitted"));
+    assertNotDone(waiter);
+    loader.rollback();
+    // the waiter now loads the value itself
+    assertNull(waiter.get(1, TimeUnit.SECONDS));
+    assertEquals(1, cache.getLockCount());
+  }
+
+  @Test
+  void shouldNotHandOutValuesLoadedAfterAWriteOfTheSession() throws Exception {
+    BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("default")));
+    cache.setSingleFlight(true);
+    TransactionalCacheManager loader = new TransactionalCacheManager();
+    CacheKey key = new CacheKey(new Object[] { 1 });
+    // a write through another namespace, which does not touch this cache
+    loader.markSessionWritten();
+    assertNull(loader.getObject(cache, key));
+    CompletableFuture<Object> waiter = CompletableFuture.supplyAsync(() -> new TransactionalCache(cache).getObject(key));
+    loader.putObject(cache, key, list("uncommitted"));
+    assertNotDone(waiter);
+    loader.commit();
+    assertEquals(list("uncommitted"), waiter.get(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void shouldTimeOutWhileWaiting() {
+    BlockingCache cache = new BlockingCache(new SynchronizedCache(new PerpetualCache("default")));
+    cache.setSingleFlight(true);
+    cache.setTimeout(50);
+    assertNull(cache.getObject(1));
+    CompletableFuture<Object> waiter = CompletableFuture.supplyAsync(() -> cache.getObject(1));
+    ExecutionException e = assertThrows(ExecutionException.class, () -> waiter.get(1, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof CacheException);
+  }
+
+  private static void assertNotDone(CompletableFuture<Object> waiter) throws InterruptedException {
+    Thread.sleep(100);
+    assertFalse(waiter.isDone());
+  }
+
+  private static List<String> list(String... values) {
+    return new ArrayList<>(Arrays.asList(values));
+  }
+
+}
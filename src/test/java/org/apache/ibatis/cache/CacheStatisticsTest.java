@@ -0,0 +1,116 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.stats.CacheStatistics;
+import org.apache.ibatis.cache.stats.CacheStatisticsMBeans;
+import org.apache.ibatis.cache.stats.KeyStatistics;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CacheStatisticsTest {
+
+  @Test
+  void shouldRecordHitsMissesAndPuts() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    Cache cache = new LoggingCache(new PerpetualCache("default"), statistics);
+    cache.putObject("a", "value");
+    cache.getObject("a");
+    cache.getObject("a");
+    cache.getObject("b");
+    assertEquals(1, statistics.getPutCount());
+    assertEquals(2, statistics.getHitCount());
+    assertEquals(1, statistics.getMissCount());
+    assertEquals(2d / 3, statistics.getHitRatio(), 0.001);
+    assertEquals(1, statistics.getSize());
+    assertTrue(statistics.getEstimatedBytes() > 0);
+    statistics.reset();
+    assertEquals(0, statistics.getHitCount());
+    assertEquals(0, statistics.getHitRatio(), 0.001);
+  }
+
+  @Test
+  void shouldCountEvictionsOfTheBuiltCache() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    Cache cache = new CacheBuilder("default").size(5).statistics(statistics).build();
+    for (int i = 0; i < 8; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(3, statistics.getEvictionCount());
+    assertEquals(5, statistics.getSize());
+    assertEquals(8, statistics.getPutCount());
+  }
+
+  @Test
+  void shouldReportTheMostHitKeys() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    for (int i = 0; i < 1000; i++) {
+      statistics.recordHit("hot");
+      if (i % 100 == 0) {
+        statistics.recordHit("cold");
+      }
+    }
+    List<KeyStatistics> hotKeys = statistics.getHotKeys(1);
+    assertEquals(1, hotKeys.size());
+    assertEquals("hot", hotKeys.get(0).getKey());
+  }
+
+  @Test
+  void shouldReportTheMostExpensiveMisses() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    statistics.recordLoad("fast", 1_000);
+    statistics.recordLoad("slow", 1_000_000);
+    statistics.recordLoad("fast", 1_000);
+    List<KeyStatistics> misses = statistics.getExpensiveMisses(2);
+    assertEquals(2, misses.size());
+    assertEquals("slow", misses.get(0).getKey());
+    assertEquals(1_000_000, misses.get(0).getTotalTime());
+    assertEquals("fast", misses.get(1).getKey());
+    assertEquals(2, misses.get(1).getCount());
+    assertEquals(3, statistics.getLoadCount());
+    assertEquals(334_000, statistics.getAverageLoadTime());
+  }
+
+  @Test
+  void shouldRegisterMBeans() throws Exception {
+    Configuration configuration = new Configuration();
+    CacheStatistics statistics = new CacheStatistics("blog");
+    configuration.addCacheStatistics(statistics);
+    statistics.recordHit("a");
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    List<ObjectName> names = CacheStatisticsMBeans.register(configuration, "test");
+    try {
+      assertEquals(1, names.size());
+      assertEquals(1L, server.getAttribute(names.get(0), "HitCount"));
+      assertEquals("blog", server.getAttribute(names.get(0), "Id"));
+    } finally {
+      CacheStatisticsMBeans.unregister(configuration, "test");
+    }
+    assertFalse(server.isRegistered(names.get(0)));
+  }
+
+}
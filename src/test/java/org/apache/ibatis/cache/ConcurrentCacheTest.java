@@ -0,0 +1,143 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentCacheTest {
+
+  @Test
+  void shouldRemoveLeastRecentlyUsedItemInBeyondFiveEntries() {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(5);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+      sleepOneMilli();
+    }
+    assertEquals(0, cache.getObject(0));
+    cache.putObject(5, 5);
+    assertNull(cache.getObject(1));
+    assertEquals(0, cache.getObject(0));
+    assertEquals(5, cache.getSize());
+    assertEquals(1, cache.getEvictionCount());
+  }
+
+  @Test
+  void shouldEvictByWeight() {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setMaxWeight(5);
+    cache.putObject("a", Arrays.asList(1, 2, 3));
+    sleepOneMilli();
+    cache.putObject("b", Arrays.asList(4, 5));
+    assertEquals(5, cache.getWeight());
+    sleepOneMilli();
+    cache.putObject("c", Arrays.asList(6, 7));
+    assertNull(cache.getObject("a"));
+    assertNotNull(cache.getObject("b"));
+    assertEquals(4, cache.getWeight());
+  }
+
+  @Test
+  void shouldExpireAfterWrite() throws Exception {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setExpireAfterWrite(10);
+    cache.putObject(0, 0);
+    assertEquals(0, cache.getObject(0));
+    Thread.sleep(20);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+    assertEquals(1, cache.getExpirationCount());
+  }
+
+  @Test
+  void shouldCountHitsAndMisses() {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.putObject(0, 0);
+    cache.putObject(1, null);
+    cache.getObject(0);
+    cache.getObject(1);
+    cache.getObject(2);
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+    assertEquals(2, cache.getPutCount());
+  }
+
+  @Test
+  void shouldStayWithinSizeUnderConcurrentAccess() throws Exception {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(100);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      final int thread = t;
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 10000; i++) {
+          cache.putObject(thread * 10000 + i, i);
+          cache.getObject(thread * 10000 + i / 2);
+        }
+      }));
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    for (Future<?> future : futures) {
+      // fails if the eviction failed
+      future.get();
+    }
+    cache.putObject(-1, -1);
+    assertTrue(cache.getSize() <= 100);
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    Cache cache = new ConcurrentCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getWeight());
+  }
+
+  private static void sleepOneMilli() {
+    try {
+      Thread.sleep(1);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
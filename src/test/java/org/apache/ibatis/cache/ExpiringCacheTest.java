@@ -0,0 +1,147 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class ExpiringCacheTest {
+
+  @Test
+  void shouldExpireEachEntryAfterItsTimeToLive() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setTimeToLive(200);
+    cache.putObject(0, 0);
+    Thread.sleep(120);
+    cache.putObject(1, 1);
+    Thread.sleep(120);
+    assertNull(cache.getObject(0));
+    assertEquals(1, cache.getObject(1));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  void shouldKeepEntriesThatAreReadWithinTimeToIdle() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setTimeToIdle(200);
+    cache.putObject(0, 0);
+    cache.putObject(1, 1);
+    for (int i = 0; i < 3; i++) {
+      Thread.sleep(100);
+      assertEquals(0, cache.getObject(0));
+    }
+    assertNull(cache.getObject(1));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  void shouldReportOneMissBeforeTheEndOfTimeToLive() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setTimeToLive(1000);
+    cache.setRefreshAhead(900);
+    cache.putObject(0, 0);
+    Thread.sleep(150);
+    // the first reader reloads the entry, the others still get it
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getObject(0));
+    cache.putObject(0, 1);
+    assertEquals(1, cache.getObject(0));
+  }
+
+  @Test
+  void shouldForgetTheEntriesRemovedByAnEvictionDecorator() throws Exception {
+    ExpiringCache expiringCache = new ExpiringCache(new PerpetualCache("default"));
+    expiringCache.setTimeToLive(60000);
+    Cache cache = new LruCache(expiringCache);
+    for (int i = 0; i < 5000; i++) {
+      cache.putObject(i, i);
+      cache.getObject(i % 7);
+    }
+    assertEquals(1024, cache.getSize());
+    assertEquals(1024, trackedEntries(expiringCache));
+    assertEquals(0, cache.getObject(0));
+    assertEquals(4999, cache.getObject(4999));
+  }
+
+  @Test
+  void shouldNotTrackMoreEntriesThanTheDelegateHolds() throws Exception {
+    // stands for a cache that evicts by itself
+    FifoCache delegate = new FifoCache(new PerpetualCache("default"));
+    delegate.setSize(10);
+    ExpiringCache cache = new ExpiringCache(delegate);
+    cache.setTimeToLive(60000);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(10, cache.getSize());
+    assertEquals(10, trackedEntries(cache));
+    assertNull(cache.getObject(89));
+    assertEquals(90, cache.getObject(90));
+  }
+
+  @Test
+  void shouldExpireTheEntriesTheDelegateAlreadyHeld() throws Exception {
+    PerpetualCache delegate = new PerpetualCache("default");
+    delegate.putObject(0, 0);
+    delegate.putObject(1, 1);
+    ExpiringCache cache = new ExpiringCache(delegate);
+    cache.setTimeToIdle(200);
+    assertEquals(0, cache.getObject(0));
+    assertEquals(1, cache.getObject(1));
+    for (int i = 0; i < 3; i++) {
+      Thread.sleep(100);
+      assertEquals(0, cache.getObject(0));
+    }
+    assertNull(cache.getObject(1));
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setTimeToLive(60000);
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setTimeToLive(60000);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  private static int trackedEntries(ExpiringCache cache) throws Exception {
+    Field field = ExpiringCache.class.getDeclaredField("entries");
+    field.setAccessible(true);
+    return ((Map<?, ?>) field.get(cache)).size();
+  }
+
+}
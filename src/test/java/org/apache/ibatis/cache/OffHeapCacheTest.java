@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.codec.CompactSerializationCodec;
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheTest {
+
+  @Test
+  void shouldReturnCopiesOfTheValues() {
+    OffHeapCache cache = new OffHeapCache("default");
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, new Row(i, "row" + i));
+    }
+    assertEquals(100, cache.getSize());
+    Row row = (Row) cache.getObject(42);
+    assertEquals("row42", row.name);
+    assertNotSame(row, cache.getObject(42));
+    assertNull(cache.getObject(100));
+    assertEquals(2, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  void shouldEvictTheOldestSlabWhenFull() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(1024);
+    cache.setCapacity(4 * 1024);
+    cache.setCodec("compact");
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, new Row(i, "row" + i));
+    }
+    assertTrue(cache.getSize() < 1000);
+    assertTrue(cache.getEvictionCount() > 0);
+    assertEquals(1000, cache.getSize() + cache.getEvictionCount());
+    assertEquals(4 * 1024, cache.getAllocatedBytes());
+    assertNull(cache.getObject(0));
+    assertEquals("row999", ((Row) cache.getObject(999)).name);
+  }
+
+  @Test
+  void shouldRemoveAndClear() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.putObject(0, "zero");
+    cache.putObject(1, "one");
+    assertNull(cache.removeObject(0));
+    assertNull(cache.getObject(0));
+    cache.putObject(1, null);
+    assertNull(cache.getObject(1));
+    cache.putObject(2, "two");
+    cache.clear();
+    assertEquals(0, cache.getSize());
+    cache.putObject(3, "three");
+    assertEquals("three", cache.getObject(3));
+  }
+
+  @Test
+  void shouldNotCacheValuesLargerThanASlab() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(64);
+    cache.putObject(0, "small");
+    cache.putObject(0, new Row(0, new String(new char[100])));
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldRejectNonSerializableValues() {
+    OffHeapCache cache = new OffHeapCache("default");
+    assertThrows(CacheException.class, () -> cache.putObject(0, new Object()));
+  }
+
+  @Test
+  void compactCodecShouldWriteEachClassDescriptorOnce() {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      rows.add(new Row(i, "row" + i));
+    }
+    CompactSerializationCodec compact = new CompactSerializationCodec();
+    byte[] compactBytes = compact.encode(new Row(0, "row0"));
+    byte[] javaBytes = new JavaSerializationCodec().encode(new Row(0, "row0"));
+    assertTrue(compactBytes.length < javaBytes.length / 2);
+    assertEquals(new Row(0, "row0").name, ((Row) compact.decode(compactBytes)).name);
+    int descriptors = compact.getDescriptorCount();
+    @SuppressWarnings("unchecked")
+    List<Row> decoded = (List<Row>) compact.decode(compact.encode((Serializable) rows));
+    assertEquals(10, decoded.size());
+    assertEquals("row9", decoded.get(9).name);
+    // only the list class was added
+    assertEquals(descriptors + 1, compact.getDescriptorCount());
+    assertThrows(CacheException.class, () -> new CompactSerializationCodec().decode(compactBytes));
+  }
+
+  private static class Row implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final int id;
+    private final String name;
+
+    Row(int id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+  }
+
+}
@@ -0,0 +1,226 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.impl.PersistentCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PersistentCacheTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void shouldReloadEntriesAfterRestart() {
+    PersistentCache cache = newCache(64 * 1024, 0);
+    cache.putObject(key("select * from users where id = ?", 1), new ArrayList<>(Arrays.asList("user1")));
+    cache.putObject(key("select * from users where id = ?", 2), new ArrayList<>(Arrays.asList("user2")));
+    cache.putObject(key("select * from users where id = ?", 1), new ArrayList<>(Arrays.asList("user1b")));
+    cache.close();
+
+    PersistentCache restarted = newCache(64 * 1024, 0);
+    assertEquals(2, restarted.getSize());
+    assertEquals(Arrays.asList("user1b"), restarted.getObject(key("select * from users where id = ?", 1)));
+    assertEquals(Arrays.asList("user2"), restarted.getObject(key("select * from users where id = ?", 2)));
+    assertNull(restarted.getObject(key("select * from users where id = ?", 3)));
+  }
+
+  @Test
+  void shouldNotReloadRemovedOrClearedEntries() {
+    PersistentCache cache = newCache(64 * 1024, 0);
+    cache.putObject(1, "one");
+    cache.putObject(2, "two");
+    assertEquals("one", cache.removeObject(1));
+    cache.close();
+    assertEquals(1, reopenedSize());
+
+    cache.clear();
+    cache.putObject(3, "three");
+    cache.close();
+    PersistentCache restarted = newCache(64 * 1024, 0);
+    assertEquals(1, restarted.getSize());
+    assertNull(restarted.getObject(2));
+    assertEquals("three", restarted.getObject(3));
+  }
+
+  @Test
+  void shouldCompactAndEvictTheOldestEntriesWhenFull() {
+    PersistentCache cache = newCache(16 * 1024, 0);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i % 10, "value" + i);
+    }
+    // compacted, nothing to evict
+    assertEquals(10, cache.getSize());
+    assertEquals(0, cache.getEvictionCount());
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, new char[100]);
+    }
+    assertTrue(cache.getEvictionCount() > 0);
+    assertTrue(cache.getSize() < 1000);
+    assertNull(cache.getObject(0));
+    assertNotNull(cache.getObject(999));
+    int size = cache.getSize();
+    cache.close();
+
+    PersistentCache restarted = newCache(16 * 1024, 0);
+    assertEquals(size, restarted.getSize());
+    assertNotNull(restarted.getObject(999));
+  }
+
+  @Test
+  void shouldNotReloadExpiredEntries() throws Exception {
+    PersistentCache cache = newCache(64 * 1024, 100);
+    cache.putObject(1, "one");
+    assertEquals("one", cache.getObject(1));
+    Thread.sleep(150);
+    cache.close();
+    PersistentCache restarted = newCache(64 * 1024, 100);
+    assertNull(restarted.getObject(1));
+    restarted.close();
+    assertEquals("one", newCache(64 * 1024, 0).getObject(1));
+  }
+
+  @Test
+  void shouldStopReloadingAtATornRecord() throws Exception {
+    PersistentCache cache = newCache(64 * 1024, 0);
+    cache.putObject(1, "one");
+    cache.putObject(2, "two");
+    cache.close();
+    File file = directory.resolve("test.cache").toFile();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      // corrupts the last byte of the second value
+      long offset = 16;
+      raf.seek(offset);
+      offset += 8 + raf.readInt();
+      raf.seek(offset);
+      offset += 8 + raf.readInt();
+      raf.seek(offset - 1);
+      raf.write(0);
+    }
+    PersistentCache restarted = newCache(64 * 1024, 0);
+    assertEquals("one", restarted.getObject(1));
+    assertNull(restarted.getObject(2));
+    restarted.putObject(3, "three");
+    restarted.close();
+    assertEquals("three", newCache(64 * 1024, 0).getObject(3));
+  }
+
+  @Test
+  void shouldNotShareALockedFile() {
+    PersistentCache cache = newCache(64 * 1024, 0);
+    cache.putObject(1, "one");
+    PersistentCache other = newCache(64 * 1024, 0);
+    assertNull(other.getObject(1));
+    other.putObject(2, "two");
+    assertEquals("two", other.getObject(2));
+    assertNull(cache.getObject(2));
+    other.close();
+    cache.close();
+
+    PersistentCache restarted = newCache(64 * 1024, 0);
+    assertEquals("one", restarted.getObject(1));
+    assertNull(restarted.getObject(2));
+    restarted.close();
+    assertArrayEquals(new String[] { "test.cache" }, directory.toFile().list());
+  }
+
+  @Test
+  void shouldNotReloadEntriesExpiredByTheTimeToLiveOfTheCacheElement() throws Exception {
+    Cache cache = buildCache(100L, null);
+    cache.putObject(1, "one");
+    Thread.sleep(150);
+    unwrap(cache).close();
+
+    Cache restarted = buildCache(100L, null);
+    assertEquals(0, restarted.getSize());
+    assertNull(restarted.getObject(1));
+    unwrap(restarted).close();
+  }
+
+  @Test
+  void shouldExpireReloadedEntriesAfterTheTimeToIdleOfTheCacheElement() throws Exception {
+    Cache cache = buildCache(null, 200L);
+    cache.putObject(1, "one");
+    cache.putObject(2, "two");
+    unwrap(cache).close();
+
+    Cache restarted = buildCache(null, 200L);
+    assertEquals("one", restarted.getObject(1));
+    assertEquals("two", restarted.getObject(2));
+    for (int i = 0; i < 2; i++) {
+      Thread.sleep(120);
+      assertEquals("two", restarted.getObject(2));
+    }
+    assertNull(restarted.getObject(1));
+    unwrap(restarted).close();
+  }
+
+  private Cache buildCache(Long timeToLive, Long timeToIdle) {
+    Properties properties = new Properties();
+    properties.setProperty("directory", directory.toString());
+    properties.setProperty("fileSize", String.valueOf(64 * 1024));
+    return new CacheBuilder("test").implementation(PersistentCache.class).timeToLive(timeToLive)
+        .timeToIdle(timeToIdle).properties(properties).build();
+  }
+
+  private static PersistentCache unwrap(Cache cache) throws Exception {
+    while (!(cache instanceof PersistentCache)) {
+      Field field = cache.getClass().getDeclaredField("delegate");
+      field.setAccessible(true);
+      cache = (Cache) field.get(cache);
+    }
+    return (PersistentCache) cache;
+  }
+
+  private int reopenedSize() {
+    PersistentCache cache = newCache(64 * 1024, 0);
+    try {
+      return cache.getSize();
+    } finally {
+      cache.close();
+    }
+  }
+
+  private PersistentCache newCache(int fileSize, long expireAfterWrite) {
+    PersistentCache cache = new PersistentCache("test");
+    cache.setDirectory(directory.toString());
+    cache.setFileSize(fileSize);
+    cache.setExpireAfterWrite(expireAfterWrite);
+    cache.initialize();
+    return cache;
+  }
+
+  private static CacheKey key(String sql, Object parameter) {
+    CacheKey key = new CacheKey();
+    key.update("org.apache.ibatis.UserMapper.selectUser");
+    key.update(sql);
+    key.update(parameter);
+    return key;
+  }
+
+}
@@ -0,0 +1,136 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.impl.SharedCache;
+import org.apache.ibatis.cache.shared.LocalCacheInvalidationTransport;
+import org.apache.ibatis.cache.shared.SharedCacheRegion;
+import org.apache.ibatis.cache.shared.SharedCacheRegions;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class SharedCacheTest {
+
+  @Test
+  void shouldShareTheEntriesOfANamespace() {
+    Cache first = newCache("shareEntries", "blog");
+    Cache second = newCache("shareEntries", "blog");
+    Cache other = newCache("shareEntries", "author");
+    first.putObject("a", "value");
+    assertEquals("value", second.getObject("a"));
+    assertNull(other.getObject("a"));
+    SharedCacheRegions.removeRegion("shareEntries");
+  }
+
+  @Test
+  void shouldInvalidateTheNamespaceForAllBoundCaches() {
+    Cache first = newCache("invalidate", "blog");
+    Cache second = newCache("invalidate", "blog");
+    Cache other = newCache("invalidate", "author");
+    first.putObject("a", "value");
+    other.putObject("a", "value");
+    second.clear();
+    assertNull(first.getObject("a"));
+    assertEquals("value", other.getObject("a"));
+    SharedCacheRegions.removeRegion("invalidate");
+  }
+
+  @Test
+  void shouldNotShareRegions() {
+    Cache first = newCache("firstRegion", "blog");
+    Cache second = newCache("secondRegion", "blog");
+    first.putObject("a", "value");
+    assertNull(second.getObject("a"));
+    SharedCacheRegions.removeRegion("firstRegion");
+    SharedCacheRegions.removeRegion("secondRegion");
+  }
+
+  @Test
+  void shouldInvalidateOtherProcessesThroughTheTransport() {
+    // standalone regions stand for the same region in two processes
+    SharedCacheRegion local = new SharedCacheRegion("reference");
+    SharedCacheRegion remote = new SharedCacheRegion("reference");
+    local.getBus().setTransport(new LocalCacheInvalidationTransport("transportTest"));
+    remote.getBus().setTransport(new LocalCacheInvalidationTransport("transportTest"));
+    Cache localCache = local.getCache("blog", PerpetualCache::new);
+    Cache remoteCache = remote.getCache("blog", PerpetualCache::new);
+    localCache.putObject("a", "value");
+    remoteCache.putObject("a", "value");
+    local.invalidate("blog");
+    assertNull(localCache.getObject("a"));
+    assertNull(remoteCache.getObject("a"));
+    local.getBus().close();
+    remote.getBus().close();
+  }
+
+  @Test
+  void shouldBuildSharedCacheWithStandardDecorators() {
+    Cache cache = new CacheBuilder("blog").implementation(SharedCache.class).size(2).readWrite(true).build();
+    cache.putObject("a", "value");
+    assertEquals("value", cache.getObject("a"));
+    assertNotSame(cache.getObject("a"), cache.getObject("a"));
+    SharedCacheRegions.removeRegion("default");
+  }
+
+  @Test
+  void shouldNotBindANamespaceWithAnotherValueForm() {
+    // two factories declaring the same shared namespace
+    newBuilder("valueForm", null).readWrite(false).build();
+    CacheException e = assertThrows(CacheException.class, () -> newBuilder("valueForm", null).readWrite(true).build());
+    assertTrue(e.getCause().getMessage().contains("already stores read-only values"));
+    newBuilder("codec", "compact").readWrite(true).build();
+    e = assertThrows(CacheException.class, () -> newBuilder("codec", "java").readWrite(true).build());
+    assertTrue(e.getCause().getMessage().contains("already stores read/write (codec compact) values"));
+    SharedCacheRegions.removeRegion("valueForm");
+    SharedCacheRegions.removeRegion("codec");
+  }
+
+  @Test
+  void shouldShareTheCodecOfANamespace() {
+    Cache first = newBuilder("sharedCodec", "compact").readWrite(true).build();
+    Cache second = newBuilder("sharedCodec", "compact").readWrite(true).build();
+    ArrayList<Object> value = new ArrayList<>(Arrays.asList("a", 1, new Date(0)));
+    first.putObject("a", value);
+    assertEquals(value, second.getObject("a"));
+    assertNotSame(second.getObject("a"), second.getObject("a"));
+    SharedCacheRegions.removeRegion("sharedCodec");
+  }
+
+  private static CacheBuilder newBuilder(String region, String codec) {
+    Properties properties = new Properties();
+    properties.setProperty("region", region);
+    if (codec != null) {
+      properties.setProperty("codec", codec);
+    }
+    return new CacheBuilder("blog").implementation(SharedCache.class).properties(properties);
+  }
+
+  private static Cache newCache(String region, String namespace) {
+    SharedCache cache = new SharedCache(namespace);
+    cache.setRegion(region);
+    cache.initialize();
+    return cache;
+  }
+
+}
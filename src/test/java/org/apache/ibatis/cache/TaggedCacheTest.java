@@ -0,0 +1,100 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TaggedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class TaggedCacheTest {
+
+  @Test
+  void shouldFindTheTablesOfAStatement() {
+    assertEquals(tags("users"), CacheTags.fromSql("select * from users where id = ?"));
+    assertEquals(tags("users", "depts"), CacheTags.fromSql("SELECT u.* FROM Users u, DEPTS as d WHERE u.dept_id = d.id"));
+    assertEquals(tags("users", "depts"),
+        CacheTags.fromSql("select * from app.users u left outer join \"APP\".\"DEPTS\" d on u.dept_id = d.id"));
+    assertEquals(tags("users", "orders"),
+        CacheTags.fromSql("select * from (select * from users) u where exists (select 1 from orders o)"));
+    assertEquals(tags("users"), CacheTags.fromSql("insert into users (id, name) values (?, ?)"));
+    assertEquals(tags("users"), CacheTags.fromSql("update users set name = ? where id = ?"));
+    assertEquals(tags("users"), CacheTags.fromSql("delete from `users` where id = ?"));
+    assertEquals(tags("users", "staging"), CacheTags.fromSql("merge into users u using staging s on u.id = s.id"));
+    assertTrue(CacheTags.fromSql("call refresh_users()").isEmpty());
+  }
+
+  @Test
+  void shouldParseDeclaredTags() {
+    assertEquals(tags("users", "depts"), CacheTags.fromString(" Users, app.depts ,"));
+    assertTrue(CacheTags.fromString(" ").isEmpty());
+    assertTrue(CacheTags.fromString(null).isEmpty());
+  }
+
+  @Test
+  void shouldOnlyInvalidateEntriesWithIntersectingTags() {
+    CacheTagIndex index = new CacheTagIndex();
+    Cache cache = new SynchronizedCache(new TaggedCache(new PerpetualCache("default"), index));
+    index.bind(cache);
+    index.tag(1, tags("users"));
+    cache.putObject(1, 1);
+    index.tag(2, tags("users", "depts"));
+    cache.putObject(2, 2);
+    index.tag(3, tags("orders"));
+    cache.putObject(3, 3);
+    // put without tags, so unknown
+    cache.putObject(4, 4);
+
+    assertTrue(index.isInvalidatedBy(2, tags("depts")));
+    assertFalse(index.isInvalidatedBy(3, tags("depts")));
+    assertTrue(index.isInvalidatedBy(4, tags("depts")));
+    index.invalidate(tags("depts"));
+    assertEquals(1, cache.getObject(1));
+    assertNull(cache.getObject(2));
+    assertEquals(3, cache.getObject(3));
+    assertNull(cache.getObject(4));
+    assertEquals(2, index.size());
+  }
+
+  @Test
+  void shouldUntagEvictedEntries() {
+    CacheTagIndex index = new CacheTagIndex();
+    LruCache cache = new LruCache(new TaggedCache(new PerpetualCache("default"), index));
+    cache.setSize(5);
+    index.bind(cache);
+    for (int i = 0; i < 10; i++) {
+      index.tag(i, tags("users"));
+      cache.putObject(i, i);
+    }
+    assertEquals(5, index.size());
+    assertNull(index.getTags(0));
+    assertEquals(tags("users"), index.getTags(9));
+    cache.clear();
+    assertEquals(0, index.size());
+  }
+
+  private static Set<String> tags(String... tags) {
+    return new HashSet<>(Arrays.asList(tags));
+  }
+
+}
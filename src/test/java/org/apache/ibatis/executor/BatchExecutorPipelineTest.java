@@ -0,0 +1,122 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class BatchExecutorPipelineTest {
+
+  @Mock
+  private Connection connection;
+  @Mock
+  private PreparedStatement statement;
+
+  private final Configuration configuration = new Configuration();
+  private MappedStatement insert;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    configuration.setBatchFlushRows(1);
+    configuration.setBatchFlushPipelineDepth(1);
+    configuration.setBatchFlushPipelineThreadSafe(true);
+    List<ParameterMapping> parameterMappings = Collections.singletonList(
+        new ParameterMapping.Builder(configuration, "id", Integer.class).build());
+    insert = new MappedStatement.Builder(configuration, "insertUser",
+        new StaticSqlSource(configuration, "insert into users (id) values (?)", parameterMappings), SqlCommandType.INSERT)
+        .build();
+    when(connection.prepareStatement(anyString())).thenReturn(statement);
+  }
+
+  @Test
+  void shouldBlockTheCallerWhenTheQueueIsFull() throws Exception {
+    CountDownLatch executing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(statement.executeBatch()).thenAnswer(invocation -> {
+      executing.countDown();
+      release.await();
+      return new int[] { 1 };
+    });
+    BatchExecutor executor = new BatchExecutor(configuration, new JdbcTransaction(connection));
+    AtomicInteger updates = new AtomicInteger();
+    Thread caller = new Thread(() -> {
+      try {
+        for (int i = 0; i < 3; i++) {
+          executor.update(insert, i);
+          updates.incrementAndGet();
+        }
+      } catch (SQLException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    caller.start();
+    assertTrue(executing.await(10, TimeUnit.SECONDS));
+    // the first batch is executing and the second one fills the queue, so the third one waits
+    long deadline = System.currentTimeMillis() + 10000;
+    while ((updates.get() < 2 || caller.getState() != Thread.State.WAITING) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(100);
+    assertEquals(2, updates.get());
+    assertEquals(Thread.State.WAITING, caller.getState());
+
+    release.countDown();
+    caller.join(10000);
+    assertEquals(3, updates.get());
+    assertEquals(3, executor.flushStatements().size());
+    executor.close(false);
+  }
+
+  @Test
+  void shouldStopTheFlusherWhenClosed() throws Exception {
+    when(statement.executeBatch()).thenReturn(new int[] { 1 });
+    BatchExecutor executor = new BatchExecutor(configuration, new JdbcTransaction(connection));
+    executor.update(insert, 1);
+    Thread flusher = Thread.getAllStackTraces().keySet().stream()
+        .filter(t -> "mybatis-batch-flusher".equals(t.getName())).findFirst().orElse(null);
+    assertNotNull(flusher);
+
+    executor.close(false);
+    assertFalse(flusher.isAlive());
+  }
+
+}
@@ -0,0 +1,107 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.cache.SizeEstimator;
+import org.junit.jupiter.api.Test;
+
+class LocalCacheTest {
+
+  @Test
+  void shouldOnlyEvictWhenTrimmed() {
+    LocalCache cache = new LocalCache("local");
+    cache.setMaxEntries(2);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(5, cache.getSize());
+    cache.getObject(0);
+    cache.trim();
+    assertEquals(2, cache.getSize());
+    assertEquals(0, cache.getObject(0));
+    assertEquals(4, cache.getObject(4));
+    assertEquals(3, cache.getStatistics().getEvictionCount());
+  }
+
+  @Test
+  void shouldRemoveTransientEntriesWhenTrimmed() {
+    LocalCache cache = new LocalCache("local");
+    cache.putObject(1, 1);
+    cache.putTransientObject(2, 2);
+    assertEquals(2, cache.getObject(2));
+    cache.trim();
+    assertEquals(1, cache.getSize());
+    assertNull(cache.getObject(2));
+    assertEquals(0, cache.getStatistics().getEvictionCount());
+  }
+
+  @Test
+  void shouldEvictAboveTheByteLimit() {
+    List<String> small = Collections.singletonList("a");
+    List<String> large = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      large.add("row" + i);
+    }
+    LocalCache cache = new LocalCache("local");
+    cache.setMaxBytes(SizeEstimator.estimate(large) + SizeEstimator.estimate(small));
+    cache.putObject(1, large);
+    cache.putObject(2, small);
+    cache.trim();
+    assertEquals(2, cache.getSize());
+    assertEquals(SizeEstimator.estimate(large) + SizeEstimator.estimate(small), cache.getStatistics().getEstimatedBytes());
+
+    cache.putObject(3, small);
+    cache.trim();
+    assertNull(cache.getObject(1));
+    assertEquals(2, cache.getSize());
+    assertEquals(2 * SizeEstimator.estimate(small), cache.getStatistics().getEstimatedBytes());
+  }
+
+  @Test
+  void shouldCountLookups() {
+    LocalCache cache = new LocalCache("local");
+    assertNull(cache.lookup(1));
+    cache.putObject(1, 1);
+    assertEquals(1, cache.lookup(1));
+    cache.getObject(1);
+    LocalCacheStatistics statistics = cache.getStatistics();
+    assertEquals(1, statistics.getHitCount());
+    assertEquals(1, statistics.getMissCount());
+    assertEquals(-1, statistics.getEstimatedBytes());
+  }
+
+  @Test
+  void shouldEstimateLargerResultsAsLarger() {
+    List<String> rows = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      rows.add("row" + i);
+    }
+    long tenRows = SizeEstimator.estimate(rows);
+    for (int i = 10; i < 100; i++) {
+      rows.add("row" + i);
+    }
+    long hundredRows = SizeEstimator.estimate(rows);
+    assertTrue(tenRows > 0);
+    assertTrue(hundredRows > 8 * tenRows);
+  }
+
+}
@@ -0,0 +1,114 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.StringTypeHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ResultSetWrapperTest {
+
+  @Mock
+  private ResultSet rs;
+  @Mock
+  private ResultSetMetaData rsmd;
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldReuseShapeForSameColumnLayout() throws Exception {
+    stubColumn("ID");
+    final Map<CacheKey, ResultSetShape> shapeCache = new HashMap<>();
+
+    final ResultSetWrapper first = new ResultSetWrapper(rs, configuration, shapeCache);
+    final ResultSetWrapper second = new ResultSetWrapper(rs, configuration, shapeCache);
+
+    assertThat(shapeCache).hasSize(1);
+    assertThat(second.getShape()).isSameAs(first.getShape());
+    assertThat(first.getColumnIndex("id")).isEqualTo(1);
+    assertThat(second.getTypeHandler(Integer.class, "ID")).isInstanceOf(IntegerTypeHandler.class)
+        .isSameAs(first.getTypeHandler(Integer.class, "ID"));
+  }
+
+  @Test
+  void shouldResolveNewShapeWhenColumnTypesDiffer() throws Exception {
+    stubColumn("ID");
+    final Map<CacheKey, ResultSetShape> shapeCache = new HashMap<>();
+    final ResultSetWrapper first = new ResultSetWrapper(rs, configuration, shapeCache);
+
+    when(rsmd.getColumnType(1)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(String.class.getCanonicalName());
+    final ResultSetWrapper second = new ResultSetWrapper(rs, configuration, shapeCache);
+
+    assertThat(shapeCache).hasSize(2);
+    assertThat(second.getShape()).isNotSameAs(first.getShape());
+    assertThat(second.getShape().getKey()).isNotEqualTo(first.getShape().getKey());
+    assertThat(first.getJdbcType("ID")).isEqualTo(JdbcType.INTEGER);
+    assertThat(second.getJdbcType("ID")).isEqualTo(JdbcType.VARCHAR);
+    assertThat(first.getTypeHandler(Object.class, "ID")).isInstanceOf(IntegerTypeHandler.class);
+    assertThat(second.getTypeHandler(Object.class, "ID")).isInstanceOf(StringTypeHandler.class);
+  }
+
+  @Test
+  void shouldResolveNewShapeWhenColumnLayoutDiffers() throws Exception {
+    stubColumn("ID");
+    final Map<CacheKey, ResultSetShape> shapeCache = new HashMap<>();
+    final ResultSetWrapper first = new ResultSetWrapper(rs, configuration, shapeCache);
+
+    when(rsmd.getColumnLabel(1)).thenReturn("USER_ID");
+    final ResultSetWrapper second = new ResultSetWrapper(rs, configuration, shapeCache);
+
+    assertThat(shapeCache).hasSize(2);
+    assertThat(second.getShape()).isNotSameAs(first.getShape());
+    assertThat(second.getColumnNames()).containsExactly("USER_ID");
+  }
+
+  @Test
+  void shouldNotShareShapeWithoutCache() throws Exception {
+    stubColumn("ID");
+
+    final ResultSetWrapper first = new ResultSetWrapper(rs, configuration);
+    final ResultSetWrapper second = new ResultSetWrapper(rs, configuration);
+
+    assertThat(second.getShape()).isNotSameAs(first.getShape());
+    assertThat(second.getShape().getKey()).isEqualTo(first.getShape().getKey());
+  }
+
+  private void stubColumn(String label) throws Exception {
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn(label);
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+  }
+
+}
@@ -0,0 +1,224 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSource;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.io.Resources;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentPooledDataSourceTest extends BaseDataTest {
+
+  @Test
+  void shouldProperlyMaintainPoolOf3ActiveAnd2IdleConnections() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setDefaultAutoCommit(false);
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolMaximumCheckoutTime(10000);
+      ds.setPoolTimeToWait(10000);
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertEquals(0, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertNotNull(ds.getPoolState().toString());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReuseTheConnectionReturnedLastByTheSameThread() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      Connection first = ds.getConnection();
+      Connection second = ds.getConnection();
+      Connection realSecond = PooledDataSource.unwrapConnection(second);
+      first.close();
+      second.close();
+      Connection reused = ds.getConnection();
+      assertSame(realSecond, PooledDataSource.unwrapConnection(reused));
+      reused.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotReuseTheWrapperReturnedLastWhenAnotherThreadCheckedItOut() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      Connection connection = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(connection);
+      connection.close();
+      // another thread checks out and returns the same real connection, which puts a new wrapper in the pool
+      CompletableFuture.runAsync(() -> {
+        try {
+          Connection other = ds.getConnection();
+          assertSame(realConnection, PooledDataSource.unwrapConnection(other));
+          other.close();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }).get(5, TimeUnit.SECONDS);
+
+      Connection reused = ds.getConnection();
+      assertSame(realConnection, PooledDataSource.unwrapConnection(reused));
+      assertFalse(reused.isClosed());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      reused.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldValidateTheConnectionReturnedLastOnce() throws Exception {
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    AtomicInteger validations = new AtomicInteger();
+    UnpooledDataSource unpooled = new UnpooledDataSource(props.getProperty("driver"), props.getProperty("url"),
+        props.getProperty("username"), props.getProperty("password")) {
+      @Override
+      public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        // every validation of a pooled connection checks whether its real connection is closed
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+              if ("isClosed".equals(method.getName())) {
+                validations.incrementAndGet();
+              }
+              try {
+                return method.invoke(connection, args);
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              }
+            });
+      }
+    };
+    ConcurrentPooledDataSource ds = new ConcurrentPooledDataSource(unpooled);
+    try {
+      // sets the expected connection type code, which is not set when the pool wraps a data source
+      ds.forceCloseAll();
+      Connection connection = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(connection);
+      connection.close();
+
+      validations.set(0);
+      Connection reused = ds.getConnection();
+      assertSame(realConnection, PooledDataSource.unwrapConnection(reused));
+      assertEquals(1, validations.get());
+      reused.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldHandOverReturnedConnectionToWaitingThread() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolTimeToWait(10000);
+      Connection connection = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(connection);
+      CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+        try {
+          return ds.getConnection();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      while (ds.getPoolState().getWaitingThreadCount() == 0) {
+        Thread.sleep(10);
+      }
+      connection.close();
+      Connection handedOver = waiter.get(5, TimeUnit.SECONDS);
+      assertSame(realConnection, PooledDataSource.unwrapConnection(handedOver));
+      assertEquals(1, ds.getPoolState().getHadToWaitCount());
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      handedOver.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldClaimOverdueConnection() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(10);
+      Connection overdue = ds.getConnection();
+      Thread.sleep(50);
+      Connection claimed = ds.getConnection();
+      assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertFalse(claimed.isClosed());
+      overdue.close();
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      claimed.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private ConcurrentPooledDataSource createConcurrentPooledDataSource() throws IOException {
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    ConcurrentPooledDataSource ds = new ConcurrentPooledDataSource();
+    ds.setDriver(props.getProperty("driver"));
+    ds.setUrl(props.getProperty("url"));
+    ds.setUsername(props.getProperty("username"));
+    ds.setPassword(props.getProperty("password"));
+    return ds;
+  }
+
+}
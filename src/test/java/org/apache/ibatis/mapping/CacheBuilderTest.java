@@ -19,10 +19,18 @@ import static com.googlecode.catchexception.apis.BDDCatchException.*;
 import static org.assertj.core.api.BDDAssertions.then;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
 
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -43,6 +51,30 @@ class CacheBuilderTest {
       .hasMessage("Failed cache initialization for 'test' on 'org.apache.ibatis.mapping.CacheBuilderTest$InitializingFailureCache'");
   }
 
+  @Test
+  void testConcurrentCacheIsNotSynchronized() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentCache.class).addDecorator(LruCache.class).size(10).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    ConcurrentCache concurrentCache = unwrap(cache);
+    concurrentCache.putObject(0, 0);
+    Assertions.assertThat(cache.getObject(0)).isEqualTo(0);
+  }
+
+  @Test
+  void testOffHeapCacheIsNotSerializedTwice() {
+    Properties properties = new Properties();
+    properties.setProperty("codec", "compact");
+    properties.setProperty("slabSize", "1024");
+    Cache cache = new CacheBuilder("test").implementation(OffHeapCache.class).readWrite(true).properties(properties).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    Assertions.assertThat((Cache) unwrap(cache)).isInstanceOf(OffHeapCache.class);
+    List<String> value = new ArrayList<>(Arrays.asList("a", "b"));
+    cache.putObject(0, value);
+    Assertions.assertThat(cache.getObject(0)).isEqualTo(value).isNotSameAs(value);
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T unwrap(Cache cache) {
     Field field;
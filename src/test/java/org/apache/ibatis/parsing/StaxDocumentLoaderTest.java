@@ -0,0 +1,84 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+class StaxDocumentLoaderTest {
+
+  private static final String MAPPER = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+      + "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">\n"
+      + "<mapper namespace=\"org.apache.ibatis.parsing.StaxMapper\">\n"
+      + "  <!-- comments are dropped -->\n"
+      + "  <select id=\"select\" resultType=\"map\">\n"
+      + "    select * from users where id &gt; #{id}\n"
+      + "    <if test=\"name != null\"><![CDATA[and name < #{name}]]></if>\n"
+      + "  </select>\n"
+      + "</mapper>\n";
+
+  @Test
+  void shouldLoadTheSameDocumentAsTheDomParser() {
+    Document document = StaxDocumentLoader.load(stream(MAPPER));
+    XPathParser stax = new XPathParser(document, false, null, null);
+    XPathParser dom = new XPathParser(MAPPER.replaceFirst("<!DOCTYPE[^>]*>", ""));
+
+    XNode mapper = stax.evalNode("/mapper");
+    assertEquals("org.apache.ibatis.parsing.StaxMapper", mapper.getStringAttribute("namespace"));
+    assertEquals(dom.evalNode("/mapper").toString(), mapper.toString());
+    assertEquals(dom.evalNode("/mapper").getNode().getTextContent(), mapper.getNode().getTextContent());
+
+    XNode select = stax.evalNode("/mapper/select");
+    assertEquals("select * from users where id > #{id}", select.getNode().getFirstChild().getNodeValue().trim());
+    XNode condition = select.evalNode("if");
+    List<XNode> children = condition.getChildren();
+    assertTrue(children.isEmpty());
+    assertEquals(Node.CDATA_SECTION_NODE, condition.getNode().getFirstChild().getNodeType());
+    assertEquals("and name < #{name}", condition.getStringBody());
+  }
+
+  @Test
+  void shouldKeepLongTextsInOneNode() {
+    StringBuilder sql = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      sql.append("column").append(i).append(" &amp; ");
+    }
+    Document document = StaxDocumentLoader.load(stream("<mapper><sql id=\"long\">" + sql + "</sql></mapper>"));
+    Node fragment = document.getDocumentElement().getFirstChild();
+    assertNotNull(fragment.getFirstChild());
+    assertNull(fragment.getFirstChild().getNextSibling());
+    assertEquals(sql.toString().replace("&amp;", "&"), fragment.getTextContent());
+  }
+
+  @Test
+  void shouldReportMalformedDocuments() {
+    assertThrows(BuilderException.class, () -> StaxDocumentLoader.load(stream("<mapper><select></mapper>")));
+  }
+
+  private static InputStream stream(String xml) {
+    return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
@@ -16,11 +16,13 @@
 package org.apache.ibatis.parsing;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.List;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -194,6 +196,29 @@ class XPathParserTest {
     assertEquals("employee[${id_var}]_height", node.getValueBasedIdentifier());
   }
 
+  @Test
+  void evalElementPaths() throws Exception {
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      XPathParser parser = new XPathParser(inputStream);
+      XNode employee = parser.evalNode("/employee");
+      assertEquals("employee", employee.getName());
+      assertEquals("1970", employee.evalNode("birth_date/year").getStringBody());
+      assertEquals("1970", employee.evalNode("/employee/birth_date/year").getStringBody());
+      assertNull(employee.evalNode("birth_date/hour"));
+      assertEquals(0, employee.evalNodes("year").size());
+
+      List<XNode> names = employee.evalNodes("last_name|first_name");
+      assertEquals(2, names.size());
+      assertEquals("first_name", names.get(0).getName());
+      assertEquals("last_name", names.get(1).getName());
+
+      // expressions that are not made of element names are still evaluated by XPath
+      assertEquals(3, employee.evalNodes("birth_date/*").size());
+      assertEquals("ft", employee.evalNode("height/@units").getStringBody());
+      assertEquals(2, employee.evalNodes("height | weight").size());
+    }
+  }
+
   @Test
   void formatXNodeToString() {
     XPathParser parser = new XPathParser("<users><user><id>100</id><name>Tom</name><age>30</age><cars><car>BMW</car><car>Audi</car><car>Benz</car></cars></user></users>");
@@ -0,0 +1,129 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.junit.jupiter.api.Test;
+
+class InvokersTest {
+
+  @Test
+  void shouldAccessPropertiesWithEachInvokerType() throws Exception {
+    for (InvokerType invokerType : InvokerType.values()) {
+      Reflector reflector = new Reflector(Bean.class, invokerType);
+      Bean bean = new Bean();
+      reflector.getSetInvoker("id").invoke(bean, new Object[] { 1 });
+      reflector.getSetInvoker("name").invoke(bean, new Object[] { "John" });
+      reflector.getSetInvoker("active").invoke(bean, new Object[] { true });
+      reflector.getSetInvoker("note").invoke(bean, new Object[] { "field" });
+      assertEquals(1, reflector.getGetInvoker("id").invoke(bean, null));
+      assertEquals("John", reflector.getGetInvoker("name").invoke(bean, null));
+      assertEquals(true, reflector.getGetInvoker("active").invoke(bean, null));
+      assertEquals("field", reflector.getGetInvoker("note").invoke(bean, null));
+      assertEquals("constant", reflector.getGetInvoker("constant").invoke(bean, null));
+    }
+  }
+
+  @Test
+  void shouldUseMethodHandles() {
+    Reflector reflector = new Reflector(Bean.class, InvokerType.METHOD_HANDLE);
+    assertEquals(MethodHandleMethodInvoker.class, reflector.getGetInvoker("id").getClass());
+    assertEquals(MethodHandleMethodInvoker.class, reflector.getSetInvoker("id").getClass());
+    assertEquals(MethodHandleGetFieldInvoker.class, reflector.getGetInvoker("note").getClass());
+    assertEquals(MethodHandleSetFieldInvoker.class, reflector.getSetInvoker("note").getClass());
+  }
+
+  @Test
+  void shouldUseLambdasForMethods() {
+    Reflector reflector = new Reflector(Bean.class, InvokerType.LAMBDA);
+    assertEquals(LambdaGetterInvoker.class, reflector.getGetInvoker("id").getClass());
+    assertEquals(LambdaSetterInvoker.class, reflector.getSetInvoker("id").getClass());
+    assertEquals(MethodHandleGetFieldInvoker.class, reflector.getGetInvoker("note").getClass());
+  }
+
+  @Test
+  void shouldFallBackToReflectionForStaticMembers() {
+    Reflector reflector = new Reflector(Bean.class, InvokerType.LAMBDA);
+    assertEquals(MethodInvoker.class, reflector.getGetInvoker("shared").getClass());
+  }
+
+  @Test
+  void shouldWrapExceptionsOfTheTarget() {
+    for (InvokerType invokerType : InvokerType.values()) {
+      Reflector reflector = new Reflector(Bean.class, invokerType);
+      InvocationTargetException e = assertThrows(InvocationTargetException.class,
+          () -> reflector.getGetInvoker("broken").invoke(new Bean(), null));
+      assertEquals(IllegalStateException.class, e.getTargetException().getClass());
+    }
+  }
+
+  @Test
+  void shouldDiscardCachedReflectorsWhenTheInvokerTypeChanges() {
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    assertEquals(MethodInvoker.class, reflector.getGetInvoker("id").getClass());
+    reflectorFactory.setInvokerType(InvokerType.METHOD_HANDLE);
+    assertNotSame(reflector, reflectorFactory.findForClass(Bean.class));
+    assertEquals(MethodHandleMethodInvoker.class,
+        reflectorFactory.findForClass(Bean.class).getGetInvoker("id").getClass());
+  }
+
+  static class Bean {
+    private int id;
+    private String name;
+    private boolean active;
+    private String note;
+    private final String constant = "constant";
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    private String getName() {
+      return name;
+    }
+
+    private void setName(String name) {
+      this.name = name;
+    }
+
+    public boolean isActive() {
+      return active;
+    }
+
+    public void setActive(boolean active) {
+      this.active = active;
+    }
+
+    public String getBroken() {
+      throw new IllegalStateException("broken");
+    }
+
+    public static String getShared() {
+      return "shared";
+    }
+  }
+
+}
@@ -0,0 +1,162 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.property;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.junit.jupiter.api.Test;
+
+class PropertyPathTest {
+
+  @Test
+  void shouldCacheCompiledPaths() {
+    assertSame(PropertyPath.compile("customer.address.city"), PropertyPath.compile("customer.address.city"));
+  }
+
+  @Test
+  void shouldGetAndSetNestedBeanProperties() {
+    Order order = new Order();
+    order.setCustomer(new Customer());
+    MetaObject metaObject = SystemMetaObject.forObject(order);
+    PropertyPath path = PropertyPath.compile("customer.name");
+    path.setValue(metaObject, "John");
+    assertEquals("John", order.getCustomer().getName());
+    assertEquals("John", path.getValue(metaObject));
+  }
+
+  @Test
+  void shouldInstantiateNullIntermediateValues() {
+    Order order = new Order();
+    MetaObject metaObject = SystemMetaObject.forObject(order);
+    PropertyPath.compile("customer.address.city").setValue(metaObject, "Paris");
+    assertEquals("Paris", order.getCustomer().getAddress().getCity());
+  }
+
+  @Test
+  void shouldNotInstantiateNullIntermediateValuesForNull() {
+    Order order = new Order();
+    MetaObject metaObject = SystemMetaObject.forObject(order);
+    PropertyPath.compile("customer.address.city").setValue(metaObject, null);
+    assertNull(order.getCustomer());
+    assertNull(PropertyPath.compile("customer.address.city").getValue(metaObject));
+  }
+
+  @Test
+  void shouldResolveIndexedAndMapSegments() {
+    Order order = new Order();
+    Customer customer = new Customer();
+    customer.getAddresses().add(new Address());
+    customer.getAttributes().put("vip", new Address());
+    order.setCustomer(customer);
+    MetaObject metaObject = SystemMetaObject.forObject(order);
+    PropertyPath.compile("customer.addresses[0].city").setValue(metaObject, "Lyon");
+    PropertyPath.compile("customer.attributes.vip.city").setValue(metaObject, "Nice");
+    assertEquals("Lyon", PropertyPath.compile("customer.addresses[0].city").getValue(metaObject));
+    assertEquals("Nice", PropertyPath.compile("customer.attributes[vip].city").getValue(metaObject));
+  }
+
+  @Test
+  void shouldFollowTheRuntimeClassOfIntermediateValues() {
+    PropertyPath path = PropertyPath.compile("customer.name");
+    Order order = new Order();
+    order.setCustomer(new Customer());
+    order.getCustomer().setName("John");
+    assertEquals("John", path.getValue(SystemMetaObject.forObject(order)));
+    order.setCustomer(new PreferredCustomer());
+    order.getCustomer().setName("Jane");
+    assertEquals("preferred Jane", path.getValue(SystemMetaObject.forObject(order)));
+  }
+
+  @Test
+  void shouldReportMissingProperties() {
+    Order order = new Order();
+    order.setCustomer(new Customer());
+    MetaObject metaObject = SystemMetaObject.forObject(order);
+    assertThrows(ReflectionException.class, () -> PropertyPath.compile("customer.missing").getValue(metaObject));
+    assertThrows(ReflectionException.class, () -> PropertyPath.compile("customer.missing").setValue(metaObject, "x"));
+  }
+
+  public static class Order {
+    private Customer customer;
+
+    public Customer getCustomer() {
+      return customer;
+    }
+
+    public void setCustomer(Customer customer) {
+      this.customer = customer;
+    }
+  }
+
+  public static class Customer {
+    private String name;
+    private Address address;
+    private final List<Address> addresses = new ArrayList<>();
+    private final Map<String, Address> attributes = new HashMap<>();
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public Address getAddress() {
+      return address;
+    }
+
+    public void setAddress(Address address) {
+      this.address = address;
+    }
+
+    public List<Address> getAddresses() {
+      return addresses;
+    }
+
+    public Map<String, Address> getAttributes() {
+      return attributes;
+    }
+  }
+
+  public static class PreferredCustomer extends Customer {
+    @Override
+    public String getName() {
+      return "preferred " + super.getName();
+    }
+  }
+
+  public static class Address {
+    private String city;
+
+    public String getCity() {
+      return city;
+    }
+
+    public void setCity(String city) {
+      this.city = city;
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.defaults;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class ParameterBinderTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldReadBeanProperties() {
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS);
+    Blog blog = new Blog(1, "Blog title", author, Collections.emptyList());
+    ParameterBinder binder = new ParameterBinder(configuration, Blog.class);
+    assertFalse(binder.isTypeHandled());
+    assertEquals(1, binder.getValue(blog, "id"));
+    assertEquals("Blog title", binder.getValue(blog, "title"));
+    assertEquals("jim", binder.getValue(blog, "author.username"));
+    assertEquals(Section.NEWS, binder.getValue(blog, "author.favouriteSection"));
+    assertNull(binder.getValue(new Blog(2, "No author", null, null), "author.username"));
+  }
+
+  @Test
+  void shouldLeaveDynamicPathsToMetaObject() {
+    Blog blog = new Blog(1, "Blog title", null, Collections.emptyList());
+    ParameterBinder binder = new ParameterBinder(configuration, Blog.class);
+    assertSame(ParameterBinder.UNRESOLVED, binder.getValue(blog, "posts[0].subject"));
+    assertSame(ParameterBinder.UNRESOLVED, binder.getValue(blog, "unknown"));
+    assertThrows(ReflectionException.class, () -> configuration.newMetaObject(blog).getValue("unknown"));
+  }
+
+  @Test
+  void shouldReadSimpleMapEntries() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("id", 1);
+    parameter.put("author", new Author(101));
+    ParameterBinder binder = new ParameterBinder(configuration, HashMap.class);
+    assertEquals(1, binder.getValue(parameter, "id"));
+    assertNull(binder.getValue(parameter, "missing"));
+    assertSame(ParameterBinder.UNRESOLVED, binder.getValue(parameter, "author.id"));
+  }
+
+  @Test
+  void shouldDetectTypeHandledParameters() {
+    assertTrue(new ParameterBinder(configuration, Integer.class).isTypeHandled());
+    assertTrue(new ParameterBinder(configuration, String.class).isTypeHandled());
+  }
+
+}
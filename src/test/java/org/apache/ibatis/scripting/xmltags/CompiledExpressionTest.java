@@ -0,0 +1,114 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CompiledExpressionTest {
+
+  private final Configuration configuration = new Configuration();
+  private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+
+  @Test
+  void shouldCompileSimpleConditions() {
+    assertNotNull(CompiledExpression.compile("username"));
+    assertNotNull(CompiledExpression.compile("username != null"));
+    assertNotNull(CompiledExpression.compile("username != null and username != ''"));
+    assertNotNull(CompiledExpression.compile("author.username == null || id neq null && bio eq \"\""));
+  }
+
+  @Test
+  void shouldNotCompileOtherExpressions() {
+    assertNull(CompiledExpression.compile("username == 'cbegin'"));
+    assertNull(CompiledExpression.compile("id > 0"));
+    assertNull(CompiledExpression.compile("!username"));
+    assertNull(CompiledExpression.compile("list.size() > 0"));
+    assertNull(CompiledExpression.compile("(username != null)"));
+    assertNull(CompiledExpression.compile("null != username"));
+    assertNull(CompiledExpression.compile("username !="));
+    assertNull(CompiledExpression.compile("username and"));
+    assertNull(CompiledExpression.compile("@java.lang.Math@max(1, 2)"));
+  }
+
+  @Test
+  void shouldAgreeWithOgnlOnBeanParameter() {
+    Author author = new Author(1, "cbegin", null, "", "N/A", Section.NEWS);
+    DynamicContext context = new DynamicContext(configuration, author);
+    assertCompiledAs(true, "username != null", context);
+    assertCompiledAs(false, "password != null", context);
+    assertCompiledAs(true, "password == null", context);
+    assertCompiledAs(false, "email != null and email != ''", context);
+    assertCompiledAs(true, "password != null or username != ''", context);
+    assertCompiledAs(true, "username", context);
+    assertCompiledAs(false, "password", context);
+  }
+
+  @Test
+  void shouldAgreeWithOgnlOnMapParameter() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("author", new Author(1, "cbegin", null, "", "N/A", Section.NEWS));
+    parameter.put("active", Boolean.TRUE);
+    DynamicContext context = new DynamicContext(configuration, parameter);
+    assertCompiledAs(true, "author.username != null", context);
+    assertCompiledAs(true, "author.password == null", context);
+    assertCompiledAs(true, "active and author != null", context);
+    assertCompiledAs(false, "missing != null", context);
+  }
+
+  @Test
+  void shouldLeaveUndecidableConditionsToOgnl() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("id", 1);
+    parameter.put("name", "yes");
+    parameter.put("author", null);
+    DynamicContext context = new DynamicContext(configuration, parameter);
+    // numbers and strings are coerced by OGNL
+    assertSame(CompiledExpression.UNRESOLVED, CompiledExpression.compile("id").evaluateBoolean(context));
+    assertSame(CompiledExpression.UNRESOLVED, CompiledExpression.compile("id != ''").evaluateBoolean(context));
+    assertSame(CompiledExpression.UNRESOLVED, CompiledExpression.compile("name and id == null").evaluateBoolean(context));
+    // OGNL reports the null intermediate property
+    assertSame(CompiledExpression.UNRESOLVED, CompiledExpression.compile("author.username != null").evaluateBoolean(context));
+  }
+
+  @Test
+  void shouldEvaluateCollectionPaths() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("ids", Arrays.asList(1, 2, 3));
+    DynamicContext context = new DynamicContext(configuration, parameter);
+    CompiledExpression expression = CompiledExpression.compile("ids");
+    assertTrue(expression.isPath());
+    assertEquals(Arrays.asList(1, 2, 3), expression.evaluateValue(context));
+    assertEquals(Arrays.asList(1, 2, 3), evaluator.evaluateIterable("ids", expression, context));
+    assertFalse(CompiledExpression.compile("ids != null").isPath());
+  }
+
+  private void assertCompiledAs(boolean expected, String expression, DynamicContext context) {
+    CompiledExpression compiled = CompiledExpression.compile(expression);
+    assertNotNull(compiled);
+    assertEquals(expected, compiled.evaluateBoolean(context));
+    assertEquals(expected, evaluator.evaluateBoolean(expression, context.getBindings()));
+  }
+
+}
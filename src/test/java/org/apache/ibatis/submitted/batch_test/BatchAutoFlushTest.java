@@ -0,0 +1,218 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchExecutorException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchAutoFlushTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_test/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/batch_test/CreateDB.sql");
+  }
+
+  @AfterEach
+  void resetSettings() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setBatchFlushRows(null);
+    configuration.setBatchFlushBytes(null);
+    configuration.setBatchFlushPipelineDepth(null);
+    configuration.setBatchFlushPipelineThreadSafe(null);
+    configuration.setRetainBatchParameters(true);
+  }
+
+  @Test
+  void shouldFlushEveryNRows() {
+    sqlSessionFactory.getConfiguration().setBatchFlushRows(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 5; i++) {
+        mapper.insertUser(newUser(10 + i));
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertThat(results).hasSize(3);
+      assertThat(results.get(0).getUpdateCounts()).containsExactly(2);
+      assertThat(results.get(1).getUpdateCounts()).containsExactly(2);
+      assertThat(results.get(2).getUpdateCounts()).containsExactly(1);
+      assertThat(results.get(0).getParameterObjects()).isEmpty();
+      assertThat(results.get(2).getParameterObjects()).hasSize(1);
+      assertThat(mapper.getUser(14).getName()).isEqualTo("User14");
+    }
+  }
+
+  @Test
+  void shouldFlushWhenByteLimitIsReached() {
+    sqlSessionFactory.getConfiguration().setBatchFlushBytes(1);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 3; i++) {
+        mapper.insertUser(newUser(20 + i));
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertThat(results).hasSize(3);
+      assertThat(results).allSatisfy(result -> assertThat(result.getUpdateCounts()).hasSize(1));
+    }
+  }
+
+  @Test
+  void shouldDropParameterObjectsWhenNotRetained() {
+    sqlSessionFactory.getConfiguration().setRetainBatchParameters(false);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(newUser(30));
+      mapper.insertUser(newUser(31));
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertThat(results).hasSize(1);
+      assertThat(results.get(0).getUpdateCounts()).hasSize(2);
+      assertThat(results.get(0).getParameterObjects()).isEmpty();
+      assertThat(results.get(0).getParameterObject()).isNull();
+    }
+  }
+
+  @Test
+  void shouldKeepSuccessfulResultsOfAutomaticFlushAfterClose() {
+    sqlSessionFactory.getConfiguration().setBatchFlushRows(1);
+    BatchExecutorException failure;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(newUser(60));
+      User user = newUser(61);
+      user.setName("A name that does not fit the column");
+      Throwable thrown = catchThrowable(() -> mapper.insertUser(user));
+      assertThat(thrown).hasCauseInstanceOf(BatchExecutorException.class);
+      failure = (BatchExecutorException) thrown.getCause();
+    }
+    assertThat(failure.getSuccessfulBatchResults()).hasSize(1);
+    assertThat(failure.getSuccessfulBatchResults().get(0).getUpdateCounts()).containsExactly(1);
+  }
+
+  @Test
+  void shouldFlushOnCallerThreadWhenDriverIsNotKnownToBeThreadSafe() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setBatchFlushRows(2);
+    configuration.setBatchFlushPipelineDepth(1);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 7; i++) {
+        mapper.insertUser(newUser(40 + i));
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertThat(results).hasSize(4);
+      assertThat(results.get(3).getUpdateCounts()).hasSize(1);
+      assertThat(mapper.getUser(46).getName()).isEqualTo("User46");
+      assertThat(Thread.getAllStackTraces().keySet()).noneMatch(t -> "mybatis-batch-flusher".equals(t.getName()));
+    }
+  }
+
+  @Test
+  void shouldFlushOnBackgroundThreadWhenConnectionsAreConfiguredThreadSafe() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setBatchFlushRows(2);
+    configuration.setBatchFlushPipelineDepth(1);
+    configuration.setBatchFlushPipelineThreadSafe(true);
+    Thread flusher;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 7; i++) {
+        mapper.insertUser(newUser(70 + i));
+      }
+      flusher = findFlusher();
+      assertThat(flusher).isNotNull();
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertThat(results).hasSize(4);
+      assertThat(results.get(0).getUpdateCounts()).containsExactly(2);
+      assertThat(results.get(3).getUpdateCounts()).hasSize(1);
+      assertThat(mapper.getUser(76).getName()).isEqualTo("User76");
+    }
+    // stopped when the session is closed
+    assertThat(flusher.isAlive()).isFalse();
+  }
+
+  @Test
+  void shouldRethrowPipelinedFailureOnNextFlush() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setBatchFlushRows(1);
+    configuration.setBatchFlushPipelineDepth(1);
+    configuration.setBatchFlushPipelineThreadSafe(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User user = newUser(50);
+      user.setName("A name that does not fit the column");
+      mapper.insertUser(user);
+      assertThat(findFlusher()).isNotNull();
+      assertThatThrownBy(sqlSession::flushStatements).hasCauseInstanceOf(BatchExecutorException.class);
+    }
+  }
+
+  @Test
+  void shouldRethrowPipelinedFailureOnCommit() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setBatchFlushRows(1);
+    configuration.setBatchFlushPipelineDepth(1);
+    configuration.setBatchFlushPipelineThreadSafe(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(newUser(52));
+      User user = newUser(53);
+      user.setName("A name that does not fit the column");
+      mapper.insertUser(user);
+      Throwable thrown = catchThrowable(sqlSession::commit);
+      assertThat(thrown).hasCauseInstanceOf(BatchExecutorException.class);
+      BatchExecutorException failure = (BatchExecutorException) thrown.getCause();
+      assertThat(failure.getSuccessfulBatchResults()).hasSize(1);
+    }
+  }
+
+  private static Thread findFlusher() {
+    return Thread.getAllStackTraces().keySet().stream()
+        .filter(t -> "mybatis-batch-flusher".equals(t.getName())).findFirst().orElse(null);
+  }
+
+  private static User newUser(int id) {
+    Dept dept = new Dept();
+    dept.setId(1);
+    User user = new User();
+    user.setId(id);
+    user.setName("User" + id);
+    user.setDept(dept);
+    return user;
+  }
+
+}
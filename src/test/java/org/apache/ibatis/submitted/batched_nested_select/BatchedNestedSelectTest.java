@@ -0,0 +1,139 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batched_nested_select;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchedNestedSelectTest {
+
+  private static final String SINGLE_CUSTOMER = "select * from customers where id =";
+  private static final String BATCH_CUSTOMERS = "select * from customers where id in";
+  private static final String SINGLE_ORDERS = "select * from orders where customer_id =";
+  private static final String BATCH_ORDERS = "select * from orders where customer_id in";
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batched_nested_select/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batched_nested_select/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void resetCounter() {
+    QueryCounter.reset();
+  }
+
+  @Test
+  void shouldLoadEagerAssociationsInBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Order> orders = mapper.getOrders();
+      assertThat(orders).hasSize(5);
+      assertThat(orders.get(0).getCustomer().getName()).isEqualTo("Customer1");
+      assertThat(orders.get(1).getCustomer().getName()).isEqualTo("Customer2");
+      assertThat(orders.get(2).getCustomer()).isSameAs(orders.get(0).getCustomer());
+      assertThat(orders.get(3).getCustomer().getName()).isEqualTo("Customer3");
+      assertThat(orders.get(4).getCustomer()).isNull();
+      // 3 distinct keys, 2 keys per batch
+      assertThat(QueryCounter.count(BATCH_CUSTOMERS)).isEqualTo(2);
+      assertThat(QueryCounter.count(SINGLE_CUSTOMER)).isZero();
+    }
+  }
+
+  @Test
+  void shouldLoadEagerCollectionsInBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Customer> customers = mapper.getCustomersWithOrders();
+      assertThat(customers).hasSize(4);
+      assertThat(customers.get(0).getOrders()).extracting(Order::getId).containsExactly(1, 3);
+      assertThat(customers.get(1).getOrders()).extracting(Order::getId).containsExactly(2);
+      assertThat(customers.get(2).getOrders()).extracting(Order::getId).containsExactly(4);
+      assertThat(customers.get(3).getOrders()).isEmpty();
+      assertThat(QueryCounter.count(BATCH_ORDERS)).isEqualTo(2);
+      assertThat(QueryCounter.count(SINGLE_ORDERS)).isZero();
+    }
+  }
+
+  @Test
+  void shouldLoadLazyAssociationsOfOtherRowsInTheSameBatch() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Order> orders = mapper.getOrdersLazily();
+      assertThat(QueryCounter.count(BATCH_CUSTOMERS)).isZero();
+
+      assertThat(orders.get(0).getCustomer().getName()).isEqualTo("Customer1");
+      assertThat(QueryCounter.count(BATCH_CUSTOMERS)).isEqualTo(1);
+      // loaded along with the first order's customer
+      assertThat(orders.get(1).getCustomer().getName()).isEqualTo("Customer2");
+      assertThat(orders.get(2).getCustomer().getName()).isEqualTo("Customer1");
+      assertThat(QueryCounter.count(BATCH_CUSTOMERS)).isEqualTo(1);
+
+      assertThat(orders.get(3).getCustomer().getName()).isEqualTo("Customer3");
+      assertThat(QueryCounter.count(BATCH_CUSTOMERS)).isEqualTo(2);
+      assertThat(QueryCounter.count(SINGLE_CUSTOMER)).isZero();
+    }
+  }
+
+  @Test
+  void shouldUseTheSelectForCompositeKeys() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Order> orders = mapper.getOrdersWithCompositeKey();
+      assertThat(orders.get(0).getCustomer().getName()).isEqualTo("Customer1");
+      assertThat(orders.get(2).getCustomer()).isSameAs(orders.get(0).getCustomer());
+      assertThat(orders.get(4).getCustomer()).isNull();
+      assertThat(QueryCounter.count(SINGLE_CUSTOMER)).isEqualTo(3);
+      assertThat(QueryCounter.count(BATCH_CUSTOMERS)).isZero();
+    }
+  }
+
+  @Test
+  void shouldMatchKeysOfDifferentNumericTypes() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      // the parent keys are read as doubles, the customer ids as integers
+      List<Order> orders = mapper.getOrdersWithDoubleKeys();
+      assertThat(orders.get(0).getCustomer().getName()).isEqualTo("Customer1");
+      assertThat(orders.get(1).getCustomer().getName()).isEqualTo("Customer2");
+      assertThat(orders.get(2).getCustomer()).isSameAs(orders.get(0).getCustomer());
+      assertThat(orders.get(3).getCustomer().getName()).isEqualTo("Customer3");
+      assertThat(orders.get(4).getCustomer()).isNull();
+      assertThat(QueryCounter.count(BATCH_CUSTOMERS)).isEqualTo(2);
+      assertThat(QueryCounter.count(SINGLE_CUSTOMER)).isZero();
+    }
+  }
+
+}
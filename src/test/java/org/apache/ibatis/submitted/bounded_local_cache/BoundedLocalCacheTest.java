@@ -0,0 +1,90 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.bounded_local_cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.LocalCacheStatistics;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The local cache keeps a single result.
+ */
+class BoundedLocalCacheTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/bounded_local_cache/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/bounded_local_cache/CreateDB.sql");
+  }
+
+  @Test
+  void shouldEvictTheLeastRecentlyUsedResults() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Person bob = mapper.getPerson(3);
+      assertThat(mapper.getPerson(3)).isSameAs(bob);
+      mapper.getPerson(1);
+      assertThat(mapper.getPerson(3)).isNotSameAs(bob);
+
+      LocalCacheStatistics statistics = sqlSession.getLocalCacheStatistics();
+      assertThat(statistics.getSize()).isEqualTo(1);
+      assertThat(statistics.getHitCount()).isEqualTo(1);
+      // the nested select of John's parent is a miss too
+      assertThat(statistics.getMissCount()).isEqualTo(4);
+      assertThat(statistics.getEvictionCount()).isEqualTo(3);
+      assertThat(statistics.getEstimatedBytes()).isEqualTo(-1);
+    }
+  }
+
+  @Test
+  void shouldResolveCircularReferencesBeforeEvicting() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Person john = sqlSession.getMapper(Mapper.class).getPerson(1);
+      assertThat(john.getParent().getName()).isEqualTo("Jane");
+      assertThat(john.getParent().getParent()).isSameAs(john);
+      assertThat(sqlSession.getLocalCacheStatistics().getSize()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void shouldNotKeepTheResultsOfStatementsThatDoNotUseTheLocalCache() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Person bob = mapper.getPersonOnce(3);
+      assertThat(sqlSession.getLocalCacheStatistics().getSize()).isEqualTo(0);
+      assertThat(mapper.getPersonOnce(3)).isNotSameAs(bob);
+      assertThat(sqlSession.getLocalCacheStatistics().getEvictionCount()).isEqualTo(0);
+    }
+  }
+
+}
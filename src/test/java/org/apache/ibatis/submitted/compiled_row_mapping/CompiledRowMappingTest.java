@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CompiledRowMappingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/compiled_row_mapping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/compiled_row_mapping/CreateDB.sql");
+  }
+
+  @Test
+  void shouldMapAutomaticMappingsWithCompiledMapper() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsers();
+      assertThat(users).hasSize(3);
+      assertThat(users.get(0).getId()).isEqualTo(1);
+      assertThat(users.get(0).getName()).isEqualTo("User1");
+      assertThat(users.get(0).getUserType()).isEqualTo("ADMIN");
+      assertThat(users.get(0).getAge()).isEqualTo(30);
+      assertThat(users.get(1).getAge()).isEqualTo(0);
+      assertThat(users.get(2).getName()).isNull();
+      // the second execution reuses the compiled mapper
+      assertThat(mapper.getUsers()).hasSize(3);
+    }
+    assertThat(getMappedStatement("getUsers").getCompiledRowMappers()).hasSize(1);
+  }
+
+  @Test
+  void shouldMapExplicitMappingsWithCompiledMapper() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsersMapped();
+      assertThat(users).hasSize(3);
+      assertThat(users.get(1).getId()).isEqualTo(2);
+      assertThat(users.get(1).getName()).isEqualTo("User2");
+      assertThat(users.get(1).getUserType()).isEqualTo("GUEST");
+    }
+    assertThat(getMappedStatement("getUsersMapped").getCompiledRowMappers()).hasSize(1);
+  }
+
+  @Test
+  void shouldFallbackForDiscriminators() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsersDiscriminated();
+      assertThat(users).hasSize(3);
+      assertThat(users.get(0)).isInstanceOf(Admin.class);
+      assertThat(users.get(1)).isNotInstanceOf(Admin.class);
+      assertThat(users.get(1).getName()).isEqualTo("User2");
+    }
+    assertThat(getMappedStatement("getUsersDiscriminated").getCompiledRowMappers()).isEmpty();
+  }
+
+  @Test
+  void shouldCompileOneMapperPerColumnLayout() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User user = mapper.getUserColumns(1, "id, name");
+      assertThat(user.getName()).isEqualTo("User1");
+      assertThat(user.getAge()).isEqualTo(0);
+      user = mapper.getUserColumns(1, "id, age");
+      assertThat(user.getName()).isNull();
+      assertThat(user.getAge()).isEqualTo(30);
+    }
+    assertThat(getMappedStatement("getUserColumns").getCompiledRowMappers()).hasSize(2);
+  }
+
+  private MappedStatement getMappedStatement(String id) {
+    return sqlSessionFactory.getConfiguration().getMappedStatement(Mapper.class.getName() + "." + id);
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2020 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -25,4 +25,6 @@ public interface OrdersMapper {
   void getOrder2(Map<String, Object> parameter);
 
   void getOrder3(Map<String, Object> parameter, ResultHandler<Order> resultHandler);
+
+  void getOrder4(Map<String, Object> parameter);
 }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2019 the original author or authors.
+ *    Copyright 2009-2020 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -133,4 +133,20 @@ class RefCursorTest {
       assertEquals(0, parameter.get("detailCount"));
     }
   }
+
+  @Test
+  void shouldLoadBatchedNestedSelectsOfOutputParam() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      OrdersMapper mapper = sqlSession.getMapper(OrdersMapper.class);
+      Map<String, Object> parameter = new HashMap<>();
+      parameter.put("orderId", 1);
+      mapper.getOrder4(parameter);
+
+      @SuppressWarnings("unchecked")
+      List<Order> orders = (List<Order>) parameter.get("order");
+      assertEquals(1, orders.size());
+      assertNotNull(orders.get(0).getDetailLines());
+      assertEquals(3, orders.get(0).getDetailLines().size());
+    }
+  }
 }
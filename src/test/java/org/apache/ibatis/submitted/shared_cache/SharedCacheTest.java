@@ -0,0 +1,84 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.shared_cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cache.shared.SharedCacheRegions;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Two factories of the same JVM bind the mapper to the same shared cache region.
+ */
+class SharedCacheTest {
+
+  private static SqlSessionFactory firstFactory;
+  private static SqlSessionFactory secondFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    firstFactory = newFactory();
+    secondFactory = newFactory();
+
+    // populate in-memory database
+    BaseDataTest.runScript(firstFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/shared_cache/CreateDB.sql");
+  }
+
+  @AfterAll
+  static void tearDown() {
+    SharedCacheRegions.removeRegion("shared_cache");
+  }
+
+  private static SqlSessionFactory newFactory() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/shared_cache/mybatis-config.xml")) {
+      return new SqlSessionFactoryBuilder().build(reader);
+    }
+  }
+
+  @Test
+  void shouldShareResultsAndInvalidationsAcrossFactories() {
+    try (SqlSession sqlSession = firstFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).getCountry(1).getName()).isEqualTo("France");
+    }
+    try (SqlSession sqlSession = secondFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).getCountry(1).getName()).isEqualTo("France");
+    }
+    assertThat(secondFactory.getConfiguration().getCacheStatistics(Mapper.class.getName()).getHitCount())
+        .isEqualTo(1);
+
+    try (SqlSession sqlSession = secondFactory.openSession()) {
+      Country country = new Country();
+      country.setId(1);
+      country.setName("Italy");
+      sqlSession.getMapper(Mapper.class).updateCountry(country);
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = firstFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).getCountry(1).getName()).isEqualTo("Italy");
+    }
+  }
+
+}
@@ -0,0 +1,39 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop view customer_names if exists;
+drop table orders if exists;
+drop table customers if exists;
+
+create table customers (
+  id int,
+  name varchar(20)
+);
+
+create table orders (
+  id int,
+  customer_id int,
+  amount int
+);
+
+create view customer_names as select id, name from customers;
+
+insert into customers (id, name) values (1, 'Customer1');
+insert into customers (id, name) values (2, 'Customer2');
+
+insert into orders (id, customer_id, amount) values (1, 1, 10);
+insert into orders (id, customer_id, amount) values (2, 2, 20);
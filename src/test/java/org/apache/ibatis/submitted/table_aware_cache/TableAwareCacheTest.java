@@ -0,0 +1,164 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.table_aware_cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The cache is read only, so a cache hit returns the very same instance.
+ */
+class TableAwareCacheTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/table_aware_cache/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/table_aware_cache/CreateDB.sql");
+  }
+
+  @Test
+  void shouldOnlyInvalidateTheEntriesOfTheWrittenTable() {
+    Customer customer;
+    Order order;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      customer = mapper.getCustomer(1);
+      order = mapper.getOrder(1);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).updateOrderAmount(1, 15);
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.getCustomer(1)).isSameAs(customer);
+      Order reloaded = mapper.getOrder(1);
+      assertThat(reloaded).isNotSameAs(order);
+      assertThat(reloaded.getAmount()).isEqualTo(15);
+    }
+  }
+
+  @Test
+  void shouldInvalidateJoinsOfTheWrittenTable() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).getTotalAmount("Customer1")).isEqualTo(10);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).updateOrderAmount(1, 15);
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).getTotalAmount("Customer1")).isEqualTo(15);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).updateCustomerName(1, "Renamed");
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).getTotalAmount("Customer1")).isNull();
+    }
+  }
+
+  @Test
+  void shouldInvalidateTheResultsOfNestedSelects() {
+    Order order;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      order = sqlSession.getMapper(Mapper.class).getOrderWithCustomer(1);
+      assertThat(order.getCustomer().getName()).isEqualTo("Customer1");
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).updateCustomerName(1, "Renamed");
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Order reloaded = sqlSession.getMapper(Mapper.class).getOrderWithCustomer(1);
+      assertThat(reloaded).isNotSameAs(order);
+      assertThat(reloaded.getCustomer().getName()).isEqualTo("Renamed");
+    }
+  }
+
+  @Test
+  void shouldUseTheDeclaredTags() {
+    Order order;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.getCustomerName(1)).isEqualTo("Customer1");
+      order = mapper.getOrder(1);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).updateCustomerName(1, "Renamed");
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      // reads a view declared as depending on customers
+      assertThat(mapper.getCustomerName(1)).isEqualTo("Renamed");
+      assertThat(mapper.getOrder(1)).isSameAs(order);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      // writes customers but declared as writing orders
+      sqlSession.getMapper(Mapper.class).updateCustomerNameAsOrder(1, "Customer1");
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.getCustomerName(1)).isEqualTo("Renamed");
+      assertThat(mapper.getOrder(1)).isNotSameAs(order);
+    }
+  }
+
+  @Test
+  void shouldNotReadInvalidatedEntriesBeforeCommit() {
+    Customer customer;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      customer = mapper.getCustomer(1);
+      mapper.getOrder(1);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.updateOrderAmount(1, 15);
+      sqlSession.clearCache();
+      assertThat(mapper.getOrder(1).getAmount()).isEqualTo(15);
+      assertThat(mapper.getCustomer(1)).isSameAs(customer);
+      sqlSession.rollback();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      // rolled back, so the cache is still valid
+      assertThat(mapper.getOrder(1).getAmount()).isEqualTo(10);
+      assertThat(mapper.getCustomer(1)).isSameAs(customer);
+    }
+  }
+
+}